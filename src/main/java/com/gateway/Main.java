@@ -2,9 +2,15 @@ package com.gateway;
 
 import com.gateway.config.AppConfig;
 import com.gateway.database.DatabaseConnectionPool;
+import com.gateway.netty.BlockingHandlerExecutor;
 import com.gateway.netty.NettyServer;
+import com.gateway.service.CircuitBreakerService;
+import com.gateway.service.ConfigChangeListener;
 import com.gateway.service.HealthCheckService;
+import com.gateway.service.LogPartitionService;
 import com.gateway.service.LogService;
+import com.gateway.service.RateLimitService;
+import com.gateway.service.RouteTableService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -20,15 +26,33 @@ public class Main {
             DatabaseConnectionPool.initialize();
             logger.info("Database initialized successfully");
 
+            // Load routes into memory; the proxy path never queries them again
+            RouteTableService.getInstance().rebuild();
+            RateLimitService.getInstance().reload();
+
             // 2. Start background services
             logger.info("Starting background services");
 
             HealthCheckService healthCheckService = new HealthCheckService();
             healthCheckService.start();
 
+            LogPartitionService logPartitions = LogPartitionService.getInstance();
+            logPartitions.start();
+
             LogService logService = LogService.getInstance();
             logService.start();
 
+            CircuitBreakerService circuitBreakers = CircuitBreakerService.getInstance();
+            circuitBreakers.start();
+
+            RateLimitService rateLimits = RateLimitService.getInstance();
+            rateLimits.start();
+
+            ConfigChangeListener configListener = ConfigChangeListener.getInstance();
+            if (AppConfig.isConfigListenEnabled()) {
+                configListener.start();
+            }
+
             logger.info("Background services started successfully");
 
             // 3. Create Netty server
@@ -41,10 +65,15 @@ public class Main {
 
                 // Stop accepting new requests
                 server.shutdown();
+                BlockingHandlerExecutor.getInstance().shutdown();
 
                 // Stop background services
                 healthCheckService.stop();
                 logService.stop();
+                logPartitions.stop();
+                configListener.stop();
+                circuitBreakers.stop();
+                rateLimits.stop();
 
                 // Close database connections
                 DatabaseConnectionPool.close();
@@ -44,6 +44,11 @@ public class AppConfig {
         return Boolean.parseBoolean(properties.getProperty(key));
     }
 
+    public static boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+
     // Server config
     public static int getServerPort() {
         return getInt("server.port", 8080);
@@ -57,6 +62,31 @@ public class AppConfig {
         return getInt("server.worker.threads", 0); // 0 = default (CPU cores * 2)
     }
 
+    public static int getServerListeners() {
+        return getInt("server.listeners", 1);
+    }
+
+    public static int getServerBacklog() {
+        return getInt("server.backlog", 1024);
+    }
+
+    public static int getServerSocketReceiveBuffer() {
+        return getInt("server.socket.rcvbuf", 0); // 0 = OS default
+    }
+
+    public static int getServerSocketSendBuffer() {
+        return getInt("server.socket.sndbuf", 0); // 0 = OS default
+    }
+
+    /** Whether blocking handlers get a virtual thread per request ({@code server.execution.mode=virtual}). */
+    public static boolean isVirtualThreadExecution() {
+        return "virtual".equalsIgnoreCase(get("server.execution.mode", "pool"));
+    }
+
+    public static int getBlockingTimeoutMs() {
+        return getInt("server.blocking.timeout.ms", 30000);
+    }
+
     // Database config
     public static String getDbUrl() {
         return get("db.url");
@@ -106,14 +136,87 @@ public class AppConfig {
 
     // Log service config
     public static int getLogBufferSize() {
-        return getInt("log.buffer.size", 10000);
+        return getInt("log.buffer.size", 100000);
     }
 
     public static int getLogBatchSize() {
-        return getInt("log.batch.size", 100);
+        return getInt("log.batch.size", 1000);
+    }
+
+    public static int getLogFlushIntervalMs() {
+        return getInt("log.flush.interval.ms", 200);
+    }
+
+    public static int getLogWriters() {
+        return getInt("log.writers", 2);
+    }
+
+    public static int getLogRetentionHours() {
+        return getInt("log.retention.hours", 720);
+    }
+
+    // Proxy config
+    public static int getProxyConnectTimeout() {
+        return getInt("proxy.connect.timeout.seconds", 10);
+    }
+
+    public static int getProxyRequestTimeout() {
+        return getInt("proxy.request.timeout.seconds", 30);
+    }
+
+    public static int getProxyMaxContentLength() {
+        return getInt("proxy.max.content.length", 10 * 1024 * 1024);
+    }
+
+    public static boolean isProxyStreamingEnabled() {
+        return getBoolean("proxy.streaming.enabled", false);
+    }
+
+    public static boolean isKeepAliveEnabled() {
+        return getBoolean("server.keepalive.enabled", true);
+    }
+
+    public static int getKeepAliveMaxRequests() {
+        return getInt("server.keepalive.max.requests", 1000);
+    }
+
+    public static int getIdleTimeoutSeconds() {
+        return getInt("server.idle.timeout.seconds", 60);
+    }
+
+    public static int getUpstreamPoolMaxConnections() {
+        return getInt("upstream.pool.max.connections", 64);
+    }
+
+    public static int getUpstreamPoolMaxPendingAcquires() {
+        return getInt("upstream.pool.max.pending.acquires", 1024);
+    }
+
+    public static int getUpstreamPoolIdleTimeout() {
+        return getInt("upstream.pool.idle.timeout.seconds", 30);
+    }
+
+    public static int getUpstreamPoolMaxLifetime() {
+        return getInt("upstream.pool.max.lifetime.seconds", 300);
+    }
+
+    public static int getUpstreamPoolPrewarmConnections() {
+        return getInt("upstream.pool.prewarm.connections", 1);
+    }
+
+    public static int getLoadBalancerEwmaDecayMs() {
+        return getInt("loadbalancer.ewma.decay.ms", 10000);
+    }
+
+    public static boolean isConfigListenEnabled() {
+        return getBoolean("config.listen.enabled", true);
+    }
+
+    public static int getConfigListenPollMs() {
+        return getInt("config.listen.poll.ms", 500);
     }
 
-    public static int getLogFlushInterval() {
-        return getInt("log.flush.interval.seconds", 5);
+    public static int getConfigListenMaxBackoffSeconds() {
+        return getInt("config.listen.max.backoff.seconds", 30);
     }
-}
\ No newline at end of file
+}
@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 
 public class DatabaseConnectionPool {
@@ -23,6 +24,16 @@ public class DatabaseConnectionPool {
         config.setMaximumPoolSize(AppConfig.getDbPoolMaximum());
         config.setMinimumIdle(AppConfig.getDbPoolMinimum());
         config.setConnectionTimeout(AppConfig.getInt("db.connection.timeout", 30000));
+        if (AppConfig.isVirtualThreadExecution()) {
+            // Thousands of request threads share a pool sized for the database, not for them: keep it
+            // fixed so bursts don't stall on opening connections, and never wait longer than the request may
+            config.setMinimumIdle(AppConfig.getDbPoolMaximum());
+            int timeoutMs = AppConfig.getBlockingTimeoutMs();
+            if (timeoutMs > 0) {
+                // Hikari's floor is 250ms
+                config.setConnectionTimeout(Math.max(250, Math.min(config.getConnectionTimeout(), timeoutMs)));
+            }
+        }
         config.setIdleTimeout(AppConfig.getInt("db.idle.timeout", 600000));
         config.setMaxLifetime(AppConfig.getInt("db.max.lifetime", 1800000));
 
@@ -31,6 +42,8 @@ public class DatabaseConnectionPool {
         config.addDataSourceProperty("prepStmtCacheSize", "250");
         config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
         config.addDataSourceProperty("useServerPrepStmts", "true");
+        // Sends executeBatch() inserts as multi-row INSERTs, e.g. request log batches
+        config.addDataSourceProperty("reWriteBatchedInserts", "true");
 
         dataSource = new HikariDataSource(config);
 
@@ -59,6 +72,15 @@ public class DatabaseConnectionPool {
         return dataSource.getConnection();
     }
 
+    /**
+     * A connection outside the pool, for sessions that hold it open
+     * indefinitely (LISTEN). The caller closes it.
+     */
+    public static Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(
+                AppConfig.getDbUrl(), AppConfig.getDbUsername(), AppConfig.getDbPassword());
+    }
+
     public static void close() {
         if (dataSource != null && !dataSource.isClosed()) {
             logger.info("Closing database connection pool");
@@ -9,6 +9,9 @@ import java.sql.Statement;
 public class ManualMigrations {
     private static final Logger logger = LoggerFactory.getLogger(ManualMigrations.class);
 
+    /** NOTIFY channel for route, target and gateway changes. */
+    public static final String CONFIG_CHANNEL = "gateway_config";
+
     public static void runMigrations(Connection connection) throws Exception {
         logger.info("Running database migrations");
 
@@ -157,10 +160,230 @@ public class ManualMigrations {
                 )
             """);
 
+            // Indexes are created by migration 13, which partitions this table
+
+            // Migration 6: Config change notifications
+            // Every node LISTENs on this channel and patches its in-memory route table
+            logger.info("Creating config change notification triggers");
+            stmt.execute("""
+                CREATE OR REPLACE FUNCTION notify_config_change()
+                RETURNS TRIGGER AS $$
+                DECLARE
+                    rec RECORD;
+                    parent UUID;
+                BEGIN
+                    IF TG_OP = 'DELETE' THEN
+                        rec := OLD;
+                    ELSE
+                        rec := NEW;
+                    END IF;
+
+                    IF TG_TABLE_NAME = 'routes' THEN
+                        parent := rec.gateway_id;
+                    ELSIF TG_TABLE_NAME = 'route_targets' THEN
+                        parent := rec.route_id;
+                    ELSIF TG_TABLE_NAME = 'rate_limits' THEN
+                        parent := rec.gateway_id;
+                    END IF;
+
+                    PERFORM pg_notify('%s', json_build_object(
+                        'table', TG_TABLE_NAME,
+                        'op', TG_OP,
+                        'id', rec.id,
+                        'parent_id', parent
+                    )::text);
+                    RETURN NULL;
+                END;
+                $$ language 'plpgsql'
+            """.formatted(CONFIG_CHANNEL));
+
+            stmt.execute("DROP TRIGGER IF EXISTS notify_routes_change ON routes");
+            stmt.execute("""
+                CREATE TRIGGER notify_routes_change
+                AFTER INSERT OR UPDATE OR DELETE ON routes
+                FOR EACH ROW EXECUTE FUNCTION notify_config_change()
+            """);
+
+            // Health checks touch consecutive_failures/last_health_check on every cycle;
+            // only changes that affect routing are announced
+            stmt.execute("DROP TRIGGER IF EXISTS notify_route_targets_change ON route_targets");
+            stmt.execute("DROP TRIGGER IF EXISTS notify_route_targets_update ON route_targets");
+            stmt.execute("""
+                CREATE TRIGGER notify_route_targets_change
+                AFTER INSERT OR DELETE ON route_targets
+                FOR EACH ROW EXECUTE FUNCTION notify_config_change()
+            """);
+            stmt.execute("""
+                CREATE TRIGGER notify_route_targets_update
+                AFTER UPDATE ON route_targets
+                FOR EACH ROW
+                WHEN (OLD.route_id IS DISTINCT FROM NEW.route_id
+                      OR OLD.target_url IS DISTINCT FROM NEW.target_url
+                      OR OLD.is_active IS DISTINCT FROM NEW.is_active
+                      OR OLD.health_status IS DISTINCT FROM NEW.health_status
+                      OR OLD.weight IS DISTINCT FROM NEW.weight)
+                EXECUTE FUNCTION notify_config_change()
+            """);
+
+            // A gateway only matters to routing once it is gone
+            stmt.execute("DROP TRIGGER IF EXISTS notify_gateways_change ON gateways");
+            stmt.execute("""
+                CREATE TRIGGER notify_gateways_change
+                AFTER DELETE ON gateways
+                FOR EACH ROW EXECUTE FUNCTION notify_config_change()
+            """);
+
+            // Migration 7: Per-route load balancing strategy
+            logger.info("Adding load balancing strategy to routes");
+            stmt.execute("""
+                ALTER TABLE routes
+                ADD COLUMN IF NOT EXISTS lb_strategy VARCHAR(32) NOT NULL DEFAULT 'weighted_round_robin'
+            """);
+
+            stmt.execute("ALTER TABLE routes DROP CONSTRAINT IF EXISTS valid_lb_strategy");
+            stmt.execute("""
+                ALTER TABLE routes ADD CONSTRAINT valid_lb_strategy CHECK (lb_strategy IN
+                    ('weighted_round_robin', 'weighted_random', 'least_outstanding', 'p2c_ewma',
+                     'consistent_hash', 'maglev'))
+            """);
+
+            // header:<name>, cookie:<name>, path:<segment> or client_ip (NULL)
+            stmt.execute("ALTER TABLE routes ADD COLUMN IF NOT EXISTS lb_hash_key VARCHAR(128)");
+
+            // Migration 8: Circuit breaker state, as last reported by a gateway node
+            logger.info("Adding circuit breaker state to route_targets");
+            stmt.execute("ALTER TABLE route_targets ADD COLUMN IF NOT EXISTS circuit_state VARCHAR(16) NOT NULL DEFAULT 'closed'");
+            stmt.execute("ALTER TABLE route_targets ADD COLUMN IF NOT EXISTS circuit_changed_at TIMESTAMP");
+
+            // Migration 9: Per-route retry policy (JSON, see RetryPolicy); NULL means a single try
+            logger.info("Adding retry policy to routes");
+            stmt.execute("ALTER TABLE routes ADD COLUMN IF NOT EXISTS retry_policy TEXT");
+
+            // Migration 10: Rate limits per gateway or route, keyed by limit_key
+            // (client_ip, header:<name> or shared); see RateLimitService
+            logger.info("Creating rate_limits table");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS rate_limits (
+                    id UUID PRIMARY KEY DEFAULT uuid_generate_v4(),
+                    gateway_id UUID NOT NULL REFERENCES gateways(id) ON DELETE CASCADE,
+                    route_id UUID REFERENCES routes(id) ON DELETE CASCADE,
+                    limit_key VARCHAR(128) NOT NULL DEFAULT 'client_ip',
+                    requests INTEGER NOT NULL,
+                    period_ms INTEGER NOT NULL DEFAULT 1000,
+                    burst INTEGER NOT NULL,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    CONSTRAINT valid_rate_limit CHECK (requests > 0 AND period_ms > 0 AND burst > 0)
+                )
+            """);
+
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_rate_limits_gateway_id ON rate_limits(gateway_id)");
+
+            stmt.execute("""
+                DROP TRIGGER IF EXISTS update_rate_limits_updated_at ON rate_limits
+            """);
+
+            stmt.execute("""
+                CREATE TRIGGER update_rate_limits_updated_at
+                BEFORE UPDATE ON rate_limits
+                FOR EACH ROW EXECUTE FUNCTION update_updated_at_column()
+            """);
+
+            stmt.execute("DROP TRIGGER IF EXISTS notify_rate_limits_change ON rate_limits");
+            stmt.execute("""
+                CREATE TRIGGER notify_rate_limits_change
+                AFTER INSERT OR UPDATE OR DELETE ON rate_limits
+                FOR EACH ROW EXECUTE FUNCTION notify_config_change()
+            """);
+
+            // Migration 11: Cluster-wide rate limit buckets that nodes lease tokens from
+            logger.info("Creating rate_limit_allowances table");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS rate_limit_allowances (
+                    limit_id UUID NOT NULL REFERENCES rate_limits(id) ON DELETE CASCADE,
+                    bucket_key TEXT NOT NULL,
+                    tokens DOUBLE PRECISION NOT NULL,
+                    rate_per_ms DOUBLE PRECISION NOT NULL,
+                    capacity DOUBLE PRECISION NOT NULL,
+                    refreshed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (limit_id, bucket_key)
+                )
+            """);
+
+            // Migration 12: Per-route response cache policy (JSON, see CachePolicy); NULL means no caching
+            logger.info("Adding cache policy to routes");
+            stmt.execute("ALTER TABLE routes ADD COLUMN IF NOT EXISTS cache_policy TEXT");
+
+            // Migration 13: Range-partition request_logs on created_at (see LogPartitionService).
+            // An existing plain table becomes the partition for everything up to the end of
+            // today, or is dropped if empty; the created_at and status_code indexes are gone,
+            // since partition pruning covers time ranges and status is always filtered with gateway_id
+            logger.info("Partitioning request_logs");
+            stmt.execute("""
+                DO $$
+                BEGIN
+                    IF EXISTS (SELECT 1 FROM pg_class WHERE oid = to_regclass('request_logs') AND relkind = 'r') THEN
+                        DROP INDEX IF EXISTS idx_request_logs_created_at;
+                        DROP INDEX IF EXISTS idx_request_logs_status;
+                        ALTER INDEX IF EXISTS idx_request_logs_gateway_id RENAME TO idx_request_logs_legacy_gateway_id;
+                        ALTER INDEX IF EXISTS idx_request_logs_route_id RENAME TO idx_request_logs_legacy_route_id;
+                        ALTER TABLE request_logs RENAME CONSTRAINT request_logs_pkey TO request_logs_legacy_pkey;
+                        ALTER TABLE request_logs RENAME TO request_logs_legacy;
+                        -- Keep ids going, and keep the sequence when the old table is dropped
+                        ALTER SEQUENCE IF EXISTS request_logs_id_seq OWNED BY NONE;
+                    END IF;
+                END
+                $$
+            """);
+
+            stmt.execute("CREATE SEQUENCE IF NOT EXISTS request_logs_id_seq");
+            stmt.execute("""
+                CREATE TABLE IF NOT EXISTS request_logs (
+                    id BIGINT NOT NULL DEFAULT nextval('request_logs_id_seq'),
+                    gateway_id UUID NOT NULL,
+                    route_id UUID,
+                    target_id UUID,
+                    method VARCHAR(10) NOT NULL,
+                    path VARCHAR(500) NOT NULL,
+                    status_code INTEGER NOT NULL,
+                    latency_ms INTEGER NOT NULL,
+                    error_message TEXT,
+                    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                    PRIMARY KEY (id, created_at)
+                ) PARTITION BY RANGE (created_at)
+            """);
+            stmt.execute("ALTER SEQUENCE request_logs_id_seq OWNED BY request_logs.id");
+
+            // Catches rows no partition covers yet, e.g. if maintenance is behind
+            stmt.execute("CREATE TABLE IF NOT EXISTS request_logs_default PARTITION OF request_logs DEFAULT");
+
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_request_logs_gateway_id ON request_logs(gateway_id, created_at DESC)");
             stmt.execute("CREATE INDEX IF NOT EXISTS idx_request_logs_route_id ON request_logs(route_id, created_at DESC)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_request_logs_created_at ON request_logs(created_at DESC)");
-            stmt.execute("CREATE INDEX IF NOT EXISTS idx_request_logs_status ON request_logs(status_code, created_at DESC)");
+
+            // Attaching builds the (id, created_at) key on the old table and adopts its two
+            // matching indexes; it scans the table once to check the range
+            stmt.execute("""
+                DO $$
+                BEGIN
+                    IF to_regclass('request_logs_legacy') IS NOT NULL
+                       AND NOT EXISTS (SELECT 1 FROM pg_inherits WHERE inhrelid = to_regclass('request_logs_legacy')) THEN
+                        IF EXISTS (SELECT 1 FROM request_logs_legacy) THEN
+                            EXECUTE format(
+                                'ALTER TABLE request_logs ATTACH PARTITION request_logs_legacy FOR VALUES FROM (MINVALUE) TO (%L)',
+                                date_trunc('day', LOCALTIMESTAMP) + interval '1 day');
+                        ELSE
+                            DROP TABLE request_logs_legacy;
+                        END IF;
+                    END IF;
+                END
+                $$
+            """);
+
+            // Migration 14: Cap target weights; balancers size tables and rings by weight
+            logger.info("Capping route target weights");
+            stmt.execute("UPDATE route_targets SET weight = 1000 WHERE weight > 1000");
+            stmt.execute("ALTER TABLE route_targets DROP CONSTRAINT IF EXISTS valid_weight");
+            stmt.execute("ALTER TABLE route_targets ADD CONSTRAINT valid_weight CHECK (weight BETWEEN 1 AND 1000)");
 
             logger.info("Database migrations completed successfully");
         }
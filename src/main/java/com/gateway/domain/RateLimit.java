@@ -0,0 +1,79 @@
+package com.gateway.domain;
+
+import java.time.Instant;
+import java.util.UUID;
+
+public class RateLimit {
+    private final UUID id;
+    private final UUID gatewayId;
+    private final UUID routeId;
+    private final String limitKey;
+    private final int requests;
+    private final int periodMs;
+    private final int burst;
+    private final Instant createdAt;
+    private final Instant updatedAt;
+
+    public RateLimit(UUID id, UUID gatewayId, UUID routeId, String limitKey, int requests,
+                     int periodMs, int burst, Instant createdAt, Instant updatedAt) {
+        this.id = id;
+        this.gatewayId = gatewayId;
+        this.routeId = routeId;
+        this.limitKey = limitKey;
+        this.requests = requests;
+        this.periodMs = periodMs;
+        this.burst = burst;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getGatewayId() {
+        return gatewayId;
+    }
+
+    /** Route the limit applies to, or {@code null} for every route of the gateway. */
+    public UUID getRouteId() {
+        return routeId;
+    }
+
+    public String getLimitKey() {
+        return limitKey;
+    }
+
+    public int getRequests() {
+        return requests;
+    }
+
+    public int getPeriodMs() {
+        return periodMs;
+    }
+
+    public int getBurst() {
+        return burst;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimit{" +
+                "id=" + id +
+                ", gatewayId=" + gatewayId +
+                ", routeId=" + routeId +
+                ", limitKey='" + limitKey + '\'' +
+                ", requests=" + requests +
+                ", periodMs=" + periodMs +
+                ", burst=" + burst +
+                '}';
+    }
+}
@@ -9,16 +9,25 @@ public class Route {
     private final String path;
     private final String method;
     private final int timeoutMs;
+    private final String lbStrategy;
+    private final String lbHashKey;
+    private final String retryPolicy;
+    private final String cachePolicy;
     private final Instant createdAt;
     private final Instant updatedAt;
 
     public Route(UUID id, UUID gatewayId, String path, String method,
-                 int timeoutMs, Instant createdAt, Instant updatedAt) {
+                 int timeoutMs, String lbStrategy, String lbHashKey, String retryPolicy,
+                 String cachePolicy, Instant createdAt, Instant updatedAt) {
         this.id = id;
         this.gatewayId = gatewayId;
         this.path = path;
         this.method = method;
         this.timeoutMs = timeoutMs;
+        this.lbStrategy = lbStrategy;
+        this.lbHashKey = lbHashKey;
+        this.retryPolicy = retryPolicy;
+        this.cachePolicy = cachePolicy;
         this.createdAt = createdAt;
         this.updatedAt = updatedAt;
     }
@@ -43,6 +52,26 @@ public class Route {
         return timeoutMs;
     }
 
+    /** Name of the {@code LoadBalancingAlgorithm} that spreads requests over the targets. */
+    public String getLbStrategy() {
+        return lbStrategy;
+    }
+
+    /** What hashing strategies key requests by ({@code HashKey} spec); {@code null} means client IP. */
+    public String getLbHashKey() {
+        return lbHashKey;
+    }
+
+    /** {@code RetryPolicy} as JSON; {@code null} means a single try. */
+    public String getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /** {@code CachePolicy} as JSON; {@code null} means responses are not cached. */
+    public String getCachePolicy() {
+        return cachePolicy;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
@@ -59,6 +88,10 @@ public class Route {
                 ", path='" + path + '\'' +
                 ", method='" + method + '\'' +
                 ", timeoutMs=" + timeoutMs +
+                ", lbStrategy='" + lbStrategy + '\'' +
+                ", lbHashKey='" + lbHashKey + '\'' +
+                ", retryPolicy='" + retryPolicy + '\'' +
+                ", cachePolicy='" + cachePolicy + '\'' +
                 '}';
     }
 }
\ No newline at end of file
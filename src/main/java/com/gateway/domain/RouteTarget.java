@@ -4,6 +4,9 @@ import java.time.Instant;
 import java.util.UUID;
 
 public class RouteTarget {
+    /** Largest weight a target may have; matches the route_targets CHECK constraint. */
+    public static final int MAX_WEIGHT = 1000;
+
     private final UUID id;
     private final UUID routeId;
     private final String targetUrl;
@@ -1,6 +1,8 @@
 package com.gateway.http;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.QueryStringDecoder;
 
@@ -11,23 +13,32 @@ import java.util.Map;
 
 public class RequestContext {
     private final String method;
+    private final String uri;
     private final String path;
     private final Map<String, String> headers;
     private final Map<String, String> queryParams;
-    private final String body;
+    private ByteBuf content;
+    private String body;
+    private final Channel channel;
     private final Map<String, String> pathParams;
 
-    private RequestContext(String method, String path, Map<String, String> headers,
-                           Map<String, String> queryParams, String body) {
+    private RequestContext(String method, String uri, String path, Map<String, String> headers,
+                           Map<String, String> queryParams, ByteBuf content, Channel channel) {
         this.method = method;
+        this.uri = uri;
         this.path = path;
         this.headers = headers;
         this.queryParams = queryParams;
-        this.body = body;
+        this.content = content;
+        this.channel = channel;
         this.pathParams = new HashMap<>();
     }
 
     public static RequestContext from(FullHttpRequest request) {
+        return from(request, null);
+    }
+
+    public static RequestContext from(FullHttpRequest request, Channel channel) {
         String method = request.method().name();
         String uri = request.uri();
 
@@ -49,14 +60,8 @@ public class RequestContext {
                 headers.put(entry.getKey().toLowerCase(), entry.getValue())
         );
 
-        // Read body
-        String body = "";
-        ByteBuf content = request.content();
-        if (content.isReadable()) {
-            body = content.toString(StandardCharsets.UTF_8);
-        }
-
-        return new RequestContext(method, path, headers, queryParams, body);
+        // Body is decoded lazily: proxied requests forward the raw bytes and never need a String
+        return new RequestContext(method, uri, path, headers, queryParams, request.content(), channel);
     }
 
     public void addPathParam(String key, String value) {
@@ -80,13 +85,46 @@ public class RequestContext {
         return null;
     }
 
+    /**
+     * Raw query string (without the leading '?'), or null if the URI has none.
+     */
+    public String getRawQuery() {
+        int idx = uri.indexOf('?');
+        return idx >= 0 && idx < uri.length() - 1 ? uri.substring(idx + 1) : null;
+    }
+
+    /**
+     * Returns a retained slice of the raw request body. Used by the proxy path so
+     * binary payloads are forwarded byte-for-byte; the caller must release it.
+     */
+    public ByteBuf retainedContent() {
+        return content != null ? content.retainedDuplicate() : Unpooled.EMPTY_BUFFER;
+    }
+
+    /**
+     * Decodes the body now and drops the reference to the request's buffer, so
+     * the context can be handed to another thread after the request message
+     * has been released.
+     */
+    public void detachContent() {
+        getBody();
+        content = null;
+    }
+
     // Getters
     public String getMethod() { return method; }
+    public String getUri() { return uri; }
     public String getPath() { return path; }
     public String getHeader(String name) { return headers.get(name.toLowerCase()); }
     public String getQueryParam(String name) { return queryParams.get(name); }
     public String getPathParam(String name) { return pathParams.get(name); }
-    public String getBody() { return body; }
+    public String getBody() {
+        if (body == null) {
+            body = content != null && content.isReadable() ? content.toString(StandardCharsets.UTF_8) : "";
+        }
+        return body;
+    }
+    public Channel getChannel() { return channel; }
     public Map<String, String> getHeaders() { return headers; }
     public Map<String, String> getQueryParams() { return queryParams; }
 
@@ -94,4 +132,4 @@ public class RequestContext {
     public String toString() {
         return method + " " + path;
     }
-}
\ No newline at end of file
+}
@@ -1,5 +1,6 @@
 package com.gateway.http;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.http.*;
 
@@ -10,7 +11,7 @@ import static io.netty.handler.codec.http.HttpVersion.HTTP_1_1;
 
 public class ResponseBuilder {
     private final HttpResponseStatus status;
-    private final DefaultFullHttpResponse response;
+    private FullHttpResponse response;
 
     private ResponseBuilder(HttpResponseStatus status) {
         this.status = status;
@@ -76,6 +77,18 @@ public class ResponseBuilder {
         return this;
     }
 
+    /**
+     * Uses {@code content} as the response body without copying it. The builder
+     * takes ownership of the buffer.
+     */
+    public ResponseBuilder body(ByteBuf content) {
+        FullHttpResponse previous = response;
+        response = previous.replace(content);
+        previous.release();
+        response.headers().set(HttpHeaderNames.CONTENT_LENGTH, content.readableBytes());
+        return this;
+    }
+
     public ResponseBuilder header(String name, String value) {
         response.headers().set(name, value);
         return this;
@@ -86,6 +99,11 @@ public class ResponseBuilder {
         return this;
     }
 
+    public ResponseBuilder headers(HttpHeaders headers) {
+        response.headers().add(headers);
+        return this;
+    }
+
     public FullHttpResponse build() {
         // Set default content-type if not set
         if (!response.headers().contains(HttpHeaderNames.CONTENT_TYPE)) {
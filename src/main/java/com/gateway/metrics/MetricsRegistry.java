@@ -0,0 +1,55 @@
+package com.gateway.metrics;
+
+import com.google.gson.JsonObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide registry of named gauges and counters, exposed as JSON on
+ * {@code GET /metrics}. Gauges are read lazily when a snapshot is taken, so
+ * registering one costs nothing on the request path.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final Map<String, Supplier<? extends Number>> gauges = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    private MetricsRegistry() {}
+
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    public void gauge(String name, Supplier<? extends Number> supplier) {
+        gauges.put(name, supplier);
+    }
+
+    public LongAdder counter(String name) {
+        return counters.computeIfAbsent(name, k -> new LongAdder());
+    }
+
+    /**
+     * Drops every gauge and counter whose name starts with {@code prefix}, e.g.
+     * when the thing they describe has been deleted.
+     */
+    public void removeAll(String prefix) {
+        gauges.keySet().removeIf(name -> name.startsWith(prefix));
+        counters.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+    public JsonObject snapshot() {
+        Map<String, Number> values = new ConcurrentSkipListMap<>();
+        gauges.forEach((name, supplier) -> values.put(name, supplier.get()));
+        counters.forEach((name, counter) -> values.put(name, counter.sum()));
+
+        JsonObject json = new JsonObject();
+        values.forEach(json::addProperty);
+        return json;
+    }
+}
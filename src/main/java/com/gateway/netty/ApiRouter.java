@@ -0,0 +1,243 @@
+package com.gateway.netty;
+
+import com.gateway.http.RequestContext;
+import com.gateway.netty.handlers.RequestHandler;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dispatch table for the gateway's own endpoints, compiled once at startup.
+ *
+ * Routes are kept in a trie with one level per path segment. Each node has
+ * its literal children, at most one path variable child, an optional
+ * catch-all for everything below it, and its handlers by method. A lookup
+ * walks the request path once, comparing segments in place. Literal segments
+ * take precedence over a variable, and the walk backtracks only when a literal
+ * branch dead-ends. Nothing is allocated except the values of matched
+ * variables, which are put on the {@link RequestContext}.
+ *
+ * Path variables are written {@code {name}}, or {@code {name:uuid}} to match
+ * only canonical UUIDs. A router is immutable once built, and handlers are
+ * shared across all requests, so they must be stateless.
+ */
+public final class ApiRouter {
+
+    /** What a path variable matches. */
+    public enum ParamType {
+        SEGMENT,
+        UUID;
+
+        boolean accepts(String path, int start, int end) {
+            if (this == SEGMENT) {
+                return end > start;
+            }
+            if (end - start != 36) {
+                return false;
+            }
+            for (int i = 0; i < 36; i++) {
+                char c = path.charAt(start + i);
+                if (i == 8 || i == 13 || i == 18 || i == 23) {
+                    if (c != '-') {
+                        return false;
+                    }
+                } else if (Character.digit(c, 16) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final Node root;
+
+    private ApiRouter(Node root) {
+        this.root = root;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * The handler for the context's method and path, or {@code null} if no
+     * route matches. The path variables of the matched route are added to
+     * {@code ctx}.
+     */
+    public RequestHandler route(RequestContext ctx) {
+        String path = ctx.getPath();
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        return find(root, path, 1, ctx.getMethod(), ctx);
+    }
+
+    // Matches path[start..] below node; start is just past a '/'
+    private static RequestHandler find(Node node, String path, int start, String method, RequestContext ctx) {
+        if (start > path.length()) {
+            return node.handlers.get(method);
+        }
+
+        if (node.catchAll != null) {
+            return node.catchAll;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        int next = end + 1;
+
+        Node literal = node.literal(path, start, end);
+        if (literal != null) {
+            RequestHandler handler = find(literal, path, next, method, ctx);
+            if (handler != null) {
+                return handler;
+            }
+        }
+
+        Node variable = node.variable;
+        if (variable != null && node.variableType.accepts(path, start, end)) {
+            RequestHandler handler = find(variable, path, next, method, ctx);
+            if (handler != null) {
+                ctx.addPathParam(node.variableName, path.substring(start, end));
+                return handler;
+            }
+        }
+        return null;
+    }
+
+    public static final class Builder {
+        private final Node root = new Node();
+
+        private Builder() {
+        }
+
+        public Builder get(String pattern, RequestHandler handler) {
+            return add("GET", pattern, handler);
+        }
+
+        public Builder post(String pattern, RequestHandler handler) {
+            return add("POST", pattern, handler);
+        }
+
+        public Builder delete(String pattern, RequestHandler handler) {
+            return add("DELETE", pattern, handler);
+        }
+
+        public Builder patch(String pattern, RequestHandler handler) {
+            return add("PATCH", pattern, handler);
+        }
+
+        public Builder add(String method, String pattern, RequestHandler handler) {
+            Node node = nodeFor(pattern);
+            if (node.handlers.putIfAbsent(method, handler) != null) {
+                throw new IllegalArgumentException("Duplicate route: " + method + " " + pattern);
+            }
+            return this;
+        }
+
+        /**
+         * Routes every method and every path below {@code pattern} to
+         * {@code handler}, e.g. {@code /gateway} for {@code /gateway/...}.
+         */
+        public Builder prefix(String pattern, RequestHandler handler) {
+            Node node = nodeFor(pattern);
+            if (node.catchAll != null) {
+                throw new IllegalArgumentException("Duplicate prefix route: " + pattern);
+            }
+            node.catchAll = handler;
+            return this;
+        }
+
+        public ApiRouter build() {
+            root.freeze();
+            return new ApiRouter(root);
+        }
+
+        private Node nodeFor(String pattern) {
+            if (!pattern.startsWith("/")) {
+                throw new IllegalArgumentException("Route must start with '/': " + pattern);
+            }
+
+            Node node = root;
+            for (String segment : pattern.substring(1).split("/", -1)) {
+                if (segment.startsWith("{") && segment.endsWith("}")) {
+                    String spec = segment.substring(1, segment.length() - 1);
+                    int colon = spec.indexOf(':');
+                    String name = colon < 0 ? spec : spec.substring(0, colon);
+                    ParamType type = colon < 0 ? ParamType.SEGMENT
+                            : ParamType.valueOf(spec.substring(colon + 1).toUpperCase());
+                    node = node.variable(name, type, pattern);
+                } else {
+                    node = node.literalChild(segment);
+                }
+            }
+            return node;
+        }
+    }
+
+    private static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+        private static final String[] NO_LABELS = new String[0];
+
+        // Children are few per node; labels are compared linearly
+        String[] labels = NO_LABELS;
+        Node[] children = NO_CHILDREN;
+
+        Node variable;
+        String variableName;
+        ParamType variableType;
+
+        RequestHandler catchAll;
+        Map<String, RequestHandler> handlers = new HashMap<>();
+
+        Node literal(String path, int start, int end) {
+            int length = end - start;
+            for (int i = 0; i < labels.length; i++) {
+                String label = labels[i];
+                if (label.length() == length && path.regionMatches(start, label, 0, length)) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node literalChild(String label) {
+            for (int i = 0; i < labels.length; i++) {
+                if (labels[i].equals(label)) {
+                    return children[i];
+                }
+            }
+            int n = labels.length;
+            labels = Arrays.copyOf(labels, n + 1);
+            children = Arrays.copyOf(children, n + 1);
+            labels[n] = label;
+            children[n] = new Node();
+            return children[n];
+        }
+
+        Node variable(String name, ParamType type, String pattern) {
+            if (variable == null) {
+                variable = new Node();
+                variableName = name;
+                variableType = type;
+            } else if (!variableName.equals(name) || variableType != type) {
+                throw new IllegalArgumentException("Conflicting path variable {" + name + "} in " + pattern
+                        + ", already declared as {" + variableName + "}");
+            }
+            return variable;
+        }
+
+        void freeze() {
+            handlers = Map.copyOf(handlers);
+            for (Node child : children) {
+                child.freeze();
+            }
+            if (variable != null) {
+                variable.freeze();
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.gateway.netty;
+
+import com.gateway.config.AppConfig;
+import com.gateway.http.RequestContext;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.netty.handlers.RequestHandler;
+import io.netty.channel.Channel;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs handlers that block (JDBC, BCrypt) off the Netty event loops, so a slow
+ * query or a burst of logins on the management API never delays proxied
+ * traffic sharing those loops.
+ *
+ * {@code server.execution.mode} picks how:
+ * <ul>
+ *   <li>{@code pool} - a pool of {@code server.blocking.threads} platform
+ *       threads, sized like the connection pool they mostly wait on;</li>
+ *   <li>{@code virtual} - every request gets its own virtual thread, so
+ *       handlers keep their blocking style and idle waits cost next to nothing;
+ *       up to {@code server.blocking.max.concurrent} run at once (Java 21+,
+ *       otherwise the pool is used).</li>
+ * </ul>
+ * Either way at most {@code server.blocking.queue.size} more requests wait for
+ * a turn and anything beyond is refused straight away with 503. Each request
+ * has {@code server.blocking.timeout.ms} from submission to answer; past that
+ * it fails with a {@link TimeoutException} and its thread is interrupted, so
+ * nothing a handler started outlives the request that started it.
+ */
+public class BlockingHandlerExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(BlockingHandlerExecutor.class);
+
+    private static final BlockingHandlerExecutor INSTANCE = new BlockingHandlerExecutor();
+
+    private final boolean virtual;
+    private final int concurrency;
+    private final int queueSize;
+    private final long timeoutMs;
+    private final int retryAfterSeconds;
+    private final ExecutorService executor;
+    // Bounds running handlers when they get a virtual thread each; null for the pool
+    private final Semaphore running;
+
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    private final LongAdder rejected;
+    private final LongAdder timedOut;
+    private final LongAdder completed;
+    private final LongAdder waitMs;
+    private final LongAdder runMs;
+
+    private BlockingHandlerExecutor() {
+        this.queueSize = Math.max(0, AppConfig.getInt("server.blocking.queue.size", 256));
+        this.timeoutMs = AppConfig.getBlockingTimeoutMs();
+        this.retryAfterSeconds = AppConfig.getInt("server.blocking.retry.after.seconds", 1);
+
+        ExecutorService virtualExecutor = AppConfig.isVirtualThreadExecution() ? newVirtualThreadExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        if (virtual) {
+            this.concurrency = Math.max(1, AppConfig.getInt("server.blocking.max.concurrent", 10000));
+            this.executor = virtualExecutor;
+            this.running = new Semaphore(concurrency);
+        } else {
+            this.concurrency = Math.max(1, AppConfig.getInt("server.blocking.threads", AppConfig.getDbPoolMaximum()));
+            // Admission is bounded in submit(), so the pool's own queue never refuses
+            AtomicInteger threadCount = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread thread = new Thread(r, "blocking-handler-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            this.executor = pool;
+            this.running = null;
+        }
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.rejected = metrics.counter("blocking.rejected");
+        this.timedOut = metrics.counter("blocking.timed_out");
+        this.completed = metrics.counter("blocking.completed");
+        this.waitMs = metrics.counter("blocking.wait_ms");
+        this.runMs = metrics.counter("blocking.run_ms");
+        metrics.gauge("blocking.queued", queued::get);
+        metrics.gauge("blocking.active", active::get);
+
+        logger.info("Blocking handlers run on {} (max {} running, {} queued, timeout {}ms)",
+                virtual ? "virtual threads" : "a thread pool", concurrency, queueSize, timeoutMs);
+    }
+
+    public static BlockingHandlerExecutor getInstance() {
+        return INSTANCE;
+    }
+
+    /** Value of the {@code Retry-After} header on refused requests. */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Runs {@code handler} on a worker thread. The returned future completes on
+     * that thread, or on the channel's event loop if the request times out;
+     * callers hop back to the event loop to write.
+     *
+     * @return the handler's response, or {@code null} if the executor is
+     *         saturated and the request must be refused
+     */
+    public CompletableFuture<FullHttpResponse> submit(RequestHandler handler, RequestContext ctx) {
+        // Admit against the combined budget so neither mode can grow without bound
+        if (queued.incrementAndGet() + active.get() > concurrency + queueSize) {
+            queued.decrementAndGet();
+            rejected.increment();
+            logger.warn("Blocking executor saturated, refusing {}", ctx);
+            return null;
+        }
+
+        CompletableFuture<FullHttpResponse> result = new CompletableFuture<>();
+        AtomicBoolean started = new AtomicBoolean();
+        long enqueuedAt = System.nanoTime();
+        Future<?> task;
+        try {
+            task = executor.submit(() -> {
+                if (started.compareAndSet(false, true)) {
+                    run(handler, ctx, enqueuedAt, result);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Only after shutdown
+            queued.decrementAndGet();
+            rejected.increment();
+            return null;
+        }
+
+        Channel channel = ctx.getChannel();
+        if (timeoutMs > 0 && channel != null) {
+            ScheduledFuture<?> deadline = channel.eventLoop().schedule(() -> {
+                if (!result.completeExceptionally(new TimeoutException(
+                        "Request not handled within " + timeoutMs + "ms"))) {
+                    return;
+                }
+                timedOut.increment();
+                if (started.compareAndSet(false, true)) {
+                    // Still queued: it will never run
+                    queued.decrementAndGet();
+                    task.cancel(false);
+                } else {
+                    task.cancel(true);
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            result.whenComplete((response, error) -> deadline.cancel(false));
+        }
+        return result;
+    }
+
+    private void run(RequestHandler handler, RequestContext ctx, long enqueuedAt,
+                     CompletableFuture<FullHttpResponse> result) {
+        boolean acquired = false;
+        try {
+            if (running != null) {
+                running.acquire();
+                acquired = true;
+            }
+        } catch (InterruptedException e) {
+            // Timed out waiting for a turn
+            queued.decrementAndGet();
+            return;
+        }
+
+        queued.decrementAndGet();
+        active.incrementAndGet();
+        long startedAt = System.nanoTime();
+        waitMs.add(TimeUnit.NANOSECONDS.toMillis(startedAt - enqueuedAt));
+        try {
+            Channel channel = ctx.getChannel();
+            if (result.isDone()) {
+                return;
+            }
+            if (channel != null && !channel.isActive()) {
+                // The client gave up while we were queued; don't do the work
+                result.completeExceptionally(new ClosedChannelException());
+                return;
+            }
+            handler.handleAsync(ctx).whenComplete((response, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else if (!result.complete(response)) {
+                    // Answered too late, the client already got its timeout
+                    ReferenceCountUtil.release(response);
+                }
+            });
+        } catch (Throwable t) {
+            result.completeExceptionally(t);
+        } finally {
+            active.decrementAndGet();
+            completed.increment();
+            runMs.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+            if (acquired) {
+                running.release();
+            }
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // The build targets Java 17, so virtual threads are looked up rather than linked against
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            logger.warn("Virtual threads are not available on Java {}, using a thread pool",
+                    System.getProperty("java.version"));
+            return null;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.gateway.netty;
+
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.timeout.IdleState;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.util.ReferenceCountUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+
+/**
+ * Persistent-connection support for client connections.
+ *
+ * Requests on a connection are processed one at a time: while a response is
+ * outstanding, pipelined requests (and their bodies) are queued here and reading
+ * is paused, so responses always leave in request order no matter whether the
+ * handler behind us answers synchronously, asynchronously or by streaming.
+ *
+ * The connection is closed after a response when the client asked for it, when
+ * the per-connection request cap is reached, or when the response has no
+ * self-defined length. Idle connections are closed on {@link IdleStateEvent}.
+ */
+public class HttpKeepAliveHandler extends ChannelDuplexHandler {
+    private static final Logger logger = LoggerFactory.getLogger(HttpKeepAliveHandler.class);
+
+    private final boolean keepAliveEnabled;
+    private final int maxRequests;
+
+    private final ArrayDeque<Object> queued = new ArrayDeque<>();
+    private boolean inFlight;
+    private boolean requestBodyDone;
+    private boolean keepAlive;
+    private HttpVersion requestVersion;
+    private boolean requestIsHead;
+    private int requestsServed;
+    private boolean writingInterim;
+    private boolean closeAfterResponse;
+
+    public HttpKeepAliveHandler(boolean keepAliveEnabled, int maxRequests) {
+        this.keepAliveEnabled = keepAliveEnabled;
+        this.maxRequests = maxRequests;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpRequest) {
+            if (inFlight || !queued.isEmpty()) {
+                enqueue(ctx, msg);
+                return;
+            }
+            startRequest((HttpRequest) msg);
+        } else if (msg instanceof HttpContent && !queued.isEmpty()) {
+            // Body of a request that is itself still queued
+            enqueue(ctx, msg);
+            return;
+        }
+
+        if (msg instanceof LastHttpContent) {
+            requestBodyDone = true;
+        }
+
+        ctx.fireChannelRead(msg);
+    }
+
+    private void enqueue(ChannelHandlerContext ctx, Object msg) {
+        queued.add(msg);
+        // Don't pull more pipelined requests off the socket than we have to
+        ctx.channel().config().setAutoRead(false);
+    }
+
+    private void startRequest(HttpRequest request) {
+        inFlight = true;
+        requestBodyDone = false;
+        requestsServed++;
+        requestVersion = request.protocolVersion();
+        requestIsHead = HttpMethod.HEAD.equals(request.method());
+        keepAlive = keepAliveEnabled
+                && HttpUtil.isKeepAlive(request)
+                && (maxRequests <= 0 || requestsServed < maxRequests);
+    }
+
+    @Override
+    public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) {
+        if (msg instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) msg;
+
+            if (response.status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+                // 100 Continue and friends don't complete the exchange
+                writingInterim = true;
+            } else {
+                writingInterim = false;
+                closeAfterResponse = !keepAlive || !hasSelfDefinedLength(response);
+                HttpUtil.setKeepAlive(response.headers(),
+                        requestVersion != null ? requestVersion : HttpVersion.HTTP_1_1,
+                        !closeAfterResponse);
+            }
+        }
+
+        if (msg instanceof LastHttpContent) {
+            if (writingInterim) {
+                writingInterim = false;
+            } else {
+                promise = promise.unvoid();
+                promise.addListener((ChannelFutureListener) future -> responseComplete(ctx));
+            }
+        }
+
+        ctx.write(msg, promise);
+    }
+
+    private boolean hasSelfDefinedLength(HttpResponse response) {
+        int code = response.status().code();
+        return HttpUtil.isContentLengthSet(response)
+                || HttpUtil.isTransferEncodingChunked(response)
+                || code == 204 || code == 304 || requestIsHead;
+    }
+
+    private void responseComplete(ChannelHandlerContext ctx) {
+        if (closeAfterResponse || !ctx.channel().isActive()) {
+            ctx.close();
+            return;
+        }
+
+        inFlight = false;
+        if (!queued.isEmpty()) {
+            // Write completion can fire inside the handler that wrote the response; let it
+            // finish its own bookkeeping before handing it the next request
+            ctx.executor().execute(() -> drainQueued(ctx));
+        }
+    }
+
+    private void drainQueued(ChannelHandlerContext ctx) {
+        if (!ctx.channel().isActive()) {
+            return;
+        }
+
+        Object msg;
+        while (!inFlight && (msg = queued.poll()) != null) {
+            if (msg instanceof HttpRequest) {
+                startRequest((HttpRequest) msg);
+            }
+            if (msg instanceof LastHttpContent) {
+                requestBodyDone = true;
+            }
+            ctx.fireChannelRead(msg);
+
+            // Replay the started request's body, stop at the next request
+            while ((msg = queued.peek()) != null && !(msg instanceof HttpRequest)) {
+                queued.poll();
+                if (msg instanceof LastHttpContent) {
+                    requestBodyDone = true;
+                }
+                ctx.fireChannelRead(msg);
+            }
+        }
+
+        if (queued.isEmpty()) {
+            ctx.fireChannelReadComplete();
+            ctx.channel().config().setAutoRead(true);
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+        if (evt instanceof IdleStateEvent && ((IdleStateEvent) evt).state() == IdleState.READER_IDLE) {
+            // Idle between requests, or a client that stalled mid-body. A request that is
+            // fully read and waiting on its response is governed by the route timeout instead.
+            if (!inFlight || !requestBodyDone) {
+                logger.debug("Closing idle connection {}", ctx.channel().remoteAddress());
+                ctx.close();
+            }
+            return;
+        }
+        super.userEventTriggered(ctx, evt);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Object msg;
+        while ((msg = queued.poll()) != null) {
+            ReferenceCountUtil.release(msg);
+        }
+        super.channelInactive(ctx);
+    }
+}
@@ -1,57 +1,88 @@
 package com.gateway.netty;
 
 import com.gateway.config.AppConfig;
+import com.gateway.netty.upstream.UpstreamClient;
 import io.netty.bootstrap.ServerBootstrap;
-import io.netty.channel.ChannelFuture;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 public class NettyServer {
     private static final Logger logger = LoggerFactory.getLogger(NettyServer.class);
 
     private final int port;
     private EventLoopGroup bossGroup;
     private EventLoopGroup workerGroup;
-    private ChannelFuture channelFuture;
+    private final List<Channel> serverChannels = new CopyOnWriteArrayList<>();
 
     public NettyServer(int port) {
         this.port = port;
     }
 
     public void start() throws InterruptedException {
-        int bossThreads = AppConfig.getBossThreads();
+        Transport transport = Transport.getInstance();
         int workerThreads = AppConfig.getWorkerThreads();
 
+        // With SO_REUSEPORT the kernel spreads connections over several listening
+        // sockets, each accepted on its own boss thread
+        int listeners = Math.max(1, AppConfig.getServerListeners());
+        if (listeners > 1 && !transport.supportsReusePort()) {
+            logger.warn("server.listeners={} needs SO_REUSEPORT, which the {} transport lacks; using 1",
+                    listeners, transport.getName());
+            listeners = 1;
+        }
+        int bossThreads = Math.max(AppConfig.getBossThreads(), listeners);
+
         // Boss group accepts incoming connections
-        bossGroup = new NioEventLoopGroup(bossThreads);
+        bossGroup = transport.newEventLoopGroup(bossThreads, "boss");
 
         // Worker group handles I/O operations
         // 0 = default (available processors * 2)
-        workerGroup = new NioEventLoopGroup(workerThreads);
+        workerGroup = transport.newEventLoopGroup(workerThreads, "worker");
+
+        // Upstream connections are pooled per worker thread
+        UpstreamClient.getInstance().setEventLoopGroup(workerGroup);
 
         try {
             ServerBootstrap bootstrap = new ServerBootstrap();
             bootstrap.group(bossGroup, workerGroup)
-                    .channel(NioServerSocketChannel.class)
+                    .channel(transport.serverChannelClass())
                     .childHandler(new ServerInitializer())
-                    .option(ChannelOption.SO_BACKLOG, 128)
+                    .option(ChannelOption.SO_BACKLOG, AppConfig.getServerBacklog())
                     .childOption(ChannelOption.SO_KEEPALIVE, true)
                     .childOption(ChannelOption.TCP_NODELAY, true);
+            if (listeners > 1) {
+                bootstrap.option(transport.reusePortOption(), true);
+            }
+            int receiveBuffer = AppConfig.getServerSocketReceiveBuffer();
+            if (receiveBuffer > 0) {
+                bootstrap.option(ChannelOption.SO_RCVBUF, receiveBuffer)
+                        .childOption(ChannelOption.SO_RCVBUF, receiveBuffer);
+            }
+            int sendBuffer = AppConfig.getServerSocketSendBuffer();
+            if (sendBuffer > 0) {
+                bootstrap.childOption(ChannelOption.SO_SNDBUF, sendBuffer);
+            }
 
-            logger.info("Starting Netty server on port {}", port);
-            logger.info("Boss threads: {}, Worker threads: {}",
-                    bossThreads, workerThreads == 0 ? "default" : workerThreads);
+            logger.info("Starting Netty server on port {} ({} transport)", port, transport.getName());
+            logger.info("Boss threads: {}, Worker threads: {}, Listening sockets: {}",
+                    bossThreads, workerThreads == 0 ? "default" : workerThreads, listeners);
 
-            // Bind and start accepting connections
-            channelFuture = bootstrap.bind(port).sync();
+            // Bind and start accepting connections; each bind registers on the next boss thread
+            for (int i = 0; i < listeners; i++) {
+                serverChannels.add(bootstrap.bind(port).sync().channel());
+            }
             logger.info("Gateway server started successfully on port {}", port);
 
-            // Wait until server socket is closed
-            channelFuture.channel().closeFuture().sync();
+            // Wait until the server sockets are closed
+            for (Channel channel : serverChannels) {
+                channel.closeFuture().sync();
+            }
 
         } finally {
             shutdown();
@@ -61,6 +92,9 @@ public class NettyServer {
     public void shutdown() {
         logger.info("Shutting down Netty server");
 
+        for (Channel channel : serverChannels) {
+            channel.close();
+        }
         if (workerGroup != null) {
             workerGroup.shutdownGracefully();
         }
@@ -70,4 +104,4 @@ public class NettyServer {
 
         logger.info("Netty server shut down successfully");
     }
-}
\ No newline at end of file
+}
@@ -1,46 +1,118 @@
 package com.gateway.netty;
 
 import com.gateway.http.RequestContext;
+import com.gateway.metrics.MetricsRegistry;
 import com.gateway.http.ResponseBuilder;
 import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.netty.handlers.RequestHandler;
 import com.gateway.netty.handlers.auth.*;
+import com.gateway.netty.handlers.cache.*;
 import com.gateway.netty.handlers.gateway.*;
 import com.gateway.netty.handlers.logs.GetLogsHandler;
 import com.gateway.netty.handlers.proxy.ProxyHandler;
+import com.gateway.netty.handlers.ratelimit.*;
 import com.gateway.netty.handlers.route.*;
-import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
 import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.util.ReferenceCountUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
 public class RouterHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
     private static final Logger logger = LoggerFactory.getLogger(RouterHandler.class);
 
+    // Handlers are stateless and shared by every connection
+    private static final ApiRouter ROUTES = ApiRouter.builder()
+            .get("/health", new HealthCheckHandler())
+            .get("/metrics", new MetricsHandler())
+
+            // PROXY TRAFFIC
+            .prefix("/gateway", new ProxyHandler())
+
+            // AUTH ENDPOINTS
+            .post("/api/v1/auth/register", new RegisterHandler())
+            .post("/api/v1/auth/login", new LoginHandler())
+
+            // GATEWAY MANAGEMENT
+            .post("/api/v1/gateways", new CreateGatewayHandler())
+            .get("/api/v1/gateways", new ListGatewaysHandler())
+            .get("/api/v1/gateways/{gatewayId:uuid}", new GetGatewayHandler())
+            .delete("/api/v1/gateways/{gatewayId:uuid}", new DeleteGatewayHandler())
+
+            // ROUTE MANAGEMENT
+            .post("/api/v1/gateways/{gatewayId:uuid}/routes", new CreateRouteHandler())
+            .get("/api/v1/gateways/{gatewayId:uuid}/routes", new ListRoutesHandler())
+            .get("/api/v1/routes/{routeId:uuid}", new GetRouteHandler())
+            .delete("/api/v1/routes/{routeId:uuid}", new DeleteRouteHandler())
+
+            // TARGET MANAGEMENT
+            .post("/api/v1/routes/{routeId:uuid}/targets", new AddTargetHandler())
+            .get("/api/v1/routes/{routeId:uuid}/targets", new ListTargetsHandler())
+            .delete("/api/v1/targets/{targetId:uuid}", new DeleteTargetHandler())
+            .patch("/api/v1/targets/{targetId:uuid}/toggle", new ToggleTargetHandler())
+
+            // RATE LIMITS
+            .post("/api/v1/gateways/{gatewayId:uuid}/rate-limits", new CreateRateLimitHandler())
+            .get("/api/v1/gateways/{gatewayId:uuid}/rate-limits", new ListRateLimitsHandler())
+            .delete("/api/v1/rate-limits/{limitId:uuid}", new DeleteRateLimitHandler())
+
+            // RESPONSE CACHE
+            .delete("/api/v1/gateways/{gatewayId:uuid}/cache", new PurgeGatewayCacheHandler())
+            .delete("/api/v1/routes/{routeId:uuid}/cache", new PurgeRouteCacheHandler())
+
+            // LOGS
+            .get("/api/v1/gateways/{gatewayId:uuid}/logs", new GetLogsHandler())
+            .build();
+
+    private final BlockingHandlerExecutor blockingExecutor = BlockingHandlerExecutor.getInstance();
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) {
         try {
             // Parse request into context
-            RequestContext reqCtx = RequestContext.from(request);
+            RequestContext reqCtx = RequestContext.from(request, ctx.channel());
 
             logger.info("{} {}", reqCtx.getMethod(), reqCtx.getPath());
 
             // Route to appropriate handler
-            BaseHandler handler = matchRoute(reqCtx);
+            RequestHandler handler = ROUTES.route(reqCtx);
 
             if (handler == null) {
                 sendNotFound(ctx, reqCtx.getPath());
                 return;
             }
 
-            // Execute handler
-            FullHttpResponse response = handler.handle(reqCtx);
+            // Execute handler; proxied requests complete later without blocking the event loop,
+            // handlers that block run on the blocking executor and answer from there
+            CompletableFuture<FullHttpResponse> pending;
+            if (handler.isBlocking()) {
+                // The request message is released when we return
+                reqCtx.detachContent();
+                pending = blockingExecutor.submit(handler, reqCtx);
+                if (pending == null) {
+                    sendUnavailable(ctx, "too many pending management requests");
+                    return;
+                }
+            } else {
+                pending = handler.handleAsync(reqCtx);
+            }
 
-            // Send response
-            sendResponse(ctx, response);
+            pending.whenComplete((response, error) -> {
+                if (ctx.executor().inEventLoop()) {
+                    complete(ctx, response, error);
+                } else {
+                    ctx.executor().execute(() -> complete(ctx, response, error));
+                }
+            });
 
         } catch (Exception e) {
             logger.error("Error handling request", e);
@@ -48,80 +120,30 @@ public class RouterHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         }
     }
 
-    private BaseHandler matchRoute(RequestContext ctx) {
-        String path = ctx.getPath();
-        String method = ctx.getMethod();
-
-        // Health check endpoint
-        if (path.equals("/health") && method.equals("GET")) {
-            return new HealthCheckHandler();
-        }
-
-        // PROXY TRAFFIC - highest priority
-        if (path.startsWith("/gateway/")) {
-            return new ProxyHandler();
-        }
-
-        // AUTH ENDPOINTS
-        if (path.equals("/api/v1/auth/register") && method.equals("POST")) {
-            return new RegisterHandler();
-        }
-        if (path.equals("/api/v1/auth/login") && method.equals("POST")) {
-            return new LoginHandler();
-        }
-
-        // GATEWAY MANAGEMENT
-        if (path.equals("/api/v1/gateways") && method.equals("POST")) {
-            return new CreateGatewayHandler();
-        }
-        if (path.equals("/api/v1/gateways") && method.equals("GET")) {
-            return new ListGatewaysHandler();
-        }
-        if (path.matches("/api/v1/gateways/[a-f0-9-]+") && method.equals("GET")) {
-            return new GetGatewayHandler();
-        }
-        if (path.matches("/api/v1/gateways/[a-f0-9-]+") && method.equals("DELETE")) {
-            return new DeleteGatewayHandler();
-        }
-
-        // ROUTE MANAGEMENT
-        if (path.matches("/api/v1/gateways/[a-f0-9-]+/routes") && method.equals("POST")) {
-            return new CreateRouteHandler();
-        }
-        if (path.matches("/api/v1/gateways/[a-f0-9-]+/routes") && method.equals("GET")) {
-            return new ListRoutesHandler();
-        }
-        if (path.matches("/api/v1/routes/[a-f0-9-]+") && method.equals("GET")) {
-            return new GetRouteHandler();
-        }
-        if (path.matches("/api/v1/routes/[a-f0-9-]+") && method.equals("DELETE")) {
-            return new DeleteRouteHandler();
-        }
-
-        // TARGET MANAGEMENT
-        if (path.matches("/api/v1/routes/[a-f0-9-]+/targets") && method.equals("POST")) {
-            return new AddTargetHandler();
-        }
-        if (path.matches("/api/v1/routes/[a-f0-9-]+/targets") && method.equals("GET")) {
-            return new ListTargetsHandler();
+    private void complete(ChannelHandlerContext ctx, FullHttpResponse response, Throwable error) {
+        if (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
         }
-        if (path.matches("/api/v1/targets/[a-f0-9-]+") && method.equals("DELETE")) {
-            return new DeleteTargetHandler();
-        }
-        if (path.matches("/api/v1/targets/[a-f0-9-]+/toggle") && method.equals("PATCH")) {
-            return new ToggleTargetHandler();
-        }
-
-        // LOGS
-        if (path.matches("/api/v1/gateways/[a-f0-9-]+/logs") && method.equals("GET")) {
-            return new GetLogsHandler();
+        if (!ctx.channel().isActive()) {
+            ReferenceCountUtil.release(response);
+            if (error != null && !(error instanceof ClosedChannelException)) {
+                logger.error("Error handling request", error);
+            }
+            return;
+        }
+        if (error instanceof TimeoutException) {
+            logger.warn("Request timed out: {}", error.getMessage());
+            sendUnavailable(ctx, "request timed out");
+        } else if (error != null) {
+            logger.error("Error handling request", error);
+            sendError(ctx, error);
+        } else {
+            sendResponse(ctx, response);
         }
-
-        return null;
     }
 
     private void sendResponse(ChannelHandlerContext ctx, FullHttpResponse response) {
-        ctx.writeAndFlush(response).addListener(ChannelFutureListener.CLOSE);
+        ctx.writeAndFlush(response);
     }
 
     private void sendNotFound(ChannelHandlerContext ctx, String path) {
@@ -131,9 +153,18 @@ public class RouterHandler extends SimpleChannelInboundHandler<FullHttpRequest>
         sendResponse(ctx, response);
     }
 
-    private void sendError(ChannelHandlerContext ctx, Exception e) {
+    private void sendUnavailable(ChannelHandlerContext ctx, String reason) {
+        FullHttpResponse response = ResponseBuilder.json(HttpResponseStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaderNames.RETRY_AFTER.toString(), String.valueOf(blockingExecutor.getRetryAfterSeconds()))
+                .body(String.format("{\"error\": \"Service unavailable - %s\"}", reason))
+                .build();
+        sendResponse(ctx, response);
+    }
+
+    private void sendError(ChannelHandlerContext ctx, Throwable e) {
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
         FullHttpResponse response = ResponseBuilder.json(HttpResponseStatus.INTERNAL_SERVER_ERROR)
-                .body(String.format("{\"error\": \"%s\"}", e.getMessage().replace("\"", "\\\"")))
+                .body(String.format("{\"error\": \"%s\"}", message.replace("\"", "\\\"")))
                 .build();
         sendResponse(ctx, response);
     }
@@ -146,6 +177,11 @@ public class RouterHandler extends SimpleChannelInboundHandler<FullHttpRequest>
 
     // Simple health check handler
     private static class HealthCheckHandler extends BaseHandler {
+        @Override
+        public boolean isBlocking() {
+            return false;
+        }
+
         @Override
         public FullHttpResponse handle(RequestContext ctx) {
             return ResponseBuilder.ok()
@@ -154,4 +190,20 @@ public class RouterHandler extends SimpleChannelInboundHandler<FullHttpRequest>
                     .build();
         }
     }
+
+    // Gauges and counters from the metrics registry
+    private static class MetricsHandler extends BaseHandler {
+        @Override
+        public boolean isBlocking() {
+            return false;
+        }
+
+        @Override
+        public FullHttpResponse handle(RequestContext ctx) {
+            return ResponseBuilder.ok()
+                    .jsonContent()
+                    .body(MetricsRegistry.getInstance().snapshot().toString())
+                    .build();
+        }
+    }
 }
\ No newline at end of file
@@ -8,7 +8,7 @@ import io.netty.handler.codec.http.HttpContentCompressor;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.codec.http.HttpServerCodec;
 import io.netty.handler.stream.ChunkedWriteHandler;
-import io.netty.handler.timeout.ReadTimeoutHandler;
+import io.netty.handler.timeout.IdleStateHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -21,16 +21,30 @@ public class ServerInitializer extends ChannelInitializer<SocketChannel> {
             "proxy.max.content.length", 10 * 1024 * 1024
     );
 
+    private static final boolean STREAMING_PROXY = AppConfig.isProxyStreamingEnabled();
+
+    private static final boolean KEEP_ALIVE = AppConfig.isKeepAliveEnabled();
+    private static final int KEEP_ALIVE_MAX_REQUESTS = AppConfig.getKeepAliveMaxRequests();
+    private static final int IDLE_TIMEOUT_SECONDS = AppConfig.getIdleTimeoutSeconds();
+
     @Override
     protected void initChannel(SocketChannel ch) throws Exception {
         ChannelPipeline pipeline = ch.pipeline();
 
-        // Read timeout (60 seconds)
-        pipeline.addLast("readTimeoutHandler", new ReadTimeoutHandler(60, TimeUnit.SECONDS));
+        // Idle detection, acted on by the keep-alive handler
+        pipeline.addLast("idleStateHandler", new IdleStateHandler(IDLE_TIMEOUT_SECONDS, 0, 0, TimeUnit.SECONDS));
 
         // HTTP codec - decodes HTTP requests and encodes responses
         pipeline.addLast("httpServerCodec", new HttpServerCodec());
 
+        // Persistent connections and in-order handling of pipelined requests
+        pipeline.addLast("httpKeepAliveHandler", new HttpKeepAliveHandler(KEEP_ALIVE, KEEP_ALIVE_MAX_REQUESTS));
+
+        // Streaming proxy: pipes /gateway/ bodies chunk by chunk, bypassing the aggregator
+        if (STREAMING_PROXY) {
+            pipeline.addLast("streamingProxyHandler", new StreamingProxyHandler());
+        }
+
         // Aggregates HTTP message fragments into FullHttpRequest
         pipeline.addLast("httpObjectAggregator", new HttpObjectAggregator(MAX_CONTENT_LENGTH));
 
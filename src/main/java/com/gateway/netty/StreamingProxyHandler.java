@@ -0,0 +1,504 @@
+package com.gateway.netty;
+
+import com.gateway.netty.upstream.StreamingUpstreamRelay;
+import com.gateway.netty.upstream.UpstreamClient;
+import com.gateway.service.ProxyService;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelDuplexHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.http.*;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Streaming proxy path. Sits in front of the {@code HttpObjectAggregator} and
+ * takes over {@code /gateway/} requests: request and response bodies are piped
+ * chunk by chunk between the client and the upstream channel as reference-counted
+ * buffers, so memory per exchange is bounded by the channel water marks rather
+ * than by the payload size. Back-pressure is applied by toggling auto-read on the
+ * opposite channel whenever one side becomes unwritable.
+ *
+ * Everything else is passed through untouched to the aggregating pipeline.
+ */
+public class StreamingProxyHandler extends ChannelDuplexHandler {
+    private static final Logger logger = LoggerFactory.getLogger(StreamingProxyHandler.class);
+
+    private static final String PROXY_PREFIX = "/gateway/";
+
+    private final ProxyService proxyService = ProxyService.getInstance();
+    private final UpstreamClient upstreamClient = UpstreamClient.getInstance();
+
+    private ChannelHandlerContext ctx;
+
+    // Per-exchange state; all of it is touched only from the channel's event loop
+    private long exchangeId;
+    private boolean active;
+    private boolean requestDone;
+    private boolean responseStarted;
+    private boolean responseDone;
+    private boolean discardRequestBody;
+    private boolean requestWritten;
+    private boolean upstreamKeepAlive;
+    private final ArrayDeque<HttpContent> pending = new ArrayDeque<>();
+    private Channel upstream;
+    private ScheduledFuture<?> timeout;
+
+    private UUID gatewayId;
+    private ProxyService.Selection selection;
+    private String method;
+    private String path;
+    private int statusCode;
+    private long startTime;
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        this.ctx = ctx;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (!active && msg instanceof HttpRequest && isProxyRequest((HttpRequest) msg)) {
+            startExchange((HttpRequest) msg);
+            if (msg instanceof HttpContent) {
+                onRequestContent((HttpContent) msg);
+            }
+            return;
+        }
+
+        if (active && msg instanceof HttpContent) {
+            onRequestContent((HttpContent) msg);
+            return;
+        }
+
+        if (active) {
+            // HttpKeepAliveHandler holds pipelined requests back, so this should not happen
+            logger.warn("Dropping {} received during a streaming exchange", msg.getClass().getSimpleName());
+            ReferenceCountUtil.release(msg);
+            return;
+        }
+
+        ctx.fireChannelRead(msg);
+    }
+
+    private boolean isProxyRequest(HttpRequest request) {
+        return request.decoderResult().isSuccess() && request.uri().startsWith(PROXY_PREFIX);
+    }
+
+    private void startExchange(HttpRequest request) {
+        long exchange = ++exchangeId;
+        active = true;
+        requestDone = false;
+        responseStarted = false;
+        responseDone = false;
+        requestWritten = false;
+        upstreamKeepAlive = false;
+        discardRequestBody = false;
+        statusCode = 0;
+        startTime = System.currentTimeMillis();
+        method = request.method().name();
+
+        // Hold further reads until the upstream connection is ready
+        ctx.channel().config().setAutoRead(false);
+
+        QueryStringDecoder decoder = new QueryStringDecoder(request.uri());
+        String[] parts = decoder.path().split("/", 4); // ["", "gateway", "{id}", "rest"]
+        path = "/" + (parts.length > 3 ? parts[3] : "");
+        int queryStart = request.uri().indexOf('?');
+        String query = queryStart >= 0 && queryStart < request.uri().length() - 1
+                ? request.uri().substring(queryStart + 1) : null;
+
+        try {
+            gatewayId = UUID.fromString(parts[2]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            rejectRequest(HttpResponseStatus.BAD_REQUEST, "{\"error\": \"Invalid gateway ID format\"}");
+            return;
+        }
+
+        logger.info("Streaming proxy request: gateway={}, path={}, method={}", gatewayId, path, method);
+
+        try {
+            selection = proxyService.select(gatewayId, path, method,
+                    request.headers()::get, ctx.channel().remoteAddress());
+        } catch (Exception e) {
+            logger.error("Failed to resolve route for gateway {}", gatewayId, e);
+            rejectRequest(HttpResponseStatus.INTERNAL_SERVER_ERROR, "{\"error\": \"Failed to resolve route\"}");
+            return;
+        }
+
+        if (selection.rejection != null) {
+            ProxyService.ProxyResult rejection = selection.rejection;
+            selection = null;
+            rejectRequest(HttpResponseStatus.valueOf(rejection.statusCode),
+                    rejection.body.toString(StandardCharsets.UTF_8), rejection.headers);
+            rejection.body.release();
+            return;
+        }
+
+        URI uri = proxyService.targetUri(selection.target, path, query);
+        HttpRequest upstreamRequest = new DefaultHttpRequest(
+                HttpVersion.HTTP_1_1, request.method(), proxyService.requestUri(uri));
+
+        Map<String, String> headers = new HashMap<>();
+        request.headers().forEach(entry -> headers.put(entry.getKey(), entry.getValue()));
+        headers.remove(HttpHeaderNames.EXPECT.toString());
+        proxyService.copyRequestHeaders(headers, upstreamRequest.headers(), uri,
+                gatewayId.toString(), selection.route.getId());
+
+        if (HttpUtil.isContentLengthSet(request)) {
+            HttpUtil.setContentLength(upstreamRequest, HttpUtil.getContentLength(request));
+        } else if (HttpUtil.isTransferEncodingChunked(request)) {
+            HttpUtil.setTransferEncodingChunked(upstreamRequest, true);
+        }
+
+        if (HttpUtil.is100ContinueExpected(request)) {
+            // We accept the body ourselves instead of relaying the interim response
+            ctx.writeAndFlush(new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.CONTINUE));
+        }
+
+        long timeoutMs = selection.route.getTimeoutMs();
+        timeout = ctx.executor().schedule(
+                () -> failExchange(new TimeoutException("Upstream did not respond within " + timeoutMs + "ms")),
+                timeoutMs, TimeUnit.MILLISECONDS);
+
+        Future<Channel> acquireFuture;
+        try {
+            acquireFuture = upstreamClient.acquire(ctx.channel().eventLoop(), selection.target.getId(), uri,
+                    new StreamingUpstreamRelay(new ExchangeListener(exchange)));
+        } catch (IllegalStateException e) {
+            failExchange(e);
+            return;
+        }
+
+        acquireFuture.addListener(future -> {
+            if (!future.isSuccess()) {
+                if (exchange == exchangeId) {
+                    failExchange(future.cause());
+                }
+                return;
+            }
+
+            Channel channel = (Channel) future.getNow();
+            if (exchange != exchangeId || !active || selection == null) {
+                // Exchange was aborted while waiting for a connection; nothing was sent on it
+                UpstreamClient.release(channel, true);
+                return;
+            }
+
+            upstream = channel;
+            upstream.write(upstreamRequest).addListener(this::onUpstreamWrite);
+
+            while (!pending.isEmpty()) {
+                writeUpstream(pending.poll());
+            }
+            upstream.flush();
+
+            if (!requestDone) {
+                ctx.channel().config().setAutoRead(upstream.isWritable());
+            }
+        });
+    }
+
+    private void onRequestContent(HttpContent content) {
+        boolean last = content instanceof LastHttpContent;
+
+        if (discardRequestBody) {
+            content.release();
+        } else if (upstream == null) {
+            // Still connecting
+            pending.add(content);
+        } else {
+            writeUpstream(content);
+            upstream.flush();
+            if (!last && !upstream.isWritable()) {
+                ctx.channel().config().setAutoRead(false);
+            }
+        }
+
+        if (last) {
+            requestDone = true;
+            ctx.channel().config().setAutoRead(true);
+            maybeFinishExchange();
+        }
+    }
+
+    private void writeUpstream(HttpContent content) {
+        if (content instanceof LastHttpContent) {
+            long exchange = exchangeId;
+            upstream.write(content).addListener(future -> {
+                if (future.isSuccess() && exchange == exchangeId) {
+                    requestWritten = true;
+                }
+                onUpstreamWrite(future);
+            });
+        } else {
+            upstream.write(content).addListener(this::onUpstreamWrite);
+        }
+    }
+
+    private void onUpstreamWrite(Future<? super Void> future) {
+        if (!future.isSuccess()) {
+            failExchange(future.cause());
+        }
+    }
+
+    private void rejectRequest(HttpResponseStatus status, String body) {
+        rejectRequest(status, body, EmptyHttpHeaders.INSTANCE);
+    }
+
+    private void rejectRequest(HttpResponseStatus status, String body, HttpHeaders headers) {
+        discardRequestBody = true;
+        responseStarted = true;
+        responseDone = true;
+        statusCode = status.code();
+
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+        response.headers().set(headers);
+        response.headers().set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        writeLast(response);
+
+        // Keep reading so the rest of the request body can be drained
+        ctx.channel().config().setAutoRead(true);
+    }
+
+    private void onResponseHead(HttpResponse response) {
+        if (!active || responseStarted) {
+            return;
+        }
+
+        cancelTimeout();
+        responseStarted = true;
+        statusCode = response.status().code();
+        upstreamKeepAlive = HttpUtil.isKeepAlive(response);
+
+        HttpResponse downstream = new DefaultHttpResponse(HttpVersion.HTTP_1_1, response.status());
+        downstream.headers().set(proxyService.filterResponseHeaders(response.headers()));
+        if (HttpUtil.isTransferEncodingChunked(response)
+                || (!HttpUtil.isContentLengthSet(response) && !isBodyless(response))) {
+            HttpUtil.setTransferEncodingChunked(downstream, true);
+        }
+        downstream.headers().set("X-Gateway-Proxy", "GatewayaaS/1.0");
+        proxyService.addRateLimitHeaders(selection, downstream.headers());
+
+        ctx.writeAndFlush(downstream);
+        applyDownstreamBackPressure();
+    }
+
+    private boolean isBodyless(HttpResponse response) {
+        int code = response.status().code();
+        return code == 204 || code == 304 || "HEAD".equals(method);
+    }
+
+    private void onResponseContent(HttpContent content) {
+        if (!active || !responseStarted || responseDone) {
+            content.release();
+            return;
+        }
+
+        if (content instanceof LastHttpContent) {
+            responseDone = true;
+            writeLast(content);
+            recordOutcome(null);
+            // The connection can only carry the next exchange if this one ended cleanly on both sides
+            releaseUpstream(requestWritten && upstreamKeepAlive);
+            if (!requestDone) {
+                discardRequestBody = true;
+                ctx.channel().config().setAutoRead(true);
+            }
+            maybeFinishExchange();
+        } else {
+            ctx.writeAndFlush(content);
+            applyDownstreamBackPressure();
+        }
+    }
+
+    private void applyDownstreamBackPressure() {
+        if (upstream != null && !ctx.channel().isWritable()) {
+            upstream.config().setAutoRead(false);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        if (upstream != null && ctx.channel().isWritable()) {
+            upstream.config().setAutoRead(true);
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    private void onUpstreamWritabilityChanged(boolean writable) {
+        if (active && !requestDone && !discardRequestBody) {
+            ctx.channel().config().setAutoRead(writable);
+        }
+    }
+
+    private void onUpstreamClosed() {
+        if (active && !responseDone) {
+            failExchange(new java.io.IOException("Upstream closed connection before responding"));
+        }
+    }
+
+    private void onUpstreamError(Throwable cause) {
+        failExchange(cause);
+    }
+
+    private void failExchange(Throwable cause) {
+        if (!active || responseDone) {
+            return;
+        }
+
+        // Nothing else from this upstream matters once we start failing the exchange
+        boolean wasStarted = responseStarted;
+        responseDone = true;
+
+        cancelTimeout();
+        boolean timedOut = cause instanceof TimeoutException;
+
+        if (selection != null) {
+            statusCode = timedOut ? 504 : 502;
+            recordOutcome(cause);
+        }
+
+        releaseUpstream(false);
+
+        if (wasStarted) {
+            // Part of the response is already on the wire; the only honest option is to cut it
+            logger.error("Upstream failed mid-response for gateway {}", gatewayId, cause);
+            ctx.close();
+            return;
+        }
+
+        HttpResponseStatus status = timedOut ? HttpResponseStatus.GATEWAY_TIMEOUT : HttpResponseStatus.BAD_GATEWAY;
+        String body = timedOut
+                ? "{\"error\": \"Gateway timeout - backend service did not respond\"}"
+                : "{\"error\": \"Bad gateway - could not connect to backend service\"}";
+        selection = null;
+        rejectRequest(status, body);
+        releasePending();
+        maybeFinishExchange();
+    }
+
+    private void recordOutcome(Throwable error) {
+        if (selection == null) {
+            return;
+        }
+        long latency = System.currentTimeMillis() - startTime;
+        proxyService.recordOutcome(gatewayId, selection, method, path, statusCode, latency, error);
+        proxyService.releasePermit(selection, statusCode, error);
+    }
+
+    private void writeLast(Object msg) {
+        // Connection reuse is decided by HttpKeepAliveHandler
+        ctx.writeAndFlush(msg);
+    }
+
+    private void maybeFinishExchange() {
+        if (requestDone && responseDone) {
+            active = false;
+            selection = null;
+            upstream = null;
+        }
+    }
+
+    private void cancelTimeout() {
+        if (timeout != null) {
+            timeout.cancel(false);
+            timeout = null;
+        }
+    }
+
+    private void releaseUpstream(boolean reusable) {
+        if (upstream != null) {
+            UpstreamClient.release(upstream, reusable);
+            upstream = null;
+        }
+    }
+
+    private void releasePending() {
+        HttpContent content;
+        while ((content = pending.poll()) != null) {
+            content.release();
+        }
+    }
+
+    /**
+     * Binds upstream events to the exchange that opened the connection, so a late
+     * close from a finished exchange can't fail the next one.
+     */
+    private class ExchangeListener implements StreamingUpstreamRelay.Listener {
+        private final long exchange;
+
+        ExchangeListener(long exchange) {
+            this.exchange = exchange;
+        }
+
+        private boolean current() {
+            return exchange == exchangeId && active;
+        }
+
+        @Override
+        public void onResponseHead(HttpResponse response) {
+            if (current()) {
+                StreamingProxyHandler.this.onResponseHead(response);
+            }
+        }
+
+        @Override
+        public void onResponseContent(HttpContent content) {
+            if (current()) {
+                StreamingProxyHandler.this.onResponseContent(content);
+            } else {
+                content.release();
+            }
+        }
+
+        @Override
+        public void onUpstreamWritabilityChanged(boolean writable) {
+            if (current()) {
+                StreamingProxyHandler.this.onUpstreamWritabilityChanged(writable);
+            }
+        }
+
+        @Override
+        public void onUpstreamClosed() {
+            if (current()) {
+                StreamingProxyHandler.this.onUpstreamClosed();
+            }
+        }
+
+        @Override
+        public void onUpstreamError(Throwable cause) {
+            if (current()) {
+                StreamingProxyHandler.this.onUpstreamError(cause);
+            }
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        if (active) {
+            if (selection != null && !responseDone) {
+                proxyService.abandon(selection);
+            }
+            cancelTimeout();
+            releaseUpstream(false);
+            releasePending();
+            active = false;
+        }
+        super.channelInactive(ctx);
+    }
+}
@@ -0,0 +1,169 @@
+package com.gateway.netty;
+
+import com.gateway.config.AppConfig;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollChannelOption;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * The socket implementation every Netty channel in the process uses: client
+ * connections, upstream connections and health-check probes alike, so that
+ * channels always match the event loops they are registered with.
+ *
+ * {@code server.transport} picks one of
+ * <ul>
+ *   <li>{@code epoll} - Linux native transport, with {@code SO_REUSEPORT};</li>
+ *   <li>{@code io_uring} - Linux 5.9+, needs
+ *       {@code netty-incubator-transport-native-io_uring} on the classpath,
+ *       with {@code SO_REUSEPORT};</li>
+ *   <li>{@code nio} - the JDK selector, available everywhere;</li>
+ *   <li>{@code auto} (default) - epoll where available, otherwise NIO.</li>
+ * </ul>
+ * A transport that isn't available falls back to NIO with a warning.
+ */
+public final class Transport {
+    private static final Logger logger = LoggerFactory.getLogger(Transport.class);
+
+    private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
+
+    private static final Transport INSTANCE = select(AppConfig.get("server.transport", "auto"));
+
+    private final String name;
+    private final Class<? extends ServerChannel> serverChannelClass;
+    private final Class<? extends Channel> socketChannelClass;
+    private final GroupFactory groupFactory;
+    // null when the transport can't share a port between sockets
+    private final ChannelOption<Boolean> reusePortOption;
+
+    private Transport(String name, Class<? extends ServerChannel> serverChannelClass,
+                      Class<? extends Channel> socketChannelClass, GroupFactory groupFactory,
+                      ChannelOption<Boolean> reusePortOption) {
+        this.name = name;
+        this.serverChannelClass = serverChannelClass;
+        this.socketChannelClass = socketChannelClass;
+        this.groupFactory = groupFactory;
+        this.reusePortOption = reusePortOption;
+    }
+
+    public static Transport getInstance() {
+        return INSTANCE;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<? extends ServerChannel> serverChannelClass() {
+        return serverChannelClass;
+    }
+
+    public Class<? extends Channel> socketChannelClass() {
+        return socketChannelClass;
+    }
+
+    public boolean supportsReusePort() {
+        return reusePortOption != null;
+    }
+
+    /** {@code SO_REUSEPORT}, or {@code null} if {@link #supportsReusePort()} is false. */
+    public ChannelOption<Boolean> reusePortOption() {
+        return reusePortOption;
+    }
+
+    /**
+     * @param threads 0 for Netty's default (available processors * 2)
+     * @param name    thread name prefix
+     */
+    public EventLoopGroup newEventLoopGroup(int threads, String name) {
+        return groupFactory.create(threads, new DefaultThreadFactory(name));
+    }
+
+    private static Transport select(String requested) {
+        String kind = requested.trim().toLowerCase();
+        switch (kind) {
+            case "nio":
+                return nio();
+            case "epoll":
+                if (Epoll.isAvailable()) {
+                    return epoll();
+                }
+                logger.warn("epoll transport not available ({}), using NIO", Epoll.unavailabilityCause().toString());
+                return nio();
+            case "io_uring":
+            case "iouring":
+                Transport ioUring = ioUring();
+                if (ioUring != null) {
+                    return ioUring;
+                }
+                logger.warn("io_uring transport not available, using {}", Epoll.isAvailable() ? "epoll" : "NIO");
+                return Epoll.isAvailable() ? epoll() : nio();
+            case "auto":
+                return Epoll.isAvailable() ? epoll() : nio();
+            default:
+                logger.warn("Unknown server.transport '{}', using auto", requested);
+                return Epoll.isAvailable() ? epoll() : nio();
+        }
+    }
+
+    private static Transport nio() {
+        return new Transport("nio", NioServerSocketChannel.class, NioSocketChannel.class,
+                NioEventLoopGroup::new, null);
+    }
+
+    private static Transport epoll() {
+        return new Transport("epoll", EpollServerSocketChannel.class, EpollSocketChannel.class,
+                EpollEventLoopGroup::new, EpollChannelOption.SO_REUSEPORT);
+    }
+
+    // The incubator transport is an optional dependency, so it is looked up rather than linked against
+    @SuppressWarnings("unchecked")
+    private static Transport ioUring() {
+        try {
+            Class<?> ioUring = Class.forName(IO_URING_PACKAGE + "IOUring");
+            if (!(Boolean) ioUring.getMethod("isAvailable").invoke(null)) {
+                return null;
+            }
+
+            Class<? extends EventLoopGroup> groupClass =
+                    (Class<? extends EventLoopGroup>) Class.forName(IO_URING_PACKAGE + "IOUringEventLoopGroup");
+            var constructor = groupClass.getConstructor(int.class, ThreadFactory.class);
+            GroupFactory groups = (threads, threadFactory) -> {
+                try {
+                    return constructor.newInstance(threads, threadFactory);
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Failed to create io_uring event loops", e);
+                }
+            };
+
+            ChannelOption<Boolean> reusePort = (ChannelOption<Boolean>)
+                    Class.forName(IO_URING_PACKAGE + "IOUringChannelOption").getField("SO_REUSEPORT").get(null);
+
+            return new Transport("io_uring",
+                    (Class<? extends ServerChannel>) Class.forName(IO_URING_PACKAGE + "IOUringServerSocketChannel"),
+                    (Class<? extends Channel>) Class.forName(IO_URING_PACKAGE + "IOUringSocketChannel"),
+                    groups, reusePort);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            logger.debug("io_uring transport not on the classpath", e);
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface GroupFactory {
+        EventLoopGroup create(int threads, ThreadFactory threadFactory);
+    }
+}
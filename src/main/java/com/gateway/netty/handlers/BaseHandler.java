@@ -10,12 +10,28 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
-public abstract class BaseHandler {
-    protected final AuthService authService = new AuthService();
+/**
+ * A synchronous handler: {@link #handle} builds the response on the calling
+ * thread, which is a worker of the
+ * {@link com.gateway.netty.BlockingHandlerExecutor} unless the handler says it
+ * never blocks.
+ */
+public abstract class BaseHandler extends RequestHandler {
+    protected final AuthService authService = AuthService.getInstance();
 
     public abstract FullHttpResponse handle(RequestContext ctx) throws Exception;
 
+    @Override
+    public final CompletableFuture<FullHttpResponse> handleAsync(RequestContext ctx) {
+        try {
+            return CompletableFuture.completedFuture(handle(ctx));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
     protected Optional<UUID> authenticateRequest(RequestContext ctx) {
         String authHeader = ctx.getHeader("authorization");
 
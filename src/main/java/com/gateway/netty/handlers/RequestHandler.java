@@ -0,0 +1,26 @@
+package com.gateway.netty.handlers;
+
+import com.gateway.http.RequestContext;
+import io.netty.handler.codec.http.FullHttpResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * What the router dispatches to. Handlers that answer on the calling thread
+ * extend {@link BaseHandler}; handlers that wait on I/O (e.g. the proxy)
+ * extend this directly and return without blocking the event loop.
+ */
+public abstract class RequestHandler {
+
+    public abstract CompletableFuture<FullHttpResponse> handleAsync(RequestContext ctx);
+
+    /**
+     * Whether {@link #handleAsync} may block the calling thread, e.g. on JDBC or
+     * password hashing. Blocking handlers are run on the
+     * {@link com.gateway.netty.BlockingHandlerExecutor} instead of the event
+     * loop; handlers that never block override this to return {@code false}.
+     */
+    public boolean isBlocking() {
+        return true;
+    }
+}
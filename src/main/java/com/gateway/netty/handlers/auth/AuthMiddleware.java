@@ -7,7 +7,7 @@ import java.util.Optional;
 import java.util.UUID;
 
 public class AuthMiddleware {
-    private static final AuthService authService = new AuthService();
+    private static final AuthService authService = AuthService.getInstance();
 
     public static Optional<UUID> authenticate(RequestContext ctx) {
         String authHeader = ctx.getHeader("authorization");
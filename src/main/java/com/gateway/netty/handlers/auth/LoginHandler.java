@@ -3,7 +3,6 @@ package com.gateway.netty.handlers.auth;
 import com.gateway.http.RequestContext;
 import com.gateway.http.ResponseBuilder;
 import com.gateway.netty.handlers.BaseHandler;
-import com.gateway.service.AuthService;
 import com.google.gson.JsonObject;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
@@ -14,7 +13,6 @@ import java.util.Map;
 
 public class LoginHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(LoginHandler.class);
-    private final AuthService authService = new AuthService();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -4,7 +4,6 @@ import com.gateway.domain.User;
 import com.gateway.http.RequestContext;
 import com.gateway.http.ResponseBuilder;
 import com.gateway.netty.handlers.BaseHandler;
-import com.gateway.service.AuthService;
 import com.google.gson.JsonObject;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
@@ -13,7 +12,6 @@ import org.slf4j.LoggerFactory;
 
 public class RegisterHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(RegisterHandler.class);
-    private final AuthService authService = new AuthService();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -0,0 +1,66 @@
+package com.gateway.netty.handlers.cache;
+
+import com.gateway.http.RequestContext;
+import com.gateway.http.ResponseBuilder;
+import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.service.GatewayService;
+import com.gateway.service.ResponseCacheService;
+import com.google.gson.JsonObject;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public class PurgeGatewayCacheHandler extends BaseHandler {
+    private static final Logger logger = LoggerFactory.getLogger(PurgeGatewayCacheHandler.class);
+    private final ResponseCacheService responseCache = ResponseCacheService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
+
+    @Override
+    public FullHttpResponse handle(RequestContext ctx) throws Exception {
+        // Authenticate
+        Optional<UUID> userIdOpt = authenticateRequest(ctx);
+        if (userIdOpt.isEmpty()) {
+            return unauthorizedResponse();
+        }
+
+        UUID userId = userIdOpt.get();
+
+        try {
+            // Extract gateway ID from path: /api/v1/gateways/{gatewayId}/cache
+            String gatewayId = ctx.getPathParam("gatewayId");
+
+            if (gatewayId == null) {
+                return badRequestResponse("Invalid gateway ID");
+            }
+
+            UUID gatewayUuid = UUID.fromString(gatewayId);
+
+            // Verify gateway belongs to user
+            if (gatewayService.getGateway(gatewayUuid, userId).isEmpty()) {
+                return notFoundResponse("Gateway not found");
+            }
+
+            int purged = responseCache.purge(gatewayUuid, null);
+
+            JsonObject response = new JsonObject();
+            response.addProperty("message", "Gateway cache purged successfully");
+            response.addProperty("purged", purged);
+
+            logger.info("Response cache purged for gateway: {} ({} entries on this node)", gatewayUuid, purged);
+
+            return ResponseBuilder.json(HttpResponseStatus.OK)
+                    .body(response.toString())
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            return badRequestResponse("Invalid gateway ID format");
+        } catch (Exception e) {
+            logger.error("Error purging gateway cache", e);
+            return internalErrorResponse("Failed to purge gateway cache");
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.gateway.netty.handlers.cache;
+
+import com.gateway.domain.Route;
+import com.gateway.http.RequestContext;
+import com.gateway.http.ResponseBuilder;
+import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.service.GatewayService;
+import com.gateway.service.ResponseCacheService;
+import com.gateway.service.RouteService;
+import com.google.gson.JsonObject;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public class PurgeRouteCacheHandler extends BaseHandler {
+    private static final Logger logger = LoggerFactory.getLogger(PurgeRouteCacheHandler.class);
+    private final ResponseCacheService responseCache = ResponseCacheService.getInstance();
+    private final RouteService routeService = RouteService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
+
+    @Override
+    public FullHttpResponse handle(RequestContext ctx) throws Exception {
+        // Authenticate
+        Optional<UUID> userIdOpt = authenticateRequest(ctx);
+        if (userIdOpt.isEmpty()) {
+            return unauthorizedResponse();
+        }
+
+        UUID userId = userIdOpt.get();
+
+        try {
+            // Extract route ID from path: /api/v1/routes/{routeId}/cache
+            String routeId = ctx.getPathParam("routeId");
+
+            if (routeId == null) {
+                return badRequestResponse("Invalid route ID");
+            }
+
+            UUID routeUuid = UUID.fromString(routeId);
+
+            // Only the owner of the gateway may purge its routes
+            Optional<Route> routeOpt = routeService.getRoute(routeUuid);
+            if (routeOpt.isEmpty()
+                    || gatewayService.getGateway(routeOpt.get().getGatewayId(), userId).isEmpty()) {
+                return notFoundResponse("Route not found");
+            }
+
+            int purged = responseCache.purge(routeOpt.get().getGatewayId(), routeUuid);
+
+            JsonObject response = new JsonObject();
+            response.addProperty("message", "Route cache purged successfully");
+            response.addProperty("purged", purged);
+
+            logger.info("Response cache purged for route: {} ({} entries on this node)", routeUuid, purged);
+
+            return ResponseBuilder.json(HttpResponseStatus.OK)
+                    .body(response.toString())
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            return badRequestResponse("Invalid route ID format");
+        } catch (Exception e) {
+            logger.error("Error purging route cache", e);
+            return internalErrorResponse("Failed to purge route cache");
+        }
+    }
+}
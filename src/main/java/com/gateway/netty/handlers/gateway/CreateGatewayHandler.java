@@ -16,7 +16,7 @@ import java.util.UUID;
 
 public class CreateGatewayHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(CreateGatewayHandler.class);
-    private final GatewayService gatewayService = new GatewayService();
+    private final GatewayService gatewayService = GatewayService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -15,7 +15,7 @@ import java.util.UUID;
 
 public class DeleteGatewayHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(DeleteGatewayHandler.class);
-    private final GatewayService gatewayService = new GatewayService();
+    private final GatewayService gatewayService = GatewayService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -29,7 +29,7 @@ public class DeleteGatewayHandler extends BaseHandler {
 
         try {
             // Extract gateway ID from path
-            String gatewayId = extractPathVariable(ctx.getPath(), 4);
+            String gatewayId = ctx.getPathParam("gatewayId");
 
             if (gatewayId == null) {
                 return badRequestResponse("Invalid gateway ID");
@@ -16,7 +16,7 @@ import java.util.UUID;
 
 public class GetGatewayHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(GetGatewayHandler.class);
-    private final GatewayService gatewayService = new GatewayService();
+    private final GatewayService gatewayService = GatewayService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -29,8 +29,8 @@ public class GetGatewayHandler extends BaseHandler {
         UUID userId = userIdOpt.get();
 
         try {
-            // Extract gateway ID from path: /api/v1/gateways/{id}
-            String gatewayId = extractPathVariable(ctx.getPath(), 4);
+            // Extract gateway ID from path: /api/v1/gateways/{gatewayId}
+            String gatewayId = ctx.getPathParam("gatewayId");
 
             if (gatewayId == null) {
                 return badRequestResponse("Invalid gateway ID");
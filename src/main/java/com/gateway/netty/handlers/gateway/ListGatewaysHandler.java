@@ -18,7 +18,7 @@ import java.util.UUID;
 
 public class ListGatewaysHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(ListGatewaysHandler.class);
-    private final GatewayService gatewayService = new GatewayService();
+    private final GatewayService gatewayService = GatewayService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
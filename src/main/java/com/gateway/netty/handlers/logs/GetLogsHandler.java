@@ -5,8 +5,8 @@ import com.gateway.domain.RequestLog;
 import com.gateway.http.RequestContext;
 import com.gateway.http.ResponseBuilder;
 import com.gateway.netty.handlers.BaseHandler;
-import com.gateway.repository.LogRepository;
 import com.gateway.service.GatewayService;
+import com.gateway.service.LogService;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -14,14 +14,16 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 public class GetLogsHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(GetLogsHandler.class);
-    private final LogRepository logRepository = new LogRepository();
-    private final GatewayService gatewayService = new GatewayService();
+    private final LogService logService = LogService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -34,8 +36,8 @@ public class GetLogsHandler extends BaseHandler {
         UUID userId = userIdOpt.get();
 
         try {
-            // Extract gateway ID from path: /api/v1/gateways/{id}/logs
-            String gatewayId = extractPathVariable(ctx.getPath(), 4);
+            // Extract gateway ID from path: /api/v1/gateways/{gatewayId}/logs
+            String gatewayId = ctx.getPathParam("gatewayId");
 
             if (gatewayId == null) {
                 return badRequestResponse("Invalid gateway ID");
@@ -74,8 +76,18 @@ public class GetLogsHandler extends BaseHandler {
                 }
             }
 
+            // Optional time range, ISO-8601 instants; narrows the partitions searched
+            Instant since;
+            Instant until;
+            try {
+                since = parseInstant(ctx.getQueryParam("since"));
+                until = parseInstant(ctx.getQueryParam("until"));
+            } catch (DateTimeParseException e) {
+                return badRequestResponse("Invalid since/until, expected an ISO-8601 instant");
+            }
+
             // Get logs
-            List<RequestLog> logs = logRepository.findByGatewayId(gatewayUuid, limit, statusCode);
+            List<RequestLog> logs = logService.findLogs(gatewayUuid, limit, statusCode, since, until);
 
             // Build response
             JsonArray array = new JsonArray();
@@ -111,6 +123,12 @@ public class GetLogsHandler extends BaseHandler {
             if (statusCode != null) {
                 response.addProperty("filter_status", statusCode);
             }
+            if (since != null) {
+                response.addProperty("since", since.toString());
+            }
+            if (until != null) {
+                response.addProperty("until", until.toString());
+            }
 
             return ResponseBuilder.json(HttpResponseStatus.OK)
                     .body(response.toString())
@@ -123,4 +141,8 @@ public class GetLogsHandler extends BaseHandler {
             return internalErrorResponse("Failed to get logs");
         }
     }
-}
\ No newline at end of file
+
+    private static Instant parseInstant(String value) {
+        return value != null ? Instant.parse(value) : null;
+    }
+}
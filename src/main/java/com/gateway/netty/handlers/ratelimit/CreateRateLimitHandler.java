@@ -0,0 +1,82 @@
+package com.gateway.netty.handlers.ratelimit;
+
+import com.gateway.domain.Gateway;
+import com.gateway.domain.RateLimit;
+import com.gateway.http.RequestContext;
+import com.gateway.http.ResponseBuilder;
+import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.service.GatewayService;
+import com.gateway.service.RateLimitService;
+import com.google.gson.JsonObject;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public class CreateRateLimitHandler extends BaseHandler {
+    private static final Logger logger = LoggerFactory.getLogger(CreateRateLimitHandler.class);
+    private final RateLimitService rateLimitService = RateLimitService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
+
+    @Override
+    public FullHttpResponse handle(RequestContext ctx) throws Exception {
+        // Authenticate
+        Optional<UUID> userIdOpt = authenticateRequest(ctx);
+        if (userIdOpt.isEmpty()) {
+            return unauthorizedResponse();
+        }
+
+        UUID userId = userIdOpt.get();
+
+        try {
+            // Extract gateway ID from path: /api/v1/gateways/{gatewayId}/rate-limits
+            String gatewayId = ctx.getPathParam("gatewayId");
+
+            if (gatewayId == null) {
+                return badRequestResponse("Invalid gateway ID");
+            }
+
+            UUID gatewayUuid = UUID.fromString(gatewayId);
+
+            // Verify gateway belongs to user
+            Optional<Gateway> gatewayOpt = gatewayService.getGateway(gatewayUuid, userId);
+            if (gatewayOpt.isEmpty()) {
+                return notFoundResponse("Gateway not found");
+            }
+
+            // Parse request body
+            JsonObject json = parseJsonBody(ctx);
+
+            if (!json.has("requests")) {
+                return badRequestResponse("Requests is required");
+            }
+
+            UUID routeId = json.has("route_id") && !json.get("route_id").isJsonNull()
+                    ? UUID.fromString(json.get("route_id").getAsString()) : null;
+            String key = json.has("key") ? json.get("key").getAsString() : null;
+            Integer requests = json.get("requests").getAsInt();
+            Integer periodMs = json.has("period_ms") ? json.get("period_ms").getAsInt() : null;
+            Integer burst = json.has("burst") ? json.get("burst").getAsInt() : null;
+
+            // Create rate limit
+            RateLimit limit = rateLimitService.createLimit(gatewayUuid, routeId, key, requests, periodMs, burst);
+
+            logger.info("Rate limit created: {} requests/{}ms by {} for gateway: {}",
+                    limit.getRequests(), limit.getPeriodMs(), limit.getLimitKey(), gatewayUuid);
+
+            return ResponseBuilder.json(HttpResponseStatus.CREATED)
+                    .body(ListRateLimitsHandler.toJson(limit).toString())
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Rate limit creation failed: {}", e.getMessage());
+            return badRequestResponse(e.getMessage());
+        } catch (Exception e) {
+            logger.error("Error creating rate limit", e);
+            return internalErrorResponse("Failed to create rate limit");
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.gateway.netty.handlers.ratelimit;
+
+import com.gateway.domain.RateLimit;
+import com.gateway.http.RequestContext;
+import com.gateway.http.ResponseBuilder;
+import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.service.GatewayService;
+import com.gateway.service.RateLimitService;
+import com.google.gson.JsonObject;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+import java.util.UUID;
+
+public class DeleteRateLimitHandler extends BaseHandler {
+    private static final Logger logger = LoggerFactory.getLogger(DeleteRateLimitHandler.class);
+    private final RateLimitService rateLimitService = RateLimitService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
+
+    @Override
+    public FullHttpResponse handle(RequestContext ctx) throws Exception {
+        // Authenticate
+        Optional<UUID> userIdOpt = authenticateRequest(ctx);
+        if (userIdOpt.isEmpty()) {
+            return unauthorizedResponse();
+        }
+
+        UUID userId = userIdOpt.get();
+
+        try {
+            // Extract rate limit ID from path: /api/v1/rate-limits/{limitId}
+            String limitId = ctx.getPathParam("limitId");
+
+            if (limitId == null) {
+                return badRequestResponse("Invalid rate limit ID");
+            }
+
+            UUID limitUuid = UUID.fromString(limitId);
+
+            // Only the owner of the gateway may remove its limits
+            Optional<RateLimit> limitOpt = rateLimitService.getLimit(limitUuid);
+            if (limitOpt.isEmpty()
+                    || gatewayService.getGateway(limitOpt.get().getGatewayId(), userId).isEmpty()) {
+                return notFoundResponse("Rate limit not found");
+            }
+
+            if (!rateLimitService.deleteLimit(limitUuid)) {
+                return notFoundResponse("Rate limit not found");
+            }
+
+            JsonObject response = new JsonObject();
+            response.addProperty("message", "Rate limit deleted successfully");
+
+            logger.info("Rate limit deleted: {}", limitUuid);
+
+            return ResponseBuilder.json(HttpResponseStatus.OK)
+                    .body(response.toString())
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            return badRequestResponse("Invalid rate limit ID format");
+        } catch (Exception e) {
+            logger.error("Error deleting rate limit", e);
+            return internalErrorResponse("Failed to delete rate limit");
+        }
+    }
+}
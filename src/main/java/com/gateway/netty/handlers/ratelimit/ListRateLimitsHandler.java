@@ -0,0 +1,87 @@
+package com.gateway.netty.handlers.ratelimit;
+
+import com.gateway.domain.Gateway;
+import com.gateway.domain.RateLimit;
+import com.gateway.http.RequestContext;
+import com.gateway.http.ResponseBuilder;
+import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.service.GatewayService;
+import com.gateway.service.RateLimitService;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public class ListRateLimitsHandler extends BaseHandler {
+    private static final Logger logger = LoggerFactory.getLogger(ListRateLimitsHandler.class);
+    private final RateLimitService rateLimitService = RateLimitService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
+
+    @Override
+    public FullHttpResponse handle(RequestContext ctx) throws Exception {
+        // Authenticate
+        Optional<UUID> userIdOpt = authenticateRequest(ctx);
+        if (userIdOpt.isEmpty()) {
+            return unauthorizedResponse();
+        }
+
+        UUID userId = userIdOpt.get();
+
+        try {
+            // Extract gateway ID
+            String gatewayId = ctx.getPathParam("gatewayId");
+
+            if (gatewayId == null) {
+                return badRequestResponse("Invalid gateway ID");
+            }
+
+            UUID gatewayUuid = UUID.fromString(gatewayId);
+
+            // Verify gateway belongs to user
+            Optional<Gateway> gatewayOpt = gatewayService.getGateway(gatewayUuid, userId);
+            if (gatewayOpt.isEmpty()) {
+                return notFoundResponse("Gateway not found");
+            }
+
+            List<RateLimit> limits = rateLimitService.getGatewayLimits(gatewayUuid);
+
+            JsonArray array = new JsonArray();
+            for (RateLimit limit : limits) {
+                array.add(toJson(limit));
+            }
+
+            JsonObject response = new JsonObject();
+            response.add("rate_limits", array);
+            response.addProperty("count", limits.size());
+
+            return ResponseBuilder.json(HttpResponseStatus.OK)
+                    .body(response.toString())
+                    .build();
+
+        } catch (IllegalArgumentException e) {
+            return badRequestResponse("Invalid gateway ID format");
+        } catch (Exception e) {
+            logger.error("Error listing rate limits", e);
+            return internalErrorResponse("Failed to list rate limits");
+        }
+    }
+
+    static JsonObject toJson(RateLimit limit) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("id", limit.getId().toString());
+        obj.addProperty("gateway_id", limit.getGatewayId().toString());
+        obj.addProperty("route_id", limit.getRouteId() != null ? limit.getRouteId().toString() : null);
+        obj.addProperty("key", limit.getLimitKey());
+        obj.addProperty("requests", limit.getRequests());
+        obj.addProperty("period_ms", limit.getPeriodMs());
+        obj.addProperty("burst", limit.getBurst());
+        obj.addProperty("created_at", limit.getCreatedAt().toString());
+        return obj;
+    }
+}
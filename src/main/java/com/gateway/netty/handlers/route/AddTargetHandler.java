@@ -4,6 +4,7 @@ import com.gateway.domain.RouteTarget;
 import com.gateway.http.RequestContext;
 import com.gateway.http.ResponseBuilder;
 import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.netty.upstream.UpstreamClient;
 import com.gateway.service.RouteService;
 import com.google.gson.JsonObject;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -11,12 +12,13 @@ import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.URI;
 import java.util.Optional;
 import java.util.UUID;
 
 public class AddTargetHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(AddTargetHandler.class);
-    private final RouteService routeService = new RouteService();
+    private final RouteService routeService = RouteService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -27,8 +29,8 @@ public class AddTargetHandler extends BaseHandler {
         }
 
         try {
-            // Extract route ID from path: /api/v1/routes/{id}/targets
-            String routeId = extractPathVariable(ctx.getPath(), 4);
+            // Extract route ID from path: /api/v1/routes/{routeId}/targets
+            String routeId = ctx.getPathParam("routeId");
 
             if (routeId == null) {
                 return badRequestResponse("Invalid route ID");
@@ -51,10 +53,16 @@ public class AddTargetHandler extends BaseHandler {
 
             String targetUrl = json.get("target_url").getAsString();
             Integer weight = json.has("weight") ? json.get("weight").getAsInt() : null;
+            if (weight != null && (weight < 1 || weight > RouteTarget.MAX_WEIGHT)) {
+                return badRequestResponse("Weight must be between 1 and " + RouteTarget.MAX_WEIGHT);
+            }
 
             // Add target
             RouteTarget target = routeService.addTarget(routeUuid, targetUrl, weight);
 
+            // Open connections now so the first proxied requests don't pay for them
+            UpstreamClient.getInstance().prewarm(target.getId(), URI.create(target.getTargetUrl()));
+
             // Build response
             JsonObject response = new JsonObject();
             response.addProperty("id", target.getId().toString());
@@ -8,6 +8,7 @@ import com.gateway.netty.handlers.BaseHandler;
 import com.gateway.service.GatewayService;
 import com.gateway.service.RouteService;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
@@ -18,8 +19,8 @@ import java.util.UUID;
 
 public class CreateRouteHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(CreateRouteHandler.class);
-    private final RouteService routeService = new RouteService();
-    private final GatewayService gatewayService = new GatewayService();
+    private final RouteService routeService = RouteService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -32,8 +33,8 @@ public class CreateRouteHandler extends BaseHandler {
         UUID userId = userIdOpt.get();
 
         try {
-            // Extract gateway ID from path: /api/v1/gateways/{id}/routes
-            String gatewayId = extractPathVariable(ctx.getPath(), 4);
+            // Extract gateway ID from path: /api/v1/gateways/{gatewayId}/routes
+            String gatewayId = ctx.getPathParam("gatewayId");
 
             if (gatewayId == null) {
                 return badRequestResponse("Invalid gateway ID");
@@ -57,9 +58,16 @@ public class CreateRouteHandler extends BaseHandler {
             String path = json.get("path").getAsString();
             String method = json.get("method").getAsString();
             Integer timeoutMs = json.has("timeout_ms") ? json.get("timeout_ms").getAsInt() : null;
+            String lbStrategy = json.has("lb_strategy") ? json.get("lb_strategy").getAsString() : null;
+            String lbHashKey = json.has("lb_hash_key") ? json.get("lb_hash_key").getAsString() : null;
+            String retryPolicy = json.has("retry_policy") && !json.get("retry_policy").isJsonNull()
+                    ? json.get("retry_policy").toString() : null;
+            String cachePolicy = json.has("cache_policy") && !json.get("cache_policy").isJsonNull()
+                    ? json.get("cache_policy").toString() : null;
 
             // Create route
-            Route route = routeService.createRoute(gatewayUuid, path, method, timeoutMs);
+            Route route = routeService.createRoute(gatewayUuid, path, method, timeoutMs,
+                    lbStrategy, lbHashKey, retryPolicy, cachePolicy);
 
             // Build response
             JsonObject response = new JsonObject();
@@ -68,6 +76,14 @@ public class CreateRouteHandler extends BaseHandler {
             response.addProperty("path", route.getPath());
             response.addProperty("method", route.getMethod());
             response.addProperty("timeout_ms", route.getTimeoutMs());
+            response.addProperty("lb_strategy", route.getLbStrategy());
+            response.addProperty("lb_hash_key", route.getLbHashKey());
+            if (route.getRetryPolicy() != null) {
+                response.add("retry_policy", JsonParser.parseString(route.getRetryPolicy()));
+            }
+            if (route.getCachePolicy() != null) {
+                response.add("cache_policy", JsonParser.parseString(route.getCachePolicy()));
+            }
             response.addProperty("created_at", route.getCreatedAt().toString());
 
             logger.info("Route created: {} {} for gateway: {}", method, path, gatewayUuid);
@@ -15,7 +15,7 @@ import java.util.UUID;
 
 public class DeleteRouteHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(DeleteRouteHandler.class);
-    private final RouteService routeService = new RouteService();
+    private final RouteService routeService = RouteService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -27,7 +27,7 @@ public class DeleteRouteHandler extends BaseHandler {
 
         try {
             // Extract route ID
-            String routeId = extractPathVariable(ctx.getPath(), 4);
+            String routeId = ctx.getPathParam("routeId");
 
             if (routeId == null) {
                 return badRequestResponse("Invalid route ID");
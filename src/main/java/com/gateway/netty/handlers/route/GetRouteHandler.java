@@ -6,6 +6,7 @@ import com.gateway.http.ResponseBuilder;
 import com.gateway.netty.handlers.BaseHandler;
 import com.gateway.service.RouteService;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
@@ -16,7 +17,7 @@ import java.util.UUID;
 
 public class GetRouteHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(GetRouteHandler.class);
-    private final RouteService routeService = new RouteService();
+    private final RouteService routeService = RouteService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -27,8 +28,8 @@ public class GetRouteHandler extends BaseHandler {
         }
 
         try {
-            // Extract route ID from path: /api/v1/routes/{id}
-            String routeId = extractPathVariable(ctx.getPath(), 4);
+            // Extract route ID from path: /api/v1/routes/{routeId}
+            String routeId = ctx.getPathParam("routeId");
 
             if (routeId == null) {
                 return badRequestResponse("Invalid route ID");
@@ -50,6 +51,14 @@ public class GetRouteHandler extends BaseHandler {
             response.addProperty("path", route.getPath());
             response.addProperty("method", route.getMethod());
             response.addProperty("timeout_ms", route.getTimeoutMs());
+            response.addProperty("lb_strategy", route.getLbStrategy());
+            response.addProperty("lb_hash_key", route.getLbHashKey());
+            if (route.getRetryPolicy() != null) {
+                response.add("retry_policy", JsonParser.parseString(route.getRetryPolicy()));
+            }
+            if (route.getCachePolicy() != null) {
+                response.add("cache_policy", JsonParser.parseString(route.getCachePolicy()));
+            }
             response.addProperty("created_at", route.getCreatedAt().toString());
 
             return ResponseBuilder.json(HttpResponseStatus.OK)
@@ -9,6 +9,7 @@ import com.gateway.service.GatewayService;
 import com.gateway.service.RouteService;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
@@ -20,8 +21,8 @@ import java.util.UUID;
 
 public class ListRoutesHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(ListRoutesHandler.class);
-    private final RouteService routeService = new RouteService();
-    private final GatewayService gatewayService = new GatewayService();
+    private final RouteService routeService = RouteService.getInstance();
+    private final GatewayService gatewayService = GatewayService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -35,7 +36,7 @@ public class ListRoutesHandler extends BaseHandler {
 
         try {
             // Extract gateway ID
-            String gatewayId = extractPathVariable(ctx.getPath(), 4);
+            String gatewayId = ctx.getPathParam("gatewayId");
 
             if (gatewayId == null) {
                 return badRequestResponse("Invalid gateway ID");
@@ -58,6 +59,14 @@ public class ListRoutesHandler extends BaseHandler {
                 obj.addProperty("path", route.getPath());
                 obj.addProperty("method", route.getMethod());
                 obj.addProperty("timeout_ms", route.getTimeoutMs());
+                obj.addProperty("lb_strategy", route.getLbStrategy());
+                obj.addProperty("lb_hash_key", route.getLbHashKey());
+                if (route.getRetryPolicy() != null) {
+                    obj.add("retry_policy", JsonParser.parseString(route.getRetryPolicy()));
+                }
+                if (route.getCachePolicy() != null) {
+                    obj.add("cache_policy", JsonParser.parseString(route.getCachePolicy()));
+                }
                 obj.addProperty("created_at", route.getCreatedAt().toString());
                 array.add(obj);
             }
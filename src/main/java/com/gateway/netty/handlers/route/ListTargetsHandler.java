@@ -4,7 +4,10 @@ import com.gateway.domain.RouteTarget;
 import com.gateway.http.RequestContext;
 import com.gateway.http.ResponseBuilder;
 import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.service.CircuitBreakerService;
+import com.gateway.service.OutlierDetectionService;
 import com.gateway.service.RouteService;
+import com.gateway.service.circuitbreaker.CircuitBreaker;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import io.netty.handler.codec.http.FullHttpResponse;
@@ -18,7 +21,7 @@ import java.util.UUID;
 
 public class ListTargetsHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(ListTargetsHandler.class);
-    private final RouteService routeService = new RouteService();
+    private final RouteService routeService = RouteService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -30,7 +33,7 @@ public class ListTargetsHandler extends BaseHandler {
 
         try {
             // Extract route ID
-            String routeId = extractPathVariable(ctx.getPath(), 4);
+            String routeId = ctx.getPathParam("routeId");
 
             if (routeId == null) {
                 return badRequestResponse("Invalid route ID");
@@ -50,6 +53,13 @@ public class ListTargetsHandler extends BaseHandler {
                 obj.addProperty("consecutive_failures", target.getConsecutiveFailures());
                 obj.addProperty("weight", target.getWeight());
 
+                // This node's view; other nodes may see the target differently
+                CircuitBreaker breaker = CircuitBreakerService.getInstance().find(target.getId());
+                obj.addProperty("circuit_state", breaker != null
+                        ? breaker.getState().name().toLowerCase()
+                        : CircuitBreaker.State.CLOSED.name().toLowerCase());
+                obj.addProperty("ejected", OutlierDetectionService.getInstance().isEjected(target.getId()));
+
                 if (target.getLastHealthCheck() != null) {
                     obj.addProperty("last_health_check", target.getLastHealthCheck().toString());
                 }
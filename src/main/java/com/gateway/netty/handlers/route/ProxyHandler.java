@@ -2,28 +2,38 @@ package com.gateway.netty.handlers.proxy;
 
 import com.gateway.http.RequestContext;
 import com.gateway.http.ResponseBuilder;
-import com.gateway.netty.handlers.BaseHandler;
+import com.gateway.netty.handlers.RequestHandler;
 import com.gateway.service.ProxyService;
+import io.netty.channel.EventLoop;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class ProxyHandler extends BaseHandler {
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+public class ProxyHandler extends RequestHandler {
     private static final Logger logger = LoggerFactory.getLogger(ProxyHandler.class);
-    private final ProxyService proxyService = new ProxyService();
+    private final ProxyService proxyService = ProxyService.getInstance();
+
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
 
     @Override
-    public FullHttpResponse handle(RequestContext ctx) throws Exception {
+    public CompletableFuture<FullHttpResponse> handleAsync(RequestContext ctx) {
         // Extract gateway ID from path: /gateway/{gatewayId}/rest/of/path
         String path = ctx.getPath();
         String[] parts = path.split("/", 4); // ["", "gateway", "{id}", "rest"]
 
         if (parts.length < 3) {
             logger.warn("Invalid gateway URL format: {}", path);
-            return ResponseBuilder.json(HttpResponseStatus.BAD_REQUEST)
+            return CompletableFuture.completedFuture(ResponseBuilder.json(HttpResponseStatus.BAD_REQUEST)
                     .body("{\"error\": \"Invalid gateway URL format. Expected: /gateway/{id}/path\"}")
-                    .build();
+                    .build());
         }
 
         String gatewayId = parts[2];
@@ -32,60 +42,89 @@ public class ProxyHandler extends BaseHandler {
         logger.info("Proxying request: gateway={}, path={}, method={}",
                 gatewayId, targetPath, ctx.getMethod());
 
+        // Validate gateway ID format
         try {
-            // Validate gateway ID format
-            try {
-                java.util.UUID.fromString(gatewayId);
-            } catch (IllegalArgumentException e) {
-                return ResponseBuilder.json(HttpResponseStatus.BAD_REQUEST)
-                        .body("{\"error\": \"Invalid gateway ID format\"}")
-                        .build();
-            }
+            java.util.UUID.fromString(gatewayId);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseBuilder.json(HttpResponseStatus.BAD_REQUEST)
+                    .body("{\"error\": \"Invalid gateway ID format\"}")
+                    .build());
+        }
 
+        EventLoop eventLoop = ctx.getChannel().eventLoop();
+
+        CompletableFuture<ProxyService.ProxyResult> forwarded;
+        try {
             // Forward request through ProxyService
-            ProxyService.ProxyResult result = proxyService.forward(
+            forwarded = proxyService.forward(
+                    eventLoop,
                     gatewayId,
                     targetPath,
+                    ctx.getRawQuery(),
                     ctx.getMethod(),
                     ctx.getHeaders(),
-                    ctx.getBody()
+                    ctx.retainedContent(),
+                    ctx.getChannel().remoteAddress()
             );
+        } catch (Exception e) {
+            forwarded = CompletableFuture.failedFuture(e);
+        }
+
+        return forwarded.handle((result, error) -> {
+            if (error != null) {
+                return errorResponse(gatewayId, unwrap(error));
+            }
 
             // Build response with status from backend
             HttpResponseStatus status = HttpResponseStatus.valueOf(result.statusCode);
             ResponseBuilder builder = ResponseBuilder.status(status);
 
             // Copy response headers from backend
-            result.headers.forEach(builder::header);
+            builder.headers(result.headers);
 
             // Add custom proxy headers
             builder.header("X-Gateway-Proxy", "GatewayaaS/1.0");
 
             return builder.body(result.body).build();
+        });
+    }
 
-        } catch (IllegalArgumentException e) {
+    private FullHttpResponse errorResponse(String gatewayId, Throwable e) {
+        if (e instanceof IllegalArgumentException) {
             logger.warn("Bad request for gateway {}: {}", gatewayId, e.getMessage());
             return ResponseBuilder.json(HttpResponseStatus.BAD_REQUEST)
-                    .body("{\"error\": \"" + e.getMessage().replace("\"", "\\\"") + "\"}")
+                    .body("{\"error\": \"" + escape(e.getMessage()) + "\"}")
                     .build();
+        }
 
-        } catch (java.net.http.HttpTimeoutException e) {
+        if (e instanceof TimeoutException) {
             logger.error("Timeout forwarding request to gateway {}", gatewayId, e);
             return ResponseBuilder.json(HttpResponseStatus.GATEWAY_TIMEOUT)
                     .body("{\"error\": \"Gateway timeout - backend service did not respond\"}")
                     .build();
+        }
 
-        } catch (java.net.ConnectException e) {
+        if (e instanceof java.net.ConnectException) {
             logger.error("Connection failed for gateway {}", gatewayId, e);
             return ResponseBuilder.json(HttpResponseStatus.BAD_GATEWAY)
                     .body("{\"error\": \"Bad gateway - could not connect to backend service\"}")
                     .build();
+        }
 
-        } catch (Exception e) {
-            logger.error("Proxy error for gateway {}", gatewayId, e);
-            return ResponseBuilder.json(HttpResponseStatus.BAD_GATEWAY)
-                    .body("{\"error\": \"Bad gateway - " + e.getMessage().replace("\"", "\\\"") + "\"}")
-                    .build();
+        logger.error("Proxy error for gateway {}", gatewayId, e);
+        return ResponseBuilder.json(HttpResponseStatus.BAD_GATEWAY)
+                .body("{\"error\": \"Bad gateway - " + escape(e.getMessage()) + "\"}")
+                .build();
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        while (error instanceof CompletionException && error.getCause() != null) {
+            error = error.getCause();
         }
+        return error;
+    }
+
+    private static String escape(String message) {
+        return message == null ? "" : message.replace("\"", "\\\"");
     }
-}
\ No newline at end of file
+}
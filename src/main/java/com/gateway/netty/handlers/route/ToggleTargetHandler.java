@@ -15,7 +15,7 @@ import java.util.UUID;
 
 public class ToggleTargetHandler extends BaseHandler {
     private static final Logger logger = LoggerFactory.getLogger(ToggleTargetHandler.class);
-    private final RouteService routeService = new RouteService();
+    private final RouteService routeService = RouteService.getInstance();
 
     @Override
     public FullHttpResponse handle(RequestContext ctx) throws Exception {
@@ -26,8 +26,8 @@ public class ToggleTargetHandler extends BaseHandler {
         }
 
         try {
-            // Extract target ID from path: /api/v1/targets/{id}/toggle
-            String targetId = extractPathVariable(ctx.getPath(), 4);
+            // Extract target ID from path: /api/v1/targets/{targetId}/toggle
+            String targetId = ctx.getPathParam("targetId");
 
             if (targetId == null) {
                 return badRequestResponse("Invalid target ID");
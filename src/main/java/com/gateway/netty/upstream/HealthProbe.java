@@ -0,0 +1,149 @@
+package com.gateway.netty.upstream;
+
+import com.gateway.netty.Transport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaderValues;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObject;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.ssl.SslContext;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.net.URI;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One-off GET requests for active health checks, on the same {@link Transport}
+ * as every other connection. Each probe opens a connection of its own and
+ * closes it as soon as the status line arrives, so checks never hold pooled
+ * connections that live traffic could use, and a check sees the target the way
+ * a new connection would.
+ */
+public class HealthProbe {
+    private final Bootstrap bootstrap;
+    private final SslContext sslContext;
+    private final int timeoutMs;
+
+    public HealthProbe(EventLoopGroup group, int timeoutMs) {
+        this.timeoutMs = timeoutMs;
+        this.sslContext = UpstreamClient.buildSslContext();
+        this.bootstrap = new Bootstrap()
+                .group(group)
+                .channel(Transport.getInstance().socketChannelClass())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, timeoutMs)
+                .option(ChannelOption.TCP_NODELAY, true);
+    }
+
+    /**
+     * Sends {@code GET target} and completes with the response status, or
+     * exceptionally if the target can't be reached or doesn't answer within the
+     * timeout.
+     */
+    public CompletableFuture<Integer> get(URI target) {
+        CompletableFuture<Integer> result = new CompletableFuture<>();
+
+        boolean secure = "https".equalsIgnoreCase(target.getScheme());
+        String host = target.getHost();
+        if (host == null) {
+            result.completeExceptionally(new IllegalArgumentException("No host in " + target));
+            return result;
+        }
+        if (secure && sslContext == null) {
+            result.completeExceptionally(new IllegalStateException("TLS is not available for health checks"));
+            return result;
+        }
+        int port = target.getPort() != -1 ? target.getPort() : (secure ? 443 : 80);
+
+        Bootstrap probe = bootstrap.clone()
+                .remoteAddress(host, port)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        ChannelPipeline pipeline = channel.pipeline();
+                        if (secure) {
+                            pipeline.addLast("ssl", sslContext.newHandler(channel.alloc(), host, port));
+                        }
+                        pipeline.addLast("httpClientCodec", new HttpClientCodec());
+                        pipeline.addLast("status", new StatusHandler(result));
+                    }
+                });
+
+        probe.connect().addListener((ChannelFutureListener) connected -> {
+            if (!connected.isSuccess()) {
+                result.completeExceptionally(connected.cause());
+                return;
+            }
+
+            Channel channel = connected.channel();
+            ScheduledFuture<?> timeout = channel.eventLoop().schedule(() -> {
+                result.completeExceptionally(new TimeoutException(
+                        "No response within " + timeoutMs + "ms"));
+            }, timeoutMs, TimeUnit.MILLISECONDS);
+            result.whenComplete((status, error) -> {
+                timeout.cancel(false);
+                channel.close();
+            });
+
+            FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET,
+                    pathAndQuery(target), Unpooled.EMPTY_BUFFER);
+            request.headers()
+                    .set(HttpHeaderNames.HOST, target.getPort() != -1 ? host + ":" + port : host)
+                    .set(HttpHeaderNames.CONNECTION, HttpHeaderValues.CLOSE);
+            channel.writeAndFlush(request).addListener((ChannelFutureListener) written -> {
+                if (!written.isSuccess()) {
+                    result.completeExceptionally(written.cause());
+                }
+            });
+        });
+
+        return result;
+    }
+
+    private static String pathAndQuery(URI target) {
+        String path = target.getRawPath() == null || target.getRawPath().isEmpty() ? "/" : target.getRawPath();
+        return target.getRawQuery() != null ? path + "?" + target.getRawQuery() : path;
+    }
+
+    // Only the status line matters; the body is discarded with the connection
+    private static class StatusHandler extends SimpleChannelInboundHandler<HttpObject> {
+        private final CompletableFuture<Integer> result;
+
+        StatusHandler(CompletableFuture<Integer> result) {
+            this.result = result;
+        }
+
+        @Override
+        protected void channelRead0(ChannelHandlerContext ctx, HttpObject msg) {
+            if (msg instanceof HttpResponse) {
+                result.complete(((HttpResponse) msg).status().code());
+            }
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            result.completeExceptionally(new ClosedChannelException());
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            result.completeExceptionally(cause);
+        }
+    }
+}
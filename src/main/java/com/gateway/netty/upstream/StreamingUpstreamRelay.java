@@ -0,0 +1,78 @@
+package com.gateway.netty.upstream;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.handler.codec.http.HttpContent;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpStatusClass;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.util.ReferenceCountUtil;
+
+/**
+ * Upstream side of a streaming exchange. Hands response head and body chunks to
+ * the {@link Listener} as they arrive, without aggregating them.
+ */
+public class StreamingUpstreamRelay extends ChannelInboundHandlerAdapter {
+
+    public interface Listener {
+        void onResponseHead(HttpResponse response);
+
+        /** Takes ownership of {@code content}. */
+        void onResponseContent(HttpContent content);
+
+        void onUpstreamWritabilityChanged(boolean writable);
+
+        void onUpstreamClosed();
+
+        void onUpstreamError(Throwable cause);
+    }
+
+    private final Listener listener;
+    private boolean skippingInformational = false;
+
+    public StreamingUpstreamRelay(Listener listener) {
+        this.listener = listener;
+    }
+
+    @Override
+    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+        if (msg instanceof HttpResponse) {
+            HttpResponse response = (HttpResponse) msg;
+            if (response.status().codeClass() == HttpStatusClass.INFORMATIONAL) {
+                // 1xx interim responses (e.g. 100 Continue) are not relayed
+                skippingInformational = true;
+            } else {
+                listener.onResponseHead(response);
+            }
+        }
+
+        if (msg instanceof HttpContent) {
+            if (skippingInformational) {
+                if (msg instanceof LastHttpContent) {
+                    skippingInformational = false;
+                }
+                ReferenceCountUtil.release(msg);
+                return;
+            }
+            listener.onResponseContent((HttpContent) msg);
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        listener.onUpstreamWritabilityChanged(ctx.channel().isWritable());
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        listener.onUpstreamClosed();
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        listener.onUpstreamError(cause);
+        ctx.close();
+    }
+}
@@ -0,0 +1,295 @@
+package com.gateway.netty.upstream;
+
+import com.gateway.config.AppConfig;
+import com.gateway.metrics.MetricsRegistry;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpRequest;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.ssl.SslContextBuilder;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.net.ssl.SSLException;
+import java.net.URI;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking HTTP/1.1 client used to talk to route targets.
+ *
+ * Connections are kept alive in an {@link UpstreamPool} per target and handed
+ * out on the caller's event loop, so a proxied exchange never leaves the worker
+ * thread that owns the downstream connection, no thread is parked while the
+ * backend is thinking, and warm connections skip the handshake entirely.
+ */
+public class UpstreamClient {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamClient.class);
+
+    private static final UpstreamClient INSTANCE = new UpstreamClient();
+
+    static final String AGGREGATOR = "httpObjectAggregator";
+    static final String HANDLER = "upstreamHandler";
+    private static final String POOL_TAIL = "pooledConnection";
+
+    private final int maxContentLength;
+    private final int prewarmConnections;
+    private final UpstreamPool.Settings poolSettings;
+    private final SslContext sslContext;
+
+    private final Map<UUID, UpstreamPool> pools = new ConcurrentHashMap<>();
+    private volatile EventLoopGroup eventLoopGroup;
+
+    private UpstreamClient() {
+        this.maxContentLength = AppConfig.getProxyMaxContentLength();
+        this.prewarmConnections = AppConfig.getUpstreamPoolPrewarmConnections();
+        this.poolSettings = new UpstreamPool.Settings(
+                AppConfig.getProxyConnectTimeout() * 1000,
+                AppConfig.getUpstreamPoolMaxConnections(),
+                AppConfig.getUpstreamPoolMaxPendingAcquires(),
+                AppConfig.getUpstreamPoolIdleTimeout(),
+                AppConfig.getUpstreamPoolMaxLifetime() * 1000L);
+        this.sslContext = buildSslContext();
+    }
+
+    public static UpstreamClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Event loops to pre-warm connections on; normally the server's worker group.
+     */
+    public void setEventLoopGroup(EventLoopGroup eventLoopGroup) {
+        this.eventLoopGroup = eventLoopGroup;
+    }
+
+    /**
+     * Sends {@code request} to {@code target} over a pooled connection and
+     * completes with the aggregated response. Ownership of {@code request} passes
+     * to the client; the caller owns (and must release) the returned response.
+     */
+    public CompletableFuture<FullHttpResponse> execute(EventLoop eventLoop, UUID targetId, URI target,
+                                                       FullHttpRequest request, long timeoutMs) {
+        CompletableFuture<FullHttpResponse> result = new CompletableFuture<>();
+
+        UpstreamPool pool;
+        try {
+            pool = pool(targetId, target);
+        } catch (IllegalStateException e) {
+            ReferenceCountUtil.release(request);
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        ScheduledFuture<?> timeout = eventLoop.schedule(() -> {
+            result.completeExceptionally(new TimeoutException(
+                    "Upstream did not respond within " + timeoutMs + "ms"));
+        }, timeoutMs, TimeUnit.MILLISECONDS);
+
+        result.whenComplete((response, error) -> {
+            timeout.cancel(false);
+            ReferenceCountUtil.release(request);
+        });
+
+        attempt(pool, eventLoop, request, result, isIdempotent(request));
+        return result;
+    }
+
+    /**
+     * One try at {@code request} on a pooled connection. The request itself is
+     * kept until {@code result} completes so it can be sent again if a reused
+     * connection turns out to have been closed by the upstream in the meantime.
+     */
+    private void attempt(UpstreamPool pool, EventLoop eventLoop, FullHttpRequest request,
+                         CompletableFuture<FullHttpResponse> result, boolean retryIfStale) {
+        pool.acquire(eventLoop).addListener(future -> {
+            if (!future.isSuccess()) {
+                result.completeExceptionally(future.cause());
+                return;
+            }
+
+            Channel channel = (Channel) future.getNow();
+            if (result.isDone()) {
+                // Timed out while waiting for a connection
+                pool.release(channel, true);
+                return;
+            }
+
+            boolean reused = UpstreamPool.isReused(channel);
+            CompletableFuture<FullHttpResponse> exchange = new CompletableFuture<>();
+            UpstreamResponseHandler handler = new UpstreamResponseHandler(exchange);
+
+            ChannelPipeline pipeline = channel.pipeline();
+            pipeline.addBefore(POOL_TAIL, AGGREGATOR, new HttpObjectAggregator(maxContentLength));
+            pipeline.addBefore(POOL_TAIL, HANDLER, handler);
+
+            // Aborting the request (e.g. on timeout) also ends the exchange and frees the connection
+            result.whenComplete((response, error) -> {
+                if (error != null) {
+                    exchange.completeExceptionally(error);
+                }
+            });
+
+            exchange.whenComplete((response, error) -> {
+                if (error == null) {
+                    if (!result.complete(response)) {
+                        response.release();
+                    }
+                } else if (retryIfStale && reused && !result.isDone()
+                        && error instanceof UpstreamResponseHandler.ClosedBeforeResponseException) {
+                    logger.debug("Pooled connection to {} went stale, retrying on another", channel.remoteAddress());
+                    attempt(pool, eventLoop, request, result, false);
+                } else {
+                    result.completeExceptionally(error);
+                }
+            });
+
+            channel.writeAndFlush(request.retainedDuplicate()).addListener((ChannelFutureListener) write -> {
+                if (write.isSuccess()) {
+                    handler.requestWritten();
+                } else {
+                    exchange.completeExceptionally(write.cause());
+                }
+            });
+        });
+    }
+
+    private static boolean isIdempotent(HttpRequest request) {
+        HttpMethod method = request.method();
+        return HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method)
+                || HttpMethod.OPTIONS.equals(method) || HttpMethod.PUT.equals(method)
+                || HttpMethod.DELETE.equals(method) || HttpMethod.TRACE.equals(method);
+    }
+
+    /**
+     * Acquires a pooled connection to {@code target} for a streaming exchange.
+     * {@code handler} is installed for the duration of the exchange and receives
+     * the unaggregated {@code HttpResponse}/{@code HttpContent} stream; hand the
+     * connection back with {@link #release(Channel, boolean)}.
+     *
+     * @throws IllegalStateException if {@code target} is https and TLS is unavailable
+     */
+    public Future<Channel> acquire(EventLoop eventLoop, UUID targetId, URI target, ChannelHandler handler) {
+        UpstreamPool pool = pool(targetId, target);
+
+        return pool.acquire(eventLoop).addListener(future -> {
+            if (future.isSuccess()) {
+                Channel channel = (Channel) future.getNow();
+                channel.pipeline().addBefore(POOL_TAIL, HANDLER, handler);
+            }
+        });
+    }
+
+    /**
+     * Ends the exchange on {@code channel}: removes the exchange handlers and
+     * returns the connection to its pool, or closes it if it is not
+     * {@code reusable}.
+     */
+    public static void release(Channel channel, boolean reusable) {
+        ChannelPipeline pipeline = channel.pipeline();
+        if (pipeline.get(HANDLER) != null) {
+            pipeline.remove(HANDLER);
+        }
+        if (pipeline.get(AGGREGATOR) != null) {
+            pipeline.remove(AGGREGATOR);
+        }
+        // A streaming exchange may have left reads paused for back-pressure
+        channel.config().setAutoRead(true);
+
+        UpstreamPool pool = channel.attr(UpstreamPool.POOL).get();
+        if (pool != null) {
+            pool.release(channel, reusable);
+        } else {
+            channel.close();
+        }
+    }
+
+    /**
+     * Opens connections to a newly added target on every event loop ahead of
+     * its first request.
+     */
+    public void prewarm(UUID targetId, URI target) {
+        EventLoopGroup group = eventLoopGroup;
+        if (group == null || prewarmConnections <= 0) {
+            return;
+        }
+
+        UpstreamPool pool;
+        try {
+            pool = pool(targetId, target);
+        } catch (IllegalStateException e) {
+            logger.warn("Not pre-warming {}: {}", target, e.getMessage());
+            return;
+        }
+
+        for (EventExecutor executor : group) {
+            pool.prewarm((EventLoop) executor, prewarmConnections);
+        }
+        logger.info("Pre-warming {} connection(s) per event loop to {}", prewarmConnections, target);
+    }
+
+    /**
+     * Closes the pool of a deleted target.
+     */
+    public void removePool(UUID targetId) {
+        UpstreamPool pool = pools.remove(targetId);
+        if (pool != null) {
+            pool.close();
+            MetricsRegistry.getInstance().removeAll(metricPrefix(targetId));
+        }
+    }
+
+    private UpstreamPool pool(UUID targetId, URI target) {
+        UpstreamPool pool = pools.get(targetId);
+        if (pool != null) {
+            return pool;
+        }
+
+        boolean secure = "https".equalsIgnoreCase(target.getScheme());
+        if (secure && sslContext == null) {
+            throw new IllegalStateException("TLS is not available for upstream connections");
+        }
+        int port = target.getPort() != -1 ? target.getPort() : (secure ? 443 : 80);
+
+        return pools.computeIfAbsent(targetId, id -> {
+            UpstreamPool created = new UpstreamPool(target.getHost(), port,
+                    secure ? sslContext : null, poolSettings);
+
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            String prefix = metricPrefix(id);
+            metrics.gauge(prefix + "active", created::activeConnections);
+            metrics.gauge(prefix + "idle", created::idleConnections);
+            metrics.gauge(prefix + "pending", created::pendingAcquires);
+            return created;
+        });
+    }
+
+    private static String metricPrefix(UUID targetId) {
+        return "upstream.pool." + targetId + ".";
+    }
+
+    static SslContext buildSslContext() {
+        try {
+            return SslContextBuilder.forClient().build();
+        } catch (SSLException e) {
+            logger.error("Failed to initialize upstream TLS context, https targets will fail", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.gateway.netty.upstream;
+
+import com.gateway.netty.Transport;
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.channel.pool.ChannelHealthChecker;
+import io.netty.channel.pool.ChannelPoolHandler;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.handler.codec.http.HttpClientCodec;
+import io.netty.handler.ssl.SslContext;
+import io.netty.handler.timeout.IdleStateEvent;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.AttributeKey;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Future;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keep-alive connections to a single route target.
+ *
+ * There is one {@link FixedChannelPool} per event loop, so a pooled connection
+ * always lives on the same thread as the downstream connection that uses it and
+ * no exchange ever hops threads. Limits therefore apply per target and per event
+ * loop. Connections are evicted when idle for too long or, on release, once they
+ * have outlived their maximum lifetime.
+ */
+public class UpstreamPool {
+    private static final Logger logger = LoggerFactory.getLogger(UpstreamPool.class);
+
+    static final AttributeKey<UpstreamPool> POOL = AttributeKey.valueOf("upstreamPool");
+    private static final AttributeKey<Long> CREATED_AT = AttributeKey.valueOf("upstreamCreatedAt");
+    private static final AttributeKey<Boolean> IDLE = AttributeKey.valueOf("upstreamIdle");
+    private static final AttributeKey<Boolean> REUSED = AttributeKey.valueOf("upstreamReused");
+
+    private final String host;
+    private final int port;
+    private final SslContext sslContext;
+    private final Settings settings;
+
+    private final Map<EventLoop, FixedChannelPool> pools = new ConcurrentHashMap<>();
+    private final AtomicInteger idle = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    UpstreamPool(String host, int port, SslContext sslContext, Settings settings) {
+        this.host = host;
+        this.port = port;
+        this.sslContext = sslContext;
+        this.settings = settings;
+    }
+
+    /**
+     * Hands out an idle connection on {@code eventLoop}, or opens a new one if the
+     * per-loop limit allows. Every successful acquire must be paired with
+     * {@link #release(Channel, boolean)}.
+     */
+    public Future<Channel> acquire(EventLoop eventLoop) {
+        pending.incrementAndGet();
+        Future<Channel> future = pools.computeIfAbsent(eventLoop, this::newPool).acquire();
+        future.addListener(f -> pending.decrementAndGet());
+        return future;
+    }
+
+    /**
+     * Returns a connection to its pool. A connection that is not {@code reusable}
+     * (the exchange on it did not complete cleanly, or the upstream asked to
+     * close) or has outlived its lifetime is closed instead of being kept.
+     */
+    public void release(Channel channel, boolean reusable) {
+        if (!reusable || expired(channel)) {
+            channel.close();
+        }
+
+        FixedChannelPool pool = pools.get(channel.eventLoop());
+        if (pool != null) {
+            pool.release(channel);
+        } else {
+            channel.close();
+        }
+    }
+
+    /**
+     * Opens up to {@code connections} connections on {@code eventLoop} and parks
+     * them in the pool, so the first requests to a new target don't pay for the
+     * TCP (and TLS) handshake.
+     */
+    public void prewarm(EventLoop eventLoop, int connections) {
+        for (int i = 0; i < connections; i++) {
+            acquire(eventLoop).addListener(f -> {
+                if (f.isSuccess()) {
+                    release((Channel) f.getNow(), true);
+                } else {
+                    logger.debug("Pre-warming connection to {}:{} failed: {}", host, port, f.cause().toString());
+                }
+            });
+        }
+    }
+
+    /**
+     * Whether the connection served an earlier exchange before being handed out
+     * this time, as opposed to having just been opened.
+     */
+    static boolean isReused(Channel channel) {
+        return Boolean.TRUE.equals(channel.attr(REUSED).get());
+    }
+
+    public int activeConnections() {
+        int active = 0;
+        for (FixedChannelPool pool : pools.values()) {
+            active += pool.acquiredChannelCount();
+        }
+        return active;
+    }
+
+    public int idleConnections() {
+        return idle.get();
+    }
+
+    public int pendingAcquires() {
+        return pending.get();
+    }
+
+    public void close() {
+        pools.values().forEach(FixedChannelPool::closeAsync);
+        pools.clear();
+    }
+
+    private FixedChannelPool newPool(EventLoop eventLoop) {
+        Bootstrap bootstrap = new Bootstrap()
+                .group(eventLoop)
+                .channel(Transport.getInstance().socketChannelClass())
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.connectTimeoutMs)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .remoteAddress(host, port);
+
+        ChannelHealthChecker healthChecker = channel -> channel.eventLoop().newSucceededFuture(
+                channel.isActive() && !expired(channel));
+
+        return new FixedChannelPool(bootstrap, new PoolHandler(), healthChecker, null, -1,
+                settings.maxConnections, settings.maxPendingAcquires, true, true);
+    }
+
+    private boolean expired(Channel channel) {
+        Long createdAt = channel.attr(CREATED_AT).get();
+        return settings.maxLifetimeMs > 0 && createdAt != null
+                && System.currentTimeMillis() - createdAt > settings.maxLifetimeMs;
+    }
+
+    private boolean markBusy(Channel channel) {
+        if (Boolean.TRUE.equals(channel.attr(IDLE).getAndSet(false))) {
+            idle.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private class PoolHandler implements ChannelPoolHandler {
+        @Override
+        public void channelCreated(Channel channel) {
+            channel.attr(POOL).set(UpstreamPool.this);
+            channel.attr(CREATED_AT).set(System.currentTimeMillis());
+            channel.closeFuture().addListener(f -> markBusy(channel));
+
+            ChannelPipeline pipeline = channel.pipeline();
+            if (sslContext != null) {
+                pipeline.addLast("ssl", sslContext.newHandler(channel.alloc(), host, port));
+            }
+            pipeline.addLast("httpClientCodec", new HttpClientCodec());
+            if (settings.idleTimeoutSeconds > 0) {
+                pipeline.addLast("idleStateHandler",
+                        new IdleStateHandler(0, 0, settings.idleTimeoutSeconds, TimeUnit.SECONDS));
+            }
+            pipeline.addLast("pooledConnection", new PooledConnectionHandler());
+        }
+
+        @Override
+        public void channelAcquired(Channel channel) {
+            channel.attr(REUSED).set(markBusy(channel));
+        }
+
+        @Override
+        public void channelReleased(Channel channel) {
+            if (channel.isActive() && !expired(channel)) {
+                channel.attr(IDLE).set(true);
+                idle.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Tail of a pooled connection's pipeline while it sits in the pool: closes it
+     * when idle and drops anything the upstream sends unsolicited.
+     */
+    private class PooledConnectionHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) throws Exception {
+            if (evt instanceof IdleStateEvent) {
+                if (Boolean.TRUE.equals(ctx.channel().attr(IDLE).get())) {
+                    logger.debug("Evicting idle upstream connection to {}:{}", host, port);
+                    ctx.close();
+                }
+                return;
+            }
+            super.userEventTriggered(ctx, evt);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ReferenceCountUtil.release(msg);
+            ctx.close();
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            ctx.close();
+        }
+    }
+
+    static class Settings {
+        final int connectTimeoutMs;
+        final int maxConnections;
+        final int maxPendingAcquires;
+        final int idleTimeoutSeconds;
+        final long maxLifetimeMs;
+
+        Settings(int connectTimeoutMs, int maxConnections, int maxPendingAcquires,
+                 int idleTimeoutSeconds, long maxLifetimeMs) {
+            this.connectTimeoutMs = connectTimeoutMs;
+            this.maxConnections = maxConnections;
+            this.maxPendingAcquires = maxPendingAcquires;
+            this.idleTimeoutSeconds = idleTimeoutSeconds;
+            this.maxLifetimeMs = maxLifetimeMs;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.gateway.netty.upstream;
+
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpUtil;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Completes a buffered exchange on a pooled connection and hands the connection
+ * back to its pool: kept if the exchange finished cleanly and the upstream
+ * allows keep-alive, closed otherwise (including when {@code result} is
+ * completed from outside, e.g. by the request timeout).
+ */
+public class UpstreamResponseHandler extends SimpleChannelInboundHandler<FullHttpResponse> {
+    private final CompletableFuture<FullHttpResponse> result;
+    private boolean requestWritten;
+    private boolean finished;
+
+    public UpstreamResponseHandler(CompletableFuture<FullHttpResponse> result) {
+        this.result = result;
+    }
+
+    /** Called once the whole request is on the wire. */
+    void requestWritten() {
+        requestWritten = true;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) {
+        result.whenComplete((response, error) -> {
+            if (error != null) {
+                finish(ctx, false);
+            }
+        });
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpResponse response) {
+        // An early response to a request that is still being sent leaves the connection mid-message
+        boolean reusable = requestWritten && HttpUtil.isKeepAlive(response);
+        FullHttpResponse retained = response.retain();
+        finish(ctx, reusable);
+        if (!result.complete(retained)) {
+            retained.release();
+        }
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        result.completeExceptionally(new ClosedBeforeResponseException());
+        super.channelInactive(ctx);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        result.completeExceptionally(cause);
+    }
+
+    private void finish(ChannelHandlerContext ctx, boolean reusable) {
+        if (!finished) {
+            finished = true;
+            UpstreamClient.release(ctx.channel(), reusable);
+        }
+    }
+
+    static class ClosedBeforeResponseException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        ClosedBeforeResponseException() {
+            super("Upstream closed connection before responding");
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.gateway.repository;
+
+import org.postgresql.copy.CopyIn;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+/**
+ * Encodes rows in PostgreSQL's binary {@code COPY} format straight into a
+ * reusable buffer that is handed to the server in chunks. No per-row or
+ * per-field strings are built; text fields are encoded to UTF-8 in place.
+ *
+ * Usage: {@link #startRow} with the column count, one write per column in
+ * table order, then {@link #finish} once all rows are written. On failure the
+ * caller cancels the {@link CopyIn}.
+ */
+final class BinaryCopyWriter {
+
+    private static final byte[] HEADER = {
+            'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0,
+            0, 0, 0, 0,     // flags
+            0, 0, 0, 0      // header extension length
+    };
+
+    // timestamp columns count microseconds from 2000-01-01 00:00 local time
+    private static final LocalDateTime PG_EPOCH = LocalDateTime.of(2000, 1, 1, 0, 0);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final CopyIn copyIn;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private byte[] buffer = new byte[CHUNK_SIZE];
+    private int position;
+
+    BinaryCopyWriter(CopyIn copyIn) {
+        this.copyIn = copyIn;
+        System.arraycopy(HEADER, 0, buffer, 0, HEADER.length);
+        position = HEADER.length;
+    }
+
+    void startRow(int columns) throws SQLException {
+        if (position >= CHUNK_SIZE) {
+            flush();
+        }
+        writeShort(columns);
+    }
+
+    void writeNull() {
+        ensure(4);
+        writeInt32(-1);
+    }
+
+    void writeUuid(UUID value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(20);
+        writeInt32(16);
+        writeInt64(value.getMostSignificantBits());
+        writeInt64(value.getLeastSignificantBits());
+    }
+
+    void writeInt(int value) {
+        ensure(8);
+        writeInt32(4);
+        writeInt32(value);
+    }
+
+    void writeText(String value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        // At most 3 bytes per UTF-16 unit
+        ensure(4 + 3 * value.length());
+        int lengthAt = position;
+        position += 4;
+        int start = position;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (cp >> 18));
+                buffer[position++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogate: what String.getBytes(UTF_8) writes
+                buffer[position++] = '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        int length = position - start;
+        int end = position;
+        position = lengthAt;
+        writeInt32(length);
+        position = end;
+    }
+
+    /**
+     * A {@code timestamp} (without time zone) column, as the JVM's local time,
+     * the same value {@link java.sql.PreparedStatement#setTimestamp} would send.
+     */
+    void writeTimestamp(Instant value) {
+        if (value == null) {
+            writeNull();
+            return;
+        }
+        ensure(12);
+        writeInt32(8);
+        writeInt64(ChronoUnit.MICROS.between(PG_EPOCH, LocalDateTime.ofInstant(value, zone)));
+    }
+
+    /** Writes the trailer and completes the copy; returns the number of rows the server stored. */
+    long finish() throws SQLException {
+        ensure(2);
+        writeShort(-1);
+        flush();
+        return copyIn.endCopy();
+    }
+
+    private void flush() throws SQLException {
+        if (position > 0) {
+            copyIn.writeToCopy(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    // Rows are flushed between rows only, so one large field just grows the buffer
+    private void ensure(int bytes) {
+        if (position + bytes > buffer.length) {
+            byte[] grown = new byte[Math.max(buffer.length * 2, position + bytes)];
+            System.arraycopy(buffer, 0, grown, 0, position);
+            buffer = grown;
+        }
+    }
+
+    private void writeShort(int value) {
+        ensure(2);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt32(int value) {
+        buffer[position++] = (byte) (value >>> 24);
+        buffer[position++] = (byte) (value >>> 16);
+        buffer[position++] = (byte) (value >>> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void writeInt64(long value) {
+        writeInt32((int) (value >>> 32));
+        writeInt32((int) value);
+    }
+}
@@ -0,0 +1,173 @@
+package com.gateway.repository;
+
+import com.gateway.database.DatabaseConnectionPool;
+import com.gateway.database.TransactionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Partitions of {@code request_logs}, which is range-partitioned on
+ * {@code created_at} (see migration 13). Bounds are {@code timestamp} values
+ * in the JVM's local time, like every {@code created_at} the gateway writes.
+ */
+public class LogPartitionRepository {
+    private static final Logger logger = LoggerFactory.getLogger(LogPartitionRepository.class);
+
+    public static final String TABLE = "request_logs";
+
+    // pg_get_expr(relpartbound): FOR VALUES FROM ('2024-01-31 00:00:00') TO ('2024-02-01 00:00:00'),
+    // with MINVALUE/MAXVALUE for open ends, or DEFAULT
+    private static final Pattern RANGE = Pattern.compile("FROM \\((.+)\\) TO \\((.+)\\)");
+    private static final DateTimeFormatter BOUND = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public List<Partition> findAll() throws SQLException {
+        String sql = "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) AS bound " +
+                "FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?) " +
+                "ORDER BY c.relname";
+
+        List<Partition> partitions = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setString(1, TABLE);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                String name = rs.getString("relname");
+                String bound = rs.getString("bound");
+                Matcher range = RANGE.matcher(bound != null ? bound : "");
+                if (range.find()) {
+                    partitions.add(new Partition(name, false,
+                            parseBound(range.group(1)), parseBound(range.group(2))));
+                } else {
+                    partitions.add(new Partition(name, true, null, null));
+                }
+            }
+        }
+
+        return partitions;
+    }
+
+    /** Creates the partition for {@code [from, to)}; it must not overlap an existing one. */
+    public void create(String name, LocalDateTime from, LocalDateTime to) throws SQLException {
+        // Identifiers and bounds can't be bound parameters in DDL; both are generated, not user input
+        String sql = "CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE +
+                " FOR VALUES FROM ('" + BOUND.format(from) + "') TO ('" + BOUND.format(to) + "')";
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+            logger.debug("Created partition {} [{}, {})", name, from, to);
+        }
+    }
+
+    /**
+     * Creates the partition for {@code [from, to)} when the default partition
+     * already holds rows of that range, which keeps {@link #create} from
+     * attaching it. In one transaction the rows are moved out of
+     * {@code defaultName} into a new table, which is then attached; returns how
+     * many rows moved.
+     */
+    public int createFromDefault(String defaultName, String name, LocalDateTime from, LocalDateTime to)
+            throws SQLException {
+        String move = "WITH moved AS (DELETE FROM " + defaultName +
+                " WHERE created_at >= ? AND created_at < ? RETURNING *) " +
+                "INSERT INTO " + name + " SELECT * FROM moved";
+
+        return TransactionManager.executeInTransaction(conn -> {
+            int moved;
+            try (Statement stmt = conn.createStatement()) {
+                // Attaching needs this lock anyway; taking it first keeps new rows for the range out meanwhile
+                stmt.execute("LOCK TABLE " + defaultName + " IN ACCESS EXCLUSIVE MODE");
+                stmt.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(move)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(from));
+                stmt.setTimestamp(2, Timestamp.valueOf(to));
+                moved = stmt.executeUpdate();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name +
+                        " FOR VALUES FROM ('" + BOUND.format(from) + "') TO ('" + BOUND.format(to) + "')");
+            }
+            logger.debug("Created partition {} [{}, {}) with {} rows from {}", name, from, to, moved, defaultName);
+            return moved;
+        });
+    }
+
+    public void drop(String name) throws SQLException {
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS " + name);
+            logger.debug("Dropped partition {}", name);
+        }
+    }
+
+    /** Deletes rows older than {@code cutoff} from the default partition; returns how many. */
+    public int deleteFromDefaultBefore(String name, LocalDateTime cutoff) throws SQLException {
+        String sql = "DELETE FROM " + name + " WHERE created_at < ?";
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            return stmt.executeUpdate();
+        }
+    }
+
+    // A quoted timestamp literal, or null for MINVALUE/MAXVALUE
+    private static LocalDateTime parseBound(String literal) {
+        String value = literal.trim();
+        if (!value.startsWith("'")) {
+            return null;
+        }
+        return LocalDateTime.parse(value.substring(1, value.length() - 1).replace(' ', 'T'));
+    }
+
+    /** One partition and the {@code [from, to)} range it holds; open ends are {@code null}. */
+    public static final class Partition {
+        private final String name;
+        private final boolean isDefault;
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        Partition(String name, boolean isDefault, LocalDateTime from, LocalDateTime to) {
+            this.name = name;
+            this.isDefault = isDefault;
+            this.from = from;
+            this.to = to;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public boolean isDefault() {
+            return isDefault;
+        }
+
+        public LocalDateTime getFrom() {
+            return from;
+        }
+
+        public LocalDateTime getTo() {
+            return to;
+        }
+
+        /** Whether this partition holds any part of {@code [start, end)}. */
+        public boolean overlaps(LocalDateTime start, LocalDateTime end) {
+            return !isDefault
+                    && (from == null || from.isBefore(end))
+                    && (to == null || to.isAfter(start));
+        }
+    }
+}
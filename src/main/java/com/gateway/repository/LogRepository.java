@@ -2,10 +2,14 @@ package com.gateway.repository;
 
 import com.gateway.database.DatabaseConnectionPool;
 import com.gateway.domain.RequestLog;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -19,8 +23,8 @@ public class LogRepository {
         }
 
         String sql = "INSERT INTO request_logs " +
-                "(gateway_id, route_id, target_id, method, path, status_code, latency_ms, error_message) " +
-                "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+                "(gateway_id, route_id, target_id, method, path, status_code, latency_ms, error_message, created_at) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
         try (Connection conn = DatabaseConnectionPool.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -34,6 +38,10 @@ public class LogRepository {
                 stmt.setInt(6, log.getStatusCode());
                 stmt.setInt(7, log.getLatencyMs());
                 stmt.setString(8, log.getErrorMessage());
+                // Logs are written a while after the request; keep the time it was served
+                stmt.setTimestamp(9, log.getCreatedAt() != null
+                        ? Timestamp.from(log.getCreatedAt())
+                        : new Timestamp(System.currentTimeMillis()));
                 stmt.addBatch();
             }
 
@@ -42,8 +50,58 @@ public class LogRepository {
         }
     }
 
-    public List<RequestLog> findByGatewayId(UUID gatewayId, int limit, Integer statusCode)
-            throws SQLException {
+    /**
+     * Same as {@link #batchInsert} over {@code COPY ... FROM STDIN (FORMAT binary)}:
+     * one statement and one stream of rows, no per-row parse or bind.
+     *
+     * @throws SQLFeatureNotSupportedException if the connection is not a PostgreSQL one
+     */
+    public void copyInsert(List<RequestLog> logs) throws SQLException {
+        if (logs.isEmpty()) {
+            return;
+        }
+
+        String sql = "COPY request_logs " +
+                "(gateway_id, route_id, target_id, method, path, status_code, latency_ms, error_message, created_at) " +
+                "FROM STDIN (FORMAT binary)";
+
+        try (Connection conn = DatabaseConnectionPool.getConnection()) {
+            if (!conn.isWrapperFor(PGConnection.class)) {
+                throw new SQLFeatureNotSupportedException("COPY needs a PostgreSQL connection");
+            }
+            CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+            CopyIn copyIn = copyManager.copyIn(sql);
+            try {
+                BinaryCopyWriter writer = new BinaryCopyWriter(copyIn);
+                for (RequestLog log : logs) {
+                    writer.startRow(9);
+                    writer.writeUuid(log.getGatewayId());
+                    writer.writeUuid(log.getRouteId());
+                    writer.writeUuid(log.getTargetId());
+                    writer.writeText(log.getMethod());
+                    writer.writeText(log.getPath());
+                    writer.writeInt(log.getStatusCode());
+                    writer.writeInt(log.getLatencyMs());
+                    writer.writeText(log.getErrorMessage());
+                    writer.writeTimestamp(log.getCreatedAt() != null ? log.getCreatedAt() : Instant.now());
+                }
+                long rows = writer.finish();
+                logger.debug("Copied {} request logs", rows);
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        }
+    }
+
+    /**
+     * Newest first, with {@code created_at} in {@code [from, to)}; either bound
+     * may be {@code null}. Bounding the time lets the planner skip every
+     * partition outside the range.
+     */
+    public List<RequestLog> findByGatewayId(UUID gatewayId, int limit, Integer statusCode,
+                                            Instant from, Instant to) throws SQLException {
         StringBuilder sql = new StringBuilder(
                 "SELECT * FROM request_logs WHERE gateway_id = ?"
         );
@@ -51,6 +109,12 @@ public class LogRepository {
         if (statusCode != null) {
             sql.append(" AND status_code = ?");
         }
+        if (from != null) {
+            sql.append(" AND created_at >= ?");
+        }
+        if (to != null) {
+            sql.append(" AND created_at < ?");
+        }
 
         sql.append(" ORDER BY created_at DESC LIMIT ?");
 
@@ -65,6 +129,12 @@ public class LogRepository {
             if (statusCode != null) {
                 stmt.setInt(paramIndex++, statusCode);
             }
+            if (from != null) {
+                stmt.setTimestamp(paramIndex++, Timestamp.from(from));
+            }
+            if (to != null) {
+                stmt.setTimestamp(paramIndex++, Timestamp.from(to));
+            }
 
             stmt.setInt(paramIndex, limit);
 
@@ -0,0 +1,127 @@
+package com.gateway.repository;
+
+import com.gateway.database.DatabaseConnectionPool;
+import com.gateway.domain.RateLimit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public class RateLimitRepository {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitRepository.class);
+
+    public RateLimit create(UUID gatewayId, UUID routeId, String limitKey, int requests,
+                            int periodMs, int burst) throws SQLException {
+        String sql = "INSERT INTO rate_limits (gateway_id, route_id, limit_key, requests, period_ms, burst) " +
+                "VALUES (?, ?, ?, ?, ?, ?) RETURNING *";
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, gatewayId);
+            stmt.setObject(2, routeId);
+            stmt.setString(3, limitKey);
+            stmt.setInt(4, requests);
+            stmt.setInt(5, periodMs);
+            stmt.setInt(6, burst);
+
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                RateLimit limit = mapRow(rs);
+                logger.info("Created rate limit: {} requests/{}ms by {} for gateway: {}",
+                        requests, periodMs, limitKey, gatewayId);
+                return limit;
+            }
+
+            throw new SQLException("Failed to create rate limit");
+        }
+    }
+
+    public List<RateLimit> findByGatewayId(UUID gatewayId) throws SQLException {
+        String sql = "SELECT * FROM rate_limits WHERE gateway_id = ? ORDER BY created_at";
+        List<RateLimit> limits = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, gatewayId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                limits.add(mapRow(rs));
+            }
+        }
+
+        return limits;
+    }
+
+    public List<RateLimit> findAll() throws SQLException {
+        String sql = "SELECT * FROM rate_limits";
+        List<RateLimit> limits = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                limits.add(mapRow(rs));
+            }
+        }
+
+        return limits;
+    }
+
+    public Optional<RateLimit> findById(UUID id) throws SQLException {
+        String sql = "SELECT * FROM rate_limits WHERE id = ?";
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, id);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return Optional.of(mapRow(rs));
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    public boolean delete(UUID id) throws SQLException {
+        String sql = "DELETE FROM rate_limits WHERE id = ?";
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setObject(1, id);
+            int affected = stmt.executeUpdate();
+
+            if (affected > 0) {
+                logger.info("Deleted rate limit: {}", id);
+                return true;
+            }
+
+            return false;
+        }
+    }
+
+    private RateLimit mapRow(ResultSet rs) throws SQLException {
+        return new RateLimit(
+                (UUID) rs.getObject("id"),
+                (UUID) rs.getObject("gateway_id"),
+                (UUID) rs.getObject("route_id"),
+                rs.getString("limit_key"),
+                rs.getInt("requests"),
+                rs.getInt("period_ms"),
+                rs.getInt("burst"),
+                rs.getTimestamp("created_at").toInstant(),
+                rs.getTimestamp("updated_at").toInstant()
+        );
+    }
+}
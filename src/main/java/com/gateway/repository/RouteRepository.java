@@ -14,9 +14,11 @@ import java.util.UUID;
 public class RouteRepository {
     private static final Logger logger = LoggerFactory.getLogger(RouteRepository.class);
 
-    public Route create(UUID gatewayId, String path, String method, int timeoutMs) throws SQLException {
-        String sql = "INSERT INTO routes (gateway_id, path, method, timeout_ms) " +
-                "VALUES (?, ?, ?, ?) RETURNING *";
+    public Route create(UUID gatewayId, String path, String method, int timeoutMs,
+                        String lbStrategy, String lbHashKey, String retryPolicy,
+                        String cachePolicy) throws SQLException {
+        String sql = "INSERT INTO routes (gateway_id, path, method, timeout_ms, lb_strategy, lb_hash_key, " +
+                "retry_policy, cache_policy) VALUES (?, ?, ?, ?, ?, ?, ?, ?) RETURNING *";
 
         try (Connection conn = DatabaseConnectionPool.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -25,6 +27,10 @@ public class RouteRepository {
             stmt.setString(2, path);
             stmt.setString(3, method);
             stmt.setInt(4, timeoutMs);
+            stmt.setString(5, lbStrategy);
+            stmt.setString(6, lbHashKey);
+            stmt.setString(7, retryPolicy);
+            stmt.setString(8, cachePolicy);
 
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
@@ -55,6 +61,23 @@ public class RouteRepository {
         return routes;
     }
 
+    public List<Route> findAll() throws SQLException {
+        String sql = "SELECT * FROM routes";
+        List<Route> routes = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                routes.add(mapRow(rs));
+            }
+        }
+
+        return routes;
+    }
+
     public Optional<Route> findById(UUID id) throws SQLException {
         String sql = "SELECT * FROM routes WHERE id = ?";
 
@@ -158,6 +181,10 @@ public class RouteRepository {
                 rs.getString("path"),
                 rs.getString("method"),
                 rs.getInt("timeout_ms"),
+                rs.getString("lb_strategy"),
+                rs.getString("lb_hash_key"),
+                rs.getString("retry_policy"),
+                rs.getString("cache_policy"),
                 rs.getTimestamp("created_at").toInstant(),
                 rs.getTimestamp("updated_at").toInstant()
         );
@@ -8,6 +8,7 @@ import org.slf4j.LoggerFactory;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -74,6 +75,23 @@ public class TargetRepository {
         return targets;
     }
 
+    public List<RouteTarget> findAll() throws SQLException {
+        String sql = "SELECT * FROM route_targets";
+        List<RouteTarget> targets = new ArrayList<>();
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                targets.add(mapRow(rs));
+            }
+        }
+
+        return targets;
+    }
+
     public List<RouteTarget> findAllActive() throws SQLException {
         String sql = "SELECT * FROM route_targets WHERE is_active = true";
         List<RouteTarget> targets = new ArrayList<>();
@@ -143,6 +161,27 @@ public class TargetRepository {
         }
     }
 
+    /**
+     * Records circuit breaker states (target ID -> closed/open/half_open) in one batch.
+     */
+    public void updateCircuitStates(Map<UUID, String> states) throws SQLException {
+        String sql = "UPDATE route_targets " +
+                "SET circuit_state = ?, " +
+                "    circuit_changed_at = CURRENT_TIMESTAMP " +
+                "WHERE id = ?";
+
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (Map.Entry<UUID, String> entry : states.entrySet()) {
+                stmt.setString(1, entry.getValue());
+                stmt.setObject(2, entry.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
     public void updateHealthStatus(UUID id, String status) throws SQLException {
         String sql = "UPDATE route_targets " +
                 "SET health_status = ?, " +
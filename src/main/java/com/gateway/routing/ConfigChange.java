@@ -0,0 +1,104 @@
+package com.gateway.routing;
+
+import com.gateway.util.JsonUtil;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A single row change to routing configuration, as announced by the
+ * {@code notify_config_change()} trigger or raised locally right after a write.
+ */
+public final class ConfigChange {
+
+    /** {@code RESPONSE_CACHE} is not a table: its changes are purges of cached responses. */
+    public enum Table { ROUTES, ROUTE_TARGETS, GATEWAYS, RATE_LIMITS, RESPONSE_CACHE }
+
+    public enum Op { INSERT, UPDATE, DELETE }
+
+    private final Table table;
+    private final Op op;
+    private final UUID id;
+    private final UUID parentId;
+
+    /**
+     * @param parentId gateway of a route or rate limit, route of a target, {@code null} for a gateway;
+     *                 for a response cache purge, the gateway of the purged route or {@code null}
+     *                 if {@code id} is a gateway purged as a whole
+     */
+    public ConfigChange(Table table, Op op, UUID id, UUID parentId) {
+        this.table = table;
+        this.op = op;
+        this.id = id;
+        this.parentId = parentId;
+    }
+
+    /**
+     * Parses a NOTIFY payload, e.g.
+     * {@code {"table":"routes","op":"UPDATE","id":"...","parent_id":"..."}}.
+     *
+     * @throws IllegalArgumentException if the payload is malformed
+     */
+    public static ConfigChange parse(String payload) {
+        try {
+            JsonObject json = JsonUtil.parse(payload);
+            JsonElement parent = json.get("parent_id");
+            return new ConfigChange(
+                    Table.valueOf(json.get("table").getAsString().toUpperCase()),
+                    Op.valueOf(json.get("op").getAsString().toUpperCase()),
+                    UUID.fromString(json.get("id").getAsString()),
+                    parent == null || parent.isJsonNull() ? null : UUID.fromString(parent.getAsString()));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed config change: " + payload, e);
+        }
+    }
+
+    /** The NOTIFY payload {@link #parse} reads. */
+    public String toPayload() {
+        JsonObject json = new JsonObject();
+        json.addProperty("table", table.name().toLowerCase());
+        json.addProperty("op", op.name());
+        json.addProperty("id", id.toString());
+        if (parentId != null) {
+            json.addProperty("parent_id", parentId.toString());
+        }
+        return json.toString();
+    }
+
+    public Table getTable() {
+        return table;
+    }
+
+    public Op getOp() {
+        return op;
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public UUID getParentId() {
+        return parentId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ConfigChange)) return false;
+        ConfigChange that = (ConfigChange) o;
+        return table == that.table && op == that.op && id.equals(that.id)
+                && Objects.equals(parentId, that.parentId);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(table, op, id, parentId);
+    }
+
+    @Override
+    public String toString() {
+        return table + " " + op + " " + id;
+    }
+}
@@ -0,0 +1,158 @@
+package com.gateway.routing;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * Radix (compressed prefix) trie keyed by route path.
+ *
+ * Lookups walk the request path once, character by character along the
+ * compressed edges, and return the value stored at the longest key that is a
+ * prefix of the path. That is the same "longest {@code path%} match" the
+ * route lookup used to ask Postgres for, in O(path length).
+ *
+ * A trie is mutated only while it is being built and must not be modified once
+ * it has been published.
+ */
+final class PathTrie<V> {
+
+    private final Node<V> root = new Node<>("");
+    private int size;
+
+    void put(String key, V value) {
+        Node<V> node = root;
+        int i = 0;
+
+        while (i < key.length()) {
+            Node<V> child = node.child(key.charAt(i));
+
+            if (child == null) {
+                node.addChild(new Node<>(key.substring(i), value));
+                size++;
+                return;
+            }
+
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // Split the edge: node -> split -> child
+                Node<V> split = new Node<>(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                node.replaceChild(split);
+                split.addChild(child);
+                child = split;
+            }
+
+            node = child;
+            i += common;
+        }
+
+        if (node.value == null) {
+            size++;
+        }
+        node.value = value;
+    }
+
+    V get(String key) {
+        Node<V> node = root;
+        int i = 0;
+
+        while (i < key.length()) {
+            node = node.child(key.charAt(i));
+            if (node == null || !key.startsWith(node.label, i)) {
+                return null;
+            }
+            i += node.label.length();
+        }
+
+        return node.value;
+    }
+
+    /**
+     * Value of the longest key that is a prefix of {@code path} and whose value
+     * satisfies {@code accept}, or {@code null}.
+     */
+    V longestPrefix(String path, Predicate<V> accept) {
+        Node<V> node = root;
+        int i = 0;
+        V best = root.value != null && accept.test(root.value) ? root.value : null;
+
+        while (i < path.length()) {
+            node = node.child(path.charAt(i));
+            if (node == null || !path.startsWith(node.label, i)) {
+                break;
+            }
+            i += node.label.length();
+
+            if (node.value != null && accept.test(node.value)) {
+                best = node.value;
+            }
+        }
+
+        return best;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int n = 0;
+        while (n < max && label.charAt(n) == key.charAt(offset + n)) {
+            n++;
+        }
+        return n;
+    }
+
+    private static final class Node<V> {
+        private static final Node<?>[] NO_CHILDREN = new Node<?>[0];
+
+        String label;
+        V value;
+        // Children are few per node; first characters are scanned linearly
+        char[] firstChars = new char[0];
+        Node<V>[] children = noChildren();
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node(String label, V value) {
+            this.label = label;
+            this.value = value;
+        }
+
+        Node<V> child(char c) {
+            for (int i = 0; i < firstChars.length; i++) {
+                if (firstChars[i] == c) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        void addChild(Node<V> child) {
+            int n = firstChars.length;
+            firstChars = Arrays.copyOf(firstChars, n + 1);
+            children = Arrays.copyOf(children, n + 1);
+            firstChars[n] = child.label.charAt(0);
+            children[n] = child;
+        }
+
+        void replaceChild(Node<V> child) {
+            char c = child.label.charAt(0);
+            for (int i = 0; i < firstChars.length; i++) {
+                if (firstChars[i] == c) {
+                    children[i] = child;
+                    return;
+                }
+            }
+            addChild(child);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <V> Node<V>[] noChildren() {
+            return (Node<V>[]) NO_CHILDREN;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.gateway.routing;
+
+import com.gateway.domain.Route;
+import com.gateway.domain.RouteTarget;
+
+import java.util.List;
+
+/**
+ * A route as compiled into a {@link RouteTable}: the route itself plus its
+ * targets, with the healthy ones picked out ahead of time.
+ */
+public final class RouteEntry {
+    private final Route route;
+    private final List<RouteTarget> targets;
+    private final List<RouteTarget> healthyTargets;
+
+    RouteEntry(Route route, List<RouteTarget> targets) {
+        this.route = route;
+        this.targets = List.copyOf(targets);
+        this.healthyTargets = targets.stream().filter(RouteTarget::isHealthy).toList();
+    }
+
+    public Route getRoute() {
+        return route;
+    }
+
+    /** All targets of the route, in creation order. */
+    public List<RouteTarget> getTargets() {
+        return targets;
+    }
+
+    /** Active targets that passed their last health check, in creation order. */
+    public List<RouteTarget> getHealthyTargets() {
+        return healthyTargets;
+    }
+}
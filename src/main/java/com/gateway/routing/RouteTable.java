@@ -0,0 +1,135 @@
+package com.gateway.routing;
+
+import com.gateway.domain.Route;
+import com.gateway.domain.RouteTarget;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable snapshot of every gateway's routes, compiled for matching on the
+ * proxy path without touching the database.
+ *
+ * Each gateway has a {@link PathTrie} of route paths; every trie node carries a
+ * method index, so a lookup is one walk over the request path plus a map probe
+ * per candidate prefix. A table is never changed after it is built: new
+ * configuration produces a new table, which shares the compiled routes of every
+ * gateway that did not change, and replaces the old one.
+ */
+public final class RouteTable {
+
+    private static final RouteTable EMPTY = new RouteTable(Map.of(), 0);
+
+    private final Map<UUID, GatewayRoutes> gateways;
+    private final int routeCount;
+    private final long version;
+
+    private RouteTable(Map<UUID, GatewayRoutes> gateways, long version) {
+        this.gateways = gateways;
+        this.routeCount = gateways.values().stream().mapToInt(g -> g.routeCount).sum();
+        this.version = version;
+    }
+
+    public static RouteTable empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compiles {@code routes} and their {@code targets} into a table.
+     * Targets of routes not in {@code routes} are ignored.
+     */
+    public static RouteTable build(Collection<Route> routes, Collection<RouteTarget> targets, long version) {
+        Map<UUID, List<RouteTarget>> targetsByRoute = groupByRoute(targets);
+
+        Map<UUID, List<Route>> routesByGateway = new HashMap<>();
+        for (Route route : routes) {
+            routesByGateway.computeIfAbsent(route.getGatewayId(), id -> new ArrayList<>()).add(route);
+        }
+
+        Map<UUID, GatewayRoutes> gateways = new HashMap<>();
+        routesByGateway.forEach((gatewayId, gatewayRoutes) ->
+                gateways.put(gatewayId, GatewayRoutes.compile(gatewayRoutes, targetsByRoute)));
+
+        return new RouteTable(Map.copyOf(gateways), version);
+    }
+
+    /**
+     * A copy of this table with one gateway recompiled from {@code routes} and
+     * {@code targets}, or dropped if it has no routes left. Every other gateway
+     * is shared with this table as is.
+     */
+    public RouteTable withGateway(UUID gatewayId, Collection<Route> routes,
+                                  Collection<RouteTarget> targets, long version) {
+        Map<UUID, GatewayRoutes> copy = new HashMap<>(gateways);
+        if (routes.isEmpty()) {
+            copy.remove(gatewayId);
+        } else {
+            copy.put(gatewayId, GatewayRoutes.compile(routes, groupByRoute(targets)));
+        }
+        return new RouteTable(Map.copyOf(copy), version);
+    }
+
+    private static Map<UUID, List<RouteTarget>> groupByRoute(Collection<RouteTarget> targets) {
+        Map<UUID, List<RouteTarget>> targetsByRoute = new HashMap<>();
+        targets.stream()
+                .sorted(Comparator.comparing(RouteTarget::getCreatedAt))
+                .forEach(target -> targetsByRoute
+                        .computeIfAbsent(target.getRouteId(), id -> new ArrayList<>())
+                        .add(target));
+        return targetsByRoute;
+    }
+
+    /**
+     * The route of {@code gatewayId} with the longest path that is a prefix of
+     * {@code path} and that accepts {@code method}, or {@code null}.
+     */
+    public RouteEntry match(UUID gatewayId, String path, String method) {
+        GatewayRoutes routes = gateways.get(gatewayId);
+        if (routes == null) {
+            return null;
+        }
+
+        Map<String, RouteEntry> methods = routes.trie.longestPrefix(path, m -> m.containsKey(method));
+        return methods != null ? methods.get(method) : null;
+    }
+
+    public int getRouteCount() {
+        return routeCount;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /** Compiled routes of one gateway. */
+    private static final class GatewayRoutes {
+        final PathTrie<Map<String, RouteEntry>> trie;
+        final int routeCount;
+
+        private GatewayRoutes(PathTrie<Map<String, RouteEntry>> trie, int routeCount) {
+            this.trie = trie;
+            this.routeCount = routeCount;
+        }
+
+        static GatewayRoutes compile(Collection<Route> routes, Map<UUID, List<RouteTarget>> targetsByRoute) {
+            PathTrie<Map<String, RouteEntry>> trie = new PathTrie<>();
+
+            for (Route route : routes) {
+                Map<String, RouteEntry> methods = trie.get(route.getPath());
+                if (methods == null) {
+                    methods = new HashMap<>();
+                    trie.put(route.getPath(), methods);
+                }
+                methods.put(route.getMethod(), new RouteEntry(route,
+                        targetsByRoute.getOrDefault(route.getId(), List.of())));
+            }
+
+            return new GatewayRoutes(trie, routes.size());
+        }
+    }
+}
@@ -15,8 +15,18 @@ import java.util.UUID;
 
 public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
+
+    private static final AuthService INSTANCE = new AuthService();
+
     private final UserRepository userRepository = new UserRepository();
 
+    private AuthService() {
+    }
+
+    public static AuthService getInstance() {
+        return INSTANCE;
+    }
+
     public User register(String email, String password) throws SQLException {
         // Validate email
         if (email == null || email.isBlank() || !isValidEmail(email)) {
@@ -0,0 +1,168 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.repository.TargetRepository;
+import com.gateway.service.circuitbreaker.CircuitBreaker;
+import com.gateway.service.circuitbreaker.CircuitBreakerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * One {@link CircuitBreaker} per target, created on first use.
+ *
+ * Breakers are this node's own view of its targets and live in memory only.
+ * Their state changes are copied to {@code route_targets.circuit_state} for
+ * operators, in batches off the request path: only the latest state of each
+ * target since the last flush is written.
+ */
+public class CircuitBreakerService {
+    private static final Logger logger = LoggerFactory.getLogger(CircuitBreakerService.class);
+
+    private static final CircuitBreakerService INSTANCE = new CircuitBreakerService();
+
+    private final boolean enabled;
+    private final CircuitBreakerConfig config;
+    private final int persistIntervalMs;
+
+    private final ConcurrentHashMap<UUID, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, CircuitBreaker.State> pendingStates = new ConcurrentHashMap<>();
+
+    private final TargetRepository targetRepo = new TargetRepository();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "circuit-breaker-persist");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder opened = MetricsRegistry.getInstance().counter("circuitbreaker.opened");
+
+    private volatile boolean running = false;
+
+    private CircuitBreakerService() {
+        this.enabled = AppConfig.getBoolean("circuitbreaker.enabled", true);
+        this.config = CircuitBreakerConfig.fromAppConfig();
+        this.persistIntervalMs = AppConfig.getInt("circuitbreaker.persist.interval.ms", 1000);
+    }
+
+    public static CircuitBreakerService getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** The target's breaker, or {@code null} when circuit breaking is disabled. */
+    public CircuitBreaker forTarget(UUID targetId) {
+        if (!enabled) {
+            return null;
+        }
+        return breakers.computeIfAbsent(targetId, this::create);
+    }
+
+    /** The target's breaker if it has one yet. */
+    public CircuitBreaker find(UUID targetId) {
+        return breakers.get(targetId);
+    }
+
+    public void remove(UUID targetId) {
+        if (breakers.remove(targetId) != null) {
+            pendingStates.remove(targetId);
+            MetricsRegistry.getInstance().removeAll("circuitbreaker." + targetId + ".");
+        }
+    }
+
+    private CircuitBreaker create(UUID targetId) {
+        CircuitBreaker breaker = new CircuitBreaker(config,
+                (b, from, to) -> onStateChange(targetId, b, from, to));
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("circuitbreaker." + targetId + ".state", () -> breaker.getState().ordinal());
+        metrics.gauge("circuitbreaker." + targetId + ".failure_rate", breaker::getFailureRate);
+        return breaker;
+    }
+
+    private void onStateChange(UUID targetId, CircuitBreaker breaker, CircuitBreaker.State from,
+                               CircuitBreaker.State to) {
+        if (to == CircuitBreaker.State.OPEN) {
+            opened.increment();
+            logger.warn("Circuit for target {} opened ({} -> {}, failure rate {}%)",
+                    targetId, from, to, breaker.getFailureRate());
+        } else {
+            logger.info("Circuit for target {}: {} -> {}", targetId, from, to);
+        }
+        pendingStates.put(targetId, to);
+    }
+
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+
+        running = true;
+
+        scheduler.scheduleWithFixedDelay(this::persistStates,
+                persistIntervalMs, persistIntervalMs, TimeUnit.MILLISECONDS);
+
+        logger.info("Circuit breaker service started (window: {}, failure threshold: {}%, open: {}ms)",
+                config.getWindowSize(), config.getFailureRateThreshold(), config.getOpenDurationMs());
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        persistStates();
+        logger.info("Circuit breaker service stopped");
+    }
+
+    private void persistStates() {
+        if (pendingStates.isEmpty()) {
+            return;
+        }
+
+        Map<UUID, String> batch = new HashMap<>();
+        for (UUID targetId : pendingStates.keySet()) {
+            CircuitBreaker.State state = pendingStates.remove(targetId);
+            if (state != null) {
+                batch.put(targetId, state.name().toLowerCase());
+            }
+        }
+
+        try {
+            targetRepo.updateCircuitStates(batch);
+        } catch (Exception e) {
+            logger.error("Failed to persist {} circuit states", batch.size(), e);
+            // Keep them for the next flush unless a newer state arrived meanwhile
+            batch.forEach((targetId, state) -> {
+                CircuitBreaker breaker = breakers.get(targetId);
+                if (breaker != null) {
+                    pendingStates.putIfAbsent(targetId, breaker.getState());
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.service.concurrency.AdaptiveLimiter;
+import com.gateway.service.concurrency.AimdLimit;
+import com.gateway.service.concurrency.GradientLimit;
+import com.gateway.service.concurrency.LimitAlgorithm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Adaptive concurrency limits per gateway and per route, applied before a
+ * proxied request is forwarded. A request needs a slot in both; requests over
+ * either limit are shed on the spot rather than queued, so a slow backend or a
+ * burst shows up as fast 503s instead of ever longer latencies for everyone.
+ *
+ * The limits follow the measured round-trip times with the configured
+ * {@link LimitAlgorithm} ({@code concurrency.limit.algorithm}: {@code gradient}
+ * or {@code aimd}).
+ */
+public class ConcurrencyLimitService {
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyLimitService.class);
+
+    private static final ConcurrencyLimitService INSTANCE = new ConcurrencyLimitService();
+
+    private final boolean enabled;
+    private final String algorithm;
+    private final int minLimit;
+    private final int gatewayInitialLimit;
+    private final int gatewayMaxLimit;
+    private final int routeInitialLimit;
+    private final int routeMaxLimit;
+    private final double gradientTolerance;
+    private final double aimdBackoffRatio;
+    private final int retryAfterSeconds;
+
+    private final ConcurrentHashMap<UUID, AdaptiveLimiter> gatewayLimiters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, AdaptiveLimiter> routeLimiters = new ConcurrentHashMap<>();
+
+    private final LongAdder gatewayRejections;
+    private final LongAdder routeRejections;
+
+    private ConcurrencyLimitService() {
+        this.enabled = AppConfig.getBoolean("concurrency.limit.enabled", true);
+        this.algorithm = AppConfig.get("concurrency.limit.algorithm", "gradient");
+        this.minLimit = Math.max(1, AppConfig.getInt("concurrency.limit.min", 4));
+        this.gatewayInitialLimit = AppConfig.getInt("concurrency.limit.gateway.initial", 100);
+        this.gatewayMaxLimit = AppConfig.getInt("concurrency.limit.gateway.max", 2000);
+        this.routeInitialLimit = AppConfig.getInt("concurrency.limit.route.initial", 20);
+        this.routeMaxLimit = AppConfig.getInt("concurrency.limit.route.max", 1000);
+        this.gradientTolerance = AppConfig.getInt("concurrency.limit.gradient.tolerance.percent", 150) / 100.0;
+        this.aimdBackoffRatio = AppConfig.getInt("concurrency.limit.aimd.backoff.percent", 90) / 100.0;
+        this.retryAfterSeconds = AppConfig.getInt("concurrency.limit.retry.after.seconds", 1);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.gatewayRejections = metrics.counter("concurrency.rejected.gateway");
+        this.routeRejections = metrics.counter("concurrency.rejected.route");
+    }
+
+    public static ConcurrencyLimitService getInstance() {
+        return INSTANCE;
+    }
+
+    /** Value of the {@code Retry-After} header on shed requests. */
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Admits a request to {@code routeId} of {@code gatewayId}, or returns
+     * {@code null} if it must be shed. An admitted request holds its slots until
+     * the permit is released.
+     */
+    public Permit tryAcquire(UUID gatewayId, UUID routeId) {
+        if (!enabled) {
+            return Permit.UNLIMITED;
+        }
+
+        AdaptiveLimiter gateway = gatewayLimiters.computeIfAbsent(gatewayId,
+                id -> create("gateway", id, gatewayInitialLimit, gatewayMaxLimit));
+        int gatewayInFlight = gateway.tryAcquire();
+        if (gatewayInFlight < 0) {
+            gatewayRejections.increment();
+            logger.debug("Shedding request for gateway {}: limit {} reached", gatewayId, gateway.getLimit());
+            return null;
+        }
+
+        AdaptiveLimiter route = routeLimiters.computeIfAbsent(routeId,
+                id -> create("route", id, routeInitialLimit, routeMaxLimit));
+        int routeInFlight = route.tryAcquire();
+        if (routeInFlight < 0) {
+            gateway.releaseIgnored();
+            routeRejections.increment();
+            logger.debug("Shedding request for route {}: limit {} reached", routeId, route.getLimit());
+            return null;
+        }
+
+        return new Permit(gateway, gatewayInFlight, route, routeInFlight);
+    }
+
+    public void removeRoute(UUID routeId) {
+        if (routeLimiters.remove(routeId) != null) {
+            MetricsRegistry.getInstance().removeAll("concurrency.route." + routeId + ".");
+        }
+    }
+
+    public void removeGateway(UUID gatewayId) {
+        if (gatewayLimiters.remove(gatewayId) != null) {
+            MetricsRegistry.getInstance().removeAll("concurrency.gateway." + gatewayId + ".");
+        }
+    }
+
+    private AdaptiveLimiter create(String scope, UUID id, int initialLimit, int maxLimit) {
+        LimitAlgorithm limit = "aimd".equalsIgnoreCase(algorithm)
+                ? new AimdLimit(initialLimit, minLimit, maxLimit, aimdBackoffRatio)
+                : new GradientLimit(initialLimit, minLimit, maxLimit, gradientTolerance);
+        AdaptiveLimiter limiter = new AdaptiveLimiter(limit);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        String prefix = "concurrency." + scope + "." + id + ".";
+        metrics.gauge(prefix + "limit", limiter::getLimit);
+        metrics.gauge(prefix + "in_flight", limiter::getInFlight);
+        return limiter;
+    }
+
+    /** The slots of one admitted request. Releasing it more than once has no effect. */
+    public static final class Permit {
+        static final Permit UNLIMITED = new Permit(null, 0, null, 0);
+
+        private final AdaptiveLimiter gateway;
+        private final int gatewayInFlight;
+        private final AdaptiveLimiter route;
+        private final int routeInFlight;
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(AdaptiveLimiter gateway, int gatewayInFlight, AdaptiveLimiter route, int routeInFlight) {
+            this.gateway = gateway;
+            this.gatewayInFlight = gatewayInFlight;
+            this.route = route;
+            this.routeInFlight = routeInFlight;
+        }
+
+        /**
+         * Ends the request and feeds its round-trip time to both limits.
+         *
+         * @param dropped the request timed out or the backend was overloaded
+         */
+        public void release(boolean dropped) {
+            if (gateway == null || !released.compareAndSet(false, true)) {
+                return;
+            }
+            long rtt = System.nanoTime() - startNanos;
+            gateway.release(rtt, gatewayInFlight, dropped);
+            route.release(rtt, routeInFlight, dropped);
+        }
+
+        /** Ends a request that never reached a backend. */
+        public void releaseIgnored() {
+            if (gateway == null || !released.compareAndSet(false, true)) {
+                return;
+            }
+            gateway.releaseIgnored();
+            route.releaseIgnored();
+        }
+    }
+}
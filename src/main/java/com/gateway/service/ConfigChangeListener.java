@@ -0,0 +1,219 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.database.DatabaseConnectionPool;
+import com.gateway.database.ManualMigrations;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.routing.ConfigChange;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps this node's route table in step with changes made through any node.
+ *
+ * Holds one dedicated connection that LISTENs on
+ * {@link ManualMigrations#CONFIG_CHANNEL} and hands every notification to
+ * {@link RouteTableService#apply(ConfigChange)} (rate limits to
+ * {@link RateLimitService#apply(ConfigChange)}, cache purges to
+ * {@link ResponseCacheService#apply(ConfigChange)}). Notifications sent while
+ * the connection is down are lost, so each (re)connect is followed by a full
+ * rebuild, and the response cache is dropped since purges may have been
+ * missed; LISTEN is issued first so nothing falls between the two.
+ */
+public class ConfigChangeListener {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigChangeListener.class);
+
+    private static final ConfigChangeListener INSTANCE = new ConfigChangeListener();
+
+    // A quiet connection is checked this often, so a dead one is noticed
+    private static final long LIVENESS_CHECK_MS = 10_000;
+    private static final long MIN_BACKOFF_MS = 1_000;
+
+    private final RouteTableService routeTable = RouteTableService.getInstance();
+    private final RateLimitService rateLimits = RateLimitService.getInstance();
+    private final ResponseCacheService responseCache = ResponseCacheService.getInstance();
+
+    private final int pollMs;
+    private final long maxBackoffMs;
+
+    private final LongAdder received = MetricsRegistry.getInstance().counter("routing.changes.received");
+    private final LongAdder reconnects = MetricsRegistry.getInstance().counter("routing.changes.reconnects");
+
+    private volatile boolean running = false;
+    private volatile Connection connection;
+    private Thread thread;
+
+    private ConfigChangeListener() {
+        this.pollMs = AppConfig.getConfigListenPollMs();
+        this.maxBackoffMs = AppConfig.getConfigListenMaxBackoffSeconds() * 1000L;
+    }
+
+    public static ConfigChangeListener getInstance() {
+        return INSTANCE;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            logger.warn("Config change listener already running");
+            return;
+        }
+
+        running = true;
+
+        thread = new Thread(this::run, "config-listener");
+        thread.setDaemon(true);
+        thread.start();
+
+        logger.info("Config change listener started (channel: {})", ManualMigrations.CONFIG_CHANNEL);
+    }
+
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        logger.info("Stopping config change listener");
+
+        thread.interrupt();
+        closeQuietly(connection);
+
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info("Config change listener stopped");
+    }
+
+    /**
+     * Announces a change that no table trigger reports, such as a cache purge,
+     * to every node including this one.
+     */
+    public void publish(ConfigChange change) throws SQLException {
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT pg_notify(?, ?)")) {
+            stmt.setString(1, ManualMigrations.CONFIG_CHANNEL);
+            stmt.setString(2, change.toPayload());
+            stmt.execute();
+        }
+    }
+
+    private void run() {
+        long backoffMs = MIN_BACKOFF_MS;
+        boolean first = true;
+
+        while (running) {
+            try (Connection conn = DatabaseConnectionPool.openDedicatedConnection()) {
+                connection = conn;
+
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("LISTEN " + ManualMigrations.CONFIG_CHANNEL);
+                }
+
+                // Main built the table right before starting us
+                if (!first) {
+                    routeTable.rebuild();
+                    rateLimits.reload();
+                    responseCache.clear();
+                    reconnects.increment();
+                    logger.info("Config change listener reconnected, route table resynced");
+                }
+                first = false;
+                backoffMs = MIN_BACKOFF_MS;
+
+                listen(conn);
+
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.warn("Config change listener connection lost, retrying in {}ms: {}",
+                        backoffMs, e.getMessage());
+                first = false;
+                sleep(backoffMs);
+                backoffMs = Math.min(backoffMs * 2, maxBackoffMs);
+            } finally {
+                connection = null;
+            }
+        }
+    }
+
+    private void listen(Connection conn) throws SQLException {
+        PGConnection pgConn = conn.unwrap(PGConnection.class);
+        long lastActivity = System.currentTimeMillis();
+
+        while (running) {
+            PGNotification[] notifications = pgConn.getNotifications(pollMs);
+
+            if (notifications == null || notifications.length == 0) {
+                if (System.currentTimeMillis() - lastActivity >= LIVENESS_CHECK_MS) {
+                    checkAlive(conn);
+                    lastActivity = System.currentTimeMillis();
+                }
+                continue;
+            }
+
+            lastActivity = System.currentTimeMillis();
+            received.add(notifications.length);
+
+            // A bulk update announces the same row more than once
+            Set<ConfigChange> changes = new LinkedHashSet<>();
+            for (PGNotification notification : notifications) {
+                try {
+                    changes.add(ConfigChange.parse(notification.getParameter()));
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Ignoring config change notification: {}", e.getMessage());
+                }
+            }
+
+            for (ConfigChange change : changes) {
+                if (change.getTable() == ConfigChange.Table.RATE_LIMITS) {
+                    rateLimits.applyQuietly(change);
+                } else if (change.getTable() == ConfigChange.Table.RESPONSE_CACHE) {
+                    responseCache.apply(change);
+                } else {
+                    routeTable.applyQuietly(change);
+                }
+            }
+        }
+    }
+
+    private void checkAlive(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.setQueryTimeout(5);
+            stmt.execute("SELECT 1");
+        }
+    }
+
+    private void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void closeQuietly(Connection conn) {
+        if (conn == null) {
+            return;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            logger.debug("Error closing listener connection", e);
+        }
+    }
+}
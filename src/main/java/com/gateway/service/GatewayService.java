@@ -2,6 +2,7 @@ package com.gateway.service;
 
 import com.gateway.domain.Gateway;
 import com.gateway.repository.GatewayRepository;
+import com.gateway.routing.ConfigChange;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -12,8 +13,18 @@ import java.util.UUID;
 
 public class GatewayService {
     private static final Logger logger = LoggerFactory.getLogger(GatewayService.class);
+
+    private static final GatewayService INSTANCE = new GatewayService();
+
     private final GatewayRepository gatewayRepository = new GatewayRepository();
 
+    private GatewayService() {
+    }
+
+    public static GatewayService getInstance() {
+        return INSTANCE;
+    }
+
     public Gateway createGateway(UUID userId, String name, String description) throws SQLException {
         if (name == null || name.isBlank()) {
             throw new IllegalArgumentException("Gateway name is required");
@@ -39,6 +50,12 @@ public class GatewayService {
     }
 
     public boolean deleteGateway(UUID gatewayId, UUID userId) throws SQLException {
-        return gatewayRepository.delete(gatewayId, userId);
+        boolean deleted = gatewayRepository.delete(gatewayId, userId);
+        if (deleted) {
+            // Routes and targets go with the gateway
+            RouteTableService.getInstance().applyQuietly(new ConfigChange(
+                    ConfigChange.Table.GATEWAYS, ConfigChange.Op.DELETE, gatewayId, null));
+        }
+        return deleted;
     }
 }
\ No newline at end of file
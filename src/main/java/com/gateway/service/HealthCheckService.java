@@ -2,15 +2,15 @@ package com.gateway.service;
 
 import com.gateway.config.AppConfig;
 import com.gateway.domain.RouteTarget;
+import com.gateway.netty.Transport;
+import com.gateway.netty.upstream.HealthProbe;
 import com.gateway.repository.TargetRepository;
+import com.gateway.routing.ConfigChange;
+import io.netty.channel.EventLoopGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
@@ -19,10 +19,14 @@ public class HealthCheckService {
     private static final Logger logger = LoggerFactory.getLogger(HealthCheckService.class);
 
     private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(5);
+    // Probes are non-blocking; the pool only records their outcome in the database
     private final ExecutorService workerPool = Executors.newFixedThreadPool(10);
+    // Probe connections use the server's transport but stay off its event loops
+    private final EventLoopGroup probeGroup = Transport.getInstance().newEventLoopGroup(1, "health-check");
     private final TargetRepository targetRepo = new TargetRepository();
+    private final RouteTableService routeTable = RouteTableService.getInstance();
 
-    private final HttpClient httpClient;
+    private final HealthProbe probe;
     private final int healthCheckInterval;
     private final int healthCheckTimeout;
     private final int unhealthyThreshold;
@@ -36,9 +40,7 @@ public class HealthCheckService {
         this.unhealthyThreshold = AppConfig.getHealthCheckUnhealthyThreshold();
         this.healthyThreshold = AppConfig.getHealthCheckHealthyThreshold();
 
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(healthCheckTimeout))
-                .build();
+        this.probe = new HealthProbe(probeGroup, healthCheckTimeout * 1000);
     }
 
     public void start() {
@@ -84,6 +86,7 @@ public class HealthCheckService {
             workerPool.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        probeGroup.shutdownGracefully();
 
         logger.info("Health check service stopped");
     }
@@ -102,10 +105,7 @@ public class HealthCheckService {
             List<CompletableFuture<Void>> futures = new ArrayList<>();
 
             for (RouteTarget target : targets) {
-                CompletableFuture<Void> future = CompletableFuture.runAsync(
-                        () -> checkTarget(target),
-                        workerPool
-                );
+                CompletableFuture<Void> future = checkTarget(target);
                 futures.add(future);
             }
 
@@ -118,39 +118,39 @@ public class HealthCheckService {
         }
     }
 
-    private void checkTarget(RouteTarget target) {
+    private CompletableFuture<Void> checkTarget(RouteTarget target) {
+        CompletableFuture<Integer> status;
         try {
             // For public APIs, just check if the base URL is reachable
             // Don't append /health since most APIs don't have it
-            String healthUrl = target.getTargetUrl();
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(healthUrl))
-                    .timeout(Duration.ofSeconds(healthCheckTimeout))
-                    .GET()
-                    .build();
-
-            HttpResponse<String> response = httpClient.send(
-                    request,
-                    HttpResponse.BodyHandlers.ofString()
-            );
-
-            // Consider 2xx, 3xx, and even 404 as "healthy" (server is responding)
-            // Only mark unhealthy on connection failures or 5xx errors
-            if (response.statusCode() < 500) {
-                handleHealthyResponse(target);  // FIXED: was handleHealthyTarget
+            status = probe.get(URI.create(target.getTargetUrl()));
+        } catch (IllegalArgumentException e) {
+            status = CompletableFuture.failedFuture(e);
+        }
+
+        return status.handleAsync((code, error) -> {
+            if (error != null) {
+                // Only mark unhealthy on actual connection failures
+                logger.debug("Health check failed for {}: {}",
+                        target.getTargetUrl(), error.getMessage());
+                handleUnhealthyResponse(target);
+            } else if (code < 500) {
+                // Consider 2xx, 3xx, and even 404 as "healthy" (server is responding)
+                // Only mark unhealthy on connection failures or 5xx errors
+                handleHealthyResponse(target);
             } else {
                 logger.debug("Target {} returned server error: {}",
-                        target.getTargetUrl(), response.statusCode());
-                handleUnhealthyResponse(target);  // FIXED: was handleUnhealthyTarget
+                        target.getTargetUrl(), code);
+                handleUnhealthyResponse(target);
             }
+            return null;
+        }, workerPool);
+    }
 
-        } catch (Exception e) {
-            // Only mark unhealthy on actual connection failures
-            logger.debug("Health check failed for {}: {}",
-                    target.getTargetUrl(), e.getMessage());
-            handleUnhealthyResponse(target);  // FIXED: was handleUnhealthyTarget
-        }
+    // Other nodes hear about it from the route_targets trigger
+    private void statusChanged(RouteTarget target) {
+        routeTable.applyQuietly(new ConfigChange(ConfigChange.Table.ROUTE_TARGETS,
+                ConfigChange.Op.UPDATE, target.getId(), target.getRouteId()));
     }
 
     private void handleHealthyResponse(RouteTarget target) {
@@ -161,9 +161,11 @@ public class HealthCheckService {
             // If was unhealthy, mark as healthy
             if ("unhealthy".equals(target.getHealthStatus())) {
                 targetRepo.updateHealthStatus(target.getId(), "healthy");
+                statusChanged(target);
                 logger.info("Target recovered: {}", target.getTargetUrl());
             } else if ("unknown".equals(target.getHealthStatus())) {
                 targetRepo.updateHealthStatus(target.getId(), "healthy");
+                statusChanged(target);
                 logger.info("Target is healthy: {}", target.getTargetUrl());
             }
 
@@ -182,6 +184,7 @@ public class HealthCheckService {
                     !"unhealthy".equals(target.getHealthStatus())) {
 
                 targetRepo.updateHealthStatus(target.getId(), "unhealthy");
+                statusChanged(target);
                 logger.warn("Target marked unhealthy after {} failures: {}",
                         failures, target.getTargetUrl());
             }
@@ -1,68 +1,305 @@
 package com.gateway.service;
 
+import com.gateway.config.AppConfig;
+import com.gateway.domain.Route;
 import com.gateway.domain.RouteTarget;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.service.circuitbreaker.CircuitBreaker;
+import com.gateway.service.loadbalancer.HashKey;
+import com.gateway.service.loadbalancer.HashingStrategy;
+import com.gateway.service.loadbalancer.LoadBalancingAlgorithm;
+import com.gateway.service.loadbalancer.LoadBalancingStrategy;
+import com.gateway.service.loadbalancer.TargetStats;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.SocketAddress;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
+/**
+ * Spreads each route's requests over its healthy targets with the route's
+ * {@link LoadBalancingAlgorithm}.
+ *
+ * A strategy instance is built per route for the exact target list it is
+ * handed and reused until the route table hands over a different list, so
+ * picking a target on the request path allocates nothing but the {@link Pick}
+ * returned. In-flight counts and latency averages are kept per target and
+ * survive those rebuilds; callers report every pick back through
+ * {@link #requestFinished} or {@link #requestAbandoned}.
+ *
+ * Targets whose {@link CircuitBreaker} is open or that the
+ * {@link OutlierDetectionService} has ejected are passed over: the strategy is
+ * asked again, and as a last resort any target that will take the request is
+ * used.
+ */
 public class LoadBalancerService {
     private static final Logger logger = LoggerFactory.getLogger(LoadBalancerService.class);
 
     // Singleton instance
     private static final LoadBalancerService INSTANCE = new LoadBalancerService();
 
-    // Route ID -> Counter
-    private final ConcurrentHashMap<UUID, AtomicLong> counters = new ConcurrentHashMap<>();
+    // Failures are usually fast; counting them at face value would attract traffic
+    private static final long FAILURE_LATENCY_MS = 1000;
+
+    // Route ID -> strategy for its current targets
+    private final ConcurrentHashMap<UUID, RouteBalancer> balancers = new ConcurrentHashMap<>();
+
+    // Target ID -> live load
+    private final ConcurrentHashMap<UUID, TargetStats> targetStats = new ConcurrentHashMap<>();
+
+    private final CircuitBreakerService circuitBreakers = CircuitBreakerService.getInstance();
+    private final OutlierDetectionService outliers = OutlierDetectionService.getInstance();
+    private final LongAdder circuitRejections = MetricsRegistry.getInstance().counter("circuitbreaker.rejected");
+
+    private final long ewmaDecayMs;
 
     // Private constructor for singleton
-    private LoadBalancerService() {}
+    private LoadBalancerService() {
+        this.ewmaDecayMs = AppConfig.getLoadBalancerEwmaDecayMs();
+    }
 
     // Get singleton instance
     public static LoadBalancerService getInstance() {
         return INSTANCE;
     }
 
-    public RouteTarget selectTarget(UUID routeId, List<RouteTarget> targets) {
+    /**
+     * Picks one of {@code targets} for a request to {@code route} and counts it
+     * as in flight, or returns {@code null} if every target is ejected or has
+     * an open circuit. The pick carries the target's circuit breaker permit.
+     * {@code targets} must be immutable. The request itself is only looked at by
+     * hashing strategies, through the route's {@link HashKey}; requests without
+     * the key are spread at random.
+     *
+     * @param headers request header lookup by lower-case name
+     * @param path    request path after the gateway prefix
+     */
+    public Pick selectTarget(Route route, List<RouteTarget> targets,
+                             Function<String, String> headers, String path, SocketAddress client) {
+        return selectTarget(route, targets, headers, path, client, List.of());
+    }
+
+    /**
+     * Like {@link #selectTarget(Route, List, Function, String, SocketAddress)},
+     * but prefers targets other than those in {@code avoid}, such as the ones a
+     * request was already tried on. An avoided target is only picked when no
+     * other one will take the request.
+     */
+    public Pick selectTarget(Route route, List<RouteTarget> targets,
+                             Function<String, String> headers, String path, SocketAddress client,
+                             Collection<RouteTarget> avoid) {
         if (targets == null || targets.isEmpty()) {
             throw new IllegalArgumentException("No targets available");
         }
 
-        logger.info("LoadBalancer: Received {} targets for route {}", targets.size(), routeId);
-        for (int i = 0; i < targets.size(); i++) {
-            logger.info("  Target {}: {}", i, targets.get(i).getTargetUrl());
+        RouteBalancer balancer = balancers.get(route.getId());
+        if (balancer == null || balancer.route != route || balancer.targets != targets) {
+            balancer = new RouteBalancer(route, targets);
+            balancers.put(route.getId(), balancer);
+        }
+
+        long hash = balancer.strategy instanceof HashingStrategy
+                ? balancer.hashKey.hash(headers, path, client)
+                : HashKey.NONE;
+
+        int index = pick(balancer, hash, 0);
+        long permit = admit(balancer, index, avoid);
+        if (permit == CircuitBreaker.REFUSED) {
+            long found = pickPermitted(balancer, hash, avoid);
+            if (found < 0 && !avoid.isEmpty()) {
+                found = pickPermitted(balancer, hash, List.of());
+            }
+            if (found < 0) {
+                return null;
+            }
+            index = indexOf(found);
+            permit = permitOf(found);
+        }
+
+        balancer.stats[index].requestStarted();
+        return new Pick(targets.get(index), balancer.breakers != null ? balancer.breakers[index] : null, permit);
+    }
+
+    private static int pick(RouteBalancer balancer, long hash, int attempt) {
+        if (balancer.targets.size() == 1) {
+            return 0;
+        }
+        if (hash != HashKey.NONE) {
+            // Rehashing per attempt only moves the keys of targets that refused
+            long h = attempt == 0 ? hash : HashKey.rehash(hash, attempt);
+            return ((HashingStrategy) balancer.strategy).select(h);
+        }
+        return balancer.strategy.select();
+    }
+
+    // The admitted index in the low 32 bits and its permit above, or -1 if none admits
+    private long pickPermitted(RouteBalancer balancer, long hash, Collection<RouteTarget> avoid) {
+        int n = balancer.targets.size();
+
+        for (int attempt = 1; attempt < n; attempt++) {
+            int index = pick(balancer, hash, attempt);
+            long permit = admit(balancer, index, avoid);
+            if (permit != CircuitBreaker.REFUSED) {
+                return permit << 32 | index;
+            }
+        }
+
+        int start = ThreadLocalRandom.current().nextInt(n);
+        for (int k = 0; k < n; k++) {
+            int index = (start + k) % n;
+            long permit = admit(balancer, index, avoid);
+            if (permit != CircuitBreaker.REFUSED) {
+                return permit << 32 | index;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(long found) {
+        return (int) found;
+    }
+
+    private static long permitOf(long found) {
+        return found >>> 32;
+    }
+
+    // Ejection is checked first so an ejected target doesn't use up a half-open probe
+    private long admit(RouteBalancer balancer, int index, Collection<RouteTarget> avoid) {
+        RouteTarget target = balancer.targets.get(index);
+        if (avoid.contains(target) || outliers.isEjected(target.getId())) {
+            return CircuitBreaker.REFUSED;
+        }
+        if (balancer.breakers == null) {
+            return 0;
+        }
+        long permit = balancer.breakers[index].tryAcquire();
+        if (permit == CircuitBreaker.REFUSED) {
+            circuitRejections.increment();
+        }
+        return permit;
+    }
+
+    /**
+     * Ends a request started by {@link #selectTarget} that reached the target
+     * (or failed trying).
+     */
+    public void requestFinished(Pick pick, long latencyMs, boolean failed) {
+        TargetStats stats = targetStats.get(pick.target.getId());
+        if (stats != null) {
+            stats.requestFinished(failed ? Math.max(latencyMs, FAILURE_LATENCY_MS) : latencyMs);
         }
 
-        if (targets.size() == 1) {
-            logger.info("Only 1 target available, returning: {}", targets.get(0).getTargetUrl());
-            return targets.get(0);
+        if (pick.breaker != null) {
+            if (failed) {
+                pick.breaker.onFailure(pick.permit);
+            } else {
+                pick.breaker.onSuccess(pick.permit, latencyMs);
+            }
         }
+    }
+
+    /** Ends a request started by {@link #selectTarget} that tells nothing about the target. */
+    public void requestAbandoned(Pick pick) {
+        TargetStats stats = targetStats.get(pick.target.getId());
+        if (stats != null) {
+            stats.requestFinished(-1);
+        }
+
+        if (pick.breaker != null) {
+            pick.breaker.onAbandoned(pick.permit);
+        }
+    }
 
-        // Get or create counter for this route
-        AtomicLong counter = counters.computeIfAbsent(routeId, k -> new AtomicLong(0));
+    public void removeRoute(UUID routeId) {
+        balancers.remove(routeId);
+    }
 
-        // Round-robin selection
-        long currentCount = counter.getAndIncrement();
-        long index = currentCount % targets.size();
+    public void removeTarget(UUID targetId) {
+        if (targetStats.remove(targetId) != null) {
+            MetricsRegistry.getInstance().removeAll("loadbalancer.target." + targetId + ".");
+        }
+    }
 
-        RouteTarget selected = targets.get((int) index);
+    private TargetStats statsFor(UUID targetId) {
+        return targetStats.computeIfAbsent(targetId, id -> {
+            TargetStats stats = new TargetStats(ewmaDecayMs);
+            MetricsRegistry metrics = MetricsRegistry.getInstance();
+            metrics.gauge("loadbalancer.target." + id + ".outstanding", stats::getOutstanding);
+            metrics.gauge("loadbalancer.target." + id + ".latency_ewma_ms", stats::getLatencyEwmaMs);
+            return stats;
+        });
+    }
 
-        logger.info("LoadBalancer: Counter={}, Index={}, Selected={}",
-                currentCount, index, selected.getTargetUrl());
+    private static LoadBalancingAlgorithm algorithmOf(Route route) {
+        try {
+            return LoadBalancingAlgorithm.fromName(route.getLbStrategy());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Route {} has unknown load balancing strategy '{}', using {}",
+                    route.getId(), route.getLbStrategy(), LoadBalancingAlgorithm.DEFAULT.getName());
+            return LoadBalancingAlgorithm.DEFAULT;
+        }
+    }
 
-        return selected;
+    private static HashKey hashKeyOf(Route route) {
+        try {
+            return HashKey.parse(route.getLbHashKey());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Route {}: {}, hashing by client IP", route.getId(), e.getMessage());
+            return HashKey.CLIENT_IP;
+        }
     }
 
-    public void resetCounter(UUID routeId) {
-        counters.remove(routeId);
-        logger.debug("Reset load balancer counter for route: {}", routeId);
+    /**
+     * A target picked for one request, with the permit its circuit breaker
+     * admitted the request under. The outcome goes back to that breaker, so it
+     * is only counted where and when the request was let through.
+     */
+    public static final class Pick {
+        public final RouteTarget target;
+        // Null when circuit breaking is disabled
+        final CircuitBreaker breaker;
+        final long permit;
+
+        Pick(RouteTarget target, CircuitBreaker breaker, long permit) {
+            this.target = target;
+            this.breaker = breaker;
+            this.permit = permit;
+        }
     }
 
-    public long getCounterValue(UUID routeId) {
-        AtomicLong counter = counters.get(routeId);
-        return counter != null ? counter.get() : 0;
+    /** Strategy state for one route and one version of its target list. */
+    private final class RouteBalancer {
+        final Route route;
+        final List<RouteTarget> targets;
+        final TargetStats[] stats;
+        final CircuitBreaker[] breakers;
+        final LoadBalancingStrategy strategy;
+        final HashKey hashKey;
+
+        RouteBalancer(Route route, List<RouteTarget> targets) {
+            this.route = route;
+            this.targets = targets;
+            this.stats = new TargetStats[targets.size()];
+            this.breakers = circuitBreakers.isEnabled() ? new CircuitBreaker[targets.size()] : null;
+
+            int[] weights = new int[targets.size()];
+            for (int i = 0; i < targets.size(); i++) {
+                RouteTarget target = targets.get(i);
+                weights[i] = Math.min(Math.max(1, target.getWeight()), RouteTarget.MAX_WEIGHT);
+                stats[i] = statsFor(target.getId());
+                if (breakers != null) {
+                    breakers[i] = circuitBreakers.forTarget(target.getId());
+                }
+            }
+
+            this.strategy = algorithmOf(route).create(targets, weights, stats);
+            this.hashKey = hashKeyOf(route);
+        }
     }
-}
\ No newline at end of file
+}
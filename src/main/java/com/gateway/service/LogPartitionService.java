@@ -0,0 +1,231 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.repository.LogPartitionRepository;
+import com.gateway.repository.LogPartitionRepository.Partition;
+import com.gateway.service.logging.PartitionInterval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the partitions of {@code request_logs} ahead of time and within
+ * retention.
+ *
+ * Every {@code log.partition.maintenance.interval.minutes} it creates the
+ * partition for the current slice ({@code log.partition.interval}, hourly or
+ * daily) and the next {@code log.partition.premake}, so inserts never land in
+ * the default partition. It also drops every partition that ends before
+ * {@code log.retention.hours} ago; {@code 0} keeps everything. Dropping a
+ * partition is a file unlink rather than a {@code DELETE}, and leaves nothing
+ * for vacuum. Rows that reached the default partition, for example spooled
+ * logs replayed late, are deleted past retention.
+ *
+ * A slice the default partition already holds rows of can't simply be
+ * created; those rows are moved into the new partition as it is attached,
+ * counted in {@code log.partitions.moved_from_default}. If that fails too the
+ * slice keeps landing in the default partition, which
+ * {@code log.partitions.blocked_by_default} counts.
+ *
+ * Every node runs it; creating and dropping are idempotent, so nodes racing
+ * each other only cost a logged error.
+ */
+public class LogPartitionService {
+    private static final Logger logger = LoggerFactory.getLogger(LogPartitionService.class);
+
+    // check_violation: attaching would leave rows of the new range in the default partition
+    private static final String DEFAULT_PARTITION_VIOLATED = "23514";
+    // duplicate_table: another node created the partition first
+    private static final String DUPLICATE_TABLE = "42P07";
+
+    private static final LogPartitionService INSTANCE = new LogPartitionService();
+
+    private final boolean enabled;
+    private final PartitionInterval interval;
+    private final int premake;
+    private final int retentionHours;
+    private final int maintenanceIntervalMinutes;
+
+    private final LogPartitionRepository partitionRepo = new LogPartitionRepository();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "log-partition-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder created;
+    private final LongAdder dropped;
+    private final LongAdder movedFromDefault;
+    private final LongAdder blockedByDefault;
+    private volatile int partitionCount;
+
+    private volatile boolean running = false;
+
+    private LogPartitionService() {
+        this.enabled = AppConfig.getBoolean("log.partition.enabled", true);
+        this.interval = partitionInterval();
+        this.premake = Math.max(1, AppConfig.getInt("log.partition.premake", 3));
+        this.retentionHours = Math.max(0, AppConfig.getLogRetentionHours());
+        this.maintenanceIntervalMinutes = Math.max(1, AppConfig.getInt("log.partition.maintenance.interval.minutes", 10));
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.created = metrics.counter("log.partitions.created");
+        this.dropped = metrics.counter("log.partitions.dropped");
+        this.movedFromDefault = metrics.counter("log.partitions.moved_from_default");
+        this.blockedByDefault = metrics.counter("log.partitions.blocked_by_default");
+        metrics.gauge("log.partitions", () -> partitionCount);
+    }
+
+    public static LogPartitionService getInstance() {
+        return INSTANCE;
+    }
+
+    private static PartitionInterval partitionInterval() {
+        String name = AppConfig.get("log.partition.interval", PartitionInterval.DEFAULT.getName());
+        try {
+            return PartitionInterval.fromName(name);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown log partition interval '{}', using {}", name, PartitionInterval.DEFAULT.getName());
+            return PartitionInterval.DEFAULT;
+        }
+    }
+
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+
+        running = true;
+
+        // Once right away, so the current partition exists before traffic arrives
+        maintain();
+        scheduler.scheduleWithFixedDelay(this::maintain,
+                maintenanceIntervalMinutes, maintenanceIntervalMinutes, TimeUnit.MINUTES);
+
+        logger.info("Log partition maintenance started ({} partitions, {} ahead, retention: {})",
+                interval.getName(), premake, retentionHours > 0 ? retentionHours + "h" : "forever");
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            scheduler.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info("Log partition maintenance stopped");
+    }
+
+    private void maintain() {
+        try {
+            List<Partition> partitions = partitionRepo.findAll();
+            LocalDateTime now = LocalDateTime.now();
+
+            createAhead(partitions, now);
+            if (retentionHours > 0) {
+                dropExpired(partitions, now.minusHours(retentionHours));
+            }
+
+            partitionCount = partitionRepo.findAll().size();
+        } catch (Exception e) {
+            logger.error("Error maintaining request log partitions", e);
+        }
+    }
+
+    private void createAhead(List<Partition> partitions, LocalDateTime now) {
+        LocalDateTime start = interval.startOf(now);
+        for (int i = 0; i <= premake; i++) {
+            LocalDateTime end = interval.next(start);
+            if (!covered(partitions, start, end)) {
+                String name = interval.partitionName(LogPartitionRepository.TABLE, start);
+                try {
+                    partitionRepo.create(name, start, end);
+                    created.increment();
+                    logger.info("Created request log partition {}", name);
+                } catch (SQLException e) {
+                    Partition defaultPartition = defaultOf(partitions);
+                    if (DEFAULT_PARTITION_VIOLATED.equals(e.getSQLState()) && defaultPartition != null) {
+                        createFromDefault(defaultPartition, name, start, end);
+                    } else {
+                        // Most likely another node got there first
+                        logger.error("Error creating request log partition {}", name, e);
+                    }
+                }
+            }
+            start = end;
+        }
+    }
+
+    private void createFromDefault(Partition defaultPartition, String name, LocalDateTime start, LocalDateTime end) {
+        try {
+            int moved = partitionRepo.createFromDefault(defaultPartition.getName(), name, start, end);
+            created.increment();
+            movedFromDefault.increment();
+            logger.info("Created request log partition {} with {} rows moved from {}",
+                    name, moved, defaultPartition.getName());
+        } catch (SQLException e) {
+            if (!DUPLICATE_TABLE.equals(e.getSQLState())) {
+                blockedByDefault.increment();
+            }
+            logger.error("Error creating request log partition {} from rows in {}",
+                    name, defaultPartition.getName(), e);
+        }
+    }
+
+    private static Partition defaultOf(List<Partition> partitions) {
+        for (Partition partition : partitions) {
+            if (partition.isDefault()) {
+                return partition;
+            }
+        }
+        return null;
+    }
+
+    // A slice partly held by another partition (e.g. the pre-partitioning one) stays in it
+    private static boolean covered(List<Partition> partitions, LocalDateTime start, LocalDateTime end) {
+        for (Partition partition : partitions) {
+            if (partition.overlaps(start, end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void dropExpired(List<Partition> partitions, LocalDateTime cutoff) {
+        for (Partition partition : partitions) {
+            try {
+                if (partition.isDefault()) {
+                    int deleted = partitionRepo.deleteFromDefaultBefore(partition.getName(), cutoff);
+                    if (deleted > 0) {
+                        logger.info("Deleted {} expired request logs from {}", deleted, partition.getName());
+                    }
+                } else if (partition.getTo() != null && !partition.getTo().isAfter(cutoff)) {
+                    partitionRepo.drop(partition.getName());
+                    dropped.increment();
+                    logger.info("Dropped expired request log partition {} (ended {})",
+                            partition.getName(), partition.getTo());
+                }
+            } catch (SQLException e) {
+                logger.error("Error expiring request log partition {}", partition.getName(), e);
+            }
+        }
+    }
+}
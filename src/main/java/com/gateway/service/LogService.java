@@ -2,59 +2,201 @@ package com.gateway.service;
 
 import com.gateway.config.AppConfig;
 import com.gateway.domain.RequestLog;
+import com.gateway.metrics.MetricsRegistry;
 import com.gateway.repository.LogRepository;
+import com.gateway.service.logging.LogSpool;
+import com.gateway.service.logging.OverflowPolicy;
+import com.gateway.service.logging.RequestLogRing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
-import java.util.concurrent.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Buffers request logs and writes them to {@code request_logs} in batches.
+ *
+ * {@link #logAsync} copies the entry into a preallocated slot of a lock-free
+ * {@link RequestLogRing} of {@code log.buffer.size} entries, so the request
+ * path neither allocates nor contends on a lock. A single drainer thread
+ * empties the ring into batches of {@code log.batch.size} entries, cut short
+ * {@code log.flush.interval.ms} after their first entry, and hands them to
+ * {@code log.writers} writer threads. Throughput therefore follows the
+ * database instead of a timer. If writers fall behind and the ring fills,
+ * {@code log.overflow.policy} picks what to lose rather than slowing down the
+ * request path: the new entry ({@code drop-newest}), the oldest buffered one
+ * ({@code drop-oldest}), or, once the ring is
+ * {@code log.overflow.sample.threshold.percent} full, all but 1 in
+ * {@code log.overflow.sample.rate} new entries ({@code sample}). Losses are
+ * counted by reason and reported in one warning per interval, not one per
+ * entry.
+ *
+ * A batch that fails to write goes to a {@link LogSpool} on local disk
+ * ({@code log.spool.dir}, at most {@code log.spool.max.mb}), and so does
+ * every batch after it until the database answers again. A replayer thread
+ * retries the oldest spooled logs with backoff and writes the spool back in
+ * order once the database is back, so outages and restarts of the database
+ * lose no logs unless the spool itself fills up. With the spool disabled
+ * ({@code log.spool.enabled}), or if writing to it fails, a batch is retried
+ * in memory with backoff until it succeeds or the service stops.
+ *
+ * Batches are streamed with binary {@code COPY} ({@code log.copy.enabled}),
+ * falling back to batched {@code INSERT}.
+ *
+ * {@link #findLogs} reads them back newest first in a single query; the
+ * planner prunes the {@code request_logs} partitions outside its time bounds
+ * (see {@link LogPartitionService}).
+ */
 public class LogService {
     private static final Logger logger = LoggerFactory.getLogger(LogService.class);
 
     private static final LogService INSTANCE = new LogService();
 
-    private final BlockingQueue<RequestLog> logQueue;
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+    private static final long DROP_WARN_INTERVAL_MS = 10000;
+    // How long the drainer sleeps when the ring is empty
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    // How often the replayer looks for spooled logs when there are none
+    private static final long SPOOL_IDLE_MS = 1000;
+
+    private final RequestLogRing ring;
+    // Batches cut by the drainer, waiting for a writer; small, so back-pressure lands on the ring
+    private final BlockingQueue<List<RequestLog>> pendingBatches;
     private final LogRepository logRepo = new LogRepository();
+    // null when spooling is disabled or the spool directory can't be used
+    private volatile LogSpool spool;
 
     private final int batchSize;
-    private final int flushInterval;
+    private final long flushIntervalMs;
+    private final int writerCount;
+    private volatile boolean copyEnabled;
+    private Thread drainer;
+    private Thread replayer;
+    private final List<Thread> writers = new ArrayList<>();
+
+    private final LongAdder enqueued;
+    private final LongAdder droppedOnShutdown;
+    private final LongAdder written;
+    private final LongAdder batches;
+    private final LongAdder writeFailures;
+    private final LongAdder copyFallbacks;
+    private final LongAdder replayed;
+    private final LongAdder spoolFailures;
+    private long lastDropWarning;
+    private long droppedAtLastWarning;
 
     private volatile boolean running = false;
+    // Cleared once the drainer has handed off everything left in the ring
+    private volatile boolean draining = false;
+    // Cleared when a batch is spooled, set again once a spooled batch is replayed
+    private volatile boolean databaseAvailable = true;
 
     private LogService() {
-        this.batchSize = AppConfig.getLogBatchSize();
-        this.flushInterval = AppConfig.getLogFlushInterval();
-        this.logQueue = new LinkedBlockingQueue<>(AppConfig.getLogBufferSize());
+        this.batchSize = Math.max(1, AppConfig.getLogBatchSize());
+        this.flushIntervalMs = Math.max(1, AppConfig.getLogFlushIntervalMs());
+        this.writerCount = Math.max(1, AppConfig.getLogWriters());
+        this.copyEnabled = AppConfig.getBoolean("log.copy.enabled", true);
+        this.ring = new RequestLogRing(
+                Math.max(1, AppConfig.getLogBufferSize()),
+                overflowPolicy(),
+                AppConfig.getInt("log.overflow.sample.threshold.percent", 75),
+                AppConfig.getInt("log.overflow.sample.rate", 10));
+        this.pendingBatches = new ArrayBlockingQueue<>(writerCount);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.enqueued = metrics.counter("log.enqueued");
+        this.droppedOnShutdown = metrics.counter("log.dropped.shutdown");
+        this.written = metrics.counter("log.written");
+        this.batches = metrics.counter("log.batches");
+        this.writeFailures = metrics.counter("log.write_failures");
+        this.copyFallbacks = metrics.counter("log.copy_fallbacks");
+        this.replayed = metrics.counter("log.spool.replayed");
+        this.spoolFailures = metrics.counter("log.spool.failures");
+        metrics.gauge("log.dropped", this::droppedTotal);
+        metrics.gauge("log.dropped.newest", ring::droppedNewest);
+        metrics.gauge("log.dropped.oldest", ring::droppedOldest);
+        metrics.gauge("log.dropped.sampled", ring::sampledOut);
+        metrics.gauge("log.queue.size", ring::size);
+        metrics.gauge("log.queue.remaining", () -> ring.capacity() - ring.size());
+        metrics.gauge("log.batches.pending", pendingBatches::size);
+
+        if (AppConfig.getBoolean("log.spool.enabled", true)) {
+            LogSpool logSpool = new LogSpool(
+                    Path.of(AppConfig.get("log.spool.dir", "spool/request-logs")),
+                    AppConfig.getInt("log.spool.max.mb", 1024) * 1024L * 1024L,
+                    AppConfig.getInt("log.spool.segment.mb", 64) * 1024L * 1024L);
+            this.spool = logSpool;
+            metrics.gauge("log.spool.bytes", logSpool::sizeBytes);
+            metrics.gauge("log.spool.segments", logSpool::segmentCount);
+            metrics.gauge("log.spool.spooled", logSpool::spooled);
+            metrics.gauge("log.spool.evicted.segments", logSpool::evictedSegments);
+            metrics.gauge("log.spool.evicted.bytes", logSpool::evictedBytes);
+            metrics.gauge("log.spool.corrupt.segments", logSpool::corruptSegments);
+        }
     }
 
     public static LogService getInstance() {
         return INSTANCE;
     }
 
-    public void start() {
+    private static OverflowPolicy overflowPolicy() {
+        String name = AppConfig.get("log.overflow.policy", OverflowPolicy.DEFAULT.getName());
+        try {
+            return OverflowPolicy.fromName(name);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Unknown log overflow policy '{}', using {}", name, OverflowPolicy.DEFAULT.getName());
+            return OverflowPolicy.DEFAULT;
+        }
+    }
+
+    public synchronized void start() {
         if (running) {
             logger.warn("Log service already running");
             return;
         }
 
         running = true;
+        draining = true;
 
-        scheduler.scheduleAtFixedRate(
-                this::flushLogs,
-                flushInterval,
-                flushInterval,
-                TimeUnit.SECONDS
-        );
+        if (spool != null) {
+            try {
+                spool.open();
+                replayer = new Thread(this::replayLoop, "log-spool-replayer");
+                replayer.setDaemon(true);
+                replayer.start();
+            } catch (IOException e) {
+                logger.error("Can't use the request log spool, logs will be kept in memory only", e);
+                spool = null;
+            }
+        }
+
+        drainer = new Thread(this::drainLoop, "log-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+
+        for (int i = 0; i < writerCount; i++) {
+            Thread writer = new Thread(this::writeLoop, "log-writer-" + (i + 1));
+            writer.setDaemon(true);
+            writer.start();
+            writers.add(writer);
+        }
 
-        logger.info("Log service started (batch size: {}, flush interval: {}s)",
-                batchSize, flushInterval);
+        logger.info("Log service started ({} writer(s), buffer: {}, batch size: {}, flush interval: {}ms)",
+                writerCount, ring.capacity(), batchSize, flushIntervalMs);
     }
 
-    public void stop() {
+    public synchronized void stop() {
         if (!running) {
             return;
         }
@@ -63,19 +205,26 @@ public class LogService {
 
         logger.info("Stopping log service");
 
-        // Flush remaining logs
-        flushLogs();
-
-        scheduler.shutdown();
-
+        // The drainer hands off what is left in the ring, then writers empty the
+        // pending batches with one attempt each, spooling what fails
         try {
-            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
-                scheduler.shutdownNow();
+            drainer.join(10000);
+            for (Thread writer : writers) {
+                writer.join(10000);
+            }
+            if (replayer != null) {
+                replayer.interrupt();
+                replayer.join(10000);
             }
         } catch (InterruptedException e) {
-            scheduler.shutdownNow();
             Thread.currentThread().interrupt();
         }
+        drainer = null;
+        replayer = null;
+        writers.clear();
+        if (spool != null) {
+            spool.close();
+        }
 
         logger.info("Log service stopped");
     }
@@ -84,44 +233,248 @@ public class LogService {
                          String method, String path, int statusCode,
                          int latencyMs, String errorMessage) {
 
-        RequestLog log = new RequestLog(
-                gatewayId, routeId, targetId,
-                method, path, statusCode, latencyMs, errorMessage
-        );
+        if (ring.offer(gatewayId, routeId, targetId, method, path, statusCode,
+                latencyMs, errorMessage, System.currentTimeMillis())) {
+            enqueued.increment();
+        }
+    }
 
-        boolean added = logQueue.offer(log);
+    /**
+     * The gateway's newest logs with {@code created_at} in {@code [since, until)},
+     * either bound optional. One query: partitions outside the bounds are
+     * pruned, and the rest are read newest first through their
+     * {@code (gateway_id, created_at DESC)} indexes and merged, so a busy
+     * gateway's {@code limit} rows come from the newest partition without
+     * touching older ones.
+     */
+    public List<RequestLog> findLogs(UUID gatewayId, int limit, Integer statusCode,
+                                     Instant since, Instant until) throws SQLException {
+        return logRepo.findByGatewayId(gatewayId, limit, statusCode, since, until);
+    }
+
+    // The ring's single consumer
+    private void drainLoop() {
+        long flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        List<RequestLog> batch = new ArrayList<>(batchSize);
+        long deadline = 0;
 
-        if (!added) {
-            logger.warn("Log queue full, dropping log entry for gateway: {}", gatewayId);
+        try {
+            while (running) {
+                RequestLog log = ring.poll();
+                if (log != null) {
+                    if (batch.isEmpty()) {
+                        deadline = System.nanoTime() + flushIntervalNanos;
+                    }
+                    batch.add(log);
+                    if (batch.size() >= batchSize) {
+                        handOff(batch);
+                        batch = new ArrayList<>(batchSize);
+                    }
+                } else if (!batch.isEmpty() && System.nanoTime() - deadline >= 0) {
+                    handOff(batch);
+                    batch = new ArrayList<>(batchSize);
+                } else {
+                    warnDropped();
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+
+            // Stopping: everything still buffered goes out in full batches
+            RequestLog log;
+            while ((log = ring.poll()) != null) {
+                batch.add(log);
+                if (batch.size() >= batchSize) {
+                    handOff(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                handOff(batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            draining = false;
         }
     }
 
-    private void flushLogs() {
-        List<RequestLog> batch = new ArrayList<>(batchSize);
-        logQueue.drainTo(batch, batchSize);
+    // Blocks while every writer is busy; meanwhile the ring absorbs new entries
+    private void handOff(List<RequestLog> batch) throws InterruptedException {
+        pendingBatches.put(batch);
+        warnDropped();
+    }
 
-        if (batch.isEmpty()) {
+    private void writeLoop() {
+        while (true) {
+            List<RequestLog> batch;
+            try {
+                batch = pendingBatches.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (batch != null) {
+                store(batch);
+            } else if (!draining) {
+                return;
+            }
+        }
+    }
+
+    private void store(List<RequestLog> batch) {
+        LogSpool logSpool = spool;
+        // While the database is down, straight to disk; the replayer finds out when it's back
+        if (logSpool != null && !databaseAvailable && spool(logSpool, batch)) {
             return;
         }
+        if (write(batch)) {
+            return;
+        }
+        if (logSpool != null && spool(logSpool, batch)) {
+            if (databaseAvailable) {
+                databaseAvailable = false;
+                logger.warn("Request logs can't be written to the database, spooling them to disk");
+            }
+            return;
+        }
+        writeWithRetry(batch);
+    }
 
+    private boolean spool(LogSpool logSpool, List<RequestLog> batch) {
         try {
-            logRepo.batchInsert(batch);
+            logSpool.append(batch);
+            return true;
+        } catch (IOException e) {
+            spoolFailures.increment();
+            logger.error("Error spooling {} request logs", batch.size(), e);
+            return false;
+        }
+    }
+
+    // Writes spooled logs back, oldest first, retrying with backoff while the database is down
+    private void replayLoop() {
+        long backoffMs = 100;
+        while (running) {
+            try {
+                LogSpool.ReplayBatch batch = spool.peek(batchSize);
+                if (batch == null) {
+                    Thread.sleep(SPOOL_IDLE_MS);
+                    continue;
+                }
+                List<RequestLog> logs = batch.getLogs();
+                if (!write(logs)) {
+                    Thread.sleep(backoffMs);
+                    backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+                    continue;
+                }
+                spool.acknowledge(batch);
+                backoffMs = 100;
+                if (!logs.isEmpty()) {
+                    replayed.add(logs.size());
+                    if (!databaseAvailable) {
+                        databaseAvailable = true;
+                        logger.info("Request logs are being written to the database again, replaying the spool");
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Error reading the request log spool", e);
+                try {
+                    Thread.sleep(MAX_RETRY_BACKOFF_MS);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void writeWithRetry(List<RequestLog> batch) {
+        long backoffMs = 100;
+        while (!write(batch)) {
+            if (!running) {
+                droppedOnShutdown.add(batch.size());
+                logger.error("Dropping {} request logs on shutdown", batch.size());
+                return;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            backoffMs = Math.min(backoffMs * 2, MAX_RETRY_BACKOFF_MS);
+        }
+    }
+
+    private boolean write(List<RequestLog> batch) {
+        if (batch.isEmpty()) {
+            return true;
+        }
+        try {
+            insert(batch);
+            written.add(batch.size());
+            batches.increment();
             logger.debug("Flushed {} request logs", batch.size());
+            return true;
         } catch (Exception e) {
-            logger.error("Error flushing logs", e);
+            writeFailures.increment();
+            logger.error("Error flushing {} request logs", batch.size(), e);
+            return false;
+        }
+    }
 
-            // Try to re-queue logs on failure (if space available)
-            for (RequestLog log : batch) {
-                logQueue.offer(log);
+    // COPY when possible; a batch COPY rejects is retried as INSERTs right away, and if
+    // the connection can't COPY at all, INSERT is used from then on
+    private void insert(List<RequestLog> batch) throws SQLException {
+        if (copyEnabled) {
+            try {
+                logRepo.copyInsert(batch);
+                return;
+            } catch (SQLException e) {
+                if (isCopyUnsupported(e)) {
+                    copyEnabled = false;
+                    logger.warn("COPY is not available for request logs, using batched INSERT", e);
+                } else {
+                    copyFallbacks.increment();
+                    logger.debug("COPY of {} request logs failed, retrying as INSERT", batch.size(), e);
+                }
             }
         }
+        logRepo.batchInsert(batch);
+    }
+
+    private static boolean isCopyUnsupported(SQLException e) {
+        // Not a PostgreSQL connection, or the server refused the feature itself
+        return e instanceof SQLFeatureNotSupportedException || "0A000".equals(e.getSQLState());
+    }
+
+    private long droppedTotal() {
+        return ring.dropped() + droppedOnShutdown.sum();
+    }
+
+    // One summary per interval instead of one line per dropped entry; drainer thread only
+    private void warnDropped() {
+        long now = System.currentTimeMillis();
+        if (now - lastDropWarning < DROP_WARN_INTERVAL_MS) {
+            return;
+        }
+        lastDropWarning = now;
+        long total = ring.dropped();
+        long since = total - droppedAtLastWarning;
+        if (since == 0) {
+            return;
+        }
+        droppedAtLastWarning = total;
+        logger.warn("Log buffer full, lost {} request log(s) since the last report "
+                        + "(in total: {} newest dropped, {} oldest dropped, {} sampled out)",
+                since, ring.droppedNewest(), ring.droppedOldest(), ring.sampledOut());
     }
 
     public int getQueueSize() {
-        return logQueue.size();
+        return ring.size();
     }
 
     public boolean isRunning() {
         return running;
     }
-}
\ No newline at end of file
+}
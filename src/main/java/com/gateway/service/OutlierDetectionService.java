@@ -0,0 +1,227 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.domain.RouteTarget;
+import com.gateway.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Passive outlier detection: ejects targets from load balancing based on the
+ * outcomes of live proxied requests, between active health checks.
+ *
+ * A target is ejected after {@code outlier.consecutive.5xx} 5xx responses in a
+ * row, after {@code outlier.consecutive.gateway.errors} gateway errors (connect
+ * failures, timeouts, 502/503/504) in a row, or when its average latency is more
+ * than {@code outlier.latency.factor} times the median of its route's targets.
+ * An ejection lasts {@code outlier.base.ejection.ms}, doubled for every earlier
+ * ejection not yet forgiven, up to {@code outlier.max.ejection.ms}. At most
+ * {@code outlier.max.ejection.percent} of a route's targets are ejected at once,
+ * though one may always be while others remain. The last target still in
+ * rotation is never ejected: an outage of the whole route is left to the
+ * circuit breakers and health checks, which recover as soon as it passes.
+ */
+public class OutlierDetectionService {
+    private static final Logger logger = LoggerFactory.getLogger(OutlierDetectionService.class);
+
+    private static final OutlierDetectionService INSTANCE = new OutlierDetectionService();
+
+    // Weight of the newest sample in the latency average
+    private static final double LATENCY_ALPHA = 0.1;
+
+    private final boolean enabled;
+    private final int consecutive5xx;
+    private final int consecutiveGatewayErrors;
+    private final int latencyFactor;
+    private final long latencyMinMs;
+    private final int latencyMinRequests;
+    private final long baseEjectionNanos;
+    private final long maxEjectionNanos;
+    private final int maxEjectionPercent;
+
+    private final ConcurrentHashMap<UUID, TargetState> states = new ConcurrentHashMap<>();
+
+    private final LongAdder ejections = MetricsRegistry.getInstance().counter("outlier.ejections");
+
+    private OutlierDetectionService() {
+        this.enabled = AppConfig.getBoolean("outlier.enabled", true);
+        this.consecutive5xx = AppConfig.getInt("outlier.consecutive.5xx", 5);
+        this.consecutiveGatewayErrors = AppConfig.getInt("outlier.consecutive.gateway.errors", 3);
+        this.latencyFactor = AppConfig.getInt("outlier.latency.factor", 3);
+        this.latencyMinMs = AppConfig.getInt("outlier.latency.min.ms", 200);
+        this.latencyMinRequests = AppConfig.getInt("outlier.latency.min.requests", 20);
+        this.baseEjectionNanos = AppConfig.getInt("outlier.base.ejection.ms", 30000) * 1_000_000L;
+        this.maxEjectionNanos = AppConfig.getInt("outlier.max.ejection.ms", 300000) * 1_000_000L;
+        this.maxEjectionPercent = AppConfig.getInt("outlier.max.ejection.percent", 50);
+    }
+
+    public static OutlierDetectionService getInstance() {
+        return INSTANCE;
+    }
+
+    public boolean isEjected(UUID targetId) {
+        TargetState state = states.get(targetId);
+        return state != null && state.isEjected(System.nanoTime());
+    }
+
+    /**
+     * Feeds the outcome of one proxied request to {@code target}.
+     *
+     * @param routeTargets the targets {@code target} was chosen from
+     * @param statusCode   response status; ignored when {@code error} is set
+     * @param error        whether the exchange failed before a response arrived
+     */
+    public void record(List<RouteTarget> routeTargets, RouteTarget target,
+                       int statusCode, long latencyMs, boolean error) {
+        if (!enabled) {
+            return;
+        }
+
+        TargetState state = states.computeIfAbsent(target.getId(), id -> new TargetState());
+        long now = System.nanoTime();
+        if (state.isEjected(now)) {
+            // Started before the ejection
+            return;
+        }
+
+        boolean gatewayError = error || statusCode == 502 || statusCode == 503 || statusCode == 504;
+        boolean serverError = gatewayError || statusCode >= 500;
+
+        int gatewayErrors = gatewayError ? state.gatewayErrors.incrementAndGet() : reset(state.gatewayErrors);
+        int serverErrors = serverError ? state.serverErrors.incrementAndGet() : reset(state.serverErrors);
+
+        if (gatewayErrors >= consecutiveGatewayErrors) {
+            eject(routeTargets, target, state, now, gatewayErrors + " consecutive gateway errors");
+        } else if (serverErrors >= consecutive5xx) {
+            eject(routeTargets, target, state, now, serverErrors + " consecutive 5xx responses");
+        } else if (!error) {
+            double latency = state.recordLatency(latencyMs);
+            if (latency >= latencyMinMs && state.samples.get() >= latencyMinRequests) {
+                double median = medianLatency(routeTargets, target.getId());
+                if (median > 0 && latency > median * latencyFactor) {
+                    eject(routeTargets, target, state, now,
+                            String.format("average latency %.0fms against a route median of %.0fms", latency, median));
+                }
+            }
+        }
+    }
+
+    public void remove(UUID targetId) {
+        states.remove(targetId);
+    }
+
+    private static int reset(AtomicInteger counter) {
+        if (counter.get() != 0) {
+            counter.set(0);
+        }
+        return 0;
+    }
+
+    /** Median latency average of the other measured targets, or 0 if none is. */
+    private double medianLatency(List<RouteTarget> routeTargets, UUID exclude) {
+        double[] latencies = new double[routeTargets.size()];
+        int n = 0;
+        for (RouteTarget other : routeTargets) {
+            TargetState state = states.get(other.getId());
+            if (!other.getId().equals(exclude) && state != null && state.samples.get() >= latencyMinRequests) {
+                latencies[n++] = state.latencyEwmaMs();
+            }
+        }
+        if (n == 0) {
+            return 0;
+        }
+        Arrays.sort(latencies, 0, n);
+        return n % 2 == 1 ? latencies[n / 2] : (latencies[n / 2 - 1] + latencies[n / 2]) / 2;
+    }
+
+    // Ejections are rare; one lock keeps the per-route cap exact
+    private synchronized void eject(List<RouteTarget> routeTargets, RouteTarget target,
+                                    TargetState state, long now, String reason) {
+        if (state.isEjected(now)) {
+            return;
+        }
+
+        int ejected = 0;
+        for (RouteTarget other : routeTargets) {
+            TargetState otherState = states.get(other.getId());
+            if (otherState != null && otherState.isEjected(now)) {
+                ejected++;
+            }
+        }
+        if (ejected + 1 >= routeTargets.size()) {
+            logger.debug("Not ejecting target {} ({}): last target of route {} in rotation",
+                    target.getId(), reason, target.getRouteId());
+            return;
+        }
+        if (ejected > 0 && (ejected + 1) * 100 > maxEjectionPercent * routeTargets.size()) {
+            logger.debug("Not ejecting target {} ({}): {}% of route {} already ejected",
+                    target.getId(), reason, maxEjectionPercent, target.getRouteId());
+            return;
+        }
+
+        // A target that stayed in rotation for a full maximum ejection period starts over
+        if (state.ejectionCount > 0 && now - state.ejectedUntilNanos > maxEjectionNanos) {
+            state.ejectionCount = 0;
+        }
+        state.ejectionCount++;
+
+        long duration = baseEjectionNanos << Math.min(state.ejectionCount - 1, 30);
+        if (duration <= 0 || duration > maxEjectionNanos) {
+            duration = maxEjectionNanos;
+        }
+
+        state.gatewayErrors.set(0);
+        state.serverErrors.set(0);
+        state.resetLatency();
+        state.ejectedUntilNanos = now + duration;
+        ejections.increment();
+
+        logger.warn("Ejected target {} ({}) for {}ms: {} (ejection #{})",
+                target.getId(), target.getTargetUrl(), duration / 1_000_000, reason, state.ejectionCount);
+    }
+
+    private static final class TargetState {
+        final AtomicInteger serverErrors = new AtomicInteger();
+        final AtomicInteger gatewayErrors = new AtomicInteger();
+        final AtomicInteger samples = new AtomicInteger();
+        // Double bits of the latency average
+        final AtomicLong latencyBits = new AtomicLong();
+
+        volatile long ejectedUntilNanos = System.nanoTime();
+        // Guarded by the service lock
+        int ejectionCount;
+
+        boolean isEjected(long now) {
+            return now - ejectedUntilNanos < 0;
+        }
+
+        double recordLatency(long latencyMs) {
+            boolean first = samples.getAndIncrement() == 0;
+            while (true) {
+                long bits = latencyBits.get();
+                double current = Double.longBitsToDouble(bits);
+                double next = first ? latencyMs : current + LATENCY_ALPHA * (latencyMs - current);
+                if (latencyBits.compareAndSet(bits, Double.doubleToRawLongBits(next))) {
+                    return next;
+                }
+            }
+        }
+
+        double latencyEwmaMs() {
+            return Double.longBitsToDouble(latencyBits.get());
+        }
+
+        void resetLatency() {
+            samples.set(0);
+            latencyBits.set(0);
+        }
+    }
+}
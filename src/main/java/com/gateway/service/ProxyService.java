@@ -2,167 +2,802 @@ package com.gateway.service;
 
 import com.gateway.domain.Route;
 import com.gateway.domain.RouteTarget;
-import com.gateway.repository.RouteRepository;
-import com.gateway.repository.TargetRepository;
+import com.gateway.netty.upstream.UpstreamClient;
+import com.gateway.routing.RouteEntry;
+import com.gateway.service.retry.RetryPolicy;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.EventLoop;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.util.concurrent.ScheduledFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.net.SocketAddress;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.net.http.HttpRequest.BodyPublishers;
-import java.net.http.HttpResponse.BodyHandlers;
-import java.time.Duration;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 public class ProxyService {
     private static final Logger logger = LoggerFactory.getLogger(ProxyService.class);
 
-    private final RouteRepository routeRepo = new RouteRepository();
-    private final TargetRepository targetRepo = new TargetRepository();
+    // Hop-by-hop headers that must not be forwarded in either direction
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of(
+            "connection", "keep-alive", "proxy-connection", "transfer-encoding",
+            "upgrade", "te", "trailer", "proxy-authenticate", "proxy-authorization"
+    );
+
+    private static final ProxyService INSTANCE = new ProxyService();
+
+    private final RouteTableService routeTable = RouteTableService.getInstance();
     private final LoadBalancerService loadBalancer = LoadBalancerService.getInstance();
+    private final OutlierDetectionService outliers = OutlierDetectionService.getInstance();
+    private final RetryService retryService = RetryService.getInstance();
+    private final ConcurrencyLimitService concurrencyLimits = ConcurrencyLimitService.getInstance();
+    private final RateLimitService rateLimits = RateLimitService.getInstance();
+    private final ResponseCacheService responseCache = ResponseCacheService.getInstance();
     private final LogService logService = LogService.getInstance();
+    private final UpstreamClient upstreamClient = UpstreamClient.getInstance();
 
-    private final HttpClient httpClient;
+    private ProxyService() {}
 
-    public ProxyService() {
-        this.httpClient = HttpClient.newBuilder()
-                .connectTimeout(Duration.ofSeconds(10))
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .build();
+    public static ProxyService getInstance() {
+        return INSTANCE;
     }
 
-    public ProxyResult forward(String gatewayId, String path, String method,
-                               Map<String, String> headers, String body) throws Exception {
-
-        long startTime = System.currentTimeMillis();
-        UUID gatewayUuid = UUID.fromString(gatewayId);
+    /**
+     * Resolves the route for a proxied request against the in-memory route table
+     * and picks the target it should go to. Shared by the buffered and the
+     * streaming proxy paths; never touches the database.
+     *
+     * @param headers request header lookup by lower-case name, for hashing strategies
+     */
+    public Selection select(UUID gatewayId, String path, String method,
+                            Function<String, String> headers, SocketAddress client) {
+        return select(gatewayId, path, null, method, headers, client, false, false, null);
+    }
 
+    /**
+     * @param cached   whether to consult the response cache; a fresh entry comes
+     *                 back as {@link Selection#hit}, without a target
+     * @param coalesce whether a miss may wait for an identical request already in
+     *                 flight, coming back as {@link Selection#flight}, without a target
+     * @param admitted rate-limit outcome of a request that has been counted already
+     */
+    private Selection select(UUID gatewayId, String path, String query, String method,
+                             Function<String, String> headers, SocketAddress client,
+                             boolean cached, boolean coalesce, RateLimitService.Decision admitted) {
         // 1. Find matching route
-        Optional<Route> routeOpt = routeRepo.findByGatewayAndPathMatchAndMethod(
-                gatewayUuid, path, method
-        );
+        RouteEntry entry = routeTable.match(gatewayId, path, method);
 
-        if (routeOpt.isEmpty()) {
+        if (entry == null) {
             logger.warn("No route found for gateway={}, path={}, method={}",
                     gatewayId, path, method);
-            return new ProxyResult(404, "{\"error\": \"Route not found\"}", Map.of());
+            return Selection.rejected(404, "{\"error\": \"Route not found\"}");
         }
 
-        Route route = routeOpt.get();
+        Route route = entry.getRoute();
+
+        // 2. Enforce the gateway's and the route's rate limits
+        RateLimitService.Decision rateLimit = admitted != null
+                ? admitted
+                : rateLimits.check(gatewayId, route.getId(), headers, client);
+        if (rateLimit != null && !rateLimit.allowed) {
+            logService.logAsync(gatewayId, route.getId(), null,
+                    method, path, 429, 0, "Rate limit exceeded");
+            HttpHeaders limitHeaders = new DefaultHttpHeaders();
+            rateLimit.addHeaders(limitHeaders);
+            return Selection.rejected(429, "{\"error\": \"Too many requests - rate limit exceeded\"}",
+                    limitHeaders);
+        }
 
-        // 2. Get healthy targets
-        List<RouteTarget> targets = targetRepo.findHealthyByRouteId(route.getId());
+        // 3. Answer from the response cache, or wait for the identical request in flight
+        ResponseCacheService.Lookup cacheLookup = cached
+                ? responseCache.lookup(route, method, path, query, headers)
+                : null;
+        if (cacheLookup != null && cacheLookup.isFresh()) {
+            ProxyResult hit = responseCache.hit(cacheLookup, headers);
+            if (rateLimit != null) {
+                rateLimit.addHeaders(hit.headers);
+            }
+            logService.logAsync(gatewayId, route.getId(), null,
+                    method, path, hit.statusCode, 0, null);
+            return Selection.answered(route, rateLimit, hit);
+        }
+        if (cacheLookup != null && coalesce) {
+            CompletableFuture<ProxyResult> flight = responseCache.join(cacheLookup, headers);
+            if (flight != null) {
+                return Selection.waiting(route, rateLimit, flight);
+            }
+        }
+
+        // 4. Get healthy targets
+        List<RouteTarget> targets = entry.getHealthyTargets();
 
         if (targets.isEmpty()) {
+            responseCache.release(cacheLookup);
             logger.warn("No healthy targets for route={}", route.getId());
-            logService.logAsync(gatewayUuid, route.getId(), null,
+            logService.logAsync(gatewayId, route.getId(), null,
                     method, path, 503, 0, "No healthy targets");
-            return new ProxyResult(503, "{\"error\": \"Service unavailable - no healthy backends\"}", Map.of());
+            return Selection.rejected(503, "{\"error\": \"Service unavailable - no healthy backends\"}");
         }
 
-        // 3. Load balance
-        RouteTarget target = loadBalancer.selectTarget(route.getId(), targets);
+        // 5. Shed load over the gateway's or the route's concurrency limit
+        ConcurrencyLimitService.Permit permit = concurrencyLimits.tryAcquire(gatewayId, route.getId());
+        if (permit == null) {
+            responseCache.release(cacheLookup);
+            logService.logAsync(gatewayId, route.getId(), null,
+                    method, path, 503, 0, "Concurrency limit reached");
+            HttpHeaders retryAfter = new DefaultHttpHeaders()
+                    .set(HttpHeaderNames.RETRY_AFTER, concurrencyLimits.getRetryAfterSeconds());
+            return Selection.rejected(503, "{\"error\": \"Service unavailable - too many concurrent requests\"}",
+                    retryAfter);
+        }
 
-        logger.info("Forwarding {} {} to {}", method, path, target.getTargetUrl());
+        // 6. Load balance
+        LoadBalancerService.Pick pick = loadBalancer.selectTarget(route, targets, headers, path, client);
+
+        if (pick == null) {
+            permit.releaseIgnored();
+            responseCache.release(cacheLookup);
+            String refused = refusalOf(targets);
+            logger.warn("All targets of route={} are {}", route.getId(), refused);
+            logService.logAsync(gatewayId, route.getId(), null,
+                    method, path, 503, 0, "All targets " + refused);
+            return Selection.rejected(503, "{\"error\": \"Service unavailable - all backends " + refused + "\"}");
+        }
+
+        return new Selection(route, pick, targets, permit, rateLimit, cacheLookup, null);
+    }
 
-        // 4. Build target URL
-        String targetUrl = target.getTargetUrl() + path;
+    // Why no target would take a request: outlier ejection, open circuits or both
+    private String refusalOf(List<RouteTarget> targets) {
+        int ejected = 0;
+        for (RouteTarget target : targets) {
+            if (outliers.isEjected(target.getId())) {
+                ejected++;
+            }
+        }
+        if (ejected == 0) {
+            return "circuit-open";
+        }
+        return ejected == targets.size() ? "ejected" : "ejected or circuit-open";
+    }
 
-        // 5. Forward request
+    /**
+     * Records the outcome of a proxied exchange: request log entry plus target
+     * load, circuit breaker and outlier accounting. Gateway-style 5xx answers from the
+     * target count as failures. Called once per accepted {@link Selection},
+     * unless it is {@link #abandon abandoned}.
+     */
+    public void recordOutcome(UUID gatewayId, Selection selection, String method, String path,
+                              int statusCode, long latencyMs, Throwable error) {
+        RouteTarget target = selection.target;
+        boolean failed = error != null || statusCode == 502 || statusCode == 503 || statusCode == 504;
+        loadBalancer.requestFinished(selection.pick, latencyMs, failed);
+        outliers.record(selection.candidates, target, statusCode, latencyMs, error != null);
+
+        if (error != null) {
+            logger.error("Error forwarding to target: {}", target.getTargetUrl(), error);
+        } else {
+            logger.info("Proxied request completed: {} {} -> {} ({}ms)",
+                    method, path, statusCode, latencyMs);
+        }
+
+        logService.logAsync(gatewayId, selection.route.getId(), target.getId(),
+                method, path, statusCode, (int) latencyMs, error != null ? error.getMessage() : null);
+    }
+
+    /**
+     * Forwards a request to one of the route's healthy targets, retrying and
+     * hedging as the route's {@link RetryPolicy} allows, unless the response
+     * cache can answer it. The upstream exchanges run on {@code eventLoop} and
+     * never block it; the returned future completes when a backend has
+     * answered, or right away on a cache hit. Ownership of {@code body} passes
+     * to this method.
+     */
+    public CompletableFuture<ProxyResult> forward(EventLoop eventLoop, String gatewayId, String path,
+                                                  String query, String method,
+                                                  Map<String, String> headers, ByteBuf body,
+                                                  SocketAddress client) throws Exception {
+        return forward(eventLoop, gatewayId, path, query, method, headers, body, client, true, null);
+    }
+
+    private CompletableFuture<ProxyResult> forward(EventLoop eventLoop, String gatewayId, String path,
+                                                   String query, String method,
+                                                   Map<String, String> headers, ByteBuf body,
+                                                   SocketAddress client, boolean coalesce,
+                                                   RateLimitService.Decision admitted) throws Exception {
+
+        UUID gatewayUuid = UUID.fromString(gatewayId);
+
+        Selection selection;
         try {
-            HttpRequest.Builder requestBuilder = HttpRequest.newBuilder()
-                    .uri(URI.create(targetUrl))
-                    .timeout(Duration.ofMillis(route.getTimeoutMs()));
-
-            // Copy headers (except Host, Connection, Content-Length)
-            headers.forEach((key, value) -> {
-                String lowerKey = key.toLowerCase();
-                if (!lowerKey.equals("host") &&
-                        !lowerKey.equals("connection") &&
-                        !lowerKey.equals("content-length")) {
-                    requestBuilder.header(key, value);
-                }
-            });
+            selection = select(gatewayUuid, path, query, method, headers::get, client, true, coalesce, admitted);
+        } catch (Exception e) {
+            body.release();
+            throw e;
+        }
 
-            // Add proxy headers
-            requestBuilder.header("X-Forwarded-For", "gateway");
-            requestBuilder.header("X-Gateway-ID", gatewayId);
-            requestBuilder.header("X-Route-ID", route.getId().toString());
+        if (selection.rejection != null) {
+            body.release();
+            return CompletableFuture.completedFuture(selection.rejection);
+        }
+        if (selection.hit != null) {
+            body.release();
+            return CompletableFuture.completedFuture(selection.hit);
+        }
+        if (selection.flight != null) {
+            return awaitFlight(eventLoop, gatewayId, path, query, method, headers, body, client, selection);
+        }
 
-            // Set method and body
-            HttpRequest.BodyPublisher bodyPublisher = (body == null || body.isEmpty())
-                    ? BodyPublishers.noBody()
-                    : BodyPublishers.ofString(body);
+        Exchange exchange = new Exchange(eventLoop, gatewayUuid, gatewayId, path, query, method,
+                headers, body, client, selection);
 
-            requestBuilder.method(method, bodyPublisher);
+        Attempt first;
+        FullHttpRequest request;
+        try {
+            first = exchange.attempt(selection, false);
+            request = exchange.buildRequest(first.uri);
+        } catch (RuntimeException e) {
+            abandon(selection);
+            responseCache.release(selection.cacheLookup);
+            body.release();
+            throw e;
+        }
 
-            // Send request
-            HttpResponse<String> httpResponse = httpClient.send(
-                    requestBuilder.build(),
-                    BodyHandlers.ofString()
-            );
+        if (eventLoop.inEventLoop()) {
+            exchange.start(first, request);
+        } else {
+            eventLoop.execute(() -> exchange.start(first, request));
+        }
+        return exchange.result;
+    }
+
+    /**
+     * Waits, up to the route's timeout, for the answer to the identical request
+     * {@code selection} joined. If that answer can't be shared, the request is
+     * forwarded on its own after all, without counting it against rate limits again.
+     */
+    private CompletableFuture<ProxyResult> awaitFlight(EventLoop eventLoop, String gatewayId, String path,
+                                                       String query, String method,
+                                                       Map<String, String> headers, ByteBuf body,
+                                                       SocketAddress client, Selection selection) {
+        CompletableFuture<ProxyResult> result = new CompletableFuture<>();
+        CompletableFuture<ProxyResult> flight = selection.flight;
+        UUID routeId = selection.route.getId();
+        int timeoutMs = selection.route.getTimeoutMs();
+        long startTime = System.currentTimeMillis();
+
+        // Completing the waiter itself tells the flight not to hand it anything
+        ScheduledFuture<?> timer = eventLoop.schedule(
+                () -> flight.completeExceptionally(
+                        new TimeoutException("Upstream did not respond within " + timeoutMs + "ms")),
+                timeoutMs, TimeUnit.MILLISECONDS);
 
-            // Calculate latency
+        flight.whenComplete((shared, error) -> eventLoop.execute(() -> {
+            timer.cancel(false);
             long latency = System.currentTimeMillis() - startTime;
+            UUID gatewayUuid = UUID.fromString(gatewayId);
+
+            if (error != null) {
+                body.release();
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                        ? error.getCause() : error;
+                logService.logAsync(gatewayUuid, routeId, null, method, path,
+                        cause instanceof TimeoutException ? 504 : 502, (int) latency, cause.getMessage());
+                result.completeExceptionally(error instanceof CompletionException
+                        ? error
+                        : new CompletionException(error));
+                return;
+            }
+
+            if (shared == null) {
+                CompletableFuture<ProxyResult> alone;
+                try {
+                    alone = forward(eventLoop, gatewayId, path, query, method, headers, body, client,
+                            false, selection.rateLimit);
+                } catch (Exception e) {
+                    alone = CompletableFuture.failedFuture(e);
+                }
+                alone.whenComplete((answer, failure) -> {
+                    if (failure != null) {
+                        result.completeExceptionally(failure);
+                    } else {
+                        result.complete(answer);
+                    }
+                });
+                return;
+            }
+
+            body.release();
+            addRateLimitHeaders(selection, shared.headers);
+            logService.logAsync(gatewayUuid, routeId, null, method, path,
+                    shared.statusCode, (int) latency, null);
+            result.complete(shared);
+        }));
+        return result;
+    }
+
+    /**
+     * Releases an accepted {@link Selection} whose exchange ended without an
+     * outcome worth recording, e.g. because the client went away.
+     */
+    public void abandon(Selection selection) {
+        loadBalancer.requestAbandoned(selection.pick);
+        if (selection.permit != null) {
+            selection.permit.releaseIgnored();
+        }
+    }
+
+    /**
+     * Gives back the concurrency slots of the request {@code selection} was made
+     * for, once the client has its answer. Timeouts and 503/504 answers tell the
+     * limiter that the backend is saturated.
+     */
+    public void releasePermit(Selection selection, int statusCode, Throwable error) {
+        if (selection.permit != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+            selection.permit.release(cause instanceof TimeoutException || statusCode == 503 || statusCode == 504);
+        }
+    }
+
+    /** Adds the {@code X-RateLimit-*} headers of the request {@code selection} was made for. */
+    public void addRateLimitHeaders(Selection selection, HttpHeaders headers) {
+        if (selection.rateLimit != null) {
+            selection.rateLimit.addHeaders(headers);
+        }
+    }
+
+    public URI targetUri(RouteTarget target, String path, String query) {
+        return URI.create(target.getTargetUrl() + path + (query != null ? "?" + query : ""));
+    }
+
+    public String requestUri(URI uri) {
+        return uri.getRawPath() + (uri.getRawQuery() != null ? "?" + uri.getRawQuery() : "");
+    }
+
+    /**
+     * Copies client headers onto an upstream request, dropping Host, Content-Length
+     * and hop-by-hop headers, and adds the gateway's proxy headers.
+     */
+    public void copyRequestHeaders(Map<String, String> headers, HttpHeaders out, URI uri,
+                                   String gatewayId, UUID routeId) {
+        headers.forEach((key, value) -> {
+            String lowerKey = key.toLowerCase();
+            if (!lowerKey.equals("host") &&
+                    !lowerKey.equals("content-length") &&
+                    !HOP_BY_HOP_HEADERS.contains(lowerKey)) {
+                out.set(key, value);
+            }
+        });
+
+        out.set(HttpHeaderNames.HOST, uri.getPort() != -1 ? uri.getHost() + ":" + uri.getPort() : uri.getHost());
+
+        // Add proxy headers
+        out.set("X-Forwarded-For", "gateway");
+        out.set("X-Gateway-ID", gatewayId);
+        out.set("X-Route-ID", routeId.toString());
+    }
+
+    public HttpHeaders filterResponseHeaders(HttpHeaders headers) {
+        HttpHeaders filtered = new DefaultHttpHeaders();
+        headers.forEach(entry -> {
+            if (!HOP_BY_HOP_HEADERS.contains(entry.getKey().toLowerCase())) {
+                filtered.add(entry.getKey(), entry.getValue());
+            }
+        });
+        return filtered;
+    }
+
+    public static boolean isHopByHopHeader(String name) {
+        return HOP_BY_HOP_HEADERS.contains(name.toLowerCase());
+    }
+
+    /**
+     * One request forwarded by {@link #forward}, over as many tries as its policy
+     * allows. Every try is a {@link Selection} of its own and is recorded or
+     * abandoned like one. All state is touched on the client's event loop only.
+     */
+    private final class Exchange {
+        final CompletableFuture<ProxyResult> result = new CompletableFuture<>();
+
+        private final EventLoop eventLoop;
+        private final UUID gatewayUuid;
+        private final String gatewayId;
+        private final String path;
+        private final String query;
+        private final String method;
+        private final Map<String, String> headers;
+        private final ByteBuf body;
+        private final SocketAddress client;
+        private final Route route;
+        private final List<RouteTarget> candidates;
+        // The first try's; holds the request's concurrency permit and cache lookup
+        private final Selection selection;
+        private final RetryPolicy policy;
+        private final boolean idempotent;
+        private final long deadline;
+
+        private final List<Attempt> attempts = new ArrayList<>(2);
+        private final List<RouteTarget> tried = new ArrayList<>(2);
+        private int inFlight;
+        private int retries;
+        private boolean hedged;
+        private ScheduledFuture<?> hedgeTimer;
+
+        Exchange(EventLoop eventLoop, UUID gatewayUuid, String gatewayId, String path, String query,
+                 String method, Map<String, String> headers, ByteBuf body, SocketAddress client,
+                 Selection selection) {
+            this.eventLoop = eventLoop;
+            this.gatewayUuid = gatewayUuid;
+            this.gatewayId = gatewayId;
+            this.path = path;
+            this.query = query;
+            this.method = method;
+            this.headers = headers;
+            this.body = body;
+            this.client = client;
+            this.route = selection.route;
+            this.candidates = selection.candidates;
+            this.selection = selection;
+            this.policy = retryService.policyFor(route);
+            this.idempotent = isIdempotent(method);
+            this.deadline = System.currentTimeMillis() + route.getTimeoutMs();
+        }
+
+        Attempt attempt(Selection selection, boolean hedge) {
+            // 7. Build target URL
+            return new Attempt(selection, targetUri(selection.target, path, query),
+                    !attempts.isEmpty(), hedge);
+        }
 
-            // Log async
-            logService.logAsync(gatewayUuid, route.getId(), target.getId(),
-                    method, path, httpResponse.statusCode(), (int) latency, null);
-
-            // Extract headers (filter out HTTP/2 pseudo-headers and hop-by-hop headers)
-            Map<String, String> responseHeaders = new HashMap<>();
-            httpResponse.headers().map().forEach((key, values) -> {
-                // Skip HTTP/2 pseudo-headers (start with :)
-                // Skip hop-by-hop headers that shouldn't be forwarded
-                if (!values.isEmpty() &&
-                        !key.startsWith(":") &&
-                        !key.equalsIgnoreCase("connection") &&
-                        !key.equalsIgnoreCase("keep-alive") &&
-                        !key.equalsIgnoreCase("transfer-encoding") &&
-                        !key.equalsIgnoreCase("upgrade") &&
-                        !key.equalsIgnoreCase("proxy-connection")) {
-                    responseHeaders.put(key, values.get(0));
+        FullHttpRequest buildRequest(URI uri) {
+            // 8. Forward request
+            FullHttpRequest request = new DefaultFullHttpRequest(
+                    HttpVersion.HTTP_1_1, HttpMethod.valueOf(method), requestUri(uri), body.retainedDuplicate());
+            copyRequestHeaders(headers, request.headers(), uri, gatewayId, route.getId());
+            request.headers().set(HttpHeaderNames.CONTENT_LENGTH, body.readableBytes());
+            if (selection.cacheLookup != null) {
+                responseCache.addValidators(selection.cacheLookup, headers::get, request.headers());
+            }
+            return request;
+        }
+
+        void start(Attempt attempt, FullHttpRequest request) {
+            retryService.getBudget().requestStarted();
+            send(attempt, request);
+
+            if (policy.isHedge() && idempotent && candidates.size() > 1 && !result.isDone()) {
+                long delay = retryService.hedgeDelayMs(route);
+                if (delay >= 0 && delay < deadline - System.currentTimeMillis()) {
+                    hedgeTimer = eventLoop.schedule(this::hedge, delay, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+
+        private void send(Attempt attempt, FullHttpRequest request) {
+            RouteTarget target = attempt.selection.target;
+            logger.info("Forwarding {} {} to {}{}", method, path, target.getTargetUrl(),
+                    attempt.hedge ? " (hedge)" : attempts.isEmpty() ? "" : " (retry " + retries + ")");
+
+            long remaining = Math.max(1, deadline - System.currentTimeMillis());
+            long timeoutMs = policy.getPerTryTimeoutMs() > 0
+                    ? Math.min(policy.getPerTryTimeoutMs(), remaining)
+                    : remaining;
+
+            attempts.add(attempt);
+            tried.add(target);
+            inFlight++;
+
+            attempt.future = upstreamClient.execute(eventLoop, target.getId(), attempt.uri, request, timeoutMs);
+            attempt.future.whenComplete((response, error) -> {
+                if (eventLoop.inEventLoop()) {
+                    onAttemptDone(attempt, response, error);
+                } else {
+                    eventLoop.execute(() -> onAttemptDone(attempt, response, error));
                 }
             });
+        }
 
-            logger.info("Proxied request completed: {} {} -> {} ({}ms)",
-                    method, path, httpResponse.statusCode(), latency);
+        private void onAttemptDone(Attempt attempt, FullHttpResponse response, Throwable error) {
+            inFlight--;
+            if (attempt.budgeted) {
+                retryService.getBudget().release();
+            }
 
-            return new ProxyResult(
-                    httpResponse.statusCode(),
-                    httpResponse.body(),
-                    responseHeaders
-            );
+            if (result.isDone()) {
+                // Another try answered first
+                release(response);
+                abandon(attempt.selection);
+                return;
+            }
 
-        } catch (Exception e) {
-            logger.error("Error forwarding to target: {}", target.getTargetUrl(), e);
+            long latency = System.currentTimeMillis() - attempt.startTime;
+            int statusCode = response != null ? response.status().code() : 502;
+            boolean retryable = error != null
+                    ? policy.retriesError(error, idempotent)
+                    : policy.retriesStatus(statusCode, idempotent);
+
+            if (retryable && inFlight > 0) {
+                // The other try's answer decides
+                recordOutcome(gatewayUuid, attempt.selection, method, path, statusCode, latency, error);
+                release(response);
+                return;
+            }
+
+            if (retryable) {
+                Selection next = nextTry();
+                if (next != null) {
+                    recordOutcome(gatewayUuid, attempt.selection, method, path, statusCode, latency, error);
+                    release(response);
+                    retries++;
+                    retryService.retried();
+
+                    long backoff = Math.min(retryService.backoffMs(retries),
+                            Math.max(0, deadline - System.currentTimeMillis() - 1));
+                    eventLoop.schedule(() -> retry(next), backoff, TimeUnit.MILLISECONDS);
+                    return;
+                }
+            }
+
+            finish(attempt, response, error, statusCode, latency);
+        }
 
-            // Increment failure count
+        /** The next target to retry on, with a budget slot taken, or null if the request may not be retried. */
+        private Selection nextTry() {
+            if (retries >= policy.getMaxRetries() || deadline - System.currentTimeMillis() <= 0) {
+                return null;
+            }
+            if (!retryService.tryAcquireRetry()) {
+                return null;
+            }
+
+            LoadBalancerService.Pick pick = loadBalancer.selectTarget(route, candidates, headers::get, path, client,
+                    tried);
+            if (pick == null) {
+                retryService.getBudget().release();
+                return null;
+            }
+            return new Selection(route, pick, candidates, null, null);
+        }
+
+        private void retry(Selection selection) {
+            if (deadline - System.currentTimeMillis() <= 0) {
+                abandon(selection);
+                retryService.getBudget().release();
+                complete(null, new TimeoutException("Upstream did not respond within " + route.getTimeoutMs() + "ms"));
+                return;
+            }
+
+            launch(selection, false);
+        }
+
+        private void hedge() {
+            hedgeTimer = null;
+            if (result.isDone() || hedged || inFlight == 0 || !retryService.tryAcquireRetry()) {
+                return;
+            }
+
+            LoadBalancerService.Pick pick = loadBalancer.selectTarget(route, candidates, headers::get, path, client,
+                    tried);
+            if (pick == null || tried.contains(pick.target)) {
+                if (pick != null) {
+                    loadBalancer.requestAbandoned(pick);
+                }
+                retryService.getBudget().release();
+                return;
+            }
+
+            hedged = true;
+            retryService.hedged();
+            launch(new Selection(route, pick, candidates, null, null), true);
+        }
+
+        private void launch(Selection selection, boolean hedge) {
+            Attempt attempt;
+            FullHttpRequest request;
             try {
-                targetRepo.incrementFailureCount(target.getId());
-            } catch (Exception ex) {
-                logger.error("Failed to increment failure count", ex);
+                attempt = attempt(selection, hedge);
+                request = buildRequest(attempt.uri);
+            } catch (RuntimeException e) {
+                abandon(selection);
+                retryService.getBudget().release();
+                if (inFlight == 0) {
+                    complete(null, e);
+                }
+                return;
             }
+            send(attempt, request);
+        }
 
-            long latency = System.currentTimeMillis() - startTime;
-            logService.logAsync(gatewayUuid, route.getId(), target.getId(),
-                    method, path, 502, (int) latency, e.getMessage());
+        private void finish(Attempt attempt, FullHttpResponse response, Throwable error,
+                            int statusCode, long latency) {
+            recordOutcome(gatewayUuid, attempt.selection, method, path, statusCode, latency, error);
 
-            throw e;
+            if (error == null) {
+                retryService.recordLatency(route, latency);
+                if (attempt.hedge) {
+                    retryService.hedgeWon();
+                }
+                HttpHeaders responseHeaders = filterResponseHeaders(response.headers());
+                ProxyResult answer = selection.cacheLookup != null
+                        ? responseCache.complete(selection.cacheLookup, statusCode, responseHeaders,
+                                response.content(), headers::get)
+                        : new ProxyResult(statusCode, responseHeaders, response.content());
+                addRateLimitHeaders(selection, answer.headers);
+                complete(answer, null);
+            } else {
+                complete(null, error);
+            }
+        }
+
+        private void complete(ProxyResult answer, Throwable error) {
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+                hedgeTimer = null;
+            }
+
+            releasePermit(selection, answer != null ? answer.statusCode : 502, error);
+            if (error != null) {
+                responseCache.fail(selection.cacheLookup, error);
+            } else {
+                responseCache.release(selection.cacheLookup);
+            }
+
+            if (error == null) {
+                result.complete(answer);
+            } else {
+                result.completeExceptionally(error instanceof CompletionException
+                        ? error
+                        : new CompletionException(error));
+            }
+
+            // Tries still out lost; they come back through onAttemptDone and are abandoned
+            for (Attempt other : attempts) {
+                if (!other.future.isDone()) {
+                    other.future.cancel(false);
+                }
+            }
+
+            body.release();
+            retryService.getBudget().requestFinished();
+        }
+
+        private void release(FullHttpResponse response) {
+            if (response != null) {
+                response.release();
+            }
+        }
+    }
+
+    private static final class Attempt {
+        final Selection selection;
+        final URI uri;
+        // Retries and hedges hold a slot of the retry budget while in flight
+        final boolean budgeted;
+        final boolean hedge;
+        final long startTime = System.currentTimeMillis();
+        CompletableFuture<FullHttpResponse> future;
+
+        Attempt(Selection selection, URI uri, boolean budgeted, boolean hedge) {
+            this.selection = selection;
+            this.uri = uri;
+            this.budgeted = budgeted;
+            this.hedge = hedge;
+        }
+    }
+
+    private static boolean isIdempotent(String method) {
+        switch (method) {
+            case "GET":
+            case "HEAD":
+            case "OPTIONS":
+            case "PUT":
+            case "DELETE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public static class Selection {
+        public final Route route;
+        public final RouteTarget target;
+        // The target with its circuit breaker permit; outcomes are reported with it
+        public final LoadBalancerService.Pick pick;
+        // The healthy targets the target was chosen from
+        public final List<RouteTarget> candidates;
+        // Concurrency slots of the request; null on retries and hedges, which share the first try's
+        public final ConcurrencyLimitService.Permit permit;
+        // Rate-limit outcome reported to the client; null if no limit applied, and on retries and hedges
+        public final RateLimitService.Decision rateLimit;
+        // Stale cache entry the request may revalidate, or where to store its response; null if not cached
+        public final ResponseCacheService.Lookup cacheLookup;
+        public final ProxyResult rejection;
+        // Answer from the response cache; no target was chosen
+        public final ProxyResult hit;
+        // Answer of the identical request this one waits for; no target was chosen
+        public final CompletableFuture<ProxyResult> flight;
+
+        public Selection(Route route, LoadBalancerService.Pick pick, List<RouteTarget> candidates,
+                         ConcurrencyLimitService.Permit permit, ProxyResult rejection) {
+            this(route, pick, candidates, permit, null, rejection);
+        }
+
+        public Selection(Route route, LoadBalancerService.Pick pick, List<RouteTarget> candidates,
+                         ConcurrencyLimitService.Permit permit, RateLimitService.Decision rateLimit,
+                         ProxyResult rejection) {
+            this(route, pick, candidates, permit, rateLimit, null, rejection);
+        }
+
+        public Selection(Route route, LoadBalancerService.Pick pick, List<RouteTarget> candidates,
+                         ConcurrencyLimitService.Permit permit, RateLimitService.Decision rateLimit,
+                         ResponseCacheService.Lookup cacheLookup, ProxyResult rejection) {
+            this(route, pick, candidates, permit, rateLimit, cacheLookup, rejection, null, null);
+        }
+
+        private Selection(Route route, LoadBalancerService.Pick pick, List<RouteTarget> candidates,
+                          ConcurrencyLimitService.Permit permit, RateLimitService.Decision rateLimit,
+                          ResponseCacheService.Lookup cacheLookup, ProxyResult rejection, ProxyResult hit,
+                          CompletableFuture<ProxyResult> flight) {
+            this.route = route;
+            this.target = pick != null ? pick.target : null;
+            this.pick = pick;
+            this.candidates = candidates;
+            this.permit = permit;
+            this.rateLimit = rateLimit;
+            this.cacheLookup = cacheLookup;
+            this.rejection = rejection;
+            this.hit = hit;
+            this.flight = flight;
+        }
+
+        public static Selection answered(Route route, RateLimitService.Decision rateLimit, ProxyResult hit) {
+            return new Selection(route, null, List.of(), null, rateLimit, null, null, hit, null);
+        }
+
+        public static Selection waiting(Route route, RateLimitService.Decision rateLimit,
+                                        CompletableFuture<ProxyResult> flight) {
+            return new Selection(route, null, List.of(), null, rateLimit, null, null, null, flight);
+        }
+
+        public static Selection rejected(int statusCode, String body) {
+            return rejected(statusCode, body, new DefaultHttpHeaders());
+        }
+
+        public static Selection rejected(int statusCode, String body, HttpHeaders headers) {
+            return new Selection(null, null, List.of(), null, new ProxyResult(statusCode, headers,
+                    Unpooled.copiedBuffer(body, StandardCharsets.UTF_8)));
         }
     }
 
     public static class ProxyResult {
         public final int statusCode;
-        public final String body;
-        public final Map<String, String> headers;
+        public final ByteBuf body;
+        public final HttpHeaders headers;
 
-        public ProxyResult(int statusCode, String body, Map<String, String> headers) {
+        public ProxyResult(int statusCode, HttpHeaders headers, ByteBuf body) {
             this.statusCode = statusCode;
             this.body = body;
             this.headers = headers;
         }
+
+        public ProxyResult(int statusCode, String body) {
+            this(statusCode, new DefaultHttpHeaders(), Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,467 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.domain.RateLimit;
+import com.gateway.domain.Route;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.repository.RateLimitRepository;
+import com.gateway.repository.RouteRepository;
+import com.gateway.routing.ConfigChange;
+import com.gateway.service.ratelimit.AllowanceLeaser;
+import com.gateway.service.ratelimit.AllowanceStore;
+import com.gateway.service.ratelimit.ClusterRateLimiter;
+import com.gateway.service.ratelimit.InMemoryAllowanceStore;
+import com.gateway.service.ratelimit.LimitKey;
+import com.gateway.service.ratelimit.LocalRateLimiter;
+import com.gateway.service.ratelimit.PostgresAllowanceStore;
+import com.gateway.service.ratelimit.RateLimiter;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.SocketAddress;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Request rate limits per gateway and per route, checked before a proxied
+ * request is forwarded.
+ *
+ * Limits are rows of {@code rate_limits}: a token bucket of {@code burst}
+ * tokens refilled at {@code requests} per {@code period_ms}, counted per client
+ * address, per value of a header such as an API key, or shared by everyone
+ * (see {@link LimitKey}). A request must pass every limit of its gateway and of
+ * its route; over any of them it gets 429 with {@code Retry-After}. Answers carry
+ * {@code X-RateLimit-*} headers for the tightest limit that applied.
+ *
+ * Configuration is kept in step like the route table: loaded at startup, then
+ * patched per {@link ConfigChange}. In {@code local} mode ({@code ratelimit.mode})
+ * bucket state lives in memory only and each node enforces its limits on its own
+ * traffic, so N nodes admit up to N times the limit. In {@code cluster} mode
+ * nodes lease tokens in batches from a shared {@link AllowanceStore} and admit
+ * requests from their leases, which keeps limits close to exact across the
+ * cluster without a round trip per request.
+ */
+public class RateLimitService {
+    private static final Logger logger = LoggerFactory.getLogger(RateLimitService.class);
+
+    private static final RateLimitService INSTANCE = new RateLimitService();
+
+    // Keeps period times burst, in nanoseconds, well inside a long
+    private static final int MAX_PERIOD_MS = 3_600_000;
+    private static final int MAX_BURST = 1_000_000;
+
+    private static final RateLimiter[] NONE = new RateLimiter[0];
+
+    private final boolean enabled;
+    private final int stripes;
+    private final int sweepIntervalMs;
+    private final int leasePercent;
+    private final long leaseIdleNanos;
+
+    // Null in local mode
+    private final AllowanceLeaser leaser;
+
+    private final RateLimitRepository rateLimitRepository = new RateLimitRepository();
+    private final RouteRepository routeRepository = new RouteRepository();
+
+    // Published snapshots, rebuilt on every change; arrays are never modified
+    private volatile Map<UUID, RateLimiter[]> gatewayLimits = Map.of();
+    private volatile Map<UUID, RateLimiter[]> routeLimits = Map.of();
+
+    // Source of the snapshots; guarded by lock
+    private final Map<UUID, RateLimiter> limiters = new HashMap<>();
+
+    // Not a monitor: updates query the database, and a virtual thread blocking inside
+    // synchronized pins its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // Bucket clock; starts at zero so that a new bucket (TAT 0) is full
+    private final long epoch = System.nanoTime();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rate-limit-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder rejected;
+    private final LongAdder swept;
+
+    private volatile boolean running = false;
+
+    private RateLimitService() {
+        this.enabled = AppConfig.getBoolean("ratelimit.enabled", true);
+        this.stripes = AppConfig.getInt("ratelimit.stripes", 64);
+        this.sweepIntervalMs = AppConfig.getInt("ratelimit.sweep.interval.ms", 10000);
+        this.leasePercent = AppConfig.getInt("ratelimit.cluster.lease.percent", 10);
+        this.leaseIdleNanos = TimeUnit.MILLISECONDS.toNanos(
+                AppConfig.getInt("ratelimit.cluster.lease.idle.ms", 5000));
+        this.leaser = "cluster".equalsIgnoreCase(AppConfig.get("ratelimit.mode", "local"))
+                ? new AllowanceLeaser(createStore(),
+                        AppConfig.getInt("ratelimit.cluster.lease.interval.ms", 50),
+                        AppConfig.getInt("ratelimit.cluster.batch.size", 5000),
+                        AppConfig.getInt("ratelimit.cluster.purge.interval.ms", 60000))
+                : null;
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.rejected = metrics.counter("ratelimit.rejected");
+        this.swept = metrics.counter("ratelimit.keys.swept");
+        metrics.gauge("ratelimit.limits", () -> snapshot().stream().mapToInt(limits -> limits.length).sum());
+        metrics.gauge("ratelimit.keys", this::countKeys);
+    }
+
+    public static RateLimitService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Counts a request to {@code routeId} of {@code gatewayId} against every limit
+     * that applies to it.
+     *
+     * @param headers request header lookup by lower-case name
+     * @return {@code null} if no limit applies, otherwise the outcome of the
+     *         tightest (or the first exceeded) limit
+     */
+    public Decision check(UUID gatewayId, UUID routeId, Function<String, String> headers, SocketAddress client) {
+        if (!enabled) {
+            return null;
+        }
+
+        RateLimiter[] gatewayWide = gatewayLimits.getOrDefault(gatewayId, NONE);
+        RateLimiter[] perRoute = routeLimits.getOrDefault(routeId, NONE);
+        if (gatewayWide.length == 0 && perRoute.length == 0) {
+            return null;
+        }
+
+        long now = now();
+        Decision tightest = check(gatewayWide, headers, client, now, null);
+        if (tightest != null && !tightest.allowed) {
+            return tightest;
+        }
+        return check(perRoute, headers, client, now, tightest);
+    }
+
+    private Decision check(RateLimiter[] limits, Function<String, String> headers, SocketAddress client,
+                           long now, Decision tightest) {
+        for (RateLimiter limiter : limits) {
+            long result = limiter.tryAcquire(headers, client, now);
+            if (result < 0) {
+                rejected.increment();
+                logger.debug("Rate limit {} exceeded", limiter.getConfig().getId());
+                return new Decision(false, limiter.getConfig().getRequests(), 0,
+                        limiter.resetNanos(result), -result);
+            }
+
+            long remaining = limiter.remaining(result);
+            if (tightest == null || remaining < tightest.remaining) {
+                tightest = new Decision(true, limiter.getConfig().getRequests(), remaining,
+                        limiter.resetNanos(result), 0);
+            }
+        }
+        return tightest;
+    }
+
+    // Management
+
+    public RateLimit createLimit(UUID gatewayId, UUID routeId, String limitKey, Integer requests,
+                                 Integer periodMs, Integer burst) throws SQLException {
+        if (requests == null || requests <= 0) {
+            throw new IllegalArgumentException("Requests must be a positive number");
+        }
+
+        int period = periodMs != null ? periodMs : 1000;
+        if (period <= 0 || period > MAX_PERIOD_MS) {
+            throw new IllegalArgumentException("Period must be between 1 and " + MAX_PERIOD_MS + " ms");
+        }
+
+        int capacity = burst != null ? burst : requests;
+        if (capacity <= 0 || capacity > MAX_BURST) {
+            throw new IllegalArgumentException("Burst must be between 1 and " + MAX_BURST);
+        }
+
+        if (routeId != null) {
+            Optional<Route> route = routeRepository.findById(routeId);
+            if (route.isEmpty() || !route.get().getGatewayId().equals(gatewayId)) {
+                throw new IllegalArgumentException("Route does not belong to this gateway");
+            }
+        }
+
+        // Normalized
+        String key = LimitKey.parse(limitKey).toString();
+
+        RateLimit limit = rateLimitRepository.create(gatewayId, routeId, key, requests, period, capacity);
+        applyQuietly(new ConfigChange(ConfigChange.Table.RATE_LIMITS, ConfigChange.Op.INSERT,
+                limit.getId(), gatewayId));
+        return limit;
+    }
+
+    public List<RateLimit> getGatewayLimits(UUID gatewayId) throws SQLException {
+        return rateLimitRepository.findByGatewayId(gatewayId);
+    }
+
+    public Optional<RateLimit> getLimit(UUID id) throws SQLException {
+        return rateLimitRepository.findById(id);
+    }
+
+    public boolean deleteLimit(UUID id) throws SQLException {
+        boolean deleted = rateLimitRepository.delete(id);
+        if (deleted) {
+            applyQuietly(new ConfigChange(ConfigChange.Table.RATE_LIMITS, ConfigChange.Op.DELETE, id, null));
+        }
+        return deleted;
+    }
+
+    // Configuration sync
+
+    /**
+     * Reloads all limits. Limiters of rows that haven't changed keep their buckets.
+     */
+    public void reload() throws SQLException {
+        lock.lock();
+        try {
+            reloadLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reloadLocked() throws SQLException {
+        Map<UUID, RateLimiter> reloaded = new HashMap<>();
+        for (RateLimit limit : rateLimitRepository.findAll()) {
+            RateLimiter existing = limiters.get(limit.getId());
+            reloaded.put(limit.getId(), existing != null && existing.isCurrent(limit)
+                    ? existing
+                    : create(limit));
+        }
+
+        limiters.clear();
+        limiters.putAll(reloaded);
+        publish();
+
+        logger.info("Rate limits loaded: {}", limiters.size());
+    }
+
+    /**
+     * Applies one changed {@code rate_limits} row, or drops the limits of a
+     * deleted gateway or route.
+     */
+    public void apply(ConfigChange change) throws SQLException {
+        lock.lock();
+        try {
+            applyLocked(change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyLocked(ConfigChange change) throws SQLException {
+        switch (change.getTable()) {
+            case RATE_LIMITS -> {
+                Optional<RateLimit> current = change.getOp() == ConfigChange.Op.DELETE
+                        ? Optional.empty()
+                        : rateLimitRepository.findById(change.getId());
+
+                if (current.isPresent()) {
+                    RateLimiter existing = limiters.get(change.getId());
+                    if (existing == null || !existing.isCurrent(current.get())) {
+                        limiters.put(change.getId(), create(current.get()));
+                    }
+                } else {
+                    limiters.remove(change.getId());
+                }
+            }
+            case ROUTES -> {
+                if (change.getOp() == ConfigChange.Op.DELETE) {
+                    limiters.values().removeIf(limiter -> change.getId().equals(limiter.getConfig().getRouteId()));
+                }
+            }
+            case GATEWAYS -> {
+                if (change.getOp() == ConfigChange.Op.DELETE) {
+                    limiters.values().removeIf(limiter -> change.getId().equals(limiter.getConfig().getGatewayId()));
+                }
+            }
+            default -> {
+                return;
+            }
+        }
+
+        publish();
+        logger.debug("Applied {} -> {} rate limits", change, limiters.size());
+    }
+
+    /**
+     * {@link #apply(ConfigChange)} for callers that have already committed the
+     * change. Falls back to a full reload; if that fails too the previous limits
+     * stay in place until the next successful update.
+     */
+    public void applyQuietly(ConfigChange change) {
+        try {
+            apply(change);
+        } catch (Exception e) {
+            logger.warn("Failed to apply {}, reloading rate limits", change, e);
+            try {
+                reload();
+            } catch (Exception ex) {
+                logger.error("Failed to reload rate limits, keeping the current ones", ex);
+            }
+        }
+    }
+
+    public void removeRoute(UUID routeId) {
+        applyQuietly(new ConfigChange(ConfigChange.Table.ROUTES, ConfigChange.Op.DELETE, routeId, null));
+    }
+
+    public void removeGateway(UUID gatewayId) {
+        applyQuietly(new ConfigChange(ConfigChange.Table.GATEWAYS, ConfigChange.Op.DELETE, gatewayId, null));
+    }
+
+    private RateLimiter create(RateLimit limit) {
+        return leaser != null
+                ? new ClusterRateLimiter(limit, leaser, stripes, leasePercent, leaseIdleNanos)
+                : new LocalRateLimiter(limit, stripes);
+    }
+
+    private static AllowanceStore createStore() {
+        String store = AppConfig.get("ratelimit.cluster.store", "postgres");
+        if ("memory".equalsIgnoreCase(store)) {
+            return new InMemoryAllowanceStore();
+        }
+        return new PostgresAllowanceStore();
+    }
+
+    private void publish() {
+        Map<UUID, List<RateLimiter>> byGateway = new HashMap<>();
+        Map<UUID, List<RateLimiter>> byRoute = new HashMap<>();
+        for (RateLimiter limiter : limiters.values()) {
+            RateLimit config = limiter.getConfig();
+            if (config.getRouteId() == null) {
+                byGateway.computeIfAbsent(config.getGatewayId(), id -> new ArrayList<>()).add(limiter);
+            } else {
+                byRoute.computeIfAbsent(config.getRouteId(), id -> new ArrayList<>()).add(limiter);
+            }
+        }
+
+        gatewayLimits = toArrays(byGateway);
+        routeLimits = toArrays(byRoute);
+    }
+
+    private static Map<UUID, RateLimiter[]> toArrays(Map<UUID, List<RateLimiter>> grouped) {
+        Map<UUID, RateLimiter[]> arrays = new HashMap<>();
+        grouped.forEach((id, list) -> arrays.put(id, list.toArray(NONE)));
+        return arrays;
+    }
+
+    // Sweeping
+
+    public void start() {
+        if (!enabled || running) {
+            return;
+        }
+
+        running = true;
+
+        scheduler.scheduleWithFixedDelay(this::sweep, sweepIntervalMs, sweepIntervalMs, TimeUnit.MILLISECONDS);
+        if (leaser != null) {
+            leaser.start();
+        }
+
+        logger.info("Rate limit service started ({} mode, {} stripes per limit, sweep every {}ms)",
+                leaser != null ? "cluster" : "local", stripes, sweepIntervalMs);
+    }
+
+    public void stop() {
+        if (!running) {
+            return;
+        }
+
+        running = false;
+        scheduler.shutdownNow();
+        if (leaser != null) {
+            leaser.stop();
+        }
+
+        logger.info("Rate limit service stopped");
+    }
+
+    private void sweep() {
+        try {
+            int removed = 0;
+            for (RateLimiter[] limits : snapshot()) {
+                for (RateLimiter limiter : limits) {
+                    removed += limiter.sweep(now());
+                }
+            }
+            swept.add(removed);
+        } catch (Exception e) {
+            logger.error("Error sweeping rate limit buckets", e);
+        }
+    }
+
+    private long countKeys() {
+        long keys = 0;
+        for (RateLimiter[] limits : snapshot()) {
+            for (RateLimiter limiter : limits) {
+                keys += limiter.size();
+            }
+        }
+        return keys;
+    }
+
+    private List<RateLimiter[]> snapshot() {
+        List<RateLimiter[]> all = new ArrayList<>(gatewayLimits.values());
+        all.addAll(routeLimits.values());
+        return all;
+    }
+
+    private long now() {
+        return System.nanoTime() - epoch;
+    }
+
+    /** Outcome of a rate-limit check, as reported to the client. */
+    public static final class Decision {
+        public final boolean allowed;
+        public final int limit;
+        public final long remaining;
+        private final long resetNanos;
+        private final long retryAfterNanos;
+
+        private Decision(boolean allowed, int limit, long remaining, long resetNanos, long retryAfterNanos) {
+            this.allowed = allowed;
+            this.limit = limit;
+            this.remaining = remaining;
+            this.resetNanos = resetNanos;
+            this.retryAfterNanos = retryAfterNanos;
+        }
+
+        /**
+         * Sets {@code X-RateLimit-Limit}, {@code X-RateLimit-Remaining} and
+         * {@code X-RateLimit-Reset} (seconds until the allowance is full again),
+         * plus {@code Retry-After} if the request was rejected.
+         */
+        public void addHeaders(HttpHeaders headers) {
+            headers.set("X-RateLimit-Limit", limit);
+            headers.set("X-RateLimit-Remaining", remaining);
+            headers.set("X-RateLimit-Reset", toSeconds(resetNanos));
+            if (!allowed) {
+                headers.set(HttpHeaderNames.RETRY_AFTER, Math.max(1, toSeconds(retryAfterNanos)));
+            }
+        }
+
+        private static long toSeconds(long nanos) {
+            return (nanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        }
+    }
+}
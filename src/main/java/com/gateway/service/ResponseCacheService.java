@@ -0,0 +1,431 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.domain.Route;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.routing.ConfigChange;
+import com.gateway.routing.ConfigChange.Op;
+import com.gateway.routing.ConfigChange.Table;
+import com.gateway.service.ProxyService.ProxyResult;
+import com.gateway.service.cache.CachePolicy;
+import com.gateway.service.cache.CachedResponse;
+import com.gateway.service.cache.ResponseCache;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Answers GET requests of routes with a {@link CachePolicy} from a
+ * {@link ResponseCache} of this node, without a backend. Lookups happen on the
+ * event loop after rate limiting; a fresh entry is the answer, a stale one
+ * with validators turns the forwarded request into a conditional one.
+ *
+ * A request that misses while an identical one is already on its way to a
+ * backend waits for that one instead of sending its own (single-flight); the
+ * answer is fanned out as retained duplicates of the same buffer. Answers that
+ * may not be shared - private, setting cookies, another variant - send the
+ * waiters on to the backend after all.
+ *
+ * Policies are parsed once per version of a route, the same way
+ * {@link RetryService} parses retry policies. Purges go to every node through
+ * the config change feed.
+ */
+public class ResponseCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCacheService.class);
+
+    private static final ResponseCacheService INSTANCE = new ResponseCacheService();
+
+    private static final String X_CACHE = "X-Cache";
+
+    private final boolean enabled;
+    private final ResponseCache cache;
+    private final ConcurrentHashMap<UUID, RoutePolicy> policies = new ConcurrentHashMap<>();
+    private final boolean coalesce;
+    private final int maxWaiters;
+    // Requests on their way to a backend, by cache key
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+    private final LongAdder revalidated;
+    private final LongAdder stored;
+    private final LongAdder purged;
+    private final LongAdder coalesced;
+    private final LongAdder redispatched;
+    private final LongAdder waitersOverflow;
+
+    private ResponseCacheService() {
+        this.enabled = AppConfig.getBoolean("cache.enabled", true);
+        this.coalesce = AppConfig.getBoolean("cache.coalesce.enabled", true);
+        this.maxWaiters = AppConfig.getInt("cache.coalesce.max.waiters", 1000);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.cache = new ResponseCache(
+                AppConfig.getInt("cache.max.size.mb", 64) * 1024L * 1024L,
+                AppConfig.getInt("cache.shards", 16),
+                AppConfig.getInt("cache.max.entry.kb", 1024) * 1024,
+                metrics.counter("cache.evictions"));
+        this.hits = metrics.counter("cache.hits");
+        this.misses = metrics.counter("cache.misses");
+        this.revalidated = metrics.counter("cache.revalidated");
+        this.stored = metrics.counter("cache.stored");
+        this.purged = metrics.counter("cache.purged");
+        this.coalesced = metrics.counter("cache.coalesced");
+        this.redispatched = metrics.counter("cache.coalesce.redispatched");
+        this.waitersOverflow = metrics.counter("cache.coalesce.overflow");
+        metrics.gauge("cache.bytes", cache::bytes);
+        metrics.gauge("cache.entries", cache::size);
+        metrics.gauge("cache.flights", flights::size);
+    }
+
+    public static ResponseCacheService getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Looks a request up in the cache.
+     *
+     * @param headers request header lookup by lower-case name
+     * @return {@code null} if the route doesn't cache or the request may not
+     *         use the cache; otherwise a lookup to {@link #hit answer} if
+     *         {@link Lookup#isFresh fresh}, or to {@link #complete} with the
+     *         backend's response
+     */
+    public Lookup lookup(Route route, String method, String path, String query,
+                         Function<String, String> headers) {
+        if (!enabled || !ResponseCache.isCacheable(method, headers)) {
+            return null;
+        }
+        CachePolicy policy = policyFor(route);
+        if (!policy.isEnabled()) {
+            return null;
+        }
+
+        String key = ResponseCache.key(route.getGatewayId(), route.getId(), method, path, query);
+        CachedResponse entry = cache.find(key, headers);
+        boolean fresh = entry != null && ResponseCache.isFresh(entry, headers, System.currentTimeMillis());
+        if (!fresh) {
+            misses.increment();
+        }
+        return new Lookup(route, policy, key, entry, fresh);
+    }
+
+    /** Builds the answer for a fresh lookup; a 304 if the client's validators match. */
+    public ProxyResult hit(Lookup lookup, Function<String, String> headers) {
+        CachedResponse entry = lookup.entry;
+        lookup.entry = null;
+        hits.increment();
+
+        HttpHeaders out = answerHeaders(entry, "HIT");
+        if (ResponseCache.isNotModified(entry, headers)) {
+            entry.release();
+            out.remove(HttpHeaderNames.CONTENT_LENGTH);
+            return new ProxyResult(304, out, Unpooled.EMPTY_BUFFER);
+        }
+        return new ProxyResult(entry.getStatusCode(), out, entry.getBody().duplicate());
+    }
+
+    /**
+     * Joins the identical request already on its way to a backend, if there is
+     * one with room for another waiter; otherwise, if there is none, makes
+     * this request the one others wait for.
+     *
+     * @return the shared answer to wait for, which completes with {@code null}
+     *         if this request has to go to the backend after all; {@code null}
+     *         to forward the request now
+     */
+    public CompletableFuture<ProxyResult> join(Lookup lookup, Function<String, String> headers) {
+        if (!coalesce) {
+            return null;
+        }
+
+        while (true) {
+            Flight flight = flights.get(lookup.key);
+            if (flight == null) {
+                Flight mine = new Flight(lookup.key, headers);
+                if (flights.putIfAbsent(lookup.key, mine) == null) {
+                    lookup.flight = mine;
+                    return null;
+                }
+                continue;
+            }
+
+            CompletableFuture<ProxyResult> waiter = new CompletableFuture<>();
+            synchronized (flight) {
+                if (flight.landed) {
+                    // Gone from the map by now
+                    continue;
+                }
+                if (flight.waiters.size() >= maxWaiters) {
+                    waitersOverflow.increment();
+                    return null;
+                }
+                flight.waiters.add(new Waiter(waiter, headers));
+            }
+            release(lookup);
+            return waiter;
+        }
+    }
+
+    /** Makes the upstream request for a stale lookup conditional, where possible. */
+    public void addValidators(Lookup lookup, Function<String, String> clientHeaders, HttpHeaders out) {
+        if (lookup.entry != null) {
+            lookup.revalidating = ResponseCache.addValidators(lookup.entry, clientHeaders, out);
+        }
+    }
+
+    /**
+     * Takes the backend's response to a request that was looked up: stores it,
+     * or on a 304 to a revalidation answers with the refreshed entry.
+     *
+     * @param headers response headers to send, hop-by-hop headers removed
+     * @param content response body; ownership passes to this method
+     * @return the answer for the client, which owns its body
+     */
+    public ProxyResult complete(Lookup lookup, int statusCode, HttpHeaders headers, ByteBuf content,
+                                Function<String, String> requestHeaders) {
+        long now = System.currentTimeMillis();
+        CachedResponse stale = lookup.entry;
+        lookup.entry = null;
+
+        ProxyResult answer;
+        if (statusCode == 304 && lookup.revalidating && stale != null) {
+            content.release();
+            revalidated.increment();
+            CachedResponse refreshed = cache.refresh(stale, lookup.policy, headers, now);
+            answer = new ProxyResult(refreshed.getStatusCode(), answerHeaders(refreshed, "REVALIDATED"),
+                    stale.getBody().duplicate());
+        } else {
+            if (stale != null) {
+                stale.release();
+            }
+            Route route = lookup.route;
+            if (cache.store(lookup.key, route.getGatewayId(), route.getId(), lookup.policy,
+                    statusCode, headers, content, requestHeaders, now)) {
+                stored.increment();
+            }
+            headers.set(X_CACHE, "MISS");
+            answer = new ProxyResult(statusCode, headers, content);
+        }
+
+        land(lookup, answer, null);
+        return answer;
+    }
+
+    /**
+     * Drops what a lookup holds, for requests that ended without {@link #hit}
+     * or {@link #complete}. Requests waiting for this one go to the backend
+     * themselves.
+     */
+    public void release(Lookup lookup) {
+        if (lookup == null) {
+            return;
+        }
+        if (lookup.entry != null) {
+            lookup.entry.release();
+            lookup.entry = null;
+        }
+        land(lookup, null, null);
+    }
+
+    /** Like {@link #release}, for a request whose exchange failed; its waiters fail the same way. */
+    public void fail(Lookup lookup, Throwable error) {
+        if (lookup == null) {
+            return;
+        }
+        land(lookup, null, error);
+        release(lookup);
+    }
+
+    /**
+     * Purges a route's responses, or a whole gateway's if {@code routeId} is
+     * {@code null}, on this node right away and on the others through the
+     * config change feed.
+     *
+     * @return number of entries purged on this node
+     */
+    public int purge(UUID gatewayId, UUID routeId) throws SQLException {
+        int removed = routeId != null ? purgeRoute(routeId) : purgeGateway(gatewayId);
+        ConfigChangeListener.getInstance().publish(routeId != null
+                ? new ConfigChange(Table.RESPONSE_CACHE, Op.DELETE, routeId, gatewayId)
+                : new ConfigChange(Table.RESPONSE_CACHE, Op.DELETE, gatewayId, null));
+        return removed;
+    }
+
+    /** Applies a purge announced by another node (or echoed back from our own). */
+    public void apply(ConfigChange change) {
+        if (change.getTable() != Table.RESPONSE_CACHE) {
+            return;
+        }
+        int removed = change.getParentId() != null
+                ? purgeRoute(change.getId())
+                : purgeGateway(change.getId());
+        logger.debug("Purged {} cached responses for {}", removed, change);
+    }
+
+    public int purgeRoute(UUID routeId) {
+        return count(cache.removeIf(entry -> entry.getRouteId().equals(routeId)));
+    }
+
+    public int purgeGateway(UUID gatewayId) {
+        return count(cache.removeIf(entry -> entry.getGatewayId().equals(gatewayId)));
+    }
+
+    /** Drops everything, e.g. after purges may have been missed. */
+    public void clear() {
+        int removed = count(cache.removeIf(entry -> true));
+        if (removed > 0) {
+            logger.info("Cleared {} cached responses", removed);
+        }
+    }
+
+    public void removeRoute(UUID routeId) {
+        policies.remove(routeId);
+        purgeRoute(routeId);
+    }
+
+    // Hands the leader's outcome to everyone waiting for it
+    private void land(Lookup lookup, ProxyResult answer, Throwable error) {
+        Flight flight = lookup.flight;
+        if (flight == null) {
+            return;
+        }
+        lookup.flight = null;
+        flights.remove(flight.key, flight);
+
+        List<Waiter> waiters;
+        synchronized (flight) {
+            flight.landed = true;
+            waiters = flight.waiters;
+        }
+
+        // A 304 or 206 answers what the leader alone asked for
+        boolean shareable = answer != null && answer.statusCode != 304 && answer.statusCode != 206
+                && ResponseCache.isShareable(answer.headers);
+
+        for (Waiter waiter : waiters) {
+            if (error != null) {
+                waiter.future.completeExceptionally(error);
+            } else if (!shareable || !ResponseCache.sameVariant(answer.headers, flight.headers, waiter.headers)) {
+                redispatched.increment();
+                waiter.future.complete(null);
+            } else {
+                HttpHeaders headers = new DefaultHttpHeaders().add(answer.headers);
+                headers.set(X_CACHE, "COALESCED");
+                ProxyResult shared = new ProxyResult(answer.statusCode, headers, answer.body.retainedDuplicate());
+                if (waiter.future.complete(shared)) {
+                    coalesced.increment();
+                } else {
+                    // The waiter timed out
+                    shared.body.release();
+                }
+            }
+        }
+    }
+
+    private int count(int removed) {
+        purged.add(removed);
+        return removed;
+    }
+
+    private HttpHeaders answerHeaders(CachedResponse entry, String cacheStatus) {
+        HttpHeaders out = new DefaultHttpHeaders().add(entry.getHeaders());
+        out.set(HttpHeaderNames.AGE, entry.ageSeconds(System.currentTimeMillis()));
+        out.set(X_CACHE, cacheStatus);
+        return out;
+    }
+
+    private CachePolicy policyFor(Route route) {
+        RoutePolicy current = policies.get(route.getId());
+        if (current != null && current.route == route) {
+            return current.policy;
+        }
+
+        CachePolicy policy;
+        try {
+            policy = CachePolicy.parse(route.getCachePolicy());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Route {}: {}, not caching", route.getId(), e.getMessage());
+            policy = CachePolicy.NONE;
+        }
+
+        policies.put(route.getId(), new RoutePolicy(route, policy));
+        return policy;
+    }
+
+    private static final class RoutePolicy {
+        final Route route;
+        final CachePolicy policy;
+
+        RoutePolicy(Route route, CachePolicy policy) {
+            this.route = route;
+            this.policy = policy;
+        }
+    }
+
+    private static final class Flight {
+        final String key;
+        // The leader's request headers, for Vary
+        final Function<String, String> headers;
+        // Guarded by the flight
+        final List<Waiter> waiters = new ArrayList<>();
+        boolean landed;
+
+        Flight(String key, Function<String, String> headers) {
+            this.key = key;
+            this.headers = headers;
+        }
+    }
+
+    private static final class Waiter {
+        final CompletableFuture<ProxyResult> future;
+        final Function<String, String> headers;
+
+        Waiter(CompletableFuture<ProxyResult> future, Function<String, String> headers) {
+            this.future = future;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * A request's cache lookup. Holds a reference to the entry found, if any,
+     * and the flight others may be waiting on, until the request is answered.
+     * Touched on the request's event loop only.
+     */
+    public static final class Lookup {
+        private final Route route;
+        private final CachePolicy policy;
+        private final String key;
+        private final boolean fresh;
+        private CachedResponse entry;
+        // Whether the upstream request carries the entry's validators
+        private boolean revalidating;
+        // Set if this request leads a flight
+        private Flight flight;
+
+        Lookup(Route route, CachePolicy policy, String key, CachedResponse entry, boolean fresh) {
+            this.route = route;
+            this.policy = policy;
+            this.key = key;
+            this.entry = entry;
+            this.fresh = fresh;
+        }
+
+        public boolean isFresh() {
+            return fresh;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.gateway.service;
+
+import com.gateway.config.AppConfig;
+import com.gateway.domain.Route;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.service.retry.LatencyPercentile;
+import com.gateway.service.retry.RetryBudget;
+import com.gateway.service.retry.RetryPolicy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-route {@link RetryPolicy} and hedging delay, and the {@link RetryBudget}
+ * shared by all routes of this node.
+ *
+ * Policies are parsed once per version of a route, the same way
+ * {@link LoadBalancerService} builds its strategies. The hedging delay is the
+ * route's recent p95 latency, so roughly one request in twenty is hedged.
+ */
+public class RetryService {
+    private static final Logger logger = LoggerFactory.getLogger(RetryService.class);
+
+    private static final RetryService INSTANCE = new RetryService();
+
+    private final ConcurrentHashMap<UUID, RouteRetries> routes = new ConcurrentHashMap<>();
+
+    private final RetryBudget budget;
+    private final int backoffBaseMs;
+    private final int backoffMaxMs;
+    private final int hedgeMinDelayMs;
+    private final int hedgeMinSamples;
+
+    private final LongAdder retries;
+    private final LongAdder hedges;
+    private final LongAdder hedgesWon;
+    private final LongAdder budgetExhausted;
+
+    private RetryService() {
+        this.budget = new RetryBudget(
+                AppConfig.getInt("retry.budget.percent", 20),
+                AppConfig.getInt("retry.budget.min.concurrency", 3));
+        this.backoffBaseMs = AppConfig.getInt("retry.backoff.base.ms", 25);
+        this.backoffMaxMs = AppConfig.getInt("retry.backoff.max.ms", 250);
+        this.hedgeMinDelayMs = AppConfig.getInt("retry.hedge.min.delay.ms", 5);
+        this.hedgeMinSamples = AppConfig.getInt("retry.hedge.min.samples", 20);
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.retries = metrics.counter("proxy.retries");
+        this.hedges = metrics.counter("proxy.hedges");
+        this.hedgesWon = metrics.counter("proxy.hedges.won");
+        this.budgetExhausted = metrics.counter("proxy.retries.budget_exhausted");
+        metrics.gauge("proxy.retries.active", budget::getActiveRetries);
+    }
+
+    public static RetryService getInstance() {
+        return INSTANCE;
+    }
+
+    public RetryPolicy policyFor(Route route) {
+        return retriesFor(route).policy;
+    }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    /** Takes a retry slot from the budget, counting a refusal. */
+    public boolean tryAcquireRetry() {
+        if (budget.tryAcquire()) {
+            return true;
+        }
+        budgetExhausted.increment();
+        return false;
+    }
+
+    /** How long to wait before a hedge, or -1 while the route's latency is unknown. */
+    public long hedgeDelayMs(Route route) {
+        int p95 = retriesFor(route).latencies.get();
+        return p95 < 0 ? -1 : Math.max(hedgeMinDelayMs, p95);
+    }
+
+    /** Full-jitter exponential backoff before retry number {@code retry} (from 1). */
+    public long backoffMs(int retry) {
+        long cap = Math.min(backoffMaxMs, (long) backoffBaseMs << Math.min(retry - 1, 16));
+        return cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    }
+
+    /** Latency of a request's answer, for the hedging delay. */
+    public void recordLatency(Route route, long latencyMs) {
+        retriesFor(route).latencies.record(latencyMs);
+    }
+
+    public void retried() {
+        retries.increment();
+    }
+
+    public void hedged() {
+        hedges.increment();
+    }
+
+    public void hedgeWon() {
+        hedgesWon.increment();
+    }
+
+    public void removeRoute(UUID routeId) {
+        routes.remove(routeId);
+    }
+
+    private RouteRetries retriesFor(Route route) {
+        RouteRetries current = routes.get(route.getId());
+        if (current != null && current.route == route) {
+            return current;
+        }
+
+        RetryPolicy policy;
+        try {
+            policy = RetryPolicy.parse(route.getRetryPolicy());
+        } catch (IllegalArgumentException e) {
+            logger.warn("Route {}: {}, not retrying", route.getId(), e.getMessage());
+            policy = RetryPolicy.NONE;
+        }
+
+        // Latency history belongs to the route, not to one version of it
+        LatencyPercentile latencies = current != null
+                ? current.latencies
+                : new LatencyPercentile(0.95, hedgeMinSamples);
+        RouteRetries updated = new RouteRetries(route, policy, latencies);
+        routes.put(route.getId(), updated);
+        return updated;
+    }
+
+    private static final class RouteRetries {
+        final Route route;
+        final RetryPolicy policy;
+        final LatencyPercentile latencies;
+
+        RouteRetries(Route route, RetryPolicy policy, LatencyPercentile latencies) {
+            this.route = route;
+            this.policy = policy;
+            this.latencies = latencies;
+        }
+    }
+}
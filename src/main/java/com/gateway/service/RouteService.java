@@ -4,6 +4,13 @@ import com.gateway.domain.Route;
 import com.gateway.domain.RouteTarget;
 import com.gateway.repository.RouteRepository;
 import com.gateway.repository.TargetRepository;
+import com.gateway.routing.ConfigChange;
+import com.gateway.routing.ConfigChange.Op;
+import com.gateway.routing.ConfigChange.Table;
+import com.gateway.service.loadbalancer.HashKey;
+import com.gateway.service.loadbalancer.LoadBalancingAlgorithm;
+import com.gateway.service.cache.CachePolicy;
+import com.gateway.service.retry.RetryPolicy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -14,15 +21,27 @@ import java.util.UUID;
 
 public class RouteService {
     private static final Logger logger = LoggerFactory.getLogger(RouteService.class);
+
+    private static final RouteService INSTANCE = new RouteService();
+
     private final RouteRepository routeRepository = new RouteRepository();
     private final TargetRepository targetRepository = new TargetRepository();
+    private final RouteTableService routeTable = RouteTableService.getInstance();
 
     private static final List<String> VALID_METHODS = List.of(
             "GET", "POST", "PUT", "DELETE", "PATCH", "HEAD", "OPTIONS"
     );
 
-    public Route createRoute(UUID gatewayId, String path, String method, Integer timeoutMs)
-            throws SQLException {
+    private RouteService() {
+    }
+
+    public static RouteService getInstance() {
+        return INSTANCE;
+    }
+
+    public Route createRoute(UUID gatewayId, String path, String method, Integer timeoutMs,
+                             String lbStrategy, String lbHashKey, String retryPolicy,
+                             String cachePolicy) throws SQLException {
 
         // Validate inputs
         if (path == null || path.isBlank()) {
@@ -39,7 +58,20 @@ public class RouteService {
 
         int timeout = (timeoutMs != null && timeoutMs > 0) ? timeoutMs : 30000;
 
-        return routeRepository.create(gatewayId, path, method.toUpperCase(), timeout);
+        LoadBalancingAlgorithm algorithm = lbStrategy != null
+                ? LoadBalancingAlgorithm.fromName(lbStrategy)
+                : LoadBalancingAlgorithm.DEFAULT;
+
+        // Normalized; only hashing strategies read it
+        String hashKey = lbHashKey != null ? HashKey.parse(lbHashKey).toString() : null;
+
+        String retries = retryPolicy != null ? RetryPolicy.parse(retryPolicy).toJson() : null;
+        String caching = cachePolicy != null ? CachePolicy.parse(cachePolicy).toJson() : null;
+
+        Route route = routeRepository.create(gatewayId, path, method.toUpperCase(), timeout,
+                algorithm.getName(), hashKey, retries, caching);
+        routeTable.applyQuietly(new ConfigChange(Table.ROUTES, Op.INSERT, route.getId(), gatewayId));
+        return route;
     }
 
     public List<Route> getGatewayRoutes(UUID gatewayId) throws SQLException {
@@ -65,9 +97,15 @@ public class RouteService {
             targetUrl = targetUrl.substring(0, targetUrl.length() - 1);
         }
 
+        if (weight != null && weight > RouteTarget.MAX_WEIGHT) {
+            throw new IllegalArgumentException("Weight must be between 1 and " + RouteTarget.MAX_WEIGHT);
+        }
+
         int targetWeight = (weight != null && weight > 0) ? weight : 1;
 
-        return targetRepository.create(routeId, targetUrl, targetWeight);
+        RouteTarget target = targetRepository.create(routeId, targetUrl, targetWeight);
+        routeTable.applyQuietly(new ConfigChange(Table.ROUTE_TARGETS, Op.INSERT, target.getId(), routeId));
+        return target;
     }
 
     public List<RouteTarget> getRouteTargets(UUID routeId) throws SQLException {
@@ -75,14 +113,24 @@ public class RouteService {
     }
 
     public boolean deleteRoute(UUID routeId) throws SQLException {
-        return routeRepository.delete(routeId);
+        boolean deleted = routeRepository.delete(routeId);
+        if (deleted) {
+            routeTable.applyQuietly(new ConfigChange(Table.ROUTES, Op.DELETE, routeId, null));
+        }
+        return deleted;
     }
 
     public boolean deleteTarget(UUID targetId) throws SQLException {
-        return targetRepository.delete(targetId);
+        boolean deleted = targetRepository.delete(targetId);
+        if (deleted) {
+            routeTable.applyQuietly(new ConfigChange(Table.ROUTE_TARGETS, Op.DELETE, targetId, null));
+        }
+        return deleted;
     }
 
     public boolean toggleTargetActive(UUID targetId) throws SQLException {
-        return targetRepository.toggleActive(targetId);
+        boolean isActive = targetRepository.toggleActive(targetId);
+        routeTable.applyQuietly(new ConfigChange(Table.ROUTE_TARGETS, Op.UPDATE, targetId, null));
+        return isActive;
     }
 }
\ No newline at end of file
@@ -0,0 +1,270 @@
+package com.gateway.service;
+
+import com.gateway.domain.Route;
+import com.gateway.domain.RouteTarget;
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.netty.upstream.UpstreamClient;
+import com.gateway.repository.RouteRepository;
+import com.gateway.repository.TargetRepository;
+import com.gateway.routing.ConfigChange;
+import com.gateway.routing.RouteEntry;
+import com.gateway.routing.RouteTable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Owns the {@link RouteTable} the proxy path matches against.
+ *
+ * The table is loaded in full at startup (and whenever the change feed
+ * reconnects) and then patched one {@link ConfigChange} at a time: the changed
+ * row is re-read by primary key and only its gateway is recompiled. Changes made
+ * through this node are applied right after the write; changes made anywhere
+ * arrive through {@link ConfigChangeListener}. Applying the same change twice is
+ * harmless.
+ *
+ * Readers only ever see a complete table: every update compiles a new snapshot
+ * off to the side and swaps it in with a single volatile write.
+ */
+public class RouteTableService {
+    private static final Logger logger = LoggerFactory.getLogger(RouteTableService.class);
+
+    private static final RouteTableService INSTANCE = new RouteTableService();
+
+    private final RouteRepository routeRepository = new RouteRepository();
+    private final TargetRepository targetRepository = new TargetRepository();
+
+    private volatile RouteTable table = RouteTable.empty();
+
+    // Source rows of the current table; guarded by lock
+    private final Map<UUID, Route> routes = new HashMap<>();
+    private final Map<UUID, RouteTarget> targets = new HashMap<>();
+
+    // Not a monitor: updates query the database, and a virtual thread blocking inside
+    // synchronized pins its carrier thread
+    private final ReentrantLock lock = new ReentrantLock();
+    private long version;
+
+    private RouteTableService() {
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        metrics.gauge("routing.table.routes", () -> table.getRouteCount());
+        metrics.gauge("routing.table.version", () -> table.getVersion());
+    }
+
+    public static RouteTableService getInstance() {
+        return INSTANCE;
+    }
+
+    public RouteTable current() {
+        return table;
+    }
+
+    public RouteEntry match(UUID gatewayId, String path, String method) {
+        return table.match(gatewayId, path, method);
+    }
+
+    /**
+     * Reloads all routes and targets and swaps in a freshly compiled table.
+     */
+    public void rebuild() throws SQLException {
+        lock.lock();
+        try {
+            rebuildLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void rebuildLocked() throws SQLException {
+        long start = System.currentTimeMillis();
+
+        List<Route> allRoutes = routeRepository.findAll();
+        List<RouteTarget> allTargets = targetRepository.findAll();
+
+        Map<UUID, Route> newRoutes = new HashMap<>();
+        allRoutes.forEach(route -> newRoutes.put(route.getId(), route));
+        Map<UUID, RouteTarget> newTargets = new HashMap<>();
+        allTargets.forEach(target -> newTargets.put(target.getId(), target));
+
+        // Anything deleted while we weren't listening
+        routes.keySet().stream().filter(id -> !newRoutes.containsKey(id)).forEach(this::forgetRoute);
+        targets.keySet().stream().filter(id -> !newTargets.containsKey(id)).forEach(this::forgetTarget);
+
+        routes.clear();
+        routes.putAll(newRoutes);
+        targets.clear();
+        targets.putAll(newTargets);
+
+        table = RouteTable.build(allRoutes, allTargets, ++version);
+
+        logger.info("Route table v{} built: {} routes, {} targets ({}ms)",
+                version, allRoutes.size(), allTargets.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Patches the table for one changed row.
+     */
+    public void apply(ConfigChange change) throws SQLException {
+        lock.lock();
+        try {
+            applyLocked(change);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void applyLocked(ConfigChange change) throws SQLException {
+        Set<UUID> affectedGateways = new HashSet<>();
+
+        switch (change.getTable()) {
+            case ROUTES -> applyRouteChange(change, affectedGateways);
+            case ROUTE_TARGETS -> applyTargetChange(change, affectedGateways);
+            case GATEWAYS -> applyGatewayChange(change, affectedGateways);
+        }
+
+        for (UUID gatewayId : affectedGateways) {
+            recompile(gatewayId);
+        }
+
+        logger.debug("Applied {} -> route table v{}", change, table.getVersion());
+    }
+
+    /**
+     * {@link #apply(ConfigChange)} for callers that have already committed the
+     * change and can't do anything useful about a failure. Falls back to a full
+     * rebuild; if that fails too the previous table stays in place until the
+     * next successful update.
+     */
+    public void applyQuietly(ConfigChange change) {
+        try {
+            apply(change);
+        } catch (Exception e) {
+            logger.warn("Failed to apply {}, rebuilding route table", change, e);
+            try {
+                rebuild();
+            } catch (Exception ex) {
+                logger.error("Failed to rebuild route table, keeping v{}", table.getVersion(), ex);
+            }
+        }
+    }
+
+    private void applyRouteChange(ConfigChange change, Set<UUID> affectedGateways) throws SQLException {
+        Route previous = routes.get(change.getId());
+        if (previous != null) {
+            affectedGateways.add(previous.getGatewayId());
+        } else if (change.getParentId() != null) {
+            affectedGateways.add(change.getParentId());
+        }
+
+        Optional<Route> current = change.getOp() == ConfigChange.Op.DELETE
+                ? Optional.empty()
+                : routeRepository.findById(change.getId());
+
+        if (current.isPresent()) {
+            routes.put(change.getId(), current.get());
+            affectedGateways.add(current.get().getGatewayId());
+        } else {
+            if (routes.remove(change.getId()) != null) {
+                forgetRoute(change.getId());
+            }
+            // Targets go with the route (ON DELETE CASCADE)
+            removeTargets(target -> target.getRouteId().equals(change.getId()));
+        }
+    }
+
+    private void applyTargetChange(ConfigChange change, Set<UUID> affectedGateways) throws SQLException {
+        RouteTarget previous = targets.get(change.getId());
+        if (previous != null) {
+            addGatewayOf(previous.getRouteId(), affectedGateways);
+        } else if (change.getParentId() != null) {
+            addGatewayOf(change.getParentId(), affectedGateways);
+        }
+
+        Optional<RouteTarget> current = change.getOp() == ConfigChange.Op.DELETE
+                ? Optional.empty()
+                : targetRepository.findById(change.getId());
+
+        if (current.isPresent()) {
+            // Kept even if its route isn't known yet; the route's own change will pick it up
+            targets.put(change.getId(), current.get());
+            addGatewayOf(current.get().getRouteId(), affectedGateways);
+        } else {
+            removeTargets(target -> target.getId().equals(change.getId()));
+        }
+    }
+
+    private void applyGatewayChange(ConfigChange change, Set<UUID> affectedGateways) {
+        if (change.getOp() != ConfigChange.Op.DELETE) {
+            return;
+        }
+
+        Set<UUID> routeIds = routes.values().stream()
+                .filter(route -> route.getGatewayId().equals(change.getId()))
+                .map(Route::getId)
+                .collect(Collectors.toSet());
+
+        routes.keySet().removeAll(routeIds);
+        routeIds.forEach(this::forgetRoute);
+        removeTargets(target -> routeIds.contains(target.getRouteId()));
+        ConcurrencyLimitService.getInstance().removeGateway(change.getId());
+        RateLimitService.getInstance().removeGateway(change.getId());
+        affectedGateways.add(change.getId());
+    }
+
+    private void addGatewayOf(UUID routeId, Set<UUID> affectedGateways) {
+        Route route = routes.get(routeId);
+        if (route != null) {
+            affectedGateways.add(route.getGatewayId());
+        }
+    }
+
+    private void removeTargets(Predicate<RouteTarget> filter) {
+        targets.values().removeIf(target -> {
+            if (filter.test(target)) {
+                forgetTarget(target.getId());
+                return true;
+            }
+            return false;
+        });
+    }
+
+    // Per-route and per-target state kept outside the table
+    private void forgetRoute(UUID routeId) {
+        LoadBalancerService.getInstance().removeRoute(routeId);
+        RetryService.getInstance().removeRoute(routeId);
+        ConcurrencyLimitService.getInstance().removeRoute(routeId);
+        RateLimitService.getInstance().removeRoute(routeId);
+        ResponseCacheService.getInstance().removeRoute(routeId);
+    }
+
+    private void forgetTarget(UUID targetId) {
+        UpstreamClient.getInstance().removePool(targetId);
+        LoadBalancerService.getInstance().removeTarget(targetId);
+        CircuitBreakerService.getInstance().remove(targetId);
+        OutlierDetectionService.getInstance().remove(targetId);
+    }
+
+    private void recompile(UUID gatewayId) {
+        List<Route> gatewayRoutes = routes.values().stream()
+                .filter(route -> route.getGatewayId().equals(gatewayId))
+                .toList();
+
+        Set<UUID> routeIds = gatewayRoutes.stream().map(Route::getId).collect(Collectors.toSet());
+        List<RouteTarget> gatewayTargets = targets.values().stream()
+                .filter(target -> routeIds.contains(target.getRouteId()))
+                .toList();
+
+        table = table.withGateway(gatewayId, gatewayRoutes, gatewayTargets, ++version);
+    }
+}
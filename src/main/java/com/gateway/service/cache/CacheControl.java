@@ -0,0 +1,76 @@
+package com.gateway.service.cache;
+
+import java.util.Locale;
+
+/**
+ * The {@code Cache-Control} directives a shared cache acts on, from either a
+ * request or a response. Unknown directives are ignored.
+ */
+final class CacheControl {
+
+    static final CacheControl EMPTY = new CacheControl();
+
+    boolean noStore;
+    boolean noCache;
+    boolean isPrivate;
+    // -1 when absent
+    long maxAge = -1;
+    long sMaxAge = -1;
+
+    private CacheControl() {
+    }
+
+    static CacheControl parse(String value) {
+        if (value == null || value.isEmpty()) {
+            return EMPTY;
+        }
+
+        CacheControl cc = new CacheControl();
+        for (String directive : value.split(",")) {
+            String name = directive;
+            String argument = null;
+            int eq = directive.indexOf('=');
+            if (eq >= 0) {
+                name = directive.substring(0, eq);
+                argument = directive.substring(eq + 1).trim();
+                if (argument.length() >= 2 && argument.startsWith("\"") && argument.endsWith("\"")) {
+                    argument = argument.substring(1, argument.length() - 1);
+                }
+            }
+
+            switch (name.trim().toLowerCase(Locale.ROOT)) {
+                case "no-store":
+                    cc.noStore = true;
+                    break;
+                case "no-cache":
+                    // A field-name list limits no-cache to those headers; treating it as a whole is stricter
+                    cc.noCache = true;
+                    break;
+                case "private":
+                    cc.isPrivate = true;
+                    break;
+                case "max-age":
+                    cc.maxAge = seconds(argument);
+                    break;
+                case "s-maxage":
+                    cc.sMaxAge = seconds(argument);
+                    break;
+                default:
+                    break;
+            }
+        }
+        return cc;
+    }
+
+    // An invalid delta counts as already stale
+    private static long seconds(String argument) {
+        if (argument == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(argument));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.gateway.service.cache;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * Whether and how long a route's responses are cached, as stored in
+ * {@code routes.cache_policy}:
+ * <pre>
+ * {
+ *   "enabled": true,
+ *   "ttl_seconds": 60
+ * }
+ * </pre>
+ * Without {@code ttl_seconds} a response stays fresh as long as its
+ * {@code Cache-Control} or {@code Expires} header says; with it, the route's
+ * TTL replaces whatever the backend announced. Responses the backend marks
+ * {@code no-store} or {@code private} are never cached either way.
+ */
+public final class CachePolicy {
+
+    /** Caching off: every request goes to a backend. */
+    public static final CachePolicy NONE = new CachePolicy(false, -1);
+
+    static final int MAX_TTL_SECONDS = 86_400;
+
+    private final boolean enabled;
+    // -1 when the response's own headers decide
+    private final int ttlSeconds;
+
+    private CachePolicy(boolean enabled, int ttlSeconds) {
+        this.enabled = enabled;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * @param json policy as above; {@code null} means {@link #NONE}. An omitted
+     *             {@code enabled} means true.
+     * @throws IllegalArgumentException if the policy is malformed
+     */
+    public static CachePolicy parse(String json) {
+        if (json == null || json.isBlank()) {
+            return NONE;
+        }
+
+        JsonObject obj;
+        try {
+            obj = JsonParser.parseString(json).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Cache policy must be a JSON object");
+        }
+
+        try {
+            boolean enabled = !obj.has("enabled") || obj.get("enabled").getAsBoolean();
+
+            int ttlSeconds = -1;
+            if (obj.has("ttl_seconds") && !obj.get("ttl_seconds").isJsonNull()) {
+                ttlSeconds = obj.get("ttl_seconds").getAsInt();
+                if (ttlSeconds < 0 || ttlSeconds > MAX_TTL_SECONDS) {
+                    throw new IllegalArgumentException("ttl_seconds must be between 0 and " + MAX_TTL_SECONDS);
+                }
+            }
+
+            return new CachePolicy(enabled, ttlSeconds);
+        } catch (IllegalStateException | ClassCastException | UnsupportedOperationException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cache policy: " + e.getMessage());
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean hasTtl() {
+        return ttlSeconds >= 0;
+    }
+
+    public int getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    /** The policy in its stored form, with defaults filled in. */
+    public String toJson() {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("enabled", enabled);
+        if (hasTtl()) {
+            obj.addProperty("ttl_seconds", ttlSeconds);
+        }
+        return obj.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,142 @@
+package com.gateway.service.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A stored response, or a Vary marker: the entry kept under a request's
+ * primary key when the backend varies its answer by request headers. A marker
+ * has no body; it names the headers that pick the variant.
+ *
+ * Entries are immutable. The store holds one reference to the body and drops
+ * it on eviction; readers get a reference of their own from
+ * {@link ResponseStore#get}.
+ */
+public final class CachedResponse {
+    // Rough per-entry bookkeeping cost, so that many small entries still count
+    private static final int OVERHEAD_BYTES = 256;
+
+    private final String key;
+    private final UUID gatewayId;
+    private final UUID routeId;
+    private final int statusCode;
+    private final HttpHeaders headers;
+    // Direct buffer; null for a Vary marker
+    private final ByteBuf body;
+    // Lower-case request header names, sorted; null if the response doesn't vary
+    private final String[] vary;
+    // When the response was generated, in ms, i.e. arrival minus its Age
+    private final long storedAt;
+    private final long expiresAt;
+    private final String etag;
+    private final String lastModified;
+    private final long size;
+
+    public CachedResponse(String key, UUID gatewayId, UUID routeId, int statusCode, HttpHeaders headers,
+                          ByteBuf body, String[] vary, long storedAt, long expiresAt,
+                          String etag, String lastModified) {
+        this.key = key;
+        this.gatewayId = gatewayId;
+        this.routeId = routeId;
+        this.statusCode = statusCode;
+        this.headers = headers;
+        this.body = body;
+        this.vary = vary;
+        this.storedAt = storedAt;
+        this.expiresAt = expiresAt;
+        this.etag = etag;
+        this.lastModified = lastModified;
+        this.size = estimateSize(key, headers, body);
+    }
+
+    public static CachedResponse varyMarker(String key, UUID gatewayId, UUID routeId, String[] vary) {
+        return new CachedResponse(key, gatewayId, routeId, 0, null, null, vary, 0, Long.MAX_VALUE, null, null);
+    }
+
+    public boolean isVaryMarker() {
+        return body == null;
+    }
+
+    public boolean isFresh(long now) {
+        return now < expiresAt;
+    }
+
+    public boolean hasValidators() {
+        return etag != null || lastModified != null;
+    }
+
+    public long ageSeconds(long now) {
+        return Math.max(0, (now - storedAt) / 1000);
+    }
+
+    /** Drops one reference to the body, if this is not a marker. */
+    public void release() {
+        if (body != null) {
+            body.release();
+        }
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public UUID getGatewayId() {
+        return gatewayId;
+    }
+
+    public UUID getRouteId() {
+        return routeId;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public ByteBuf getBody() {
+        return body;
+    }
+
+    public String[] getVary() {
+        return vary;
+    }
+
+    public long getStoredAt() {
+        return storedAt;
+    }
+
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    private static long estimateSize(String key, HttpHeaders headers, ByteBuf body) {
+        long size = OVERHEAD_BYTES + 2L * key.length();
+        if (headers != null) {
+            for (Map.Entry<String, String> header : headers) {
+                size += 2L * (header.getKey().length() + header.getValue().length());
+            }
+        }
+        if (body != null) {
+            size += body.capacity();
+        }
+        return size;
+    }
+}
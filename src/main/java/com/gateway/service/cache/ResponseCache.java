@@ -0,0 +1,353 @@
+package com.gateway.service.cache;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultHttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Shared HTTP cache semantics on top of a {@link ResponseStore}: what may be
+ * stored, for how long, which stored response answers a request, and how a
+ * stale one is revalidated.
+ *
+ * Only GET requests without credentials take part. A response is stored if
+ * its status is cacheable by default, it isn't {@code no-store},
+ * {@code private} or setting cookies, and it is either fresh for a while
+ * ({@code s-maxage}, {@code max-age} or {@code Expires}, unless the route's
+ * {@link CachePolicy} sets a TTL) or carries a validator to revalidate it
+ * with. Stale entries are never served without asking the backend.
+ *
+ * A response with {@code Vary} is stored under a variant key built from the
+ * named request headers, and a {@link CachedResponse#varyMarker marker} under
+ * the request's own key says which headers those are.
+ */
+public final class ResponseCache {
+
+    // Statuses a shared cache may store without explicit freshness (RFC 9110 section 15.1)
+    private static final Set<Integer> CACHEABLE_STATUSES = Set.of(200, 203, 204, 300, 301, 308, 404, 405, 410, 414, 501);
+
+    private static final String[] VARY_ANY = {"*"};
+
+    private final ResponseStore store;
+    private final int maxEntryBytes;
+    private final LongAdder evictions;
+
+    public ResponseCache(long maxBytes, int shards, int maxEntryBytes, LongAdder evictions) {
+        this.store = new ResponseStore(maxBytes, shards);
+        this.maxEntryBytes = maxEntryBytes;
+        this.evictions = evictions;
+    }
+
+    /** Primary key of a request: everything but the headers it may vary by. */
+    public static String key(UUID gatewayId, UUID routeId, String method, String path, String query) {
+        return gatewayId + "|" + routeId + "|" + method + " " + path + (query != null ? "?" + query : "");
+    }
+
+    /**
+     * Whether a request may be answered from the cache and its response stored.
+     *
+     * @param headers request header lookup by lower-case name
+     */
+    public static boolean isCacheable(String method, Function<String, String> headers) {
+        if (!"GET".equals(method) || headers.apply("authorization") != null) {
+            return false;
+        }
+        return !CacheControl.parse(headers.apply("cache-control")).noStore;
+    }
+
+    /**
+     * The entry stored for a request, following a Vary marker to the variant
+     * the request's headers select.
+     *
+     * @return the entry, with a reference to its body for the caller, or {@code null}
+     */
+    public CachedResponse find(String key, Function<String, String> headers) {
+        CachedResponse entry = store.get(key);
+        if (entry != null && entry.isVaryMarker()) {
+            entry = store.get(variantKey(key, entry.getVary(), headers));
+        }
+        return entry;
+    }
+
+    /** Whether {@code entry} may answer a request without asking the backend. */
+    public static boolean isFresh(CachedResponse entry, Function<String, String> headers, long now) {
+        if (!entry.isFresh(now)) {
+            return false;
+        }
+
+        String cacheControl = headers.apply("cache-control");
+        if (cacheControl == null) {
+            return !"no-cache".equalsIgnoreCase(headers.apply("pragma"));
+        }
+        CacheControl cc = CacheControl.parse(cacheControl);
+        return !cc.noCache && (cc.maxAge < 0 || now - entry.getStoredAt() < cc.maxAge * 1000);
+    }
+
+    /** Whether the client's own validators match {@code entry}, so a 304 will do. */
+    public static boolean isNotModified(CachedResponse entry, Function<String, String> headers) {
+        if (entry.getStatusCode() != 200) {
+            return false;
+        }
+
+        String ifNoneMatch = headers.apply("if-none-match");
+        if (ifNoneMatch != null) {
+            return entry.getEtag() != null && matches(ifNoneMatch, entry.getEtag());
+        }
+
+        String ifModifiedSince = headers.apply("if-modified-since");
+        if (ifModifiedSince != null && entry.getLastModified() != null) {
+            Date since = DateFormatter.parseHttpDate(ifModifiedSince);
+            Date modified = DateFormatter.parseHttpDate(entry.getLastModified());
+            return since != null && modified != null && !modified.after(since);
+        }
+        return false;
+    }
+
+    /**
+     * Makes an upstream request conditional on {@code entry}'s validators,
+     * unless the client sent validators of its own.
+     *
+     * @return whether a 304 to this request refers to {@code entry}
+     */
+    public static boolean addValidators(CachedResponse entry, Function<String, String> clientHeaders,
+                                        HttpHeaders out) {
+        if (!entry.hasValidators()
+                || clientHeaders.apply("if-none-match") != null
+                || clientHeaders.apply("if-modified-since") != null) {
+            return false;
+        }
+
+        if (entry.getEtag() != null) {
+            out.set(HttpHeaderNames.IF_NONE_MATCH, entry.getEtag());
+        }
+        if (entry.getLastModified() != null) {
+            out.set(HttpHeaderNames.IF_MODIFIED_SINCE, entry.getLastModified());
+        }
+        return true;
+    }
+
+    /**
+     * Whether a response to one client may be handed to others that asked the
+     * same at the same time: the same rules as for storing it, freshness aside.
+     */
+    public static boolean isShareable(HttpHeaders headers) {
+        CacheControl cc = CacheControl.parse(headers.get(HttpHeaderNames.CACHE_CONTROL));
+        return !cc.noStore && !cc.isPrivate
+                && !headers.contains(HttpHeaderNames.SET_COOKIE)
+                && varyNames(headers.getAll(HttpHeaderNames.VARY)) != VARY_ANY;
+    }
+
+    /** Whether two requests select the same variant of a response, by its {@code Vary} header. */
+    public static boolean sameVariant(HttpHeaders response, Function<String, String> a, Function<String, String> b) {
+        String[] vary = varyNames(response.getAll(HttpHeaderNames.VARY));
+        if (vary == null) {
+            return true;
+        }
+        for (String name : vary) {
+            if (!Objects.equals(a.apply(name), b.apply(name))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Stores a copy of a backend response, if it may be cached. {@code content}
+     * is only read.
+     *
+     * @param headers        response headers, hop-by-hop headers removed
+     * @param requestHeaders request header lookup by lower-case name, for Vary
+     * @return whether the response was stored
+     */
+    public boolean store(String key, UUID gatewayId, UUID routeId, CachePolicy policy, int statusCode,
+                         HttpHeaders headers, ByteBuf content, Function<String, String> requestHeaders, long now) {
+        int length = content.readableBytes();
+        if (!CACHEABLE_STATUSES.contains(statusCode) || length > maxEntryBytes) {
+            return false;
+        }
+
+        CacheControl cc = CacheControl.parse(headers.get(HttpHeaderNames.CACHE_CONTROL));
+        if (cc.noStore || cc.isPrivate || headers.contains(HttpHeaderNames.SET_COOKIE)) {
+            return false;
+        }
+
+        String[] vary = varyNames(headers.getAll(HttpHeaderNames.VARY));
+        if (vary == VARY_ANY) {
+            return false;
+        }
+
+        String etag = headers.get(HttpHeaderNames.ETAG);
+        String lastModified = headers.get(HttpHeaderNames.LAST_MODIFIED);
+        long lifetime = lifetimeMs(policy, cc, headers, now);
+        if (lifetime <= 0 && etag == null && lastModified == null) {
+            return false;
+        }
+
+        long storedAt = now - initialAgeSeconds(headers) * 1000;
+        HttpHeaders stored = new DefaultHttpHeaders().add(headers);
+        stored.remove(HttpHeaderNames.AGE);
+
+        // Off the heap, and sized exactly; the pooled buffer it came in goes back to the pool
+        ByteBuf body = Unpooled.directBuffer(length, length).writeBytes(content, content.readerIndex(), length);
+
+        if (vary == null) {
+            put(new CachedResponse(key, gatewayId, routeId, statusCode, stored, body, null,
+                    storedAt, storedAt + lifetime, etag, lastModified));
+        } else {
+            put(CachedResponse.varyMarker(key, gatewayId, routeId, vary));
+            put(new CachedResponse(variantKey(key, vary, requestHeaders), gatewayId, routeId, statusCode,
+                    stored, body, vary, storedAt, storedAt + lifetime, etag, lastModified));
+        }
+        return true;
+    }
+
+    /**
+     * Applies a 304 the backend sent for a revalidation of {@code stale}:
+     * headers it carries replace the stored ones and freshness starts over.
+     * The caller keeps its reference to the body, which the refreshed entry shares.
+     *
+     * @return the refreshed entry
+     */
+    public CachedResponse refresh(CachedResponse stale, CachePolicy policy, HttpHeaders notModified, long now) {
+        HttpHeaders merged = new DefaultHttpHeaders().add(stale.getHeaders());
+        for (String name : notModified.names()) {
+            if (!HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(name)) {
+                merged.set(name, notModified.getAll(name));
+            }
+        }
+        merged.remove(HttpHeaderNames.AGE);
+
+        CacheControl cc = CacheControl.parse(merged.get(HttpHeaderNames.CACHE_CONTROL));
+        long storedAt = now - initialAgeSeconds(notModified) * 1000;
+        CachedResponse refreshed = new CachedResponse(stale.getKey(), stale.getGatewayId(), stale.getRouteId(),
+                stale.getStatusCode(), merged, stale.getBody(), stale.getVary(),
+                storedAt, storedAt + lifetimeMs(policy, cc, merged, now),
+                merged.get(HttpHeaderNames.ETAG), merged.get(HttpHeaderNames.LAST_MODIFIED));
+
+        if (cc.noStore || cc.isPrivate) {
+            store.remove(stale.getKey());
+        } else {
+            stale.getBody().retain();
+            put(refreshed);
+        }
+        return refreshed;
+    }
+
+    /** @return number of entries removed */
+    public int removeIf(Predicate<CachedResponse> filter) {
+        return store.removeIf(filter);
+    }
+
+    public long bytes() {
+        return store.bytes();
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    private void put(CachedResponse entry) {
+        int evicted = store.put(entry);
+        if (evicted > 0) {
+            evictions.add(evicted);
+        }
+    }
+
+    private static long lifetimeMs(CachePolicy policy, CacheControl cc, HttpHeaders headers, long now) {
+        if (policy.hasTtl()) {
+            return policy.getTtlSeconds() * 1000L;
+        }
+        if (cc.noCache) {
+            return 0;
+        }
+        if (cc.sMaxAge >= 0) {
+            return cc.sMaxAge * 1000;
+        }
+        if (cc.maxAge >= 0) {
+            return cc.maxAge * 1000;
+        }
+
+        String expires = headers.get(HttpHeaderNames.EXPIRES);
+        if (expires == null) {
+            return 0;
+        }
+        // An invalid date, e.g. "0", means already expired
+        Date expiresAt = DateFormatter.parseHttpDate(expires);
+        if (expiresAt == null) {
+            return 0;
+        }
+        Date date = DateFormatter.parseHttpDate(headers.get(HttpHeaderNames.DATE, ""));
+        return Math.max(0, expiresAt.getTime() - (date != null ? date.getTime() : now));
+    }
+
+    private static long initialAgeSeconds(HttpHeaders headers) {
+        String age = headers.get(HttpHeaderNames.AGE);
+        if (age == null) {
+            return 0;
+        }
+        try {
+            return Math.max(0, Long.parseLong(age.trim()));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    // Lower-case, sorted and de-duplicated; null for none, VARY_ANY for "*"
+    private static String[] varyNames(List<String> values) {
+        if (values.isEmpty()) {
+            return null;
+        }
+
+        TreeSet<String> names = new TreeSet<>();
+        for (String value : values) {
+            for (String name : value.split(",")) {
+                String trimmed = name.trim().toLowerCase(Locale.ROOT);
+                if (trimmed.equals("*")) {
+                    return VARY_ANY;
+                }
+                if (!trimmed.isEmpty()) {
+                    names.add(trimmed);
+                }
+            }
+        }
+        return names.isEmpty() ? null : names.toArray(new String[0]);
+    }
+
+    private static String variantKey(String key, String[] vary, Function<String, String> headers) {
+        StringBuilder variant = new StringBuilder(key);
+        for (String name : vary) {
+            // Header values cannot contain line breaks, so the parts cannot run into each other
+            String value = headers.apply(name);
+            variant.append('\n').append(name).append(':').append(value != null ? value : "");
+        }
+        return variant.toString();
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        String opaque = opaqueTag(etag);
+        return Arrays.stream(ifNoneMatch.split(","))
+                .anyMatch(candidate -> opaqueTag(candidate.trim()).equals(opaque));
+    }
+
+    // If-None-Match compares weakly: W/"x" matches "x"
+    private static String opaqueTag(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
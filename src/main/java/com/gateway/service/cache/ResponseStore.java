@@ -0,0 +1,217 @@
+package com.gateway.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Cached responses bounded by their total size, evicted as a segmented LRU.
+ *
+ * New entries go to a probation segment and only move to the protected
+ * segment when they are read again; the protected segment may fill at most
+ * {@value #PROTECTED_PERCENT}% of the budget and demotes its least recently
+ * used entries back to probation. Eviction takes from the cold end of
+ * probation first, so a burst of one-off responses cannot push out the ones
+ * that are actually being hit.
+ *
+ * Keys are spread over independently locked shards, each with an equal part
+ * of the budget; lock hold times are a few map operations.
+ */
+public final class ResponseStore {
+
+    static final int PROTECTED_PERCENT = 80;
+
+    private final Shard[] shards;
+    private final int mask;
+
+    /**
+     * @param maxBytes budget across all shards
+     * @param shards   rounded up to a power of two
+     */
+    public ResponseStore(long maxBytes, int shards) {
+        int size = Integer.highestOneBit(Math.max(1, shards - 1)) << 1;
+        this.shards = new Shard[size];
+        for (int i = 0; i < size; i++) {
+            this.shards[i] = new Shard(maxBytes / size);
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * @return the entry, with a reference to its body taken for the caller,
+     *         or {@code null}
+     */
+    public CachedResponse get(String key) {
+        return shardFor(key).get(key);
+    }
+
+    /**
+     * Adds or replaces an entry; the store takes over the caller's reference
+     * to its body.
+     *
+     * @return number of entries evicted to make room, or -1 if the entry is
+     *         larger than a shard and was dropped
+     */
+    public int put(CachedResponse entry) {
+        return shardFor(entry.getKey()).put(entry);
+    }
+
+    public void remove(String key) {
+        shardFor(key).removeKey(key);
+    }
+
+    /** @return number of entries removed */
+    public int removeIf(Predicate<CachedResponse> filter) {
+        int removed = 0;
+        for (Shard shard : shards) {
+            removed += shard.removeIf(filter);
+        }
+        return removed;
+    }
+
+    public long bytes() {
+        long bytes = 0;
+        for (Shard shard : shards) {
+            bytes += shard.bytes();
+        }
+        return bytes;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    private Shard shardFor(String key) {
+        int h = key.hashCode();
+        return shards[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static final class Shard {
+        private final long capacity;
+        private final long protectedCapacity;
+
+        // Both in LRU-first order
+        private final LinkedHashMap<String, CachedResponse> probation = new LinkedHashMap<>();
+        private final LinkedHashMap<String, CachedResponse> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+        private long probationBytes;
+        private long protectedBytes;
+
+        Shard(long capacity) {
+            this.capacity = capacity;
+            this.protectedCapacity = capacity * PROTECTED_PERCENT / 100;
+        }
+
+        synchronized CachedResponse get(String key) {
+            CachedResponse entry = protectedSegment.get(key);
+            if (entry == null) {
+                entry = probation.remove(key);
+                if (entry == null) {
+                    return null;
+                }
+                probationBytes -= entry.getSize();
+                protectedSegment.put(key, entry);
+                protectedBytes += entry.getSize();
+                demote();
+            }
+
+            if (entry.getBody() != null) {
+                entry.getBody().retain();
+            }
+            return entry;
+        }
+
+        synchronized int put(CachedResponse entry) {
+            remove(entry.getKey());
+            if (entry.getSize() > capacity) {
+                entry.release();
+                return -1;
+            }
+
+            probation.put(entry.getKey(), entry);
+            probationBytes += entry.getSize();
+
+            int evicted = 0;
+            while (probationBytes + protectedBytes > capacity) {
+                Map<String, CachedResponse> victims = probation.size() > 1 || protectedSegment.isEmpty()
+                        ? probation : protectedSegment;
+                Iterator<CachedResponse> lru = victims.values().iterator();
+                CachedResponse victim = lru.next();
+                lru.remove();
+                if (victims == probation) {
+                    probationBytes -= victim.getSize();
+                } else {
+                    protectedBytes -= victim.getSize();
+                }
+                victim.release();
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized void removeKey(String key) {
+            remove(key);
+        }
+
+        synchronized int removeIf(Predicate<CachedResponse> filter) {
+            int removed = 0;
+            for (Iterator<CachedResponse> it = probation.values().iterator(); it.hasNext(); ) {
+                CachedResponse entry = it.next();
+                if (filter.test(entry)) {
+                    it.remove();
+                    probationBytes -= entry.getSize();
+                    entry.release();
+                    removed++;
+                }
+            }
+            for (Iterator<CachedResponse> it = protectedSegment.values().iterator(); it.hasNext(); ) {
+                CachedResponse entry = it.next();
+                if (filter.test(entry)) {
+                    it.remove();
+                    protectedBytes -= entry.getSize();
+                    entry.release();
+                    removed++;
+                }
+            }
+            return removed;
+        }
+
+        synchronized long bytes() {
+            return probationBytes + protectedBytes;
+        }
+
+        synchronized int size() {
+            return probation.size() + protectedSegment.size();
+        }
+
+        private void remove(String key) {
+            CachedResponse previous = probation.remove(key);
+            if (previous != null) {
+                probationBytes -= previous.getSize();
+            } else {
+                previous = protectedSegment.remove(key);
+                if (previous == null) {
+                    return;
+                }
+                protectedBytes -= previous.getSize();
+            }
+            previous.release();
+        }
+
+        // Moves the protected segment's least recently used entries back to probation
+        private void demote() {
+            Iterator<CachedResponse> lru = protectedSegment.values().iterator();
+            while (protectedBytes > protectedCapacity && protectedSegment.size() > 1) {
+                CachedResponse entry = lru.next();
+                lru.remove();
+                protectedBytes -= entry.getSize();
+                probation.put(entry.getKey(), entry);
+                probationBytes += entry.getSize();
+            }
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.gateway.service.circuitbreaker;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Circuit breaker for one target, entirely lock-free.
+ *
+ * <b>Closed:</b> outcomes go into a sliding window of the last N calls; once it
+ * holds enough calls and the failure or slow-call rate reaches its threshold the
+ * breaker opens. <b>Open:</b> every call is refused until the open period is
+ * over. <b>Half-open:</b> a fixed number of probe calls is let through; one
+ * failure reopens the breaker, all of them succeeding closes it with an empty
+ * window.
+ *
+ * The state and the probe counters share one atomic word, so a transition and
+ * the reset of its counters happen together. The word also holds a generation
+ * that every transition bumps. {@link #tryAcquire} hands out a permit naming
+ * the generation the call was admitted in, and an outcome only counts while
+ * that generation lasts: a call let through while closed that ends during
+ * half-open is not mistaken for a probe, and a probe of an earlier half-open
+ * period can't close or reopen a later one.
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Called after every transition, on the thread that made it. */
+    public interface Listener {
+        void onStateChange(CircuitBreaker breaker, State from, State to);
+    }
+
+    /** What {@link #tryAcquire} returns when the call may not go to the target. */
+    public static final long REFUSED = -1;
+
+    // ctl layout: bits 0-1 state, bits 2-17 probes issued, bits 18-33 probes succeeded,
+    // bits 34-63 generation
+    private static final int ISSUED_SHIFT = 2;
+    private static final int SUCCEEDED_SHIFT = 18;
+    private static final int GENERATION_SHIFT = 34;
+    private static final long COUNTER_MASK = 0xFFFF;
+    private static final long GENERATION_MASK = (1L << 30) - 1;
+    private static final State[] STATES = State.values();
+
+    private final CircuitBreakerConfig config;
+    private final Listener listener;
+
+    private final AtomicLong ctl = new AtomicLong(pack(State.CLOSED, 0, 0, 0));
+    private final AtomicReference<Window> window;
+    private volatile long openUntilNanos;
+
+    public CircuitBreaker(CircuitBreakerConfig config, Listener listener) {
+        this.config = config;
+        this.listener = listener;
+        this.window = new AtomicReference<>(new Window(config.getWindowSize()));
+    }
+
+    public State getState() {
+        return stateOf(ctl.get());
+    }
+
+    /** Failure rate of the current window in percent, or -1 below the minimum number of calls. */
+    public float getFailureRate() {
+        return window.get().failureRate(config.getMinimumCalls());
+    }
+
+    /**
+     * Admits a call to the target now, or returns {@link #REFUSED}. In half-open
+     * state an admitted call is a probe. The permit must be handed back to
+     * exactly one of {@link #onSuccess}, {@link #onFailure} or {@link #onAbandoned}.
+     */
+    public long tryAcquire() {
+        while (true) {
+            long c = ctl.get();
+            int generation = generationOf(c);
+            switch (stateOf(c)) {
+                case CLOSED:
+                    return generation;
+                case OPEN:
+                    if (System.nanoTime() - openUntilNanos < 0) {
+                        return REFUSED;
+                    }
+                    // Open period is over: the first caller here moves to half-open and takes probe #1
+                    int halfOpen = nextGeneration(generation);
+                    if (ctl.compareAndSet(c, pack(State.HALF_OPEN, 1, 0, halfOpen))) {
+                        listener.onStateChange(this, State.OPEN, State.HALF_OPEN);
+                        return halfOpen;
+                    }
+                    break;
+                default:
+                    int issued = issuedOf(c);
+                    if (issued >= config.getHalfOpenProbes()) {
+                        return REFUSED;
+                    }
+                    if (ctl.compareAndSet(c, pack(State.HALF_OPEN, issued + 1, succeededOf(c), generation))) {
+                        return generation;
+                    }
+                    break;
+            }
+        }
+    }
+
+    public void onSuccess(long permit, long latencyMs) {
+        boolean slow = latencyMs >= config.getSlowCallDurationMs();
+
+        while (true) {
+            long c = ctl.get();
+            if (generationOf(c) != permit) {
+                // Admitted before the last transition; says nothing about the target now
+                return;
+            }
+            switch (stateOf(c)) {
+                case CLOSED:
+                    record(c, false, slow);
+                    return;
+                case OPEN:
+                    return;
+                default:
+                    int succeeded = succeededOf(c) + 1;
+                    if (succeeded >= config.getHalfOpenProbes()) {
+                        if (ctl.compareAndSet(c, pack(State.CLOSED, 0, 0, nextGeneration(generationOf(c))))) {
+                            window.set(new Window(config.getWindowSize()));
+                            listener.onStateChange(this, State.HALF_OPEN, State.CLOSED);
+                            return;
+                        }
+                    } else if (ctl.compareAndSet(c, pack(State.HALF_OPEN, issuedOf(c), succeeded, generationOf(c)))) {
+                        return;
+                    }
+                    break;
+            }
+        }
+    }
+
+    public void onFailure(long permit) {
+        long c = ctl.get();
+        if (generationOf(c) != permit) {
+            return;
+        }
+        switch (stateOf(c)) {
+            case CLOSED:
+                record(c, true, false);
+                return;
+            case OPEN:
+                return;
+            default:
+                tripFrom(c);
+        }
+    }
+
+    /** A permitted call that ended without telling anything about the target. */
+    public void onAbandoned(long permit) {
+        while (true) {
+            long c = ctl.get();
+            if (generationOf(c) != permit || stateOf(c) != State.HALF_OPEN || issuedOf(c) == 0) {
+                return;
+            }
+            // Hand the probe back so half-open can't get stuck waiting for it
+            if (ctl.compareAndSet(c, pack(State.HALF_OPEN, issuedOf(c) - 1, succeededOf(c), generationOf(c)))) {
+                return;
+            }
+        }
+    }
+
+    // c is a closed-state ctl value the outcome was matched against
+    private void record(long c, boolean failure, boolean slow) {
+        Window w = window.get();
+        w.record(failure, slow);
+
+        if (w.calls() < config.getMinimumCalls()) {
+            return;
+        }
+
+        float failureRate = w.rate(w.failures());
+        float slowRate = w.rate(w.slowCalls());
+        if (failureRate >= config.getFailureRateThreshold() || slowRate >= config.getSlowCallRateThreshold()) {
+            tripFrom(c);
+        }
+    }
+
+    // Opens the breaker unless it has left the state and generation of c meanwhile
+    private void tripFrom(long c) {
+        State from = stateOf(c);
+        int generation = generationOf(c);
+        while (generationOf(c) == generation) {
+            // Set before the state flips: nobody reads it outside OPEN
+            openUntilNanos = System.nanoTime() + config.getOpenDurationMs() * 1_000_000L;
+            if (ctl.compareAndSet(c, pack(State.OPEN, 0, 0, nextGeneration(generation)))) {
+                listener.onStateChange(this, from, State.OPEN);
+                return;
+            }
+            c = ctl.get();
+        }
+    }
+
+    private static long pack(State state, int issued, int succeeded, int generation) {
+        return state.ordinal()
+                | ((long) issued & COUNTER_MASK) << ISSUED_SHIFT
+                | ((long) succeeded & COUNTER_MASK) << SUCCEEDED_SHIFT
+                | ((long) generation & GENERATION_MASK) << GENERATION_SHIFT;
+    }
+
+    private static int nextGeneration(int generation) {
+        return (int) ((generation + 1) & GENERATION_MASK);
+    }
+
+    private static State stateOf(long c) {
+        return STATES[(int) (c & 0x3)];
+    }
+
+    private static int issuedOf(long c) {
+        return (int) (c >>> ISSUED_SHIFT & COUNTER_MASK);
+    }
+
+    private static int succeededOf(long c) {
+        return (int) (c >>> SUCCEEDED_SHIFT & COUNTER_MASK);
+    }
+
+    private static int generationOf(long c) {
+        return (int) (c >>> GENERATION_SHIFT & GENERATION_MASK);
+    }
+
+    /**
+     * Outcomes of the last {@code size} calls in a ring. Each write swaps out
+     * the oldest outcome and adjusts the running totals by the difference, so
+     * the totals never need a scan.
+     */
+    private static final class Window {
+        private static final int PRESENT = 1;
+        private static final int FAILED = 2;
+        private static final int SLOW = 4;
+
+        private final AtomicIntegerArray ring;
+        private final AtomicInteger cursor = new AtomicInteger();
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger slowCalls = new AtomicInteger();
+
+        Window(int size) {
+            this.ring = new AtomicIntegerArray(size);
+        }
+
+        void record(boolean failed, boolean slow) {
+            int outcome = PRESENT | (failed ? FAILED : 0) | (slow ? SLOW : 0);
+            int slot = Math.floorMod(cursor.getAndIncrement(), ring.length());
+            int old = ring.getAndSet(slot, outcome);
+
+            if ((old & PRESENT) == 0) {
+                calls.incrementAndGet();
+            }
+            int failedDelta = (failed ? 1 : 0) - ((old & FAILED) != 0 ? 1 : 0);
+            if (failedDelta != 0) {
+                failures.addAndGet(failedDelta);
+            }
+            int slowDelta = (slow ? 1 : 0) - ((old & SLOW) != 0 ? 1 : 0);
+            if (slowDelta != 0) {
+                slowCalls.addAndGet(slowDelta);
+            }
+        }
+
+        int calls() {
+            return calls.get();
+        }
+
+        int failures() {
+            return failures.get();
+        }
+
+        int slowCalls() {
+            return slowCalls.get();
+        }
+
+        float rate(int count) {
+            int n = calls.get();
+            return n == 0 ? 0 : count * 100f / n;
+        }
+
+        float failureRate(int minimumCalls) {
+            return calls.get() < minimumCalls ? -1 : rate(failures.get());
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.gateway.service.circuitbreaker;
+
+import com.gateway.config.AppConfig;
+
+/**
+ * Thresholds shared by every target's breaker, read from
+ * {@code circuitbreaker.*} properties.
+ */
+public final class CircuitBreakerConfig {
+    private final int windowSize;
+    private final int minimumCalls;
+    private final float failureRateThreshold;
+    private final long slowCallDurationMs;
+    private final float slowCallRateThreshold;
+    private final long openDurationMs;
+    private final int halfOpenProbes;
+
+    public CircuitBreakerConfig(int windowSize, int minimumCalls, float failureRateThreshold,
+                                long slowCallDurationMs, float slowCallRateThreshold,
+                                long openDurationMs, int halfOpenProbes) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDurationMs = slowCallDurationMs;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        this.openDurationMs = openDurationMs;
+        // Packed into 16 bits by CircuitBreaker
+        this.halfOpenProbes = Math.max(1, Math.min(halfOpenProbes, 0xFFFF));
+    }
+
+    public static CircuitBreakerConfig fromAppConfig() {
+        return new CircuitBreakerConfig(
+                AppConfig.getInt("circuitbreaker.window.size", 100),
+                AppConfig.getInt("circuitbreaker.minimum.calls", 20),
+                AppConfig.getInt("circuitbreaker.failure.rate.threshold", 50),
+                AppConfig.getInt("circuitbreaker.slow.call.duration.ms", 5000),
+                AppConfig.getInt("circuitbreaker.slow.call.rate.threshold", 80),
+                AppConfig.getInt("circuitbreaker.open.duration.ms", 10000),
+                AppConfig.getInt("circuitbreaker.half.open.probes", 3));
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    /** Percent of failed calls in the window that opens the breaker. */
+    public float getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public long getSlowCallDurationMs() {
+        return slowCallDurationMs;
+    }
+
+    /** Percent of slow calls in the window that opens the breaker. */
+    public float getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public long getOpenDurationMs() {
+        return openDurationMs;
+    }
+
+    public int getHalfOpenProbes() {
+        return halfOpenProbes;
+    }
+}
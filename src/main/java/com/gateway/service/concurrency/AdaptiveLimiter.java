@@ -0,0 +1,51 @@
+package com.gateway.service.concurrency;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Admits requests while fewer than the {@link LimitAlgorithm}'s limit are in
+ * flight. Admission is a single CAS; the limit is only recomputed when a
+ * request completes.
+ */
+public final class AdaptiveLimiter {
+    private final LimitAlgorithm algorithm;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    public AdaptiveLimiter(LimitAlgorithm algorithm) {
+        this.algorithm = algorithm;
+        this.limit = algorithm.getLimit();
+    }
+
+    /** Requests in flight including this one once admitted, or -1 if it must be shed. */
+    public int tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return -1;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return current + 1;
+            }
+        }
+    }
+
+    /** Ends an admitted request and feeds its RTT to the algorithm. */
+    public void release(long rttNanos, int inFlightAtStart, boolean dropped) {
+        inFlight.decrementAndGet();
+        limit = algorithm.update(rttNanos, inFlightAtStart, dropped);
+    }
+
+    /** Ends an admitted request that says nothing about capacity. */
+    public void releaseIgnored() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
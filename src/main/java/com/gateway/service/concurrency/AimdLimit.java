@@ -0,0 +1,36 @@
+package com.gateway.service.concurrency;
+
+/**
+ * Additive increase, multiplicative decrease: one more for every request that
+ * completes while the limit is actually in use, a fixed fraction less for every
+ * drop. Reacts only to drops, not to latency.
+ */
+public final class AimdLimit implements LimitAlgorithm {
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private int limit;
+
+    public AimdLimit(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    @Override
+    public synchronized int update(long rttNanos, int inFlight, boolean dropped) {
+        if (dropped) {
+            limit = Math.max(minLimit, (int) (limit * backoffRatio));
+        } else if (inFlight * 2 >= limit) {
+            limit = Math.min(maxLimit, limit + 1);
+        }
+        return limit;
+    }
+}
@@ -0,0 +1,65 @@
+package com.gateway.service.concurrency;
+
+/**
+ * Gradient limit: compares each request's RTT with a slow-moving average of
+ * past RTTs. While RTTs stay within {@code tolerance} of the average the limit
+ * grows by about its square root per sample; when they climb, i.e. requests
+ * queue somewhere, it shrinks in proportion, by at most half per sample. The
+ * change is smoothed so single outliers barely move it. Drops count as the
+ * steepest gradient.
+ */
+public final class GradientLimit implements LimitAlgorithm {
+    // Samples the long-term RTT average spans
+    private static final double LONG_WINDOW = 600;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+
+    private double limit;
+    private double longRttNanos;
+
+    public GradientLimit(int initialLimit, int minLimit, int maxLimit, double tolerance) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    @Override
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    @Override
+    public synchronized int update(long rttNanos, int inFlight, boolean dropped) {
+        double gradient;
+        if (dropped) {
+            gradient = MIN_GRADIENT;
+        } else {
+            double shortRtt = Math.max(1, rttNanos);
+            longRttNanos = longRttNanos == 0
+                    ? shortRtt
+                    : longRttNanos + (shortRtt - longRttNanos) / LONG_WINDOW;
+
+            // Latency fell well below the average, e.g. after a backend recovered; catch up faster
+            if (longRttNanos / shortRtt > 2) {
+                longRttNanos *= 0.95;
+            }
+
+            // Too few requests to say anything about the limit
+            if (inFlight < limit / 2) {
+                return (int) limit;
+            }
+
+            gradient = Math.max(MIN_GRADIENT, Math.min(1.0, tolerance * longRttNanos / shortRtt));
+        }
+
+        double target = limit * gradient + Math.sqrt(limit);
+        limit = limit * (1 - SMOOTHING) + target * SMOOTHING;
+        limit = Math.max(minLimit, Math.min(maxLimit, limit));
+        return (int) limit;
+    }
+}
@@ -0,0 +1,18 @@
+package com.gateway.service.concurrency;
+
+/**
+ * Decides a concurrency limit from the round-trip times of completed requests.
+ * Implementations are called concurrently and synchronize themselves.
+ */
+public interface LimitAlgorithm {
+
+    int getLimit();
+
+    /**
+     * @param rttNanos round-trip time of the request
+     * @param inFlight requests in flight when it started, itself included
+     * @param dropped  whether it timed out or the backend was overloaded
+     * @return the new limit
+     */
+    int update(long rttNanos, int inFlight, boolean dropped);
+}
@@ -0,0 +1,80 @@
+package com.gateway.service.loadbalancer;
+
+import com.gateway.domain.RouteTarget;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Consistent hashing on a ring of virtual nodes. Each target gets
+ * {@link #VNODES_PER_WEIGHT} points per unit of weight, placed by hashing its
+ * id, so its points are the same whichever other targets are present: adding
+ * or removing one target only moves the keys that land on its points. Lookup is
+ * a binary search over a sorted array.
+ *
+ * Rings are built on the request path, so a ring holds at most
+ * {@link #MAX_VNODES} points; heavier routes get proportionally fewer points
+ * per unit of weight. A target's points are always the first of its sequence,
+ * so rescaling only adds or drops points at the end of each target's share.
+ */
+final class ConsistentHashRing implements HashingStrategy {
+    static final int VNODES_PER_WEIGHT = 100;
+    static final int MAX_VNODES = 100_000;
+
+    private static final long POINT_MASK = 0xFFFFFFFF00000000L;
+
+    private final long[] points;
+    private final int[] owners;
+
+    ConsistentHashRing(List<RouteTarget> targets, int[] weights, TargetStats[] stats) {
+        long totalWeight = 0;
+        for (int weight : weights) {
+            totalWeight += weight;
+        }
+        long budget = Math.min(VNODES_PER_WEIGHT * totalWeight, MAX_VNODES);
+
+        int[] counts = new int[weights.length];
+        int total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            counts[i] = (int) Math.max(1, weights[i] * budget / totalWeight);
+            total += counts[i];
+        }
+
+        // Top 32 bits of each point's hash, owner in the low 32, so sorting the
+        // packed values sorts the (point, owner) pairs by point
+        long[] placed = new long[total];
+        int k = 0;
+        for (int i = 0; i < weights.length; i++) {
+            UUID id = targets.get(i).getId();
+            for (int v = 0; v < counts[i]; v++) {
+                long point = HashKey.mix(id.getMostSignificantBits() ^ HashKey.mix(id.getLeastSignificantBits() + v));
+                placed[k++] = (point & POINT_MASK) | i;
+            }
+        }
+        Arrays.sort(placed);
+
+        this.points = new long[total];
+        this.owners = new int[total];
+        for (int i = 0; i < total; i++) {
+            points[i] = placed[i] & POINT_MASK;
+            owners[i] = (int) placed[i];
+        }
+    }
+
+    @Override
+    public int select(long hash) {
+        int i = Arrays.binarySearch(points, hash);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        // Clockwise to the first point at or after the hash, wrapping around
+        return owners[i == points.length ? 0 : i];
+    }
+
+    @Override
+    public int select() {
+        return owners[ThreadLocalRandom.current().nextInt(owners.length)];
+    }
+}
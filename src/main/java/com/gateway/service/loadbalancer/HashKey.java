@@ -0,0 +1,178 @@
+package com.gateway.service.loadbalancer;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * What a hashing strategy keys requests by, as stored in
+ * {@code routes.lb_hash_key}:
+ * <ul>
+ *   <li>{@code header:<name>} - value of a request header</li>
+ *   <li>{@code cookie:<name>} - value of a cookie</li>
+ *   <li>{@code path:<n>} - the n-th segment (from 1) of the path after the gateway prefix</li>
+ *   <li>{@code client_ip} - the client's address; the default</li>
+ * </ul>
+ * Hashing a request reads the key in place and does not allocate.
+ */
+public final class HashKey {
+
+    /** Hash of a request that does not carry the key. */
+    public static final long NONE = 0;
+
+    public static final HashKey CLIENT_IP = new HashKey(Source.CLIENT_IP, null, 0);
+
+    private enum Source { HEADER, COOKIE, PATH, CLIENT_IP }
+
+    private final Source source;
+    private final String name;
+    private final int segment;
+
+    private HashKey(Source source, String name, int segment) {
+        this.source = source;
+        this.name = name;
+        this.segment = segment;
+    }
+
+    /**
+     * @param spec e.g. {@code header:X-User-Id}; {@code null} means {@link #CLIENT_IP}
+     * @throws IllegalArgumentException if the spec is malformed
+     */
+    public static HashKey parse(String spec) {
+        if (spec == null || spec.isBlank() || spec.equalsIgnoreCase("client_ip")) {
+            return CLIENT_IP;
+        }
+
+        int colon = spec.indexOf(':');
+        String kind = colon > 0 ? spec.substring(0, colon).toLowerCase(Locale.ROOT) : "";
+        String arg = colon > 0 ? spec.substring(colon + 1).trim() : "";
+
+        if (!arg.isEmpty()) {
+            switch (kind) {
+                case "header":
+                    return new HashKey(Source.HEADER, arg.toLowerCase(Locale.ROOT), 0);
+                case "cookie":
+                    return new HashKey(Source.COOKIE, arg, 0);
+                case "path":
+                    try {
+                        int segment = Integer.parseInt(arg);
+                        if (segment > 0) {
+                            return new HashKey(Source.PATH, null, segment);
+                        }
+                    } catch (NumberFormatException ignored) {
+                        // fall through
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid hash key '" + spec
+                + "': expected header:<name>, cookie:<name>, path:<segment> or client_ip");
+    }
+
+    /**
+     * Hash of this key in a request, or {@link #NONE} if the request doesn't have it.
+     *
+     * @param headers header lookup by lower-case name
+     * @param path    path after the gateway prefix, starting with '/'
+     */
+    public long hash(Function<String, String> headers, String path, SocketAddress client) {
+        switch (source) {
+            case HEADER: {
+                String value = headers.apply(name);
+                return value != null && !value.isEmpty() ? hash(value, 0, value.length()) : NONE;
+            }
+            case COOKIE:
+                return hashCookie(headers.apply("cookie"));
+            case PATH:
+                return hashSegment(path);
+            default:
+                if (client instanceof InetSocketAddress && ((InetSocketAddress) client).getAddress() != null) {
+                    return mix(((InetSocketAddress) client).getAddress().hashCode());
+                }
+                return NONE;
+        }
+    }
+
+    private long hashCookie(String cookies) {
+        if (cookies == null) {
+            return NONE;
+        }
+
+        int n = cookies.length();
+        int i = 0;
+        while (i < n) {
+            while (i < n && (cookies.charAt(i) == ' ' || cookies.charAt(i) == ';')) {
+                i++;
+            }
+            int end = cookies.indexOf(';', i);
+            if (end < 0) {
+                end = n;
+            }
+            if (cookies.startsWith(name, i) && i + name.length() < end && cookies.charAt(i + name.length()) == '=') {
+                int valueStart = i + name.length() + 1;
+                return valueStart < end ? hash(cookies, valueStart, end) : NONE;
+            }
+            i = end + 1;
+        }
+        return NONE;
+    }
+
+    private long hashSegment(String path) {
+        int start = 0;
+        for (int seen = 0; seen < segment; seen++) {
+            start = path.indexOf('/', start);
+            if (start < 0) {
+                return NONE;
+            }
+            start++;
+        }
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = path.length();
+        }
+        return start < end ? hash(path, start, end) : NONE;
+    }
+
+    /** 64-bit FNV-1a over {@code s[start, end)}, finished with {@link #mix}. */
+    static long hash(CharSequence s, int start, int end) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = start; i < end; i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    /** A different, equally well spread hash of the same key for retry {@code attempt}. */
+    public static long rehash(long hash, int attempt) {
+        return mix(hash + attempt * 0x9e3779b97f4a7c15L);
+    }
+
+    /** MurmurHash3 fmix64 finalizer; never returns {@link #NONE}. */
+    static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == NONE ? 1 : h;
+    }
+
+    @Override
+    public String toString() {
+        switch (source) {
+            case HEADER:
+                return "header:" + name;
+            case COOKIE:
+                return "cookie:" + name;
+            case PATH:
+                return "path:" + segment;
+            default:
+                return "client_ip";
+        }
+    }
+}
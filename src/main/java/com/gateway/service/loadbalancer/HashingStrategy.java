@@ -0,0 +1,12 @@
+package com.gateway.service.loadbalancer;
+
+/**
+ * A strategy that maps each request key to a target, so requests with the same
+ * {@link HashKey} keep landing on the same backend, and a change to the target
+ * list moves as few keys as possible.
+ */
+public interface HashingStrategy extends LoadBalancingStrategy {
+
+    /** Index of the target owning {@code hash}; never {@link HashKey#NONE}. */
+    int select(long hash);
+}
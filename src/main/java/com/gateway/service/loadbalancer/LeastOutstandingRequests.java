@@ -0,0 +1,37 @@
+package com.gateway.service.loadbalancer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks the target with the fewest in-flight requests relative to its weight.
+ * The scan starts at a random index so ties don't all go to the first target.
+ */
+final class LeastOutstandingRequests implements LoadBalancingStrategy {
+    private final int[] weights;
+    private final TargetStats[] stats;
+
+    LeastOutstandingRequests(int[] weights, TargetStats[] stats) {
+        this.weights = weights;
+        this.stats = stats;
+    }
+
+    @Override
+    public int select() {
+        int n = weights.length;
+        int start = n == 1 ? 0 : ThreadLocalRandom.current().nextInt(n);
+
+        int best = start;
+        long bestOutstanding = stats[start].getOutstanding();
+
+        for (int k = 1; k < n; k++) {
+            int i = (start + k) % n;
+            long outstanding = stats[i].getOutstanding();
+            // outstanding / weight < bestOutstanding / bestWeight, without division
+            if (outstanding * weights[best] < bestOutstanding * weights[i]) {
+                best = i;
+                bestOutstanding = outstanding;
+            }
+        }
+        return best;
+    }
+}
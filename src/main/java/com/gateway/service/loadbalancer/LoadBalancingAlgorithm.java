@@ -0,0 +1,62 @@
+package com.gateway.service.loadbalancer;
+
+import com.gateway.domain.RouteTarget;
+
+import java.util.List;
+
+/**
+ * The strategies a route can choose from, by the name stored in
+ * {@code routes.lb_strategy}.
+ */
+public enum LoadBalancingAlgorithm {
+    /** nginx-style smooth weighted round-robin; the default. */
+    WEIGHTED_ROUND_ROBIN("weighted_round_robin", (targets, weights, stats) -> new SmoothWeightedRoundRobin(weights)),
+    WEIGHTED_RANDOM("weighted_random", (targets, weights, stats) -> new WeightedRandom(weights)),
+    /** Fewest in-flight requests per unit of weight. */
+    LEAST_OUTSTANDING("least_outstanding", (targets, weights, stats) -> new LeastOutstandingRequests(weights, stats)),
+    /** Better of two random targets by EWMA latency times in-flight requests. */
+    P2C_EWMA("p2c_ewma", (targets, weights, stats) -> new PowerOfTwoChoicesEwma(weights, stats)),
+    /** Ring of virtual nodes keyed by the route's {@link HashKey}. */
+    CONSISTENT_HASH("consistent_hash", ConsistentHashRing::new),
+    /** Maglev lookup table keyed by the route's {@link HashKey}. */
+    MAGLEV("maglev", MaglevTable::new);
+
+    public static final LoadBalancingAlgorithm DEFAULT = WEIGHTED_ROUND_ROBIN;
+
+    private final String name;
+    private final Factory factory;
+
+    LoadBalancingAlgorithm(String name, Factory factory) {
+        this.name = name;
+        this.factory = factory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @param targets the targets to choose from
+     * @param weights their weights, all positive
+     * @param stats   their live statistics
+     */
+    public LoadBalancingStrategy create(List<RouteTarget> targets, int[] weights, TargetStats[] stats) {
+        return factory.create(targets, weights, stats);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no strategy has that name
+     */
+    public static LoadBalancingAlgorithm fromName(String name) {
+        for (LoadBalancingAlgorithm algorithm : values()) {
+            if (algorithm.name.equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown load balancing strategy: " + name);
+    }
+
+    private interface Factory {
+        LoadBalancingStrategy create(List<RouteTarget> targets, int[] weights, TargetStats[] stats);
+    }
+}
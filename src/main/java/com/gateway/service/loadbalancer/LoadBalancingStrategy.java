@@ -0,0 +1,15 @@
+package com.gateway.service.loadbalancer;
+
+/**
+ * Picks one of a fixed set of targets for each request.
+ *
+ * An instance is created for one route's healthy targets and replaced when they
+ * change, so implementations precompute whatever they need up front.
+ * {@link #select()} is called concurrently from every worker thread on every
+ * proxied request and must not allocate.
+ */
+public interface LoadBalancingStrategy {
+
+    /** Index of the chosen target in the list the strategy was created for. */
+    int select();
+}
@@ -0,0 +1,88 @@
+package com.gateway.service.loadbalancer;
+
+import com.gateway.domain.RouteTarget;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Maglev hashing (Eisenbud et al., NSDI '16): every target walks its own
+ * permutation of a prime-sized lookup table, claiming free slots in turn until
+ * the table is full. A target claims at most one slot per turn; lighter ones
+ * skip turns in proportion to their weight. Lookup is one array read. Shares
+ * come out within a few percent of the weights, and a change to the target
+ * list moves little more than the share of the targets that came or went.
+ * Each route using it holds a {@value #TABLE_SIZE}-slot table.
+ */
+final class MaglevTable implements HashingStrategy {
+
+    // Prime; must never depend on the targets, or every change would remap every key.
+    // The paper's rule of thumb (> 100 slots per target) holds up to 50 targets;
+    // beyond that shares drift a little further from the weights.
+    static final int TABLE_SIZE = 5003;
+
+    private final int[] table;
+
+    MaglevTable(List<RouteTarget> targets, int[] weights, TargetStats[] stats) {
+        int n = weights.length;
+        int size = TABLE_SIZE;
+
+        int[] offset = new int[n];
+        int[] skip = new int[n];
+        int[] next = new int[n];
+        for (int i = 0; i < n; i++) {
+            UUID id = targets.get(i).getId();
+            offset[i] = (int) Long.remainderUnsigned(HashKey.mix(id.getMostSignificantBits()), size);
+            skip[i] = (int) Long.remainderUnsigned(HashKey.mix(id.getLeastSignificantBits()), size - 1) + 1;
+        }
+
+        int[] entries = new int[size];
+        Arrays.fill(entries, -1);
+
+        int maxWeight = 0;
+        for (int weight : weights) {
+            maxWeight = Math.max(maxWeight, weight);
+        }
+
+        // Each turn a target earns weight/maxWeight of a slot and claims one per
+        // whole slot earned, so the heaviest claim every turn and the rest are
+        // spread evenly between them rather than claiming in bursts.
+        long[] credit = new long[n];
+        int filled = 0;
+        fill:
+        while (true) {
+            for (int i = 0; i < n; i++) {
+                credit[i] += weights[i];
+                if (credit[i] < maxWeight) {
+                    continue;
+                }
+                credit[i] -= maxWeight;
+
+                int slot = (int) ((offset[i] + (long) next[i] * skip[i]) % size);
+                while (entries[slot] >= 0) {
+                    next[i]++;
+                    slot = (int) ((offset[i] + (long) next[i] * skip[i]) % size);
+                }
+                entries[slot] = i;
+                next[i]++;
+                if (++filled == size) {
+                    break fill;
+                }
+            }
+        }
+
+        this.table = entries;
+    }
+
+    @Override
+    public int select(long hash) {
+        return table[(int) Long.remainderUnsigned(hash, table.length)];
+    }
+
+    @Override
+    public int select() {
+        return table[ThreadLocalRandom.current().nextInt(table.length)];
+    }
+}
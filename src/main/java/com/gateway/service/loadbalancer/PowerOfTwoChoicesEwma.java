@@ -0,0 +1,38 @@
+package com.gateway.service.loadbalancer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: samples two distinct targets and takes the one with
+ * the lower {@link TargetStats#getCost() cost} per unit of weight. Slow or
+ * overloaded targets shed load quickly, while the random sampling keeps every
+ * node from piling onto the same "best" target at once.
+ */
+final class PowerOfTwoChoicesEwma implements LoadBalancingStrategy {
+    private final int[] weights;
+    private final TargetStats[] stats;
+
+    PowerOfTwoChoicesEwma(int[] weights, TargetStats[] stats) {
+        this.weights = weights;
+        this.stats = stats;
+    }
+
+    @Override
+    public int select() {
+        int n = weights.length;
+        if (n == 1) {
+            return 0;
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int a = random.nextInt(n);
+        int b = random.nextInt(n - 1);
+        if (b >= a) {
+            b++;
+        }
+
+        double costA = stats[a].getCost() / weights[a];
+        double costB = stats[b].getCost() / weights[b];
+        return costA <= costB ? a : b;
+    }
+}
@@ -0,0 +1,37 @@
+package com.gateway.service.loadbalancer;
+
+/**
+ * Smooth weighted round-robin as in nginx: every pick raises each target's
+ * current weight by its weight, takes the highest, and lowers that one by the
+ * total. Weights 5/1/1 give a a b a c a a rather than a a a a a b c, and equal
+ * weights degrade to plain round-robin.
+ */
+final class SmoothWeightedRoundRobin implements LoadBalancingStrategy {
+    private final int[] weights;
+    private final long[] current;
+    private final long totalWeight;
+
+    SmoothWeightedRoundRobin(int[] weights) {
+        this.weights = weights;
+        this.current = new long[weights.length];
+
+        long total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        this.totalWeight = total;
+    }
+
+    @Override
+    public synchronized int select() {
+        int best = 0;
+        for (int i = 0; i < weights.length; i++) {
+            current[i] += weights[i];
+            if (current[i] > current[best]) {
+                best = i;
+            }
+        }
+        current[best] -= totalWeight;
+        return best;
+    }
+}
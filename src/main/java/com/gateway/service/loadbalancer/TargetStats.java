@@ -0,0 +1,84 @@
+package com.gateway.service.loadbalancer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Live load of one target as seen from this node: requests in flight and a
+ * peak-sensitive, exponentially weighted moving average of response latency.
+ *
+ * A sample slower than the average replaces it outright, so a target that slows
+ * down loses traffic at once; faster samples pull it down gradually. The average
+ * decays with time rather than per sample, so a burst of requests counts no
+ * more than a trickle over the same period, and it keeps decaying while nothing
+ * is observed: a target that was slow a while ago and has been avoided since
+ * looks cheap enough again to be retried.
+ */
+public final class TargetStats {
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final double decayNanos;
+
+    // Written under this, read without locking
+    private volatile double latencyEwmaMs;
+    private volatile long lastObservedNanos;
+    private volatile boolean measured;
+
+    public TargetStats(long decayMs) {
+        this.decayNanos = decayMs * 1_000_000.0;
+    }
+
+    public void requestStarted() {
+        outstanding.incrementAndGet();
+    }
+
+    /**
+     * @param latencyMs the request's latency, or negative if it ended without
+     *                  one worth recording (e.g. the client went away)
+     */
+    public void requestFinished(long latencyMs) {
+        outstanding.decrementAndGet();
+        if (latencyMs >= 0) {
+            observe(latencyMs);
+        }
+    }
+
+    private synchronized void observe(double latencyMs) {
+        long now = System.nanoTime();
+        if (!measured) {
+            latencyEwmaMs = latencyMs;
+            lastObservedNanos = now;
+            measured = true;
+            return;
+        }
+
+        double w = Math.exp(-(now - lastObservedNanos) / decayNanos);
+        double decayed = latencyEwmaMs * w;
+        latencyEwmaMs = latencyMs > decayed ? latencyMs : decayed + latencyMs * (1 - w);
+        lastObservedNanos = now;
+    }
+
+    public int getOutstanding() {
+        return outstanding.get();
+    }
+
+    /** Latency average decayed to now, in milliseconds; 0 until the first sample. */
+    public double getLatencyEwmaMs() {
+        if (!measured) {
+            return 0;
+        }
+        return latencyEwmaMs * Math.exp(-(System.nanoTime() - lastObservedNanos) / decayNanos);
+    }
+
+    /**
+     * Expected wait for one more request: average latency times the requests
+     * already queued in front of it. A target with no samples yet costs nothing
+     * while idle and everything while its first request is in flight, so new
+     * targets are probed one request at a time.
+     */
+    public double getCost() {
+        int inFlight = outstanding.get();
+        if (!measured) {
+            return inFlight == 0 ? 0 : Double.MAX_VALUE;
+        }
+        return (getLatencyEwmaMs() + 1) * (inFlight + 1);
+    }
+}
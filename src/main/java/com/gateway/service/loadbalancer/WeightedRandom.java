@@ -0,0 +1,40 @@
+package com.gateway.service.loadbalancer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Picks a target at random with probability proportional to its weight. No
+ * shared state, so no contention between worker threads.
+ */
+final class WeightedRandom implements LoadBalancingStrategy {
+    // cumulative[i] = weights[0] + ... + weights[i]
+    private final long[] cumulative;
+
+    WeightedRandom(int[] weights) {
+        this.cumulative = new long[weights.length];
+
+        long total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            total += weights[i];
+            cumulative[i] = total;
+        }
+    }
+
+    @Override
+    public int select() {
+        long point = ThreadLocalRandom.current().nextLong(cumulative[cumulative.length - 1]);
+
+        // First index whose cumulative weight exceeds the point
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (cumulative[mid] > point) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,545 @@
+package com.gateway.service.logging;
+
+import com.gateway.domain.RequestLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only disk spool for request logs that could not be written to the
+ * database.
+ *
+ * Logs go into numbered segment files ({@code 00000000000000000001.seg}, ...)
+ * in one directory. A segment starts with a magic number and format version,
+ * followed by records of {@code [payload length][CRC32C of payload][payload]}.
+ * Appends go to the newest segment through a {@link FileChannel} and are forced
+ * to disk before {@link #append} returns. A segment is closed once it reaches
+ * the segment size, and then never written again.
+ *
+ * Replay reads the oldest segment in record order with {@link #peek} and moves
+ * past what was stored with {@link #acknowledge}. A segment is deleted once
+ * fully acknowledged. The segment being appended to is read in place, up to
+ * what has been appended so far, and deleted once replay has caught up with
+ * it; replay never closes it early. Reading stops at the first record that is truncated or
+ * fails its CRC, such as a record torn by a crash, and the rest of that
+ * segment is skipped. Delivery is at least once: the replay position is kept
+ * in memory only, so a restart replays a partly acknowledged segment from its
+ * start.
+ *
+ * Disk use is bounded by the maximum size. When an append would go over it,
+ * the oldest segments are deleted first, whether or not they were replayed.
+ */
+public final class LogSpool {
+    private static final Logger logger = LoggerFactory.getLogger(LogSpool.class);
+
+    private static final int MAGIC = 0x524C5350; // "RLSP"
+    private static final byte VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 5;
+    private static final int RECORD_HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final String SUFFIX = ".seg";
+
+    private static final int GATEWAY_PRESENT = 1;
+    private static final int ROUTE_PRESENT = 1 << 1;
+    private static final int TARGET_PRESENT = 1 << 2;
+
+    private final Path directory;
+    private final long maxBytes;
+    private final long segmentBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32C crc = new CRC32C();
+
+    // All guarded by lock: segment id -> size in bytes, oldest first
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+    private long totalBytes;
+    private long nextSegmentId = 1;
+    private FileChannel active;
+    private long activeId = -1;
+    private long replayPosition = SEGMENT_HEADER_BYTES;
+    private ByteBuffer encodeBuffer = ByteBuffer.allocate(64 * 1024);
+
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder evictedSegments = new LongAdder();
+    private final LongAdder evictedBytes = new LongAdder();
+    private final LongAdder corruptSegments = new LongAdder();
+
+    /**
+     * @param maxBytes     disk use above which the oldest segments are evicted
+     * @param segmentBytes size at which a segment is closed and a new one started
+     */
+    public LogSpool(Path directory, long maxBytes, long segmentBytes) {
+        this.directory = directory;
+        this.maxBytes = Math.max(1, maxBytes);
+        this.segmentBytes = Math.max(SEGMENT_HEADER_BYTES + 1, Math.min(segmentBytes, this.maxBytes / 2));
+    }
+
+    /**
+     * Creates the directory if needed and picks up segments left by a previous
+     * run; they are replayed before anything appended from now on.
+     */
+    public void open() throws IOException {
+        lock.lock();
+        try {
+            Files.createDirectories(directory);
+            segments.clear();
+            totalBytes = 0;
+            replayPosition = SEGMENT_HEADER_BYTES;
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path file : files) {
+                    long id = segmentId(file);
+                    if (id < 0) {
+                        continue;
+                    }
+                    long size = Files.size(file);
+                    segments.put(id, size);
+                    totalBytes += size;
+                }
+            }
+            if (!segments.isEmpty()) {
+                nextSegmentId = segments.lastKey() + 1;
+                logger.info("Found {} spooled request log segment(s) ({} bytes) in {}",
+                        segments.size(), totalBytes, directory);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Appends the batch and forces it to disk. */
+    public void append(List<RequestLog> batch) throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        lock.lock();
+        try {
+            ByteBuffer records = encode(batch);
+            if (active != null && segments.get(activeId) + records.remaining() > segmentBytes) {
+                closeActive();
+            }
+            if (active == null) {
+                openActive();
+            }
+            evictFor(records.remaining());
+
+            try {
+                while (records.hasRemaining()) {
+                    active.write(records);
+                }
+                active.force(false);
+            } catch (IOException e) {
+                // Whatever part made it to disk is cut off at replay; carry on in a new segment
+                closeActive();
+                throw e;
+            }
+
+            long written = records.limit();
+            segments.merge(activeId, written, Long::sum);
+            totalBytes += written;
+            spooled.add(batch.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Up to {@code max} records from the oldest segment, after the last
+     * acknowledged ones, or {@code null} if the spool is empty. The segment
+     * being appended to is only read up to its last complete append, so
+     * replay never reads a record while it is being written.
+     */
+    public ReplayBatch peek(int max) throws IOException {
+        lock.lock();
+        try {
+            if (segments.isEmpty()) {
+                return null;
+            }
+            return read(segments.firstKey(), max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Marks a batch from {@link #peek} as stored, deleting its segment once
+     * fully replayed. Ignored if the segment was evicted in the meantime.
+     */
+    public void acknowledge(ReplayBatch batch) throws IOException {
+        lock.lock();
+        try {
+            if (segments.isEmpty() || segments.firstKey() != batch.segmentId
+                    || replayPosition != batch.startPosition) {
+                return;
+            }
+            replayPosition = batch.endPosition;
+            // The segment being appended to may have grown since the peek
+            if (batch.endOfSegment
+                    && (batch.segmentId != activeId || segments.get(activeId) == batch.endPosition)) {
+                delete(batch.segmentId);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return segments.isEmpty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void close() {
+        lock.lock();
+        try {
+            closeActive();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Records read from the segment starting at the replay position; guarded by lock
+    private ReplayBatch read(long id, int max) throws IOException {
+        Path file = segmentFile(id);
+        List<RequestLog> logs = new ArrayList<>(Math.min(max, 1024));
+        long position = replayPosition;
+        boolean endOfSegment = false;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Appends update the recorded size once they are on disk
+            long size = id == activeId ? segments.get(id) : channel.size();
+            if (position == SEGMENT_HEADER_BYTES && !validHeader(channel)) {
+                logger.warn("Skipping spooled request log segment {} with an unknown header", file);
+                corruptSegments.increment();
+                return new ReplayBatch(id, replayPosition, size, Collections.emptyList(), true);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+            while (logs.size() < max) {
+                if (position == size) {
+                    endOfSegment = true;
+                    break;
+                }
+                RequestLog log = readRecord(channel, position, size, header);
+                if (log == null) {
+                    logger.warn("Skipping the rest of spooled request log segment {} from byte {}: "
+                            + "truncated or corrupt record", file, position);
+                    corruptSegments.increment();
+                    position = size;
+                    endOfSegment = true;
+                    break;
+                }
+                logs.add(log);
+                position += RECORD_HEADER_BYTES + header.getInt(0);
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted behind our back; nothing left to replay from it
+            logger.warn("Spooled request log segment {} disappeared", file);
+            return new ReplayBatch(id, replayPosition, replayPosition, Collections.emptyList(), true);
+        }
+
+        return new ReplayBatch(id, replayPosition, position, logs, endOfSegment);
+    }
+
+    private static boolean validHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES);
+        try {
+            readFully(channel, header, 0);
+        } catch (EOFException e) {
+            return false;
+        }
+        return header.getInt(0) == MAGIC && header.get(4) == VERSION;
+    }
+
+    // The record at position, or null if it runs past the end or fails its CRC
+    private RequestLog readRecord(FileChannel channel, long position, long size, ByteBuffer header)
+            throws IOException {
+        if (size - position < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        header.clear();
+        readFully(channel, header, position);
+        int length = header.getInt(0);
+        int checksum = header.getInt(4);
+        if (length <= 0 || length > MAX_RECORD_BYTES || size - position - RECORD_HEADER_BYTES < length) {
+            return null;
+        }
+
+        ByteBuffer payload = ByteBuffer.allocate(length);
+        readFully(channel, payload, position + RECORD_HEADER_BYTES);
+        crc.reset();
+        crc.update(payload.array(), 0, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        try {
+            return decode(payload);
+        } catch (RuntimeException e) {
+            // Passed the CRC but doesn't parse: written by something else
+            return null;
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+        buffer.flip();
+    }
+
+    // Framed records for the whole batch in one buffer, ready to write; guarded by lock
+    private ByteBuffer encode(List<RequestLog> batch) {
+        encodeBuffer.clear();
+        for (RequestLog log : batch) {
+            byte[] method = bytes(log.getMethod());
+            byte[] path = bytes(log.getPath());
+            byte[] error = bytes(log.getErrorMessage());
+            int length = 1 + 3 * 16 + 8 + 4 + 4 + 4
+                    + 3 * 4 + length(method) + length(path) + length(error);
+            ensure(RECORD_HEADER_BYTES + length);
+
+            int start = encodeBuffer.position();
+            encodeBuffer.position(start + RECORD_HEADER_BYTES);
+            int flags = (log.getGatewayId() != null ? GATEWAY_PRESENT : 0)
+                    | (log.getRouteId() != null ? ROUTE_PRESENT : 0)
+                    | (log.getTargetId() != null ? TARGET_PRESENT : 0);
+            encodeBuffer.put((byte) flags);
+            putUuid(log.getGatewayId());
+            putUuid(log.getRouteId());
+            putUuid(log.getTargetId());
+            Instant createdAt = log.getCreatedAt() != null ? log.getCreatedAt() : Instant.now();
+            encodeBuffer.putLong(createdAt.getEpochSecond());
+            encodeBuffer.putInt(createdAt.getNano());
+            encodeBuffer.putInt(log.getStatusCode());
+            encodeBuffer.putInt(log.getLatencyMs());
+            putBytes(method);
+            putBytes(path);
+            putBytes(error);
+
+            int payloadLength = encodeBuffer.position() - start - RECORD_HEADER_BYTES;
+            crc.reset();
+            crc.update(encodeBuffer.array(), start + RECORD_HEADER_BYTES, payloadLength);
+            encodeBuffer.putInt(start, payloadLength);
+            encodeBuffer.putInt(start + 4, (int) crc.getValue());
+        }
+        encodeBuffer.flip();
+        return encodeBuffer;
+    }
+
+    private static RequestLog decode(ByteBuffer payload) {
+        int flags = payload.get();
+        UUID gatewayId = getUuid(payload, (flags & GATEWAY_PRESENT) != 0);
+        UUID routeId = getUuid(payload, (flags & ROUTE_PRESENT) != 0);
+        UUID targetId = getUuid(payload, (flags & TARGET_PRESENT) != 0);
+        Instant createdAt = Instant.ofEpochSecond(payload.getLong(), payload.getInt());
+        int statusCode = payload.getInt();
+        int latencyMs = payload.getInt();
+        String method = getString(payload);
+        String path = getString(payload);
+        String error = getString(payload);
+        return new RequestLog(null, gatewayId, routeId, targetId, method, path,
+                statusCode, latencyMs, error, createdAt);
+    }
+
+    // Absent UUIDs are written as zeros so every record has the same fixed part
+    private void putUuid(UUID value) {
+        encodeBuffer.putLong(value != null ? value.getMostSignificantBits() : 0);
+        encodeBuffer.putLong(value != null ? value.getLeastSignificantBits() : 0);
+    }
+
+    private static UUID getUuid(ByteBuffer payload, boolean present) {
+        long most = payload.getLong();
+        long least = payload.getLong();
+        return present ? new UUID(most, least) : null;
+    }
+
+    private void putBytes(byte[] value) {
+        if (value == null) {
+            encodeBuffer.putInt(-1);
+            return;
+        }
+        encodeBuffer.putInt(value.length);
+        encodeBuffer.put(value);
+    }
+
+    private static String getString(ByteBuffer payload) {
+        int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(payload.array(), payload.position(), length, StandardCharsets.UTF_8);
+        payload.position(payload.position() + length);
+        return value;
+    }
+
+    private static byte[] bytes(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    private void ensure(int bytes) {
+        if (encodeBuffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(encodeBuffer.capacity() * 2,
+                    encodeBuffer.position() + bytes));
+            encodeBuffer.flip();
+            grown.put(encodeBuffer);
+            encodeBuffer = grown;
+        }
+    }
+
+    // Deletes the oldest closed segments until the append fits; guarded by lock
+    private void evictFor(long bytes) throws IOException {
+        while (totalBytes + bytes > maxBytes && segments.firstKey() != activeId) {
+            long id = segments.firstKey();
+            long size = segments.get(id);
+            delete(id);
+            evictedSegments.increment();
+            evictedBytes.add(size);
+            logger.warn("Request log spool is full, evicted segment {} ({} bytes)", id, size);
+        }
+    }
+
+    private void openActive() throws IOException {
+        long id = nextSegmentId++;
+        FileChannel channel = FileChannel.open(segmentFile(id),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(MAGIC).put(VERSION);
+        header.flip();
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+        } catch (IOException e) {
+            channel.close();
+            Files.deleteIfExists(segmentFile(id));
+            throw e;
+        }
+        active = channel;
+        activeId = id;
+        segments.put(id, (long) SEGMENT_HEADER_BYTES);
+        totalBytes += SEGMENT_HEADER_BYTES;
+    }
+
+    private void closeActive() {
+        if (active == null) {
+            return;
+        }
+        try {
+            active.close();
+        } catch (IOException e) {
+            logger.warn("Error closing request log spool segment {}", activeId, e);
+        }
+        active = null;
+        activeId = -1;
+    }
+
+    // Only ever the oldest segment, so replay starts over on the next one
+    private void delete(long id) throws IOException {
+        if (id == activeId) {
+            closeActive();
+        }
+        Long size = segments.remove(id);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        replayPosition = SEGMENT_HEADER_BYTES;
+        Files.deleteIfExists(segmentFile(id));
+    }
+
+    private Path segmentFile(long id) {
+        return directory.resolve(String.format("%020d%s", id, SUFFIX));
+    }
+
+    private static long segmentId(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** Bytes on disk, including segments already replayed but not yet deleted. */
+    public long sizeBytes() {
+        lock.lock();
+        try {
+            return totalBytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int segmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long spooled() {
+        return spooled.sum();
+    }
+
+    public long evictedSegments() {
+        return evictedSegments.sum();
+    }
+
+    public long evictedBytes() {
+        return evictedBytes.sum();
+    }
+
+    public long corruptSegments() {
+        return corruptSegments.sum();
+    }
+
+    /** Records read by {@link #peek}, to be passed back to {@link #acknowledge} once stored. */
+    public static final class ReplayBatch {
+        private final long segmentId;
+        private final long startPosition;
+        private final long endPosition;
+        private final List<RequestLog> logs;
+        private final boolean endOfSegment;
+
+        private ReplayBatch(long segmentId, long startPosition, long endPosition,
+                            List<RequestLog> logs, boolean endOfSegment) {
+            this.segmentId = segmentId;
+            this.startPosition = startPosition;
+            this.endPosition = endPosition;
+            this.logs = logs;
+            this.endOfSegment = endOfSegment;
+        }
+
+        public List<RequestLog> getLogs() {
+            return logs;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.gateway.service.logging;
+
+/**
+ * What {@link RequestLogRing} does with a new entry when it is full, by the
+ * name set in {@code log.overflow.policy}.
+ */
+public enum OverflowPolicy {
+    /** Keep what is buffered and drop the new entry; the default. */
+    DROP_NEWEST("drop-newest"),
+    /** Evict the oldest buffered entry to make room for the new one. */
+    DROP_OLDEST("drop-oldest"),
+    /**
+     * Past a fill threshold keep only a random 1 in N new entries, so a
+     * sustained overload still leaves a representative trace; when full, drop
+     * the new entry.
+     */
+    SAMPLE("sample");
+
+    public static final OverflowPolicy DEFAULT = DROP_NEWEST;
+
+    private final String name;
+
+    OverflowPolicy(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @throws IllegalArgumentException if no policy has that name
+     */
+    public static OverflowPolicy fromName(String name) {
+        for (OverflowPolicy policy : values()) {
+            if (policy.name.equalsIgnoreCase(name)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown log overflow policy: " + name);
+    }
+}
@@ -0,0 +1,64 @@
+package com.gateway.service.logging;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * The time slice each {@code request_logs} partition covers, by the name set
+ * in {@code log.partition.interval}. Partitions are named after the start of
+ * their slice, e.g. {@code request_logs_p20240131} or
+ * {@code request_logs_p2024013113}.
+ */
+public enum PartitionInterval {
+    HOURLY("hourly", ChronoUnit.HOURS, "yyyyMMddHH"),
+    /** The default. */
+    DAILY("daily", ChronoUnit.DAYS, "yyyyMMdd");
+
+    public static final PartitionInterval DEFAULT = DAILY;
+
+    private final String name;
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffix;
+
+    PartitionInterval(String name, ChronoUnit unit, String suffixPattern) {
+        this.name = name;
+        this.unit = unit;
+        this.suffix = DateTimeFormatter.ofPattern(suffixPattern);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Duration getDuration() {
+        return unit.getDuration();
+    }
+
+    /** Start of the slice holding {@code time}. */
+    public LocalDateTime startOf(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+
+    /** Start of the slice after the one starting at {@code start}. */
+    public LocalDateTime next(LocalDateTime start) {
+        return start.plus(1, unit);
+    }
+
+    public String partitionName(String table, LocalDateTime start) {
+        return table + "_p" + suffix.format(start);
+    }
+
+    /**
+     * @throws IllegalArgumentException if no interval has that name
+     */
+    public static PartitionInterval fromName(String name) {
+        for (PartitionInterval interval : values()) {
+            if (interval.name.equalsIgnoreCase(name)) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unknown log partition interval: " + name);
+    }
+}
@@ -0,0 +1,192 @@
+package com.gateway.service.logging;
+
+import com.gateway.domain.RequestLog;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded multi-producer, single-consumer ring of preallocated request log
+ * slots, in the style of the LMAX Disruptor.
+ *
+ * A producer claims the next sequence with one CAS on {@code tail}, copies
+ * its fields into that sequence's slot and publishes the slot by storing the
+ * sequence in it. It takes no lock and allocates nothing. The consumer reads
+ * published slots in sequence order and frees each one by advancing
+ * {@code head}.
+ *
+ * When the ring is full, the {@link OverflowPolicy} decides. Under
+ * {@link OverflowPolicy#DROP_OLDEST} a producer frees the oldest slot itself
+ * by advancing {@code head} past it. The consumer therefore advances
+ * {@code head} with a CAS too, and discards a slot it was reading if a
+ * producer got there first. Every entry not delivered is counted once, by
+ * reason.
+ */
+public final class RequestLogRing {
+
+    private final Slot[] slots;
+    private final int mask;
+    private final int capacity;
+    private final OverflowPolicy policy;
+    private final int sampleThreshold;
+    private final int sampleRate;
+
+    // Next sequence to claim, and next sequence to consume; capacity apart at most
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    private final LongAdder droppedNewest = new LongAdder();
+    private final LongAdder droppedOldest = new LongAdder();
+    private final LongAdder sampledOut = new LongAdder();
+
+    /**
+     * @param capacity               rounded up to a power of two
+     * @param sampleThresholdPercent fill level above which {@link OverflowPolicy#SAMPLE} starts sampling
+     * @param sampleRate             keep 1 in this many entries while sampling
+     */
+    public RequestLogRing(int capacity, OverflowPolicy policy, int sampleThresholdPercent, int sampleRate) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.capacity = size;
+        this.policy = policy;
+        this.sampleThreshold = (int) ((long) size * Math.max(0, Math.min(100, sampleThresholdPercent)) / 100);
+        this.sampleRate = Math.max(1, sampleRate);
+    }
+
+    /**
+     * Buffers one entry; called from any thread.
+     *
+     * @return false if the entry was dropped or sampled out
+     */
+    public boolean offer(UUID gatewayId, UUID routeId, UUID targetId, String method, String path,
+                         int statusCode, int latencyMs, String errorMessage, long timestampMillis) {
+        long sequence;
+        while (true) {
+            long t = tail.get();
+            long h = head.get();
+            long used = t - h;
+
+            if (used >= capacity) {
+                if (policy == OverflowPolicy.DROP_OLDEST && evictOldest(h)) {
+                    continue;
+                }
+                if (policy != OverflowPolicy.DROP_OLDEST || head.get() == h) {
+                    droppedNewest.increment();
+                    return false;
+                }
+                // The consumer moved on meanwhile; there may be room now
+                continue;
+            }
+
+            if (policy == OverflowPolicy.SAMPLE && used >= sampleThreshold
+                    && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+                sampledOut.increment();
+                return false;
+            }
+
+            if (tail.compareAndSet(t, t + 1)) {
+                sequence = t;
+                break;
+            }
+        }
+
+        Slot slot = slots[(int) (sequence & mask)];
+        slot.gatewayId = gatewayId;
+        slot.routeId = routeId;
+        slot.targetId = targetId;
+        slot.method = method;
+        slot.path = path;
+        slot.statusCode = statusCode;
+        slot.latencyMs = latencyMs;
+        slot.errorMessage = errorMessage;
+        slot.timestampMillis = timestampMillis;
+        // Volatile store: everything above is visible to whoever sees this sequence
+        slot.published = sequence;
+        return true;
+    }
+
+    /**
+     * The oldest buffered entry, or {@code null} if there is none yet.
+     * Consumer thread only.
+     */
+    public RequestLog poll() {
+        while (true) {
+            long h = head.get();
+            Slot slot = slots[(int) (h & mask)];
+            if (slot.published != h) {
+                // Empty, or the producer of h hasn't finished writing it
+                return null;
+            }
+
+            // Fields are left in place: once head moves, a producer may already be reusing the slot
+            RequestLog log = slot.toRequestLog();
+            if (head.compareAndSet(h, h + 1)) {
+                return log;
+            }
+            // Evicted by a producer while we were reading; the copy may be torn, skip it
+        }
+    }
+
+    // Frees slot h if it is published and still the oldest
+    private boolean evictOldest(long h) {
+        Slot slot = slots[(int) (h & mask)];
+        if (slot.published == h && head.compareAndSet(h, h + 1)) {
+            droppedOldest.increment();
+            return true;
+        }
+        return false;
+    }
+
+    /** Entries buffered and not yet consumed. */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public long droppedNewest() {
+        return droppedNewest.sum();
+    }
+
+    public long droppedOldest() {
+        return droppedOldest.sum();
+    }
+
+    public long sampledOut() {
+        return sampledOut.sum();
+    }
+
+    /** All entries not delivered, whatever the reason. */
+    public long dropped() {
+        return droppedNewest.sum() + droppedOldest.sum() + sampledOut.sum();
+    }
+
+    private static final class Slot {
+        // Sequence last published in this slot; -1 before the first
+        volatile long published = -1;
+
+        UUID gatewayId;
+        UUID routeId;
+        UUID targetId;
+        String method;
+        String path;
+        int statusCode;
+        int latencyMs;
+        String errorMessage;
+        long timestampMillis;
+
+        RequestLog toRequestLog() {
+            return new RequestLog(null, gatewayId, routeId, targetId, method, path,
+                    statusCode, latencyMs, errorMessage, Instant.ofEpochMilli(timestampMillis));
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package com.gateway.service.ratelimit;
+
+import com.gateway.metrics.MetricsRegistry;
+import com.gateway.service.ratelimit.AllowanceStore.LeaseRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Moves tokens between the {@link ClusterRateLimiter}s of this node and the
+ * {@link AllowanceStore}, off the request path.
+ *
+ * Limiters queue top-ups and give-backs without blocking; a single thread
+ * drains the queue every {@code intervalMs} and sends everything in it to the
+ * store as one batch. Each lease is queued at most once at a time, so a busy
+ * key costs one row per batch no matter how many requests it gets.
+ *
+ * A failed batch marks the store unavailable and limiters fall back to local
+ * enforcement until a probe succeeds again. Its settlements stay queued and
+ * go out with the first batch after that.
+ */
+public final class AllowanceLeaser {
+    private static final Logger logger = LoggerFactory.getLogger(AllowanceLeaser.class);
+
+    private static final long PROBE_INTERVAL_MS = 1000;
+
+    private final AllowanceStore store;
+    private final int intervalMs;
+    private final int maxBatch;
+    private final long purgeIntervalMs;
+
+    private final ConcurrentLinkedQueue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "rate-limit-leaser");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder batches;
+    private final LongAdder tokensGranted;
+    private final LongAdder storeErrors;
+
+    private volatile boolean storeAvailable = true;
+    private long lastPurge = System.currentTimeMillis();
+    private long lastProbe;
+
+    public AllowanceLeaser(AllowanceStore store, int intervalMs, int maxBatch, long purgeIntervalMs) {
+        this.store = store;
+        this.intervalMs = intervalMs;
+        this.maxBatch = maxBatch;
+        this.purgeIntervalMs = purgeIntervalMs;
+
+        MetricsRegistry metrics = MetricsRegistry.getInstance();
+        this.batches = metrics.counter("ratelimit.cluster.batches");
+        this.tokensGranted = metrics.counter("ratelimit.cluster.tokens.granted");
+        this.storeErrors = metrics.counter("ratelimit.cluster.store.errors");
+        metrics.gauge("ratelimit.cluster.queued", queued::get);
+        metrics.gauge("ratelimit.cluster.store.available", () -> storeAvailable ? 1 : 0);
+    }
+
+    public boolean isStoreAvailable() {
+        return storeAvailable;
+    }
+
+    /** Queues a top-up of a lease the caller has just claimed. */
+    void refill(ClusterRateLimiter limiter, ClusterRateLimiter.Lease lease) {
+        enqueue(new Pending(limiter, lease, lease.key, 0));
+    }
+
+    /** Queues tokens to give back (negative) or take without a lease (positive) for a dropped lease. */
+    void settle(ClusterRateLimiter limiter, Object key, long tokens) {
+        enqueue(new Pending(limiter, null, key, tokens));
+    }
+
+    private void enqueue(Pending pending) {
+        queue.add(pending);
+        queued.incrementAndGet();
+    }
+
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::run, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        logger.info("Allowance leaser started (batch every {}ms, up to {} leases)", intervalMs, maxBatch);
+    }
+
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            if (!storeAvailable) {
+                probe();
+                return;
+            }
+
+            // Keep going while batches come back full
+            List<Pending> deferred = new ArrayList<>();
+            try {
+                while (flush(deferred) == maxBatch) {
+                    // next batch
+                }
+            } finally {
+                deferred.forEach(this::enqueue);
+            }
+
+            long now = System.currentTimeMillis();
+            if (now - lastPurge >= purgeIntervalMs) {
+                lastPurge = now;
+                store.purge();
+            }
+        } catch (Exception e) {
+            markUnavailable(e);
+        }
+    }
+
+    /**
+     * Sends one batch. A key may appear only once per batch; repeats are left
+     * in {@code deferred} for the next run, as are settlements of a batch the
+     * store failed.
+     *
+     * @return number of leases sent
+     */
+    private int flush(List<Pending> deferred) {
+        List<Pending> batch = new ArrayList<>();
+        List<LeaseRequest> requests = new ArrayList<>();
+        Set<String> keys = new HashSet<>();
+        Pending p;
+        while (batch.size() < maxBatch && (p = queue.poll()) != null) {
+            queued.decrementAndGet();
+            String key = LimitKey.name(p.key);
+            if (!keys.add(p.limiter.getConfig().getId() + "/" + key)) {
+                deferred.add(p);
+                continue;
+            }
+            long tokens = p.lease != null ? p.limiter.wanted(p.lease) : p.tokens;
+            batch.add(p);
+            requests.add(new LeaseRequest(p.limiter.getConfig().getId(), key,
+                    tokens, p.limiter.ratePerMs, p.limiter.capacity));
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        long[] granted;
+        try {
+            granted = store.lease(requests);
+        } catch (Exception e) {
+            for (Pending failed : batch) {
+                if (failed.lease != null) {
+                    failed.limiter.failed(failed.lease);
+                } else {
+                    // Nobody else owes the store these tokens; send them once it is back
+                    deferred.add(failed);
+                }
+            }
+            markUnavailable(e);
+            return 0;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            Pending done = batch.get(i);
+            if (done.lease != null) {
+                done.limiter.granted(done.lease, granted[i]);
+            }
+            if (granted[i] > 0) {
+                tokensGranted.add(granted[i]);
+            }
+        }
+        batches.increment();
+        return batch.size();
+    }
+
+    private void probe() {
+        long now = System.currentTimeMillis();
+        if (now - lastProbe < PROBE_INTERVAL_MS) {
+            return;
+        }
+        lastProbe = now;
+
+        try {
+            store.purge();
+            storeAvailable = true;
+            logger.info("Allowance store reachable again, resuming cluster-wide rate limits");
+        } catch (Exception e) {
+            logger.debug("Allowance store still unreachable: {}", e.getMessage());
+        }
+    }
+
+    private void markUnavailable(Exception e) {
+        storeErrors.increment();
+        if (storeAvailable) {
+            storeAvailable = false;
+            lastProbe = System.currentTimeMillis();
+            logger.warn("Allowance store unreachable, enforcing rate limits per node: {}", e.getMessage());
+        }
+    }
+
+    private static final class Pending {
+        final ClusterRateLimiter limiter;
+        // Null for a settlement of a dropped lease
+        final ClusterRateLimiter.Lease lease;
+        final Object key;
+        final long tokens;
+
+        Pending(ClusterRateLimiter limiter, ClusterRateLimiter.Lease lease, Object key, long tokens) {
+            this.limiter = limiter;
+            this.lease = lease;
+            this.key = key;
+            this.tokens = tokens;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.gateway.service.ratelimit;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Shared token buckets that {@link ClusterRateLimiter}s on every node lease
+ * their allowances from. Buckets refill continuously at the limit's rate up to
+ * its capacity, exactly like the local ones; the store only sees one call per
+ * batch of leases, never one per request.
+ */
+public interface AllowanceStore {
+
+    /**
+     * Takes tokens from (or gives them back to) the requested buckets, creating
+     * full buckets for keys the store hasn't seen. All requests of a batch are
+     * applied together.
+     *
+     * @return tokens granted per request, in request order; never more than
+     *         requested, and exactly the amount for a give-back
+     */
+    long[] lease(List<LeaseRequest> requests) throws Exception;
+
+    /** Forgets buckets that have filled up again. */
+    void purge() throws Exception;
+
+    /** One bucket's share of a {@link #lease} batch. */
+    final class LeaseRequest {
+        public final UUID limitId;
+        public final String bucketKey;
+        // Negative to give unused tokens back
+        public final long tokens;
+        public final double ratePerMs;
+        public final double capacity;
+
+        public LeaseRequest(UUID limitId, String bucketKey, long tokens,
+                            double ratePerMs, double capacity) {
+            this.limitId = limitId;
+            this.bucketKey = bucketKey;
+            this.tokens = tokens;
+            this.ratePerMs = ratePerMs;
+            this.capacity = capacity;
+        }
+    }
+}
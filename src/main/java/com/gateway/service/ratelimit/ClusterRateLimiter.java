@@ -0,0 +1,148 @@
+package com.gateway.service.ratelimit;
+
+import com.gateway.domain.RateLimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link RateLimiter} whose buckets are shared by all nodes through an
+ * {@link AllowanceStore}.
+ *
+ * Requests are admitted from tokens this node has leased for the key, with a
+ * single CAS and no I/O. When a lease runs low the {@link AllowanceLeaser} is
+ * asked to top it up in its next batch. A key new to the node starts with one
+ * lease on credit, settled against its first grant, so the first requests of a
+ * client don't wait for the store; the limit may be exceeded by that much per
+ * node and key. Leases left idle are handed back to the store.
+ *
+ * While the store is unreachable the limit is enforced per node, as in local
+ * mode.
+ */
+public final class ClusterRateLimiter extends RateLimiter {
+    private final AllowanceLeaser leaser;
+    private final LocalRateLimiter fallback;
+    private final long leaseSize;
+    private final long lowWater;
+    private final long idleNanos;
+    private final ConcurrentHashMap<Object, Lease> leases = new ConcurrentHashMap<>();
+
+    final double ratePerMs;
+    final double capacity;
+
+    /**
+     * @param leasePercent share of the burst leased at a time
+     * @param idleNanos    a lease unused for this long is handed back
+     */
+    public ClusterRateLimiter(RateLimit config, AllowanceLeaser leaser, int stripes,
+                              int leasePercent, long idleNanos) {
+        super(config);
+        this.leaser = leaser;
+        this.fallback = new LocalRateLimiter(config, stripes);
+        this.leaseSize = Math.max(1, (long) config.getBurst() * leasePercent / 100);
+        this.lowWater = Math.max(1, leaseSize / 2);
+        this.idleNanos = idleNanos;
+        this.ratePerMs = (double) config.getRequests() / config.getPeriodMs();
+        this.capacity = config.getBurst();
+    }
+
+    @Override
+    protected long tryAcquire(Object bucket, long now) {
+        if (!leaser.isStoreAvailable()) {
+            return fallback.tryAcquire(bucket, now);
+        }
+
+        while (true) {
+            Lease lease = leases.get(bucket);
+            if (lease == null) {
+                lease = leases.computeIfAbsent(bucket, k -> new Lease(k, leaseSize));
+            }
+            if (lease.swept) {
+                leases.remove(bucket, lease);
+                continue;
+            }
+            lease.lastUsed = now;
+
+            long tokens = lease.tokens.get();
+            if (tokens <= 0) {
+                refill(lease);
+                // Nothing is known about the other nodes; the next token is at least one interval away
+                return -emissionNanos;
+            }
+            if (lease.tokens.compareAndSet(tokens, tokens - 1)) {
+                if (tokens - 1 < lowWater) {
+                    refill(lease);
+                }
+                return Math.max(0, toleranceNanos - (tokens - 1) * emissionNanos);
+            }
+        }
+    }
+
+    private void refill(Lease lease) {
+        if (lease.pending.compareAndSet(false, true)) {
+            leaser.refill(this, lease);
+        }
+    }
+
+    /** Tokens to ask the store for on behalf of {@code lease}. Caller holds the lease. */
+    long wanted(Lease lease) {
+        return leaseSize + lease.owed;
+    }
+
+    /** Settles a top-up of {@code lease}. Caller holds the lease and gives it up here. */
+    void granted(Lease lease, long tokens) {
+        lease.tokens.addAndGet(tokens - lease.owed);
+        lease.owed = 0;
+        lease.pending.set(false);
+    }
+
+    /** A top-up of {@code lease} that never reached the store. */
+    void failed(Lease lease) {
+        lease.pending.set(false);
+    }
+
+    @Override
+    public int sweep(long now) {
+        int removed = fallback.sweep(now);
+        for (Lease lease : leases.values()) {
+            if (now - lease.lastUsed >= idleNanos && lease.pending.compareAndSet(false, true)) {
+                lease.swept = true;
+                leases.remove(lease.key, lease);
+                long unused = lease.tokens.getAndSet(0);
+                // Returns what is left, or pays for credit that was never settled
+                long delta = lease.owed - Math.max(0, unused);
+                if (delta != 0) {
+                    leaser.settle(this, lease.key, delta);
+                }
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public long size() {
+        return leases.size() + fallback.size();
+    }
+
+    /**
+     * Tokens leased by this node for one key. Whoever flips {@code pending}
+     * owns {@code owed} until they flip it back.
+     */
+    static final class Lease {
+        final Object key;
+        final AtomicLong tokens;
+        final AtomicBoolean pending = new AtomicBoolean();
+        // Tokens spent on credit, not yet taken from the store
+        volatile long owed;
+        volatile long lastUsed;
+        volatile boolean swept;
+
+        Lease(Object key, long credit) {
+            this.key = key;
+            this.tokens = new AtomicLong(credit);
+            this.owed = credit;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.gateway.service.ratelimit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-process {@link AllowanceStore}, for tests and single-node setups. Follows
+ * the same refill arithmetic as {@link PostgresAllowanceStore}.
+ */
+public final class InMemoryAllowanceStore implements AllowanceStore {
+
+    private final Map<String, Bucket> buckets = new HashMap<>();
+
+    @Override
+    public synchronized long[] lease(List<LeaseRequest> requests) {
+        long now = System.currentTimeMillis();
+        long[] granted = new long[requests.size()];
+
+        for (int i = 0; i < requests.size(); i++) {
+            LeaseRequest request = requests.get(i);
+            Bucket bucket = buckets.computeIfAbsent(key(request.limitId, request.bucketKey),
+                    k -> new Bucket(request.capacity, now));
+
+            double available = Math.min(request.capacity,
+                    bucket.tokens + request.ratePerMs * (now - bucket.refreshedAt));
+            long grant = Math.min(request.tokens, (long) Math.floor(available));
+
+            bucket.tokens = Math.min(request.capacity, available - grant);
+            bucket.ratePerMs = request.ratePerMs;
+            bucket.capacity = request.capacity;
+            bucket.refreshedAt = now;
+            granted[i] = grant;
+        }
+        return granted;
+    }
+
+    @Override
+    public synchronized void purge() {
+        long now = System.currentTimeMillis();
+        buckets.values().removeIf(bucket ->
+                bucket.tokens + bucket.ratePerMs * (now - bucket.refreshedAt) >= bucket.capacity);
+    }
+
+    public synchronized int size() {
+        return buckets.size();
+    }
+
+    private static String key(UUID limitId, String bucketKey) {
+        return limitId + "/" + bucketKey;
+    }
+
+    private static final class Bucket {
+        double tokens;
+        double ratePerMs;
+        double capacity;
+        long refreshedAt;
+
+        Bucket(double capacity, long now) {
+            this.tokens = capacity;
+            this.capacity = capacity;
+            this.refreshedAt = now;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.gateway.service.ratelimit;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Who a rate limit counts requests for, as stored in
+ * {@code rate_limits.limit_key}:
+ * <ul>
+ *   <li>{@code client_ip} - the client's address; the default</li>
+ *   <li>{@code header:<name>} - value of a request header, e.g. an API key;
+ *       requests without it are counted by client address</li>
+ *   <li>{@code shared} - one allowance for all clients of the gateway or route</li>
+ * </ul>
+ * Resolving a key returns an object the request already has and does not allocate.
+ */
+public final class LimitKey {
+
+    public static final LimitKey CLIENT_IP = new LimitKey(Source.CLIENT_IP, null);
+    public static final LimitKey SHARED = new LimitKey(Source.SHARED, null);
+
+    // Bucket key of requests without a usable client address
+    private static final Object UNKNOWN_CLIENT = new Object();
+    private static final Object SHARED_BUCKET = new Object();
+
+    private enum Source { CLIENT_IP, HEADER, SHARED }
+
+    private final Source source;
+    private final String header;
+
+    private LimitKey(Source source, String header) {
+        this.source = source;
+        this.header = header;
+    }
+
+    /**
+     * @param spec e.g. {@code header:X-Api-Key}; {@code null} means {@link #CLIENT_IP}
+     * @throws IllegalArgumentException if the spec is malformed
+     */
+    public static LimitKey parse(String spec) {
+        if (spec == null || spec.isBlank() || spec.equalsIgnoreCase("client_ip")) {
+            return CLIENT_IP;
+        }
+        if (spec.equalsIgnoreCase("shared")) {
+            return SHARED;
+        }
+
+        int colon = spec.indexOf(':');
+        if (colon > 0 && spec.substring(0, colon).equalsIgnoreCase("header")) {
+            String name = spec.substring(colon + 1).trim();
+            if (!name.isEmpty()) {
+                return new LimitKey(Source.HEADER, name.toLowerCase(Locale.ROOT));
+            }
+        }
+
+        throw new IllegalArgumentException("Invalid rate limit key '" + spec
+                + "': expected client_ip, header:<name> or shared");
+    }
+
+    /**
+     * The bucket a request is counted in. Header values and client addresses
+     * never compare equal to each other, so they can share one table.
+     *
+     * @param headers header lookup by lower-case name
+     */
+    public Object resolve(Function<String, String> headers, SocketAddress client) {
+        switch (source) {
+            case SHARED:
+                return SHARED_BUCKET;
+            case HEADER: {
+                String value = headers.apply(header);
+                if (value != null && !value.isEmpty()) {
+                    return value;
+                }
+                return clientAddress(client);
+            }
+            default:
+                return clientAddress(client);
+        }
+    }
+
+    /**
+     * Stable text form of a bucket {@link #resolve} returned, for stores shared
+     * between nodes.
+     */
+    public static String name(Object bucket) {
+        if (bucket == SHARED_BUCKET) {
+            return "*";
+        }
+        if (bucket == UNKNOWN_CLIENT) {
+            return "unknown";
+        }
+        if (bucket instanceof InetAddress) {
+            return "ip:" + ((InetAddress) bucket).getHostAddress();
+        }
+        return "key:" + bucket;
+    }
+
+    private static Object clientAddress(SocketAddress client) {
+        if (client instanceof InetSocketAddress && ((InetSocketAddress) client).getAddress() != null) {
+            return ((InetSocketAddress) client).getAddress();
+        }
+        return UNKNOWN_CLIENT;
+    }
+
+    @Override
+    public String toString() {
+        switch (source) {
+            case HEADER:
+                return "header:" + header;
+            case SHARED:
+                return "shared";
+            default:
+                return "client_ip";
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.gateway.service.ratelimit;
+
+import com.gateway.domain.RateLimit;
+
+/**
+ * A {@link RateLimiter} that counts this node's traffic only, in a
+ * {@link TokenBucketTable}.
+ */
+public final class LocalRateLimiter extends RateLimiter {
+    private final TokenBucketTable buckets;
+
+    public LocalRateLimiter(RateLimit config, int stripes) {
+        super(config);
+        this.buckets = new TokenBucketTable(emissionNanos, toleranceNanos, stripes);
+    }
+
+    @Override
+    protected long tryAcquire(Object bucket, long now) {
+        return buckets.tryAcquire(bucket, now);
+    }
+
+    @Override
+    public int sweep(long now) {
+        int removed = 0;
+        for (int stripe = 0; stripe < buckets.getStripeCount(); stripe++) {
+            removed += buckets.sweep(stripe, now);
+        }
+        return removed;
+    }
+
+    @Override
+    public long size() {
+        return buckets.size();
+    }
+}
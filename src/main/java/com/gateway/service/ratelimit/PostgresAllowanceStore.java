@@ -0,0 +1,122 @@
+package com.gateway.service.ratelimit;
+
+import com.gateway.database.DatabaseConnectionPool;
+import com.gateway.database.TransactionManager;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@link AllowanceStore} on the {@code rate_limit_allowances} table, through
+ * the shared {@link DatabaseConnectionPool}. A batch is two statements in one
+ * transaction whatever its size: the requests travel as arrays and are
+ * unnested on the server. Rows are locked in key order, so concurrent batches
+ * from different nodes can't deadlock.
+ */
+public final class PostgresAllowanceStore implements AllowanceStore {
+
+    // Buckets new to the store start full; leases for limits deleted meanwhile are dropped
+    private static final String CREATE_SQL = """
+            INSERT INTO rate_limit_allowances (limit_id, bucket_key, tokens, rate_per_ms, capacity, refreshed_at)
+            SELECT r.limit_id, r.bucket_key, r.capacity, r.rate_per_ms, r.capacity, LOCALTIMESTAMP
+            FROM unnest(?::uuid[], ?::text[], ?::float8[], ?::float8[])
+                AS r(limit_id, bucket_key, rate_per_ms, capacity)
+            JOIN rate_limits l ON l.id = r.limit_id
+            ON CONFLICT (limit_id, bucket_key) DO NOTHING
+            """;
+
+    private static final String LEASE_SQL = """
+            WITH r AS (
+                SELECT * FROM unnest(?::uuid[], ?::text[], ?::int8[], ?::float8[], ?::float8[])
+                    AS r(limit_id, bucket_key, requested, rate_per_ms, capacity)
+            ), cur AS (
+                SELECT a.limit_id, a.bucket_key, r.requested, r.rate_per_ms, r.capacity,
+                       LEAST(r.capacity, a.tokens + r.rate_per_ms
+                             * EXTRACT(EPOCH FROM (LOCALTIMESTAMP - a.refreshed_at)) * 1000) AS available
+                FROM rate_limit_allowances a
+                JOIN r ON a.limit_id = r.limit_id AND a.bucket_key = r.bucket_key
+                ORDER BY a.limit_id, a.bucket_key
+                FOR UPDATE OF a
+            ), g AS (
+                SELECT cur.*, LEAST(cur.requested, FLOOR(cur.available))::int8 AS granted FROM cur
+            )
+            UPDATE rate_limit_allowances a
+            SET tokens = LEAST(g.capacity, g.available - g.granted),
+                rate_per_ms = g.rate_per_ms,
+                capacity = g.capacity,
+                refreshed_at = LOCALTIMESTAMP
+            FROM g
+            WHERE a.limit_id = g.limit_id AND a.bucket_key = g.bucket_key
+            RETURNING a.limit_id, a.bucket_key, g.granted
+            """;
+
+    private static final String PURGE_SQL = """
+            DELETE FROM rate_limit_allowances
+            WHERE tokens + rate_per_ms * EXTRACT(EPOCH FROM (LOCALTIMESTAMP - refreshed_at)) * 1000 >= capacity
+            """;
+
+    @Override
+    public long[] lease(List<LeaseRequest> requests) throws SQLException {
+        int n = requests.size();
+        UUID[] limitIds = new UUID[n];
+        String[] keys = new String[n];
+        Long[] tokens = new Long[n];
+        Double[] rates = new Double[n];
+        Double[] capacities = new Double[n];
+
+        Map<String, Integer> positions = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            LeaseRequest request = requests.get(i);
+            limitIds[i] = request.limitId;
+            keys[i] = request.bucketKey;
+            tokens[i] = request.tokens;
+            rates[i] = request.ratePerMs;
+            capacities[i] = request.capacity;
+            positions.put(request.limitId + "/" + request.bucketKey, i);
+        }
+
+        long[] granted = new long[n];
+
+        TransactionManager.executeInTransactionVoid(conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(CREATE_SQL)) {
+                stmt.setArray(1, conn.createArrayOf("uuid", limitIds));
+                stmt.setArray(2, conn.createArrayOf("text", keys));
+                stmt.setArray(3, conn.createArrayOf("float8", rates));
+                stmt.setArray(4, conn.createArrayOf("float8", capacities));
+                stmt.executeUpdate();
+            }
+
+            try (PreparedStatement stmt = conn.prepareStatement(LEASE_SQL)) {
+                stmt.setArray(1, conn.createArrayOf("uuid", limitIds));
+                stmt.setArray(2, conn.createArrayOf("text", keys));
+                stmt.setArray(3, conn.createArrayOf("int8", tokens));
+                stmt.setArray(4, conn.createArrayOf("float8", rates));
+                stmt.setArray(5, conn.createArrayOf("float8", capacities));
+
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    Integer i = positions.get(rs.getObject("limit_id") + "/" + rs.getString("bucket_key"));
+                    if (i != null) {
+                        granted[i] = rs.getLong("granted");
+                    }
+                }
+            }
+        });
+
+        return granted;
+    }
+
+    @Override
+    public void purge() throws SQLException {
+        try (Connection conn = DatabaseConnectionPool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(PURGE_SQL)) {
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.gateway.service.ratelimit;
+
+import com.gateway.domain.RateLimit;
+
+import java.net.SocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Enforces one configured {@link RateLimit}: {@code requests} per
+ * {@code period_ms}, with bursts of up to {@code burst} requests, counted
+ * separately for every value of its {@link LimitKey}.
+ *
+ * Outcomes are reported in token-bucket terms whatever the implementation: an
+ * admitted request gets the nanoseconds until its bucket would be full again,
+ * a rejected one minus the nanoseconds until a token is expected.
+ */
+public abstract class RateLimiter {
+    protected final RateLimit config;
+    protected final long emissionNanos;
+    protected final long toleranceNanos;
+    private final LimitKey key;
+
+    protected RateLimiter(RateLimit config) {
+        this.config = config;
+        this.key = LimitKey.parse(config.getLimitKey());
+        this.emissionNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(config.getPeriodMs()) / config.getRequests());
+        this.toleranceNanos = emissionNanos * config.getBurst();
+    }
+
+    /**
+     * Counts a request against the limit.
+     *
+     * @param headers header lookup by lower-case name
+     * @param now     nanoseconds on a non-negative monotonic clock
+     * @return {@code >= 0} if admitted, otherwise minus the nanoseconds to wait
+     */
+    public long tryAcquire(Function<String, String> headers, SocketAddress client, long now) {
+        return tryAcquire(key.resolve(headers, client), now);
+    }
+
+    protected abstract long tryAcquire(Object bucket, long now);
+
+    /**
+     * Drops per-key state that no longer matters.
+     *
+     * @return number of keys dropped
+     */
+    public abstract int sweep(long now);
+
+    /** Keys currently held. */
+    public abstract long size();
+
+    /** Whole tokens left in a bucket {@link #tryAcquire} admitted a request with {@code result}. */
+    public long remaining(long result) {
+        return Math.max(0, (toleranceNanos - result) / emissionNanos);
+    }
+
+    /**
+     * Nanoseconds until a bucket {@link #tryAcquire} answered with {@code result}
+     * is full again. A rejected request found the bucket empty: the token it
+     * waits for comes first, the rest of the burst one interval apart after it.
+     */
+    public long resetNanos(long result) {
+        return result >= 0 ? result : -result + toleranceNanos - emissionNanos;
+    }
+
+    public RateLimit getConfig() {
+        return config;
+    }
+
+    /** Whether {@code other} is the same row as this limiter was built from, unchanged. */
+    public boolean isCurrent(RateLimit other) {
+        return config.getUpdatedAt().equals(other.getUpdatedAt());
+    }
+}
@@ -0,0 +1,118 @@
+package com.gateway.service.ratelimit;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token buckets for any number of keys, one {@code long} of state each.
+ *
+ * A bucket is kept in GCRA form: instead of a token count and a refill time it
+ * stores the theoretical arrival time (TAT) of the next request, which moves
+ * forward by one emission interval per admitted request. A request is admitted
+ * while the TAT stays within {@code burst} intervals of now; a full bucket is a
+ * TAT in the past. Taking a token is a single CAS, without locks or a clock
+ * read per key.
+ *
+ * Keys are spread over independent stripes so that writers of different keys
+ * rarely touch the same map segment, and the sweeper can walk the table one
+ * stripe at a time. Full buckets carry no information and are swept away, so
+ * the table only holds keys seen within the last {@code burst} intervals.
+ */
+public final class TokenBucketTable {
+
+    // TAT of a bucket that has been swept; whoever finds it retries with a fresh one
+    private static final long SWEPT = Long.MIN_VALUE;
+
+    private final long emissionNanos;
+    private final long toleranceNanos;
+    private final ConcurrentHashMap<Object, AtomicLong>[] stripes;
+    private final int mask;
+
+    /**
+     * @param emissionNanos  time it takes to refill one token
+     * @param toleranceNanos {@code burst} times {@code emissionNanos}
+     * @param stripes        rounded up to a power of two
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TokenBucketTable(long emissionNanos, long toleranceNanos, int stripes) {
+        this.emissionNanos = emissionNanos;
+        this.toleranceNanos = toleranceNanos;
+
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new ConcurrentHashMap[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ConcurrentHashMap<>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * Takes a token from {@code key}'s bucket.
+     *
+     * @param now nanoseconds on a non-negative monotonic clock
+     * @return if admitted, the nanoseconds until the bucket is full again
+     *         ({@code >= 0}); if not, minus the nanoseconds until a token is available
+     */
+    public long tryAcquire(Object key, long now) {
+        ConcurrentHashMap<Object, AtomicLong> stripe = stripeFor(key);
+
+        while (true) {
+            AtomicLong state = stripe.get(key);
+            if (state == null) {
+                state = stripe.computeIfAbsent(key, k -> new AtomicLong(0));
+            }
+
+            long tat = state.get();
+            if (tat == SWEPT) {
+                stripe.remove(key, state);
+                continue;
+            }
+
+            long newTat = Math.max(tat, now) + emissionNanos;
+            long debt = newTat - now;
+            if (debt > toleranceNanos) {
+                return -(debt - toleranceNanos);
+            }
+            if (state.compareAndSet(tat, newTat)) {
+                return debt;
+            }
+        }
+    }
+
+    /**
+     * Drops the full buckets of one stripe.
+     *
+     * @return number of buckets dropped
+     */
+    public int sweep(int stripe, long now) {
+        int removed = 0;
+        ConcurrentHashMap<Object, AtomicLong> map = stripes[stripe & mask];
+        for (var entry : map.entrySet()) {
+            AtomicLong state = entry.getValue();
+            long tat = state.get();
+            if (tat != SWEPT && tat <= now && state.compareAndSet(tat, SWEPT)) {
+                map.remove(entry.getKey(), state);
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /** Buckets currently held; walks every stripe. */
+    public long size() {
+        long size = 0;
+        for (ConcurrentHashMap<Object, AtomicLong> stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private ConcurrentHashMap<Object, AtomicLong> stripeFor(Object key) {
+        int h = key.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+}
@@ -0,0 +1,55 @@
+package com.gateway.service.retry;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A percentile over the last {@value #SIZE} latencies of a route. Samples go
+ * into a ring without locking; the percentile is recomputed from a copy of the
+ * ring every {@value #REFRESH_EVERY} samples, so reading it is a volatile load.
+ */
+public final class LatencyPercentile {
+    private static final int SIZE = 256;
+    private static final int REFRESH_EVERY = 32;
+
+    private final double quantile;
+    private final int minSamples;
+    private final AtomicIntegerArray ring = new AtomicIntegerArray(SIZE);
+    private final AtomicLong count = new AtomicLong();
+
+    private volatile int value = -1;
+
+    /**
+     * @param quantile   e.g. 0.95
+     * @param minSamples samples needed before {@link #get} reports anything
+     */
+    public LatencyPercentile(double quantile, int minSamples) {
+        this.quantile = quantile;
+        this.minSamples = Math.max(1, Math.min(minSamples, SIZE));
+    }
+
+    public void record(long latencyMs) {
+        long n = count.getAndIncrement();
+        ring.set((int) (n % SIZE), (int) Math.min(latencyMs, Integer.MAX_VALUE));
+
+        long seen = n + 1;
+        if (seen >= minSamples && (seen == minSamples || seen % REFRESH_EVERY == 0)) {
+            refresh((int) Math.min(seen, SIZE));
+        }
+    }
+
+    /** The percentile in milliseconds, or -1 until enough samples were seen. */
+    public int get() {
+        return value;
+    }
+
+    private void refresh(int samples) {
+        int[] copy = new int[samples];
+        for (int i = 0; i < samples; i++) {
+            copy[i] = ring.get(i);
+        }
+        Arrays.sort(copy);
+        value = copy[Math.min(samples - 1, (int) Math.ceil(quantile * samples) - 1)];
+    }
+}
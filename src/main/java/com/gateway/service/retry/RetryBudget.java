@@ -0,0 +1,51 @@
+package com.gateway.service.retry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps retries and hedges in flight at a percentage of the requests in flight,
+ * so that a struggling backend isn't buried under extra attempts. A few retries
+ * are always allowed so that quiet gateways can still retry at all.
+ */
+public final class RetryBudget {
+    private final int percent;
+    private final int minConcurrency;
+
+    private final AtomicInteger activeRequests = new AtomicInteger();
+    private final AtomicInteger activeRetries = new AtomicInteger();
+
+    public RetryBudget(int percent, int minConcurrency) {
+        this.percent = Math.max(0, percent);
+        this.minConcurrency = Math.max(0, minConcurrency);
+    }
+
+    public void requestStarted() {
+        activeRequests.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        activeRequests.decrementAndGet();
+    }
+
+    /** Takes a retry slot if the budget has one; give it back with {@link #release}. */
+    public boolean tryAcquire() {
+        while (true) {
+            int retries = activeRetries.get();
+            int limit = Math.max(minConcurrency, (int) ((long) activeRequests.get() * percent / 100));
+            if (retries >= limit) {
+                return false;
+            }
+            if (activeRetries.compareAndSet(retries, retries + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        activeRetries.decrementAndGet();
+    }
+
+    public int getActiveRetries() {
+        return activeRetries.get();
+    }
+}
@@ -0,0 +1,203 @@
+package com.gateway.service.retry;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.net.ConnectException;
+import java.util.BitSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * When a proxied request may be tried again, as stored in
+ * {@code routes.retry_policy}:
+ * <pre>
+ * {
+ *   "max_retries": 2,
+ *   "retry_on": ["connect_failure", "reset", "timeout", "gateway_error", "5xx", "429"],
+ *   "idempotent_only": true,
+ *   "per_try_timeout_ms": 1000,
+ *   "hedge": true
+ * }
+ * </pre>
+ * {@code retry_on} takes conditions and individual status codes;
+ * {@code gateway_error} stands for 502, 503 and 504. A connect failure never
+ * reached the target and is retried for any method; every other condition is
+ * retried only for idempotent methods unless {@code idempotent_only} is false.
+ * {@code per_try_timeout_ms} bounds each try within the route timeout (0 lets
+ * a try use whatever is left of it). {@code hedge} sends idempotent requests
+ * to a second target when the first is slower than the route's recent p95.
+ */
+public final class RetryPolicy {
+
+    /** No retries, no hedging: one try per request. */
+    public static final RetryPolicy NONE = new RetryPolicy(0, Set.of(), new BitSet(), true, 0, false);
+
+    static final int MAX_RETRIES = 5;
+
+    private static final String CONNECT_FAILURE = "connect_failure";
+    private static final String RESET = "reset";
+    private static final String TIMEOUT = "timeout";
+    private static final String GATEWAY_ERROR = "gateway_error";
+    private static final String SERVER_ERROR = "5xx";
+
+    private final int maxRetries;
+    private final Set<String> retryOn;
+    private final BitSet statuses;
+    private final boolean idempotentOnly;
+    private final int perTryTimeoutMs;
+    private final boolean hedge;
+
+    private RetryPolicy(int maxRetries, Set<String> retryOn, BitSet statuses,
+                        boolean idempotentOnly, int perTryTimeoutMs, boolean hedge) {
+        this.maxRetries = maxRetries;
+        this.retryOn = retryOn;
+        this.statuses = statuses;
+        this.idempotentOnly = idempotentOnly;
+        this.perTryTimeoutMs = perTryTimeoutMs;
+        this.hedge = hedge;
+    }
+
+    /**
+     * @param json policy as above; {@code null} means {@link #NONE}. Omitted
+     *             fields default to one retry on connect failures and gateway
+     *             errors, idempotent methods only, no per-try timeout, no hedging.
+     * @throws IllegalArgumentException if the policy is malformed
+     */
+    public static RetryPolicy parse(String json) {
+        if (json == null || json.isBlank()) {
+            return NONE;
+        }
+
+        JsonObject obj;
+        try {
+            obj = JsonParser.parseString(json).getAsJsonObject();
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Retry policy must be a JSON object");
+        }
+
+        try {
+            int maxRetries = obj.has("max_retries") ? obj.get("max_retries").getAsInt() : 1;
+            if (maxRetries < 0 || maxRetries > MAX_RETRIES) {
+                throw new IllegalArgumentException("max_retries must be between 0 and " + MAX_RETRIES);
+            }
+
+            Set<String> retryOn = new LinkedHashSet<>();
+            if (obj.has("retry_on")) {
+                for (JsonElement element : obj.getAsJsonArray("retry_on")) {
+                    retryOn.add(element.getAsString().trim().toLowerCase(Locale.ROOT));
+                }
+            } else {
+                retryOn.add(CONNECT_FAILURE);
+                retryOn.add(GATEWAY_ERROR);
+            }
+
+            BitSet statuses = new BitSet(600);
+            for (String condition : retryOn) {
+                switch (condition) {
+                    case CONNECT_FAILURE:
+                    case RESET:
+                    case TIMEOUT:
+                        break;
+                    case GATEWAY_ERROR:
+                        statuses.set(502, 505);
+                        break;
+                    case SERVER_ERROR:
+                        statuses.set(500, 600);
+                        break;
+                    default:
+                        statuses.set(parseStatus(condition));
+                }
+            }
+
+            boolean idempotentOnly = !obj.has("idempotent_only") || obj.get("idempotent_only").getAsBoolean();
+
+            int perTryTimeoutMs = obj.has("per_try_timeout_ms") ? obj.get("per_try_timeout_ms").getAsInt() : 0;
+            if (perTryTimeoutMs < 0) {
+                throw new IllegalArgumentException("per_try_timeout_ms must not be negative");
+            }
+
+            boolean hedge = obj.has("hedge") && obj.get("hedge").getAsBoolean();
+
+            return new RetryPolicy(maxRetries, Set.copyOf(retryOn), statuses, idempotentOnly, perTryTimeoutMs, hedge);
+        } catch (IllegalStateException | ClassCastException | UnsupportedOperationException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid retry policy: " + e.getMessage());
+        }
+    }
+
+    private static int parseStatus(String condition) {
+        try {
+            int status = Integer.parseInt(condition);
+            if (status >= 100 && status < 600) {
+                return status;
+            }
+        } catch (NumberFormatException ignored) {
+            // fall through
+        }
+        throw new IllegalArgumentException("Unknown retry_on condition '" + condition + "': expected "
+                + "connect_failure, reset, timeout, gateway_error, 5xx or a status code");
+    }
+
+    public boolean isEnabled() {
+        return maxRetries > 0 || hedge;
+    }
+
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    public int getPerTryTimeoutMs() {
+        return perTryTimeoutMs;
+    }
+
+    public boolean isHedge() {
+        return hedge;
+    }
+
+    /** Whether a try that answered {@code status} may be repeated. */
+    public boolean retriesStatus(int status, boolean idempotent) {
+        return (idempotent || !idempotentOnly) && statuses.get(status);
+    }
+
+    /** Whether a try that failed with {@code error} may be repeated. */
+    public boolean retriesError(Throwable error, boolean idempotent) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null
+                ? error.getCause() : error;
+
+        if (cause instanceof CancellationException) {
+            return false;
+        }
+        if (cause instanceof ConnectException) {
+            // Never reached the target, so safe for any method
+            return retryOn.contains(CONNECT_FAILURE);
+        }
+        if (!idempotent && idempotentOnly) {
+            return false;
+        }
+        return retryOn.contains(cause instanceof TimeoutException ? TIMEOUT : RESET);
+    }
+
+    /** The policy in its stored form, with defaults filled in. */
+    public String toJson() {
+        JsonObject obj = new JsonObject();
+        obj.addProperty("max_retries", maxRetries);
+        JsonArray conditions = new JsonArray();
+        retryOn.stream().sorted().forEach(conditions::add);
+        obj.add("retry_on", conditions);
+        obj.addProperty("idempotent_only", idempotentOnly);
+        obj.addProperty("per_try_timeout_ms", perTryTimeoutMs);
+        obj.addProperty("hedge", hedge);
+        return obj.toString();
+    }
+
+    @Override
+    public String toString() {
+        return toJson();
+    }
+}
@@ -0,0 +1,207 @@
+package com.gateway.netty;
+
+import com.gateway.http.RequestContext;
+import com.gateway.netty.handlers.RequestHandler;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpVersion;
+import junit.framework.TestCase;
+
+import java.util.concurrent.CompletableFuture;
+
+public class ApiRouterTest extends TestCase {
+
+    private static final String ID = "3f2b8c4e-9a1d-4e7f-b6c5-0d2e1f3a4b5c";
+
+    private static RequestHandler handler() {
+        return new RequestHandler() {
+            @Override
+            public CompletableFuture<FullHttpResponse> handleAsync(RequestContext ctx) {
+                return null;
+            }
+        };
+    }
+
+    private static RequestContext request(String method, String uri) {
+        return RequestContext.from(new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.valueOf(method), uri));
+    }
+
+    public void testLiteralSegmentBeatsVariable() {
+        RequestHandler list = handler();
+        RequestHandler byId = handler();
+        ApiRouter router = ApiRouter.builder()
+                .get("/api/v1/gateways/{gatewayId}", byId)
+                .get("/api/v1/gateways/list", list)
+                .build();
+
+        RequestContext ctx = request("GET", "/api/v1/gateways/list");
+        assertSame(list, router.route(ctx));
+        assertNull(ctx.getPathParam("gatewayId"));
+
+        ctx = request("GET", "/api/v1/gateways/other");
+        assertSame(byId, router.route(ctx));
+        assertEquals("other", ctx.getPathParam("gatewayId"));
+    }
+
+    public void testBacktracksToVariableWhenLiteralBranchDeadEnds() {
+        RequestHandler literal = handler();
+        RequestHandler variable = handler();
+        ApiRouter router = ApiRouter.builder()
+                .get("/a/b/c", literal)
+                .get("/a/{x}/d", variable)
+                .build();
+
+        RequestContext ctx = request("GET", "/a/b/c");
+        assertSame(literal, router.route(ctx));
+        assertNull(ctx.getPathParam("x"));
+
+        // "b" matches the literal, but nothing below it takes "d"
+        ctx = request("GET", "/a/b/d");
+        assertSame(variable, router.route(ctx));
+        assertEquals("b", ctx.getPathParam("x"));
+
+        // Neither branch takes "e": no variable is left behind on the context
+        ctx = request("GET", "/a/b/e");
+        assertNull(router.route(ctx));
+        assertNull(ctx.getPathParam("x"));
+    }
+
+    public void testBacktracksWhenLiteralBranchHasNoHandlerForMethod() {
+        RequestHandler post = handler();
+        RequestHandler get = handler();
+        ApiRouter router = ApiRouter.builder()
+                .post("/users/me", post)
+                .get("/users/{userId}", get)
+                .build();
+
+        assertSame(post, router.route(request("POST", "/users/me")));
+        RequestContext ctx = request("GET", "/users/me");
+        assertSame(get, router.route(ctx));
+        assertEquals("me", ctx.getPathParam("userId"));
+    }
+
+    public void testUuidVariableAcceptsOnlyCanonicalUuids() {
+        RequestHandler byId = handler();
+        ApiRouter router = ApiRouter.builder()
+                .get("/api/v1/gateways/{gatewayId:uuid}/logs", byId)
+                .build();
+
+        RequestContext ctx = request("GET", "/api/v1/gateways/" + ID + "/logs");
+        assertSame(byId, router.route(ctx));
+        assertEquals(ID, ctx.getPathParam("gatewayId"));
+        assertSame(byId, router.route(request("GET", "/api/v1/gateways/" + ID.toUpperCase() + "/logs")));
+
+        String[] rejected = {
+                ID.substring(1),                         // too short
+                ID + "0",                                // too long
+                ID.replace("-", ""),                     // no dashes
+                "3f2b8c4e09a1d-4e7f-b6c5-0d2e1f3a4b5c",  // dash in the wrong place
+                "3f2b8c4e-9a1d-4e7f-b6c5-0d2e1f3a4b5g",  // not hex
+                "------------------------------------",  // the old [a-f0-9-]+ took this
+                "abc",
+                "",
+        };
+        for (String id : rejected) {
+            ctx = request("GET", "/api/v1/gateways/" + id + "/logs");
+            assertNull(id, router.route(ctx));
+            assertNull(ctx.getPathParam("gatewayId"));
+        }
+    }
+
+    public void testPrefixCatchesEverythingBelowIt() {
+        RequestHandler proxy = handler();
+        ApiRouter router = ApiRouter.builder()
+                .get("/health", handler())
+                .prefix("/gateway", proxy)
+                .build();
+
+        assertSame(proxy, router.route(request("GET", "/gateway/orders/42")));
+        assertSame(proxy, router.route(request("DELETE", "/gateway/orders")));
+        assertSame(proxy, router.route(request("PATCH", "/gateway/")));
+        assertSame(proxy, router.route(request("GET", "/gateway/orders?page=2")));
+        assertNull(router.route(request("GET", "/gatewayx/orders")));
+    }
+
+    public void testBarePrefixFallsThroughToHandlers() {
+        RequestHandler proxy = handler();
+        ApiRouter router = ApiRouter.builder()
+                .prefix("/gateway", proxy)
+                .build();
+        // Nothing is registered on /gateway itself
+        assertNull(router.route(request("GET", "/gateway")));
+
+        RequestHandler index = handler();
+        router = ApiRouter.builder()
+                .prefix("/gateway", proxy)
+                .get("/gateway", index)
+                .build();
+        assertSame(index, router.route(request("GET", "/gateway")));
+        assertNull(router.route(request("POST", "/gateway")));
+        assertSame(proxy, router.route(request("POST", "/gateway/x")));
+    }
+
+    public void testTrailingSlashIsADifferentPath() {
+        RequestHandler list = handler();
+        RequestHandler byId = handler();
+        ApiRouter router = ApiRouter.builder()
+                .get("/api/v1/gateways", list)
+                .get("/api/v1/gateways/{gatewayId}", byId)
+                .build();
+
+        assertSame(list, router.route(request("GET", "/api/v1/gateways")));
+        // The empty last segment is not a gateway id
+        assertNull(router.route(request("GET", "/api/v1/gateways/")));
+        assertNull(router.route(request("GET", "/api/v1/gateways/abc/")));
+
+        RequestHandler slash = handler();
+        router = ApiRouter.builder()
+                .get("/api/v1/gateways/", slash)
+                .build();
+        assertSame(slash, router.route(request("GET", "/api/v1/gateways/")));
+        assertNull(router.route(request("GET", "/api/v1/gateways")));
+    }
+
+    public void testUnknownPathOrMethodIsNotRouted() {
+        ApiRouter router = ApiRouter.builder()
+                .get("/health", handler())
+                .build();
+
+        assertNull(router.route(request("POST", "/health")));
+        assertNull(router.route(request("GET", "/health/live")));
+        assertNull(router.route(request("GET", "/")));
+        assertNull(router.route(request("GET", "/metrics")));
+    }
+
+    public void testBuilderRejectsAmbiguousRoutes() {
+        ApiRouter.Builder builder = ApiRouter.builder()
+                .get("/users/{userId}", handler())
+                .prefix("/gateway", handler());
+
+        try {
+            builder.get("/users/{userId}", handler());
+            fail("duplicate route");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            builder.delete("/users/{id}", handler());
+            fail("conflicting variable name");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            builder.delete("/users/{userId:uuid}", handler());
+            fail("conflicting variable type");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            builder.prefix("/gateway", handler());
+            fail("duplicate prefix");
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            builder.get("health", handler());
+            fail("relative route");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.gateway.repository;
+
+import junit.framework.TestCase;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.util.ByteStreamWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+public class BinaryCopyWriterTest extends TestCase {
+
+    private static final byte[] HEADER = bytes(
+            'P', 'G', 'C', 'O', 'P', 'Y', '\n', 0xFF, '\r', '\n', 0x00,
+            0x00, 0x00, 0x00, 0x00,
+            0x00, 0x00, 0x00, 0x00);
+
+    private static final byte[] TRAILER = bytes(0xFF, 0xFF);
+
+    private final RecordingCopyIn copyIn = new RecordingCopyIn();
+
+    // Collects what the writer hands to the server
+    private static final class RecordingCopyIn implements CopyIn {
+        final List<byte[]> chunks = new ArrayList<>();
+        boolean ended;
+
+        byte[] written() {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            for (byte[] chunk : chunks) {
+                out.write(chunk, 0, chunk.length);
+            }
+            return out.toByteArray();
+        }
+
+        @Override
+        public void writeToCopy(byte[] buf, int off, int siz) {
+            assertFalse(ended);
+            chunks.add(Arrays.copyOfRange(buf, off, off + siz));
+        }
+
+        @Override
+        public void writeToCopy(ByteStreamWriter from) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void flushCopy() {
+        }
+
+        @Override
+        public long endCopy() {
+            ended = true;
+            return 42;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return 0;
+        }
+
+        @Override
+        public int getFormat() {
+            return 1;
+        }
+
+        @Override
+        public int getFieldFormat(int field) {
+            return 1;
+        }
+
+        @Override
+        public boolean isActive() {
+            return !ended;
+        }
+
+        @Override
+        public void cancelCopy() {
+            ended = true;
+        }
+
+        @Override
+        public long getHandledRowCount() {
+            return -1;
+        }
+    }
+
+    private static byte[] bytes(int... values) {
+        byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static Instant local(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant();
+    }
+
+    // The field the writer produces for a single text value, without header or row start
+    private static byte[] textField(String value) throws SQLException {
+        RecordingCopyIn copyIn = new RecordingCopyIn();
+        BinaryCopyWriter writer = new BinaryCopyWriter(copyIn);
+        writer.startRow(1);
+        writer.writeText(value);
+        writer.finish();
+        byte[] written = copyIn.written();
+        return Arrays.copyOfRange(written, HEADER.length + 2, written.length - TRAILER.length);
+    }
+
+    private static byte[] lengthPrefixed(byte[] value) {
+        int n = value.length;
+        return concat(bytes(n >>> 24, n >>> 16, n >>> 8, n), value);
+    }
+
+    public void testEmptyCopyIsHeaderAndTrailer() throws SQLException {
+        BinaryCopyWriter writer = new BinaryCopyWriter(copyIn);
+        assertEquals(42, writer.finish());
+
+        assertTrue(copyIn.ended);
+        assertEquals(1, copyIn.chunks.size());
+        assertTrue(Arrays.equals(concat(HEADER, TRAILER), copyIn.written()));
+    }
+
+    public void testRowIsEncodedFieldByField() throws SQLException {
+        BinaryCopyWriter writer = new BinaryCopyWriter(copyIn);
+        writer.startRow(7);
+        writer.writeUuid(UUID.fromString("00112233-4455-6677-8899-aabbccddeeff"));
+        writer.writeNull();
+        writer.writeInt(-2);
+        writer.writeText("GET");
+        writer.writeTimestamp(local(LocalDateTime.of(2000, 1, 1, 0, 0, 1, 2_000)));
+        writer.writeUuid(null);
+        writer.writeText(null);
+        writer.finish();
+
+        byte[] row = bytes(
+                0x00, 0x07,
+                // uuid: length 16, most then least significant bits
+                0x00, 0x00, 0x00, 0x10,
+                0x00, 0x11, 0x22, 0x33, 0x44, 0x55, 0x66, 0x77,
+                0x88, 0x99, 0xAA, 0xBB, 0xCC, 0xDD, 0xEE, 0xFF,
+                // NULL: length -1, no value
+                0xFF, 0xFF, 0xFF, 0xFF,
+                // int4
+                0x00, 0x00, 0x00, 0x04, 0xFF, 0xFF, 0xFF, 0xFE,
+                // text: UTF-8 bytes, no terminator
+                0x00, 0x00, 0x00, 0x03, 'G', 'E', 'T',
+                // timestamp: 1,000,002 microseconds since 2000-01-01
+                0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x0F, 0x42, 0x42,
+                // null uuid and text
+                0xFF, 0xFF, 0xFF, 0xFF,
+                0xFF, 0xFF, 0xFF, 0xFF);
+        assertTrue(Arrays.equals(concat(HEADER, row, TRAILER), copyIn.written()));
+    }
+
+    public void testTimestampIsLocalTimeSince2000() throws SQLException {
+        BinaryCopyWriter writer = new BinaryCopyWriter(copyIn);
+        writer.startRow(2);
+        writer.writeTimestamp(local(LocalDateTime.of(2000, 1, 1, 0, 0)));
+        writer.writeTimestamp(local(LocalDateTime.of(1999, 12, 31, 23, 59, 59)));
+        writer.finish();
+
+        byte[] row = bytes(
+                0x00, 0x02,
+                0x00, 0x00, 0x00, 0x08, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00,
+                // -1,000,000
+                0x00, 0x00, 0x00, 0x08, 0xFF, 0xFF, 0xFF, 0xFF, 0xFF, 0xF0, 0xBD, 0xC0);
+        assertTrue(Arrays.equals(concat(HEADER, row, TRAILER), copyIn.written()));
+    }
+
+    public void testTextMatchesStringGetBytes() throws SQLException {
+        String[] values = {
+                "",
+                "/api/v1/gateways?limit=10",
+                "caf\u00e9",            // 2 bytes
+                "\u20ac 5",             // 3 bytes
+                "\ud83d\ude00",         // surrogate pair, 4 bytes
+                "a\ud83db",             // unpaired high surrogate
+                "\ude00z",              // unpaired low surrogate
+                "end\ud83d",            // high surrogate at the end
+        };
+        for (String value : values) {
+            byte[] expected = lengthPrefixed(value.getBytes(StandardCharsets.UTF_8));
+            assertTrue(value, Arrays.equals(expected, textField(value)));
+        }
+    }
+
+    public void testLargeTextGrowsBuffer() throws SQLException {
+        char[] chars = new char[100_000];
+        Arrays.fill(chars, '\u20ac');
+        String value = new String(chars);
+
+        assertTrue(Arrays.equals(lengthPrefixed(value.getBytes(StandardCharsets.UTF_8)), textField(value)));
+    }
+
+    public void testFlushesOnlyBetweenRows() throws SQLException {
+        int rows = 10_000;
+        BinaryCopyWriter writer = new BinaryCopyWriter(copyIn);
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(HEADER, 0, HEADER.length);
+        byte[] row = bytes(0x00, 0x01, 0x00, 0x00, 0x00, 0x04, 0x00, 0x00, 0x00, 0x00);
+        for (int i = 0; i < rows; i++) {
+            writer.startRow(1);
+            writer.writeInt(i);
+            row[9] = (byte) i;
+            row[8] = (byte) (i >>> 8);
+            expected.write(row, 0, row.length);
+        }
+        writer.finish();
+        expected.write(TRAILER, 0, TRAILER.length);
+
+        assertTrue(copyIn.chunks.size() > 1);
+        assertTrue(Arrays.equals(expected.toByteArray(), copyIn.written()));
+        // Every chunk but the last ends on a row boundary
+        int offset = 0;
+        for (byte[] chunk : copyIn.chunks.subList(0, copyIn.chunks.size() - 1)) {
+            offset += chunk.length;
+            assertEquals(0, (offset - HEADER.length) % row.length);
+        }
+    }
+}
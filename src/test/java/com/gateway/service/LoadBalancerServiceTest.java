@@ -0,0 +1,125 @@
+package com.gateway.service;
+
+import com.gateway.domain.Route;
+import com.gateway.domain.RouteTarget;
+import com.gateway.service.circuitbreaker.CircuitBreaker;
+import junit.framework.TestCase;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+public class LoadBalancerServiceTest extends TestCase {
+
+    private static final int KEYS = 2000;
+
+    private final LoadBalancerService loadBalancer = LoadBalancerService.getInstance();
+    private final OutlierDetectionService outliers = OutlierDetectionService.getInstance();
+    private final CircuitBreakerService circuitBreakers = CircuitBreakerService.getInstance();
+
+    private Route route;
+    private List<RouteTarget> targets;
+
+    private void setUpRoute(String strategy) {
+        UUID routeId = UUID.randomUUID();
+        route = new Route(routeId, UUID.randomUUID(), "/api", "GET", 5000, strategy, "header:x-user",
+                null, null, Instant.EPOCH, Instant.EPOCH);
+        List<RouteTarget> list = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            list.add(new RouteTarget(UUID.randomUUID(), routeId, "http://backend-" + i, true, "healthy",
+                    null, 0, 1, Instant.EPOCH, Instant.EPOCH));
+        }
+        targets = List.copyOf(list);
+    }
+
+    @Override
+    protected void tearDown() {
+        if (route != null) {
+            loadBalancer.removeRoute(route.getId());
+            for (RouteTarget target : targets) {
+                loadBalancer.removeTarget(target.getId());
+                outliers.remove(target.getId());
+                circuitBreakers.remove(target.getId());
+            }
+        }
+    }
+
+    // The target each key goes to; every pick is handed back right away
+    private RouteTarget[] pickAll() {
+        RouteTarget[] picked = new RouteTarget[KEYS];
+        for (int k = 0; k < KEYS; k++) {
+            String user = "user-" + k;
+            LoadBalancerService.Pick pick = loadBalancer.selectTarget(route, targets,
+                    name -> name.equals("x-user") ? user : null, "/", null);
+            assertNotNull(pick);
+            picked[k] = pick.target;
+            loadBalancer.requestAbandoned(pick);
+        }
+        return picked;
+    }
+
+    private void eject(RouteTarget target) {
+        for (int i = 0; i < 3; i++) {
+            outliers.record(targets, target, 502, 1, false);
+        }
+        assertTrue(outliers.isEjected(target.getId()));
+    }
+
+    private void openCircuit(RouteTarget target) {
+        CircuitBreaker breaker = circuitBreakers.forTarget(target.getId());
+        while (breaker.getState() == CircuitBreaker.State.CLOSED) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    private void assertRehashSkipsRefusingTargets() {
+        RouteTarget[] before = pickAll();
+
+        RouteTarget ejected = targets.get(2);
+        RouteTarget open = targets.get(5);
+        eject(ejected);
+        openCircuit(open);
+
+        RouteTarget[] after = pickAll();
+        Set<RouteTarget> takers = new HashSet<>();
+        int moved = 0;
+        for (int k = 0; k < KEYS; k++) {
+            assertNotSame(ejected, after[k]);
+            assertNotSame(open, after[k]);
+            if (before[k] == ejected || before[k] == open) {
+                takers.add(after[k]);
+                moved++;
+            } else {
+                // Keys of targets that still take requests stay where they were
+                assertSame(before[k], after[k]);
+            }
+        }
+
+        assertTrue(moved > 0);
+        // Rehashed keys are spread over the rest rather than piled onto one neighbour
+        assertTrue("moved keys went to " + takers.size() + " targets", takers.size() >= 4);
+    }
+
+    public void testMaglevRehashSkipsEjectedAndOpenCircuitTargets() {
+        setUpRoute("maglev");
+        assertRehashSkipsRefusingTargets();
+    }
+
+    public void testRingRehashSkipsEjectedAndOpenCircuitTargets() {
+        setUpRoute("consistent_hash");
+        assertRehashSkipsRefusingTargets();
+    }
+
+    public void testSameKeyAlwaysPicksSameTarget() {
+        setUpRoute("maglev");
+        RouteTarget[] first = pickAll();
+        RouteTarget[] second = pickAll();
+        for (int k = 0; k < KEYS; k++) {
+            assertSame(first[k], second[k]);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.gateway.service;
+
+import com.gateway.domain.RouteTarget;
+import junit.framework.TestCase;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+public class OutlierDetectionServiceTest extends TestCase {
+
+    private final OutlierDetectionService outliers = OutlierDetectionService.getInstance();
+
+    private List<RouteTarget> targets = List.of();
+
+    private void setUpRoute(int n) {
+        UUID routeId = UUID.randomUUID();
+        List<RouteTarget> list = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            list.add(new RouteTarget(UUID.randomUUID(), routeId, "http://backend-" + i, true, "healthy",
+                    null, 0, 1, Instant.EPOCH, Instant.EPOCH));
+        }
+        targets = List.copyOf(list);
+    }
+
+    @Override
+    protected void tearDown() {
+        for (RouteTarget target : targets) {
+            outliers.remove(target.getId());
+        }
+    }
+
+    // Three gateway errors in a row, enough to eject with the default settings
+    private boolean tryEject(RouteTarget target) {
+        for (int i = 0; i < 3; i++) {
+            outliers.record(targets, target, 502, 1, false);
+        }
+        return outliers.isEjected(target.getId());
+    }
+
+    public void testConsecutiveGatewayErrorsEject() {
+        setUpRoute(4);
+        outliers.record(targets, targets.get(0), 502, 1, false);
+        outliers.record(targets, targets.get(0), 502, 1, false);
+        outliers.record(targets, targets.get(0), 200, 1, false);
+        outliers.record(targets, targets.get(0), 502, 1, false);
+        assertFalse(outliers.isEjected(targets.get(0).getId()));
+
+        assertTrue(tryEject(targets.get(1)));
+    }
+
+    public void testOnlyTargetOfRouteIsNeverEjected() {
+        setUpRoute(1);
+        for (int i = 0; i < 5; i++) {
+            assertFalse(tryEject(targets.get(0)));
+        }
+    }
+
+    public void testLastTargetInRotationIsNeverEjected() {
+        setUpRoute(2);
+        assertTrue(tryEject(targets.get(0)));
+        assertFalse(tryEject(targets.get(1)));
+    }
+
+    public void testAtMostHalfOfRouteIsEjected() {
+        setUpRoute(8);
+        int ejected = 0;
+        for (RouteTarget target : targets) {
+            if (tryEject(target)) {
+                ejected++;
+            }
+        }
+        assertEquals(4, ejected);
+    }
+}
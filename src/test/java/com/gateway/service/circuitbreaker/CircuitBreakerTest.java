@@ -0,0 +1,186 @@
+package com.gateway.service.circuitbreaker;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CircuitBreakerTest extends TestCase {
+
+    private final List<String> transitions = new ArrayList<>();
+
+    // Window of 4 calls, opens at 50% failures, 2 probes
+    private CircuitBreaker breaker(long openDurationMs) {
+        CircuitBreakerConfig config = new CircuitBreakerConfig(4, 4, 50, 1000, 100, openDurationMs, 2);
+        return new CircuitBreaker(config, (breaker, from, to) -> transitions.add(from + "->" + to));
+    }
+
+    private static void trip(CircuitBreaker breaker) {
+        for (int i = 0; i < 2; i++) {
+            breaker.onSuccess(breaker.tryAcquire(), 1);
+        }
+        for (int i = 0; i < 2; i++) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+    }
+
+    public void testStaysClosedBelowMinimumCalls() {
+        CircuitBreaker breaker = breaker(60_000);
+        for (int i = 0; i < 3; i++) {
+            breaker.onFailure(breaker.tryAcquire());
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(-1f, breaker.getFailureRate());
+    }
+
+    public void testOpensAtFailureRateAndRefuses() {
+        CircuitBreaker breaker = breaker(60_000);
+        trip(breaker);
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+        assertEquals(List.of("CLOSED->OPEN"), transitions);
+    }
+
+    public void testOpensAtSlowCallRate() {
+        CircuitBreaker breaker = breaker(60_000);
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(breaker.tryAcquire(), 1000);
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    public void testHalfOpenIssuesOnlyProbesAndClosesOnTheirSuccess() {
+        CircuitBreaker breaker = breaker(0);
+        trip(breaker);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertTrue(first != CircuitBreaker.REFUSED);
+        assertTrue(second != CircuitBreaker.REFUSED);
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+
+        breaker.onSuccess(first, 1);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onSuccess(second, 1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED"), transitions);
+
+        // Closed again with an empty window
+        assertEquals(-1f, breaker.getFailureRate());
+    }
+
+    public void testProbeFailureReopens() {
+        CircuitBreaker breaker = breaker(0);
+        trip(breaker);
+
+        long probe = breaker.tryAcquire();
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->OPEN"), transitions);
+    }
+
+    public void testAbandonedProbeIsHandedBack() {
+        CircuitBreaker breaker = breaker(0);
+        trip(breaker);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+
+        breaker.onAbandoned(second);
+        long third = breaker.tryAcquire();
+        assertTrue(third != CircuitBreaker.REFUSED);
+
+        breaker.onSuccess(first, 1);
+        breaker.onSuccess(third, 1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    public void testClosedStateCallsDoNotCountAsProbes() {
+        CircuitBreaker breaker = breaker(0);
+        // Admitted while closed, still in flight when the breaker trips
+        long slowSuccess = breaker.tryAcquire();
+        long slowFailure = breaker.tryAcquire();
+        trip(breaker);
+
+        long probe = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        // Neither may close nor reopen the half-open breaker
+        breaker.onSuccess(slowSuccess, 1);
+        breaker.onSuccess(slowSuccess, 1);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(slowFailure);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Nor hand back a probe they never took
+        breaker.onAbandoned(slowSuccess);
+        assertTrue(breaker.tryAcquire() != CircuitBreaker.REFUSED);
+        assertEquals(CircuitBreaker.REFUSED, breaker.tryAcquire());
+
+        breaker.onFailure(probe);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    public void testProbeOfEarlierHalfOpenPeriodIsIgnored() {
+        CircuitBreaker breaker = breaker(0);
+        trip(breaker);
+
+        long stale = breaker.tryAcquire();
+        long failing = breaker.tryAcquire();
+        breaker.onFailure(failing);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        long probe = breaker.tryAcquire();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        breaker.onFailure(stale);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+        breaker.onSuccess(probe, 1);
+        breaker.onSuccess(breaker.tryAcquire(), 1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    public void testCallsFromBeforeTheLastCloseStayOutOfTheWindow() {
+        CircuitBreaker breaker = breaker(0);
+        long old = breaker.tryAcquire();
+        trip(breaker);
+        breaker.onSuccess(breaker.tryAcquire(), 1);
+        breaker.onSuccess(breaker.tryAcquire(), 1);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure(old);
+        for (int i = 0; i < 3; i++) {
+            breaker.onSuccess(breaker.tryAcquire(), 1);
+        }
+        assertEquals(-1f, breaker.getFailureRate());
+    }
+
+    public void testOnlyOneCallerMovesToHalfOpen() throws Exception {
+        CircuitBreaker breaker = breaker(0);
+        trip(breaker);
+
+        int threads = 8;
+        long[] permits = new long[threads];
+        List<Thread> running = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int slot = t;
+            Thread thread = new Thread(() -> permits[slot] = breaker.tryAcquire());
+            running.add(thread);
+            thread.start();
+        }
+        for (Thread thread : running) {
+            thread.join();
+        }
+
+        int admitted = 0;
+        for (long permit : permits) {
+            if (permit != CircuitBreaker.REFUSED) {
+                admitted++;
+            }
+        }
+        assertEquals(2, admitted);
+        assertEquals(List.of("CLOSED->OPEN", "OPEN->HALF_OPEN"), transitions);
+    }
+}
@@ -0,0 +1,96 @@
+package com.gateway.service.loadbalancer;
+
+import com.gateway.domain.RouteTarget;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static com.gateway.service.loadbalancer.MaglevTableTest.movedShare;
+import static com.gateway.service.loadbalancer.MaglevTableTest.ones;
+import static com.gateway.service.loadbalancer.MaglevTableTest.owners;
+import static com.gateway.service.loadbalancer.MaglevTableTest.targets;
+
+public class ConsistentHashRingTest extends TestCase {
+
+    private static ConsistentHashRing ring(List<RouteTarget> targets, int[] weights) {
+        return new ConsistentHashRing(targets, weights, new TargetStats[targets.size()]);
+    }
+
+    private static int[] keyCounts(List<RouteTarget> targets, int[] weights) {
+        ConsistentHashRing ring = ring(targets, weights);
+        int[] counts = new int[targets.size()];
+        for (int k = 0; k < 100_000; k++) {
+            counts[ring.select(HashKey.mix(k + 1))]++;
+        }
+        return counts;
+    }
+
+    public void testKeysSpreadRoughlyByWeight() {
+        int[] weights = {1, 1, 2, 4};
+        int[] counts = keyCounts(targets(4, 11), weights);
+
+        for (int i = 0; i < weights.length; i++) {
+            double expected = 100_000.0 * weights[i] / 8;
+            // A hundred points per unit of weight are far coarser than Maglev's table
+            assertTrue("target " + i + " got " + counts[i] + " keys, expected about " + (int) expected,
+                    Math.abs(counts[i] - expected) <= expected * 0.3);
+        }
+    }
+
+    public void testHeavyRingsAreCappedButKeepTheirRatios() {
+        // 5 million points uncapped; about 2000 per heavy target capped
+        int[] weights = new int[50];
+        Arrays.fill(weights, 1000);
+        weights[0] = 100;
+        int[] counts = keyCounts(targets(50, 14), weights);
+
+        double perWeight = 100_000.0 / (49 * 1000 + 100);
+        for (int i = 0; i < weights.length; i++) {
+            double expected = perWeight * weights[i];
+            // The light target has only about 200 points, so its share is rougher
+            double tolerance = i == 0 ? 0.5 : 0.2;
+            assertTrue("target " + i + " got " + counts[i] + " keys, expected about " + (int) expected,
+                    Math.abs(counts[i] - expected) <= expected * tolerance);
+        }
+    }
+
+    public void testRemovingTargetMovesOnlyItsKeys() {
+        List<RouteTarget> all = targets(10, 12);
+        List<RouteTarget> fewer = new ArrayList<>(all);
+        RouteTarget removed = fewer.remove(6);
+
+        UUID[] before = owners(ring(all, ones(10)), all);
+        UUID[] after = owners(ring(fewer, ones(9)), fewer);
+
+        int moved = 0;
+        for (int k = 0; k < before.length; k++) {
+            if (before[k].equals(removed.getId())) {
+                moved++;
+            } else {
+                assertEquals(before[k], after[k]);
+            }
+        }
+        double share = (double) moved / before.length;
+        assertTrue("moved " + share, share >= 0.05 && share <= 0.15);
+    }
+
+    public void testAddingTargetOnlyTakesKeysForItself() {
+        List<RouteTarget> more = targets(11, 13);
+        List<RouteTarget> fewer = new ArrayList<>(more.subList(0, 10));
+        UUID added = more.get(10).getId();
+
+        UUID[] before = owners(ring(fewer, ones(10)), fewer);
+        UUID[] after = owners(ring(more, ones(11)), more);
+
+        for (int k = 0; k < before.length; k++) {
+            if (!before[k].equals(after[k])) {
+                assertEquals(added, after[k]);
+            }
+        }
+        double moved = movedShare(before, after);
+        assertTrue("moved " + moved, moved >= 0.05 && moved <= 0.14);
+    }
+}
@@ -0,0 +1,140 @@
+package com.gateway.service.loadbalancer;
+
+import com.gateway.domain.RouteTarget;
+import junit.framework.TestCase;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+public class MaglevTableTest extends TestCase {
+
+    private static final int KEYS = 100_000;
+
+    static List<RouteTarget> targets(int n, long seed) {
+        Random random = new Random(seed);
+        UUID routeId = new UUID(random.nextLong(), random.nextLong());
+        List<RouteTarget> targets = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            targets.add(new RouteTarget(new UUID(random.nextLong(), random.nextLong()), routeId,
+                    "http://backend-" + i, true, "healthy", null, 0, 1, Instant.EPOCH, Instant.EPOCH));
+        }
+        return targets;
+    }
+
+    static int[] ones(int n) {
+        int[] weights = new int[n];
+        Arrays.fill(weights, 1);
+        return weights;
+    }
+
+    // Owner of each of KEYS spread-out hashes, by target id
+    static UUID[] owners(HashingStrategy strategy, List<RouteTarget> targets) {
+        UUID[] owners = new UUID[KEYS];
+        for (int k = 0; k < KEYS; k++) {
+            owners[k] = targets.get(strategy.select(HashKey.mix(k + 1))).getId();
+        }
+        return owners;
+    }
+
+    static double movedShare(UUID[] before, UUID[] after) {
+        int moved = 0;
+        for (int k = 0; k < KEYS; k++) {
+            if (!before[k].equals(after[k])) {
+                moved++;
+            }
+        }
+        return (double) moved / KEYS;
+    }
+
+    private static MaglevTable table(List<RouteTarget> targets, int[] weights) {
+        return new MaglevTable(targets, weights, new TargetStats[targets.size()]);
+    }
+
+    private static void assertSlotShares(List<RouteTarget> targets, int[] weights, double tolerance) {
+        MaglevTable table = table(targets, weights);
+        int[] slots = new int[targets.size()];
+        for (int slot = 0; slot < MaglevTable.TABLE_SIZE; slot++) {
+            slots[table.select(slot)]++;
+        }
+
+        int total = 0;
+        for (int weight : weights) {
+            total += weight;
+        }
+        for (int i = 0; i < weights.length; i++) {
+            double expected = (double) MaglevTable.TABLE_SIZE * weights[i] / total;
+            assertTrue("target " + i + " holds " + slots[i] + " slots, expected about " + (int) expected,
+                    Math.abs(slots[i] - expected) <= expected * tolerance);
+        }
+    }
+
+    public void testEqualWeightsFillTableEvenly() {
+        assertSlotShares(targets(10, 1), ones(10), 0.02);
+    }
+
+    public void testSlotsFollowWeights() {
+        assertSlotShares(targets(4, 2), new int[] {1, 2, 3, 4}, 0.05);
+    }
+
+    public void testLargeEqualWeightsFillTableEvenly() {
+        int[] weights = new int[10];
+        Arrays.fill(weights, 1000);
+        assertSlotShares(targets(10, 6), weights, 0.02);
+
+        // Only the ratio between weights matters
+        List<RouteTarget> targets = targets(10, 6);
+        assertTrue(Arrays.equals(owners(table(targets, ones(10)), targets),
+                owners(table(targets, weights), targets)));
+    }
+
+    public void testLargeWeightsFollowRatio() {
+        assertSlotShares(targets(4, 7), new int[] {1000, 2000, 3000, 4000}, 0.05);
+    }
+
+    public void testSingleTargetOwnsEverySlot() {
+        MaglevTable table = table(targets(1, 3), ones(1));
+        for (int slot = 0; slot < MaglevTable.TABLE_SIZE; slot++) {
+            assertEquals(0, table.select(slot));
+        }
+    }
+
+    public void testRemovingTargetRemapsAboutItsShare() {
+        List<RouteTarget> all = targets(10, 4);
+        List<RouteTarget> fewer = new ArrayList<>(all);
+        RouteTarget removed = fewer.remove(3);
+
+        UUID[] before = owners(table(all, ones(10)), all);
+        UUID[] after = owners(table(fewer, ones(9)), fewer);
+
+        for (int k = 0; k < KEYS; k++) {
+            assertFalse(after[k].equals(removed.getId()));
+        }
+        // Its own tenth has to move; Maglev moves at most about as much again on top
+        double moved = movedShare(before, after);
+        assertTrue("moved " + moved, moved >= 0.09 && moved <= 0.2);
+    }
+
+    public void testAddingTargetRemapsAboutItsShare() {
+        List<RouteTarget> more = targets(11, 5);
+        List<RouteTarget> fewer = new ArrayList<>(more.subList(0, 10));
+
+        UUID[] before = owners(table(fewer, ones(10)), fewer);
+        UUID[] after = owners(table(more, ones(11)), more);
+
+        UUID added = more.get(10).getId();
+        int toAdded = 0;
+        for (UUID owner : after) {
+            if (owner.equals(added)) {
+                toAdded++;
+            }
+        }
+        double moved = movedShare(before, after);
+        assertTrue("moved " + moved, moved >= 0.085 && moved <= 0.19);
+        // Most of what moved went to the new target
+        assertTrue(toAdded >= moved * KEYS * 0.8);
+    }
+}
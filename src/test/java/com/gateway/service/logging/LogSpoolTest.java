@@ -0,0 +1,291 @@
+package com.gateway.service.logging;
+
+import com.gateway.domain.RequestLog;
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class LogSpoolTest extends TestCase {
+
+    private static final long MB = 1024 * 1024;
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws IOException {
+        directory = Files.createTempDirectory("log-spool-test");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private LogSpool openSpool(long maxBytes, long segmentBytes) throws IOException {
+        LogSpool spool = new LogSpool(directory, maxBytes, segmentBytes);
+        spool.open();
+        return spool;
+    }
+
+    private static List<RequestLog> logs(int from, int count) {
+        List<RequestLog> logs = new ArrayList<>();
+        for (int i = from; i < from + count; i++) {
+            logs.add(new RequestLog(null, UUID.randomUUID(), i % 2 == 0 ? UUID.randomUUID() : null, null,
+                    "GET", "/items/" + i + "/\u00fc", 200 + i, i, i % 3 == 0 ? "error " + i : null,
+                    Instant.ofEpochSecond(1_700_000_000L + i, 123_456_789)));
+        }
+        return logs;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".seg")).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static void assertSameLogs(List<RequestLog> expected, List<RequestLog> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            RequestLog e = expected.get(i);
+            RequestLog a = actual.get(i);
+            assertEquals(e.getGatewayId(), a.getGatewayId());
+            assertEquals(e.getRouteId(), a.getRouteId());
+            assertEquals(e.getTargetId(), a.getTargetId());
+            assertEquals(e.getMethod(), a.getMethod());
+            assertEquals(e.getPath(), a.getPath());
+            assertEquals(e.getStatusCode(), a.getStatusCode());
+            assertEquals(e.getLatencyMs(), a.getLatencyMs());
+            assertEquals(e.getErrorMessage(), a.getErrorMessage());
+            assertEquals(e.getCreatedAt(), a.getCreatedAt());
+        }
+    }
+
+    public void testEmptySpoolPeeksNull() throws IOException {
+        LogSpool spool = openSpool(MB, MB / 4);
+        assertTrue(spool.isEmpty());
+        assertNull(spool.peek(10));
+    }
+
+    public void testAppendPeekAcknowledgeDeletesSegment() throws IOException {
+        LogSpool spool = openSpool(MB, MB / 4);
+        List<RequestLog> batch = logs(0, 5);
+        spool.append(batch);
+        assertFalse(spool.isEmpty());
+        assertEquals(5, spool.spooled());
+
+        LogSpool.ReplayBatch replay = spool.peek(100);
+        assertSameLogs(batch, replay.getLogs());
+
+        spool.acknowledge(replay);
+        assertTrue(spool.isEmpty());
+        assertEquals(0, spool.sizeBytes());
+        assertTrue(segments().isEmpty());
+        assertNull(spool.peek(100));
+    }
+
+    public void testReplayInPartsAndInOrder() throws IOException {
+        LogSpool spool = openSpool(MB, MB / 4);
+        List<RequestLog> first = logs(0, 3);
+        List<RequestLog> second = logs(3, 4);
+        spool.append(first);
+        spool.append(second);
+
+        LogSpool.ReplayBatch part = spool.peek(2);
+        assertSameLogs(first.subList(0, 2), part.getLogs());
+        // Not acknowledged yet: the same records come back
+        assertSameLogs(first.subList(0, 2), spool.peek(2).getLogs());
+        spool.acknowledge(part);
+
+        List<RequestLog> rest = new ArrayList<>(first.subList(2, 3));
+        rest.addAll(second);
+        LogSpool.ReplayBatch remaining = spool.peek(100);
+        assertSameLogs(rest, remaining.getLogs());
+        spool.acknowledge(remaining);
+        assertTrue(spool.isEmpty());
+        assertTrue(segments().isEmpty());
+    }
+
+    public void testStaleAcknowledgeIsIgnored() throws IOException {
+        LogSpool spool = openSpool(MB, MB / 4);
+        spool.append(logs(0, 4));
+
+        LogSpool.ReplayBatch first = spool.peek(2);
+        spool.acknowledge(first);
+        spool.acknowledge(first);
+
+        assertEquals(2, spool.peek(100).getLogs().size());
+    }
+
+    public void testAppendsAfterPeekGoToSameSegment() throws IOException {
+        LogSpool spool = openSpool(MB, MB / 4);
+        spool.append(logs(0, 2));
+        LogSpool.ReplayBatch replay = spool.peek(100);
+        List<RequestLog> later = logs(2, 3);
+        spool.append(later);
+        assertEquals(1, segments().size());
+
+        // Caught up with the peek, but not with the segment
+        spool.acknowledge(replay);
+        assertEquals(1, segments().size());
+        LogSpool.ReplayBatch next = spool.peek(100);
+        assertSameLogs(later, next.getLogs());
+        spool.acknowledge(next);
+        assertTrue(spool.isEmpty());
+        assertTrue(segments().isEmpty());
+    }
+
+    public void testFailedReplaysDoNotStartSegments() throws IOException {
+        LogSpool spool = openSpool(MB, MB / 4);
+        List<RequestLog> all = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            List<RequestLog> batch = logs(i * 2, 2);
+            spool.append(batch);
+            all.addAll(batch);
+            // Replay keeps failing: peeked but never acknowledged
+            assertEquals(all.size(), spool.peek(1000).getLogs().size());
+        }
+        assertEquals(1, segments().size());
+
+        LogSpool.ReplayBatch replay = spool.peek(1000);
+        assertSameLogs(all, replay.getLogs());
+        spool.acknowledge(replay);
+        assertTrue(segments().isEmpty());
+    }
+
+    public void testReopenRecoversSegmentsFromPreviousRun() throws IOException {
+        List<RequestLog> batch = logs(0, 4);
+        LogSpool spool = openSpool(MB, MB / 4);
+        spool.append(batch);
+        spool.close();
+
+        LogSpool reopened = openSpool(MB, MB / 4);
+        assertFalse(reopened.isEmpty());
+        LogSpool.ReplayBatch replay = reopened.peek(100);
+        assertSameLogs(batch, replay.getLogs());
+        reopened.acknowledge(replay);
+        assertTrue(segments().isEmpty());
+
+        // New segments continue after the recovered ones
+        reopened.append(logs(4, 1));
+        assertEquals(1, segments().size());
+    }
+
+    public void testReopenAfterTruncatedLastRecordKeepsIntactPrefix() throws IOException {
+        List<RequestLog> intact = logs(0, 3);
+        LogSpool spool = openSpool(MB, MB / 4);
+        spool.append(intact);
+        spool.append(logs(3, 1));
+        spool.close();
+
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Tear the last record as a crash mid-write would
+            file.setLength(file.length() - 3);
+        }
+
+        LogSpool reopened = openSpool(MB, MB / 4);
+        LogSpool.ReplayBatch replay = reopened.peek(100);
+        assertSameLogs(intact, replay.getLogs());
+        assertEquals(1, reopened.corruptSegments());
+
+        reopened.acknowledge(replay);
+        assertTrue(reopened.isEmpty());
+        assertTrue(segments().isEmpty());
+    }
+
+    public void testReopenAfterCorruptedCrcKeepsIntactPrefix() throws IOException {
+        List<RequestLog> intact = logs(0, 3);
+        LogSpool spool = openSpool(MB, MB / 4);
+        spool.append(intact);
+        spool.append(logs(3, 2));
+        spool.close();
+
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // Flip one payload byte of the fourth record; its CRC no longer matches
+            long fourth = recordOffset(file, 3);
+            file.seek(fourth + 8 + 20);
+            int b = file.read();
+            file.seek(fourth + 8 + 20);
+            file.write(b ^ 0xFF);
+        }
+
+        LogSpool reopened = openSpool(MB, MB / 4);
+        LogSpool.ReplayBatch replay = reopened.peek(100);
+        // The record after the corrupt one is skipped with it
+        assertSameLogs(intact, replay.getLogs());
+        assertEquals(1, reopened.corruptSegments());
+
+        reopened.acknowledge(replay);
+        assertTrue(reopened.isEmpty());
+        assertTrue(segments().isEmpty());
+    }
+
+    public void testUnknownHeaderSkipsSegment() throws IOException {
+        LogSpool spool = openSpool(MB, MB / 4);
+        spool.append(logs(0, 2));
+        spool.close();
+
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.write(0);
+        }
+
+        LogSpool reopened = openSpool(MB, MB / 4);
+        LogSpool.ReplayBatch replay = reopened.peek(100);
+        assertTrue(replay.getLogs().isEmpty());
+        reopened.acknowledge(replay);
+        assertTrue(segments().isEmpty());
+    }
+
+    public void testEvictsOldestSegmentsPastMaxBytes() throws IOException {
+        // Segments of at most 2KB, 4KB in total
+        LogSpool spool = openSpool(4096, 2048);
+        for (int i = 0; i < 40; i++) {
+            spool.append(logs(i * 4, 4));
+        }
+
+        assertTrue(spool.sizeBytes() <= 4096);
+        assertTrue(spool.evictedSegments() > 0);
+        long onDisk = 0;
+        for (Path segment : segments()) {
+            onDisk += Files.size(segment);
+        }
+        assertEquals(spool.sizeBytes(), onDisk);
+
+        // What is left is the newest data, oldest first
+        LogSpool.ReplayBatch replay = spool.peek(1000);
+        List<RequestLog> replayed = replay.getLogs();
+        assertFalse(replayed.isEmpty());
+        assertTrue(replayed.get(0).getLatencyMs() > 0);
+        int previous = -1;
+        for (RequestLog log : replayed) {
+            assertTrue(log.getLatencyMs() > previous);
+            previous = log.getLatencyMs();
+        }
+    }
+
+    // Offset of the record with the given index: a 5-byte segment header, then
+    // records of [length][crc][payload]
+    private static long recordOffset(RandomAccessFile file, int index) throws IOException {
+        long offset = 5;
+        for (int i = 0; i < index; i++) {
+            file.seek(offset);
+            offset += 8 + file.readInt();
+        }
+        return offset;
+    }
+}
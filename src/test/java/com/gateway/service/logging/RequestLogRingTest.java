@@ -0,0 +1,188 @@
+package com.gateway.service.logging;
+
+import com.gateway.domain.RequestLog;
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class RequestLogRingTest extends TestCase {
+
+    // Producer id in statusCode, per-producer sequence in latencyMs
+    private static boolean offer(RequestLogRing ring, int producer, int sequence) {
+        return ring.offer(null, null, null, "GET", "/p", producer, sequence, null, 0L);
+    }
+
+    public void testCapacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new RequestLogRing(5, OverflowPolicy.DROP_NEWEST, 75, 10).capacity());
+        assertEquals(8, new RequestLogRing(8, OverflowPolicy.DROP_NEWEST, 75, 10).capacity());
+        assertEquals(2, new RequestLogRing(1, OverflowPolicy.DROP_NEWEST, 75, 10).capacity());
+    }
+
+    public void testEmptyRingPollsNull() {
+        RequestLogRing ring = new RequestLogRing(4, OverflowPolicy.DROP_NEWEST, 75, 10);
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    public void testCopiesFieldsIntoRequestLog() {
+        RequestLogRing ring = new RequestLogRing(4, OverflowPolicy.DROP_NEWEST, 75, 10);
+        UUID gateway = UUID.randomUUID();
+        assertTrue(ring.offer(gateway, null, null, "POST", "/x", 502, 17, "boom", 1234L));
+
+        RequestLog log = ring.poll();
+        assertEquals(gateway, log.getGatewayId());
+        assertNull(log.getRouteId());
+        assertEquals("POST", log.getMethod());
+        assertEquals("/x", log.getPath());
+        assertEquals(502, log.getStatusCode());
+        assertEquals(17, log.getLatencyMs());
+        assertEquals("boom", log.getErrorMessage());
+        assertEquals(1234L, log.getCreatedAt().toEpochMilli());
+    }
+
+    public void testWrapsAroundPastCapacity() {
+        RequestLogRing ring = new RequestLogRing(4, OverflowPolicy.DROP_NEWEST, 75, 10);
+        int next = 0;
+        int expected = 0;
+        // Three in, three out, so slots are reused at a different offset each round
+        for (int round = 0; round < 1000; round++) {
+            for (int i = 0; i < 3; i++) {
+                assertTrue(offer(ring, 0, next++));
+            }
+            for (int i = 0; i < 3; i++) {
+                assertEquals(expected++, ring.poll().getLatencyMs());
+            }
+            assertNull(ring.poll());
+        }
+        assertEquals(0, ring.dropped());
+    }
+
+    public void testDropNewestWhenFull() {
+        RequestLogRing ring = new RequestLogRing(8, OverflowPolicy.DROP_NEWEST, 75, 10);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i < 8, offer(ring, 0, i));
+        }
+
+        assertEquals(2, ring.droppedNewest());
+        assertEquals(0, ring.droppedOldest());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, ring.poll().getLatencyMs());
+        }
+        assertNull(ring.poll());
+    }
+
+    public void testDropOldestEvictsAndCounts() {
+        RequestLogRing ring = new RequestLogRing(8, OverflowPolicy.DROP_OLDEST, 75, 10);
+        for (int i = 0; i < 20; i++) {
+            assertTrue(offer(ring, 0, i));
+        }
+
+        assertEquals(12, ring.droppedOldest());
+        assertEquals(0, ring.droppedNewest());
+        assertEquals(12, ring.dropped());
+        assertEquals(8, ring.size());
+        for (int i = 12; i < 20; i++) {
+            assertEquals(i, ring.poll().getLatencyMs());
+        }
+        assertNull(ring.poll());
+        assertEquals(0, ring.size());
+    }
+
+    public void testSampleDropsNewestWhenFull() {
+        // A rate of 1 keeps every entry, so only a full ring drops
+        RequestLogRing ring = new RequestLogRing(4, OverflowPolicy.SAMPLE, 50, 1);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, offer(ring, 0, i));
+        }
+        assertEquals(0, ring.sampledOut());
+        assertEquals(2, ring.droppedNewest());
+    }
+
+    public void testProducersBelowCapacityLoseAndDuplicateNothing() throws Exception {
+        int producers = 4;
+        int perProducer = 20000;
+        RequestLogRing ring = new RequestLogRing(producers * perProducer, OverflowPolicy.DROP_NEWEST, 75, 10);
+
+        List<RequestLog> received = runConcurrently(ring, producers, perProducer);
+
+        assertEquals(0, ring.dropped());
+        assertEquals(producers * perProducer, received.size());
+        int[] nextExpected = new int[producers];
+        for (RequestLog log : received) {
+            int producer = log.getStatusCode();
+            // Each producer's entries come out once each, in the order it offered them
+            assertEquals(nextExpected[producer]++, log.getLatencyMs());
+        }
+        for (int producer = 0; producer < producers; producer++) {
+            assertEquals(perProducer, nextExpected[producer]);
+        }
+    }
+
+    public void testDropOldestUnderContentionAccountsForEveryEntry() throws Exception {
+        int producers = 4;
+        int perProducer = 20000;
+        RequestLogRing ring = new RequestLogRing(64, OverflowPolicy.DROP_OLDEST, 75, 10);
+
+        List<RequestLog> received = runConcurrently(ring, producers, perProducer);
+
+        assertEquals(producers * perProducer, received.size() + ring.dropped());
+        int[] last = new int[producers];
+        Arrays.fill(last, -1);
+        for (RequestLog log : received) {
+            int producer = log.getStatusCode();
+            // Evictions skip entries but never repeat or reorder them
+            assertTrue(log.getLatencyMs() > last[producer]);
+            last[producer] = log.getLatencyMs();
+        }
+    }
+
+    // Runs the producers against one consumer and returns everything consumed
+    private static List<RequestLog> runConcurrently(RequestLogRing ring, int producers, int perProducer)
+            throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(producers);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        offer(ring, producer, i);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        List<RequestLog> received = new ArrayList<>();
+        start.countDown();
+        while (done.getCount() > 0) {
+            RequestLog log = ring.poll();
+            if (log != null) {
+                received.add(log);
+            }
+        }
+        RequestLog log;
+        while ((log = ring.poll()) != null) {
+            received.add(log);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(failure.get());
+        return received;
+    }
+}
@@ -0,0 +1,39 @@
+package com.gateway.service.ratelimit;
+
+import com.gateway.domain.RateLimit;
+import junit.framework.TestCase;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+public class RateLimiterTest extends TestCase {
+
+    // 10 requests per second, bursts of 3: a token every 100ms
+    private static final long EMISSION = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long NOW = TimeUnit.SECONDS.toNanos(1000);
+
+    private final LocalRateLimiter limiter = new LocalRateLimiter(new RateLimit(UUID.randomUUID(),
+            UUID.randomUUID(), null, "shared", 10, 1000, 3, Instant.EPOCH, Instant.EPOCH), 4);
+
+    public void testResetOfAdmittedRequestIsTimeUntilFull() {
+        long result = limiter.tryAcquire(h -> null, null, NOW);
+        assertEquals(EMISSION, limiter.resetNanos(result));
+        assertEquals(2, limiter.remaining(result));
+    }
+
+    public void testResetOfRejectedRequestIsTimeUntilFullNotUntilNextToken() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(h -> null, null, NOW) >= 0);
+        }
+
+        long rejected = limiter.tryAcquire(h -> null, null, NOW);
+        assertEquals(-EMISSION, rejected);
+        // The whole burst is spent: full again three intervals from now
+        assertEquals(3 * EMISSION, limiter.resetNanos(rejected));
+
+        long later = limiter.tryAcquire(h -> null, null, NOW + EMISSION / 2);
+        assertEquals(-EMISSION / 2, later);
+        assertEquals(3 * EMISSION - EMISSION / 2, limiter.resetNanos(later));
+    }
+}
@@ -0,0 +1,129 @@
+package com.gateway.service.ratelimit;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TokenBucketTableTest extends TestCase {
+
+    // One token every 100ns, bursts of 3
+    private static final long EMISSION = 100;
+    private static final long TOLERANCE = 3 * EMISSION;
+    private static final long NOW = 1_000_000;
+
+    private final TokenBucketTable table = new TokenBucketTable(EMISSION, TOLERANCE, 4);
+
+    public void testAdmitsBurstThenRejects() {
+        assertEquals(EMISSION, table.tryAcquire("k", NOW));
+        assertEquals(2 * EMISSION, table.tryAcquire("k", NOW));
+        // The last token of the burst: the TAT lands exactly on the tolerance
+        assertEquals(3 * EMISSION, table.tryAcquire("k", NOW));
+        assertEquals(-EMISSION, table.tryAcquire("k", NOW));
+        assertEquals(-EMISSION, table.tryAcquire("k", NOW));
+    }
+
+    public void testTokenComesBackAfterOneEmissionInterval() {
+        for (int i = 0; i < 3; i++) {
+            table.tryAcquire("k", NOW);
+        }
+
+        assertEquals(-1, table.tryAcquire("k", NOW + EMISSION - 1));
+        assertEquals(3 * EMISSION, table.tryAcquire("k", NOW + EMISSION));
+        assertEquals(-EMISSION, table.tryAcquire("k", NOW + EMISSION));
+    }
+
+    public void testIdleBucketRefillsOnlyUpToBurst() {
+        table.tryAcquire("k", NOW);
+
+        long later = NOW + 100 * EMISSION;
+        assertEquals(EMISSION, table.tryAcquire("k", later));
+        assertEquals(2 * EMISSION, table.tryAcquire("k", later));
+        assertEquals(3 * EMISSION, table.tryAcquire("k", later));
+        assertTrue(table.tryAcquire("k", later) < 0);
+    }
+
+    public void testKeysHaveSeparateBuckets() {
+        for (int i = 0; i < 3; i++) {
+            table.tryAcquire("a", NOW);
+        }
+        assertTrue(table.tryAcquire("a", NOW) < 0);
+        assertEquals(EMISSION, table.tryAcquire("b", NOW));
+    }
+
+    public void testSweepDropsOnlyFullBuckets() {
+        table.tryAcquire("k", NOW);
+
+        assertEquals(0, sweepAll(NOW + EMISSION - 1));
+        assertEquals(1, table.size());
+        assertEquals(1, sweepAll(NOW + EMISSION));
+        assertEquals(0, table.size());
+
+        // A swept key starts over with a full bucket
+        assertEquals(EMISSION, table.tryAcquire("k", NOW + EMISSION));
+    }
+
+    public void testSweepingNeverGrantsMoreThanTheBurst() throws Exception {
+        int threads = 4;
+        int rounds = 200;
+        String[] keys = {"a", "b", "c"};
+        CyclicBarrier barrier = new CyclicBarrier(threads + 1);
+        AtomicInteger[] admitted = new AtomicInteger[rounds];
+        for (int r = 0; r < rounds; r++) {
+            admitted[r] = new AtomicInteger();
+        }
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int r = 0; r < rounds; r++) {
+                        // Every round is far enough ahead for all buckets to be full again
+                        long now = NOW + r * 10 * TOLERANCE;
+                        barrier.await();
+                        for (int i = 0; i < 10; i++) {
+                            for (String key : keys) {
+                                if (table.tryAcquire(key, now) >= 0) {
+                                    admitted[r].incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            thread.start();
+            workers.add(thread);
+        }
+
+        for (int r = 0; r < rounds; r++) {
+            long now = NOW + r * 10 * TOLERANCE;
+            barrier.await();
+            // Sweeps at the same instant as the acquires, racing them for fresh and full buckets
+            for (int i = 0; i < 20; i++) {
+                sweepAll(now);
+            }
+        }
+        for (Thread thread : workers) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        for (int r = 0; r < rounds; r++) {
+            assertEquals(keys.length * 3, admitted[r].get());
+        }
+    }
+
+    private int sweepAll(long now) {
+        int removed = 0;
+        for (int stripe = 0; stripe < table.getStripeCount(); stripe++) {
+            removed += table.sweep(stripe, now);
+        }
+        return removed;
+    }
+}